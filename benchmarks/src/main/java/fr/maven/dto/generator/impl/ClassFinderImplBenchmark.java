@@ -0,0 +1,129 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.fixture.SyntheticClasspath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks on {@link ClassFinderImpl}.
+ *
+ * @author Wilfried Petit
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassFinderImplBenchmark {
+
+    /**
+     * The number of synthetic beans in the scanned directory and archives.
+     */
+    @Param({"100", "1000"})
+    private int beanCount;
+
+    /**
+     * The number of class patterns converted to path patterns.
+     */
+    @Param({"10"})
+    private int patternCount;
+
+    private SyntheticClasspath classpath;
+
+    private String[] includesPath;
+
+    private String[] excludesPath;
+
+    private List<String> classPatterns;
+
+    /**
+     * Build the synthetic classpath and the patterns.
+     *
+     * @throws IOException if the synthetic classpath can not be built.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final File root = File.createTempFile("dto-benchmark", "");
+        if (!root.delete()) {
+            throw new IOException("The file " + root + " can not be deleted.");
+        }
+        this.classpath = new SyntheticClasspath(root, this.beanCount);
+        final ClassFinderImpl classFinder = new ClassFinderImpl();
+        this.includesPath = classFinder.convertClassPatternsToPathPatterns(this.classpath.getIncludes());
+        this.excludesPath = new String[0];
+        this.classPatterns = new ArrayList<String>(this.patternCount);
+        for (int i = 0; i < this.patternCount; i++) {
+            this.classPatterns.add(SyntheticClasspath.PACKAGE + ".**.Bean" + i);
+        }
+    }
+
+    /**
+     * Delete the synthetic classpath.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.classpath.delete();
+    }
+
+    /**
+     * Scan the directory of compiled beans. Classes are already loaded after
+     * the first invocation, so this measures the scan and the loader lookup.
+     *
+     * @return the classes found.
+     * @throws ClassNotFoundException if a bean can not be loaded.
+     */
+    @Benchmark
+    public List<Class<?>> scanDirectory() throws ClassNotFoundException {
+        return new ClassFinderImpl().scanDirectory(this.classpath.getClassLoader(),
+                this.classpath.getClassesDirectory(), this.includesPath, this.excludesPath);
+    }
+
+    /**
+     * Scan the jars of compiled beans.
+     *
+     * @return the classes found.
+     * @throws ClassNotFoundException if a bean can not be loaded.
+     */
+    @Benchmark
+    public List<Class<?>> scanArchive() throws ClassNotFoundException {
+        final ClassFinderImpl classFinder = new ClassFinderImpl();
+        final List<Class<?>> classes = new ArrayList<Class<?>>();
+        for (final File archive : this.classpath.getArchives()) {
+            classes.addAll(classFinder.scanArchive(this.classpath.getClassLoader(), archive, this.includesPath,
+                    this.excludesPath));
+        }
+        return classes;
+    }
+
+    /**
+     * Convert class patterns to path patterns.
+     *
+     * @return the path patterns.
+     */
+    @Benchmark
+    public String[] convertClassPatternsToPathPatterns() {
+        return new ClassFinderImpl().convertClassPatternsToPathPatterns(this.classPatterns);
+    }
+}
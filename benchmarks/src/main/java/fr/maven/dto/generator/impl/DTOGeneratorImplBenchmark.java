@@ -0,0 +1,203 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.fixture.SyntheticClasspath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks on {@link DTOGeneratorImpl}.
+ *
+ * @author Wilfried Petit
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DTOGeneratorImplBenchmark {
+
+    /**
+     * The number of synthetic beans to generate DTOs for.
+     */
+    @Param({"100", "1000"})
+    private int beanCount;
+
+    /**
+     * The number of Map/List pairs nested in the resolved generic type.
+     */
+    @Param({"2", "8"})
+    private int genericDepth;
+
+    private SyntheticClasspath classpath;
+
+    private List<Class<?>> beans;
+
+    private Type nestedType;
+
+    private File generatedDirectory;
+
+    /**
+     * Build the synthetic classpath and load the beans.
+     *
+     * @throws Exception if the synthetic classpath can not be built.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final File root = File.createTempFile("dto-benchmark", "");
+        if (!root.delete()) {
+            throw new IOException("The file " + root + " can not be deleted.");
+        }
+        this.classpath = new SyntheticClasspath(root, this.beanCount);
+        this.beans = this.classpath.loadBeans();
+        this.nestedType = nestedGenericType(this.genericDepth, this.beans.get(0));
+        this.generatedDirectory = new File(this.classpath.getClassesDirectory().getParentFile(), "generated");
+    }
+
+    /**
+     * Delete the synthetic classpath and the generated DTOs.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.classpath.delete();
+    }
+
+    /**
+     * Resolve the DTO type of a deeply nested generic type.
+     *
+     * @return the DTO type.
+     */
+    @Benchmark
+    public String getDTOType() {
+        final DTOGeneratorImpl generator = this.newGenerator();
+        return generator.getDTOType(this.beans.get(0), this.nestedType);
+    }
+
+    /**
+     * Render the DTOs of every bean in memory.
+     *
+     * @return the number of characters rendered.
+     * @throws IOException never, as rendering goes to memory.
+     */
+    @Benchmark
+    public int render() throws IOException {
+        final DTOGeneratorImpl generator = this.newGenerator();
+        int rendered = 0;
+        for (final Class<?> bean : this.beans) {
+            final StringWriter sw = new StringWriter();
+            generator.buildDTOModel(bean);
+            generator.makeDTOClass(bean, sw);
+            rendered += sw.getBuffer().length();
+        }
+        return rendered;
+    }
+
+    /**
+     * Generate the DTOs of every bean on disk.
+     *
+     * @throws IOException if a DTO can not be written.
+     */
+    @Benchmark
+    public void generateDTOs() throws IOException {
+        this.newGenerator().generateDTOs(this.beans);
+    }
+
+    /**
+     * Create a generator configured for the synthetic beans. A new generator
+     * is used for each invocation so that no state is carried over.
+     *
+     * @return the generator.
+     */
+    private DTOGeneratorImpl newGenerator() {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGeneratedDirectory(this.generatedDirectory);
+        generator.setGeneratedPackage(SyntheticClasspath.PACKAGE + ".dto");
+        generator.setExtraInterfaces(new ArrayList<String>());
+        generator.classesToGenerate = this.beans;
+        return generator;
+    }
+
+    /**
+     * Build a generic type nesting maps and lists down to the bean given. E.g.
+     * for a depth of 2: Map&lt;String, List&lt;Map&lt;String, List&lt;Bean0&gt;&gt;&gt;&gt;.
+     *
+     * @param depth the number of Map/List pairs.
+     * @param bean  the innermost type argument.
+     * @return the generic type.
+     */
+    private static Type nestedGenericType(final int depth, final Class<?> bean) {
+        Type type = bean;
+        for (int i = 0; i < depth; i++) {
+            type = new SyntheticParameterizedType(List.class, type);
+            type = new SyntheticParameterizedType(Map.class, String.class, type);
+        }
+        return type;
+    }
+
+    /**
+     * A {@link ParameterizedType} built by hand, as the JDK does not expose
+     * one.
+     */
+    private static final class SyntheticParameterizedType implements ParameterizedType {
+
+        /**
+         * The raw type.
+         */
+        private final Class<?> rawType;
+
+        /**
+         * The type arguments.
+         */
+        private final Type[] typeArguments;
+
+        /**
+         * Constructor.
+         *
+         * @param rawType       the raw type.
+         * @param typeArguments the type arguments.
+         */
+        SyntheticParameterizedType(final Class<?> rawType, final Type... typeArguments) {
+            this.rawType = rawType;
+            this.typeArguments = typeArguments;
+        }
+
+        @Override
+        public Type[] getActualTypeArguments() {
+            return this.typeArguments.clone();
+        }
+
+        @Override
+        public Type getRawType() {
+            return this.rawType;
+        }
+
+        @Override
+        public Type getOwnerType() {
+            return null;
+        }
+    }
+}
@@ -5,11 +5,16 @@ package fr.maven.dto;
 
 import fr.maven.dto.generator.ClassFinder;
 import fr.maven.dto.generator.DTOGenerator;
+import fr.maven.dto.generator.DTOProjection;
+import fr.maven.dto.generator.DTOTypeSubstitution;
+import fr.maven.dto.generator.ExecutionStatistics;
+import fr.maven.dto.generator.GenerationCache;
 import fr.maven.dto.generator.impl.ClassFinderImpl;
 import fr.maven.dto.generator.impl.DTOGeneratorImpl;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -37,6 +42,226 @@ public class DTOLauncher {
         this.classFinder = new ClassFinderImpl();
     }
 
+    /**
+     * Set the collector of the generation timings and counters.
+     *
+     * @param statistics the execution statistics.
+     */
+    public void setStatistics(final ExecutionStatistics statistics) {
+        this.classFinder.setStatistics(statistics);
+        this.dtoGenerator.setStatistics(statistics);
+    }
+
+    /**
+     * Set the cache kept across builds.
+     *
+     * @param cache the cache, <code>null</code> not to cache anything.
+     */
+    public void setCache(final GenerationCache cache) {
+        this.classFinder.setCache(cache);
+        this.dtoGenerator.setCache(cache);
+    }
+
+    /**
+     * Set whether a mapper is generated next to each DTO.
+     *
+     * @param generateMappers <code>true</code> to generate mappers.
+     */
+    public void setGenerateMappers(final boolean generateMappers) {
+        this.dtoGenerator.setGenerateMappers(generateMappers);
+    }
+
+    /**
+     * Set whether DTOs implement {@link java.io.Externalizable}.
+     *
+     * @param generateExternalizable <code>true</code> to generate externalizable DTOs.
+     */
+    public void setGenerateExternalizable(final boolean generateExternalizable) {
+        this.dtoGenerator.setGenerateExternalizable(generateExternalizable);
+    }
+
+    /**
+     * Set whether a JSON codec is generated next to each DTO.
+     *
+     * @param generateJsonCodecs <code>true</code> to generate JSON codecs.
+     */
+    public void setGenerateJsonCodecs(final boolean generateJsonCodecs) {
+        this.dtoGenerator.setGenerateJsonCodecs(generateJsonCodecs);
+    }
+
+    /**
+     * Set whether a binary codec is generated next to each DTO.
+     *
+     * @param generateBinaryCodecs <code>true</code> to generate binary codecs.
+     */
+    public void setGenerateBinaryCodecs(final boolean generateBinaryCodecs) {
+        this.dtoGenerator.setGenerateBinaryCodecs(generateBinaryCodecs);
+    }
+
+    /**
+     * Set the directory the tests of the generated classes are generated in.
+     *
+     * @param generatedTestDirectory the directory, <code>null</code> not to generate tests.
+     */
+    public void setGeneratedTestDirectory(final File generatedTestDirectory) {
+        this.dtoGenerator.setGeneratedTestDirectory(generatedTestDirectory);
+    }
+
+    /**
+     * Set whether the DTOs are compared by value.
+     *
+     * @param generateEquals <code>true</code> to generate equals and hashCode.
+     */
+    public void setGenerateEquals(final boolean generateEquals) {
+        this.dtoGenerator.setGenerateEquals(generateEquals);
+    }
+
+    /**
+     * Set whether the DTOs are immutable.
+     *
+     * @param generateImmutable <code>true</code> to generate immutable DTOs.
+     */
+    public void setGenerateImmutable(final boolean generateImmutable) {
+        this.dtoGenerator.setGenerateImmutable(generateImmutable);
+    }
+
+    /**
+     * Set whether the deeply immutable DTOs cache their hash code.
+     *
+     * @param cacheHashCodes <code>true</code> to cache the hash codes.
+     */
+    public void setCacheHashCodes(final boolean cacheHashCodes) {
+        this.dtoGenerator.setCacheHashCodes(cacheHashCodes);
+    }
+
+    /**
+     * Set whether the lists and maps of wrappers are unboxed in the DTOs.
+     *
+     * @param generatePrimitiveCollections <code>true</code> to generate primitive collections.
+     */
+    public void setGeneratePrimitiveCollections(final boolean generatePrimitiveCollections) {
+        this.dtoGenerator.setGeneratePrimitiveCollections(generatePrimitiveCollections);
+    }
+
+    /**
+     * Set whether flyweight views backed by a ByteBuffer are generated.
+     *
+     * @param generateFlyweights <code>true</code> to generate flyweight views.
+     */
+    public void setGenerateFlyweights(final boolean generateFlyweights) {
+        this.dtoGenerator.setGenerateFlyweights(generateFlyweights);
+    }
+
+    /**
+     * Set whether columnar containers of DTOs are generated.
+     *
+     * @param generateColumns <code>true</code> to generate columnar containers.
+     */
+    public void setGenerateColumns(final boolean generateColumns) {
+        this.dtoGenerator.setGenerateColumns(generateColumns);
+    }
+
+    /**
+     * Set whether the nested DTOs are converted lazily by the mappers.
+     *
+     * @param generateLazyHolders <code>true</code> to generate lazy holders.
+     */
+    public void setGenerateLazyHolders(final boolean generateLazyHolders) {
+        this.dtoGenerator.setGenerateLazyHolders(generateLazyHolders);
+    }
+
+    /**
+     * Set whether reset methods and pools of DTOs are generated.
+     *
+     * @param generatePools <code>true</code> to generate pools.
+     */
+    public void setGeneratePools(final boolean generatePools) {
+        this.dtoGenerator.setGeneratePools(generatePools);
+    }
+
+    /**
+     * Set whether deep copy methods are generated in the DTOs.
+     *
+     * @param generateDeepCopies <code>true</code> to generate deep copies.
+     */
+    public void setGenerateDeepCopies(final boolean generateDeepCopies) {
+        this.dtoGenerator.setGenerateDeepCopies(generateDeepCopies);
+    }
+
+    /**
+     * Set whether dirty tracking is generated in the DTOs.
+     *
+     * @param generateDirtyTracking <code>true</code> to generate dirty tracking.
+     */
+    public void setGenerateDirtyTracking(final boolean generateDirtyTracking) {
+        this.dtoGenerator.setGenerateDirtyTracking(generateDirtyTracking);
+    }
+
+    /**
+     * Set whether the DTOs are generated with a compact layout.
+     *
+     * @param generateCompactLayout <code>true</code> to pack the fields.
+     */
+    public void setGenerateCompactLayout(final boolean generateCompactLayout) {
+        this.dtoGenerator.setGenerateCompactLayout(generateCompactLayout);
+    }
+
+    /**
+     * Set whether the accessor classes of the DTOs are generated.
+     *
+     * @param generateAccessors <code>true</code> to generate accessor classes.
+     */
+    public void setGenerateAccessors(final boolean generateAccessors) {
+        this.dtoGenerator.setGenerateAccessors(generateAccessors);
+    }
+
+    /**
+     * Set whether the DTOs are converted to and from maps.
+     *
+     * @param generateMapConverters <code>true</code> to generate map converters.
+     */
+    public void setGenerateMapConverters(final boolean generateMapConverters) {
+        this.dtoGenerator.setGenerateMapConverters(generateMapConverters);
+    }
+
+    /**
+     * Set the low-cardinality string fields whose values are interned.
+     *
+     * @param internedFields the patterns of the fields or the annotations
+     *                       marking them.
+     */
+    public void setInternedFields(final List<String> internedFields) {
+        this.dtoGenerator.setInternedFields(internedFields);
+    }
+
+    /**
+     * Set the substitutions of the type of the DTO fields.
+     *
+     * @param typeSubstitutions the substitutions configured.
+     */
+    public void setTypeSubstitutions(final List<TypeSubstitution> typeSubstitutions) {
+        final List<DTOTypeSubstitution> dtoTypeSubstitutions = new ArrayList<DTOTypeSubstitution>();
+        for (final TypeSubstitution typeSubstitution : typeSubstitutions) {
+            dtoTypeSubstitutions.add(new DTOTypeSubstitution(typeSubstitution.getType(),
+                    typeSubstitution.getSubstitute(), typeSubstitution.getScale()));
+        }
+        this.dtoGenerator.setTypeSubstitutions(dtoTypeSubstitutions);
+    }
+
+    /**
+     * Set the projections generated next to the full DTOs.
+     *
+     * @param projections the projections configured.
+     */
+    public void setProjections(final List<Projection> projections) {
+        final List<DTOProjection> dtoProjections = new ArrayList<DTOProjection>();
+        for (final Projection projection : projections) {
+            dtoProjections.add(new DTOProjection(projection.getName(), projection.getIncludes(),
+                    projection.getFields()));
+        }
+        this.dtoGenerator.setProjections(dtoProjections);
+    }
+
     /**
      * Run the generation.
      *
@@ -1,13 +1,20 @@
 package fr.maven.dto;
 
 import fr.maven.dto.generator.ClassLoaderProvider;
+import fr.maven.dto.generator.DTOTypeSubstitution;
+import fr.maven.dto.generator.ExecutionStatistics;
+import fr.maven.dto.generator.GenerationCache;
 import fr.maven.dto.generator.impl.ClassLoaderProviderImpl;
+import fr.maven.dto.generator.impl.ExecutionStatisticsImpl;
+import fr.maven.dto.generator.impl.FlightRecorderStatistics;
+import fr.maven.dto.generator.impl.GenerationCacheImpl;
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.AccessController;
@@ -68,6 +75,239 @@ public class DTOMojo extends AbstractMojo {
      */
     private List<String> excludes;
 
+    /**
+     * Location of the JSON report giving the time spent in each generation
+     * phase.
+     *
+     * @parameter expression="${reportFile}"
+     * default-value="${project.build.directory}/dto-maven-plugin-report.json"
+     */
+    private File reportFile;
+
+    /**
+     * Number of slowest classes and archives listed in the execution summary.
+     *
+     * @parameter expression="${reportSlowestCount}" default-value="5"
+     */
+    private int reportSlowestCount;
+
+    /**
+     * Keep the class loader, the scan indexes, the DTO models and the
+     * fingerprints of the generated files across builds run by the same JVM.
+     * To enable with the Maven daemon (mvnd) only: in a plain build, the class
+     * loaders kept hold the jars open until they are garbage collected.
+     *
+     * @parameter expression="${useCache}" default-value="false"
+     */
+    private boolean useCache;
+
+    /**
+     * Generate next to each DTO a mapper converting the class to its DTO and
+     * back without reflection.
+     *
+     * @parameter expression="${generateMappers}" default-value="false"
+     */
+    private boolean generateMappers;
+
+    /**
+     * Generate DTOs implementing java.io.Externalizable, that write and read
+     * their fields one by one instead of relying on the default serialization.
+     *
+     * @parameter expression="${generateExternalizable}" default-value="false"
+     */
+    private boolean generateExternalizable;
+
+    /**
+     * Generate next to each DTO a JSON codec writing and reading the DTO
+     * field by field, without reflection.
+     *
+     * @parameter expression="${generateJsonCodecs}" default-value="false"
+     */
+    private boolean generateJsonCodecs;
+
+    /**
+     * Generate next to each DTO a binary codec encoding the DTO in a
+     * ByteBuffer, with variable length integers and a schema hash.
+     *
+     * @parameter expression="${generateBinaryCodecs}" default-value="false"
+     */
+    private boolean generateBinaryCodecs;
+
+    /**
+     * Generate the JUnit 4 round trip tests of the binary codecs in the test
+     * sources; the project needs JUnit 4 in its test dependencies.
+     *
+     * @parameter expression="${generateCodecTests}" default-value="true"
+     */
+    private boolean generateCodecTests;
+
+    /**
+     * Location of the generated tests directory.
+     *
+     * @parameter expression="${generatedTestDirectory}"
+     * default-value="${project.build.directory}/generated-test-sources/DTOGenerator"
+     */
+    private File generatedTestDirectory;
+
+    /**
+     * Generate in each DTO equals and hashCode methods comparing its fields
+     * by value, the cheapest first.
+     *
+     * @parameter expression="${generateEquals}" default-value="false"
+     */
+    private boolean generateEquals;
+
+    /**
+     * Generate immutable DTOs, with final fields, copied collections, with*
+     * copy methods and a builder instead of setters. Immutable DTOs can not
+     * be Externalizable.
+     *
+     * @parameter expression="${generateImmutable}" default-value="false"
+     */
+    private boolean generateImmutable;
+
+    /**
+     * Cache the hash code of the immutable DTOs compared by value whose
+     * values never change once built, i.e. without dates, arrays or
+     * collections held in their collections. Requires generateImmutable.
+     *
+     * @parameter expression="${cacheHashCodes}" default-value="false"
+     */
+    private boolean cacheHashCodes;
+
+    /**
+     * Generate DTO fields without boxing for the lists and maps of wrappers:
+     * e.g. an int[] for a List&lt;Integer&gt;, a generated DTOLongDoubleMap for
+     * a Map&lt;Long, Double&gt;. Their elements, keys and values must not be
+     * null.
+     *
+     * @parameter expression="${generatePrimitiveCollections}" default-value="false"
+     */
+    private boolean generatePrimitiveCollections;
+
+    /**
+     * Generate next to each DTO whose fields are primitives, wrappers, dates,
+     * enums, strings or primitive arrays a BeanDTOView class: a flyweight with
+     * the getters of the DTO, reading records laid out in a ByteBuffer.
+     *
+     * @parameter expression="${generateFlyweights}" default-value="false"
+     */
+    private boolean generateFlyweights;
+
+    /**
+     * Generate next to each DTO a BeanDTOColumns class holding the fields of
+     * many DTOs in an array per field, e.g. a long[] for a long field, to scan
+     * large collections of DTOs field by field.
+     *
+     * @parameter expression="${generateColumns}" default-value="false"
+     */
+    private boolean generateColumns;
+
+    /**
+     * Convert the fields that refer to other DTOs on the first call of their
+     * getter instead of in the mapper: the DTO keeps a holder of the object
+     * until then. Requires generateMappers, ignored for immutable DTOs.
+     *
+     * @parameter expression="${generateLazyHolders}" default-value="false"
+     */
+    private boolean generateLazyHolders;
+
+    /**
+     * Generate a reset() method in each DTO and next to it a BeanDTOPool
+     * class, with static borrow and release methods on a shared pool and the
+     * typed factory of the pool. The generated sources then need
+     * commons-pool. Not available for immutable DTOs.
+     *
+     * @parameter expression="${generatePools}" default-value="false"
+     */
+    private boolean generatePools;
+
+    /**
+     * Generate in each DTO a deepCopy() method copying its nested DTOs,
+     * arrays, collections and dates without a serialization round trip, and a
+     * deepCopy(Map) method keeping shared references and cycles with an
+     * identity map.
+     *
+     * @parameter expression="${generateDeepCopies}" default-value="false"
+     */
+    private boolean generateDeepCopies;
+
+    /**
+     * Generate dirty tracking in each DTO: the setters mark the fields they
+     * set, toPatch() returns a DTOPatch of the fields set since clearDirty(),
+     * diff(other) the patch of the fields that differ from another DTO, and
+     * applyPatch(patch) sets them. A patch is encoded with the changed fields
+     * only. Not available for immutable DTOs.
+     *
+     * @parameter expression="${generateDirtyTracking}" default-value="false"
+     */
+    private boolean generateDirtyTracking;
+
+    /**
+     * Generate the DTOs with a compact layout: the booleans and the enums of
+     * up to 255 constants are packed in int or long bit fields, and the
+     * nullable Byte, Short, Integer, Long, Float and Double fields are stored
+     * as primitives with a presence bit. The getters and setters keep their
+     * signatures. Not available for immutable DTOs.
+     *
+     * @parameter expression="${generateCompactLayout}" default-value="false"
+     */
+    private boolean generateCompactLayout;
+
+    /**
+     * Generate next to each DTO a BeanDTOAccessor class implementing
+     * DTOAccessor: the names and the types of the fields of the DTO, their
+     * getters and setters by index through a switch, and the index of a name
+     * through a perfect hash, for the generic code walking the DTOs, e.g.
+     * audit logs, diffs or CSV exports, without reflection.
+     *
+     * @parameter expression="${generateAccessors}" default-value="false"
+     */
+    private boolean generateAccessors;
+
+    /**
+     * Generate in each DTO a toMap() method returning a LinkedHashMap of its
+     * fields by name, sized so that it never rehashes, and a static
+     * fromMap(Map) method dispatching on the hash code of the names, that
+     * accepts the numbers held exactly by their field, e.g. an Integer for a
+     * long, the names of the enum constants and the maps of the nested DTOs.
+     *
+     * @parameter expression="${generateMapConverters}" default-value="false"
+     */
+    private boolean generateMapConverters;
+
+    /**
+     * Low-cardinality string fields, e.g. country codes or status names,
+     * whose values the setters, the constructors and the decoders replace by
+     * a canonical instance from a bounded table shared by the DTOs: patterns
+     * of the canonical names of the fields, e.g. **.Address.country, or the
+     * names of runtime annotations marking the fields, prefixed by @.
+     *
+     * @parameter
+     */
+    private List<String> internedFields;
+
+    /**
+     * Substitutions of the type of the DTO fields, converted by the mappers:
+     * the fields of a type, java.util.Date, java.util.Calendar or
+     * java.math.BigDecimal, are held by a long or a java.lang.Long in the
+     * DTOs, the dates and calendars as their milliseconds since the epoch and
+     * the decimals as their unscaled value at a fixed scale.
+     *
+     * @parameter
+     */
+    private List<TypeSubstitution> typeSubstitutions;
+
+    /**
+     * Projections of the classes to generate: for each class matching the
+     * includes patterns of a projection, a DTO keeping only its fields, e.g.
+     * BeanSummaryDTO for the Summary projection of Bean, with its own mapper
+     * and codecs.
+     *
+     * @parameter
+     */
+    private List<Projection> projections;
+
     /**
      * {@inheritDoc}
      *
@@ -82,20 +322,81 @@ public class DTOMojo extends AbstractMojo {
             throw new MojoExecutionException(
                     "Generation aborted due to previous errors.");
         }
+        final ExecutionStatistics statistics = FlightRecorderStatistics.decorate(new ExecutionStatisticsImpl());
         try {
             this.getLog().debug("dto-maven-plugin launch the generation.");
+            final long classLoaderStart = statistics.start(ExecutionStatistics.PHASE_CLASSLOADER);
+            final ClassLoader classLoader = this.getClassLoader();
+            statistics.phaseEnded(ExecutionStatistics.PHASE_CLASSLOADER, classLoaderStart);
             final DTOLauncher dtoLauncher = new DTOLauncher();
-            dtoLauncher.execute(this.getClassLoader(),
+            dtoLauncher.setStatistics(statistics);
+            if (this.useCache) {
+                dtoLauncher.setCache(GenerationCacheImpl.getInstance());
+            }
+            dtoLauncher.setGenerateMappers(this.generateMappers);
+            dtoLauncher.setGenerateExternalizable(this.generateExternalizable);
+            dtoLauncher.setGenerateJsonCodecs(this.generateJsonCodecs);
+            dtoLauncher.setGenerateBinaryCodecs(this.generateBinaryCodecs);
+            dtoLauncher.setGenerateEquals(this.generateEquals);
+            dtoLauncher.setGenerateImmutable(this.generateImmutable);
+            dtoLauncher.setCacheHashCodes(this.cacheHashCodes);
+            dtoLauncher.setGeneratePrimitiveCollections(this.generatePrimitiveCollections);
+            dtoLauncher.setGenerateFlyweights(this.generateFlyweights);
+            dtoLauncher.setGenerateColumns(this.generateColumns);
+            dtoLauncher.setGenerateLazyHolders(this.generateLazyHolders);
+            dtoLauncher.setGeneratePools(this.generatePools);
+            dtoLauncher.setGenerateDeepCopies(this.generateDeepCopies);
+            dtoLauncher.setGenerateDirtyTracking(this.generateDirtyTracking);
+            dtoLauncher.setGenerateCompactLayout(this.generateCompactLayout);
+            dtoLauncher.setGenerateAccessors(this.generateAccessors);
+            dtoLauncher.setGenerateMapConverters(this.generateMapConverters);
+            if (this.internedFields != null) {
+                dtoLauncher.setInternedFields(this.internedFields);
+            }
+            if (this.typeSubstitutions != null) {
+                dtoLauncher.setTypeSubstitutions(this.typeSubstitutions);
+            }
+            if (this.projections != null) {
+                dtoLauncher.setProjections(this.projections);
+            }
+            if (this.generateCodecTests) {
+                dtoLauncher.setGeneratedTestDirectory(this.generatedTestDirectory);
+            }
+            dtoLauncher.execute(classLoader,
                     this.getBaseDirectories(), this.includes, this.excludes,
                     this.generatedDirectory, this.generatedPackage,this.extraInterfaces);
             this.getLog().debug("dto-maven-plugin finished the generation.");
             this.project.addCompileSourceRoot(this.generatedDirectory
                     .getAbsolutePath());
+            if (this.generateCodecTests && this.generateBinaryCodecs) {
+                this.project.addTestCompileSourceRoot(this.generatedTestDirectory
+                        .getAbsolutePath());
+            }
         }
         catch (final Exception e) {
             this.getLog().error("The generation has failed.", e);
             throw new MojoExecutionException("The generation has failed.", e);
         }
+        statistics.executionEnded();
+        this.report(statistics);
+    }
+
+    /**
+     * Log the execution summary and write the execution report.
+     *
+     * @param statistics the statistics of the execution.
+     */
+    protected void report(final ExecutionStatistics statistics) {
+        this.getLog().info(statistics.getSummary(this.reportSlowestCount));
+        if (this.reportFile != null) {
+            try {
+                statistics.writeReport(this.reportFile);
+                this.getLog().debug("Execution report written to " + this.reportFile);
+            }
+            catch (final IOException e) {
+                this.getLog().warn("The execution report can not be written.", e);
+            }
+        }
     }
 
     /**
@@ -110,19 +411,29 @@ public class DTOMojo extends AbstractMojo {
             DependencyResolutionRequiredException {
         this.getLog().debug("Begin classloader creation");
 
+        final List<File> classpath = this.getBaseDirectories();
+        final GenerationCache cache = this.useCache ? GenerationCacheImpl.getInstance() : null;
+        if (cache != null) {
+            final ClassLoader cachedClassLoader = cache.getClassLoader(classpath);
+            if (cachedClassLoader != null) {
+                this.getLog().debug("End classloader creation, classpath unchanged");
+                return cachedClassLoader;
+            }
+        }
+
         final List<URL> urlList = new ArrayList<URL>();
 
-        for (final Object filePath : this.project.getCompileClasspathElements()) {
-            final File classpathElement = new File((String) filePath);
-            if (classpathElement.exists()) {
-                urlList.add(classpathElement.toURI().toURL());
-            }
+        for (final File classpathElement : classpath) {
+            urlList.add(classpathElement.toURI().toURL());
         }
 
         final ClassLoaderProvider classLoaderProvider = new ClassLoaderProviderImpl(
                 urlList.toArray(new URL[0]));
         AccessController.doPrivileged(classLoaderProvider);
         final ClassLoader urlClassLoader = classLoaderProvider.getClassLoader();
+        if (cache != null) {
+            cache.putClassLoader(classpath, urlClassLoader);
+        }
 
         this.getLog().debug("End classloader creation");
         return urlClassLoader;
@@ -163,6 +474,60 @@ public class DTOMojo extends AbstractMojo {
                     .warn("No classes to generate. Please check the plugin configuration.");
             argsValid = false;
         }
+        // Immutable DTOs have no fields readExternal could set.
+        if (this.generateImmutable && this.generateExternalizable) {
+            this.getLog()
+                    .error("Immutable DTOs can not be Externalizable. Please check the plugin configuration.");
+            argsValid = false;
+        }
+        // Immutable DTOs have no fields reset could set.
+        if (this.generateImmutable && this.generatePools) {
+            this.getLog()
+                    .error("Immutable DTOs can not be pooled. Please check the plugin configuration.");
+            argsValid = false;
+        }
+        // Immutable DTOs have no setters to track.
+        if (this.generateImmutable && this.generateDirtyTracking) {
+            this.getLog()
+                    .error("Immutable DTOs can not track dirty fields. Please check the plugin configuration.");
+            argsValid = false;
+        }
+        // The packed fields are stored by the setters.
+        if (this.generateImmutable && this.generateCompactLayout) {
+            this.getLog()
+                    .error("Immutable DTOs can not be packed. Please check the plugin configuration.");
+            argsValid = false;
+        }
+        // The lazy holders are set by the mappers only.
+        if (this.generateLazyHolders && (!this.generateMappers || this.generateImmutable)) {
+            this.getLog()
+                    .warn("The lazy holders need mutable DTOs and their mappers, they are not generated.");
+        }
+        // Each substitution converts a supported type.
+        if (this.typeSubstitutions != null) {
+            for (final TypeSubstitution typeSubstitution : this.typeSubstitutions) {
+                try {
+                    new DTOTypeSubstitution(typeSubstitution.getType(), typeSubstitution.getSubstitute(),
+                            typeSubstitution.getScale());
+                }
+                catch (final IllegalArgumentException e) {
+                    this.getLog().error(e.getMessage() + " Please check the plugin configuration.");
+                    argsValid = false;
+                }
+            }
+        }
+        // Each projection names its DTOs and needs fields and classes.
+        if (this.projections != null) {
+            for (final Projection projection : this.projections) {
+                if (projection.getName() == null || projection.getIncludes() == null
+                        || projection.getIncludes().isEmpty() || projection.getFields() == null
+                        || projection.getFields().isEmpty()) {
+                    this.getLog().error("The projection " + projection.getName()
+                            + " needs a name, includes and fields. Please check the plugin configuration.");
+                    argsValid = false;
+                }
+            }
+        }
         return argsValid;
     }
 
@@ -205,4 +570,229 @@ public class DTOMojo extends AbstractMojo {
     public void setGeneratedPackage(String generatedPackage) {
         this.generatedPackage = generatedPackage;
     }
+
+    /**
+     * Set the location of the execution report.
+     *
+     * @param reportFile the reportFile to set
+     */
+    public void setReportFile(final File reportFile) {
+        this.reportFile = reportFile;
+    }
+
+    /**
+     * Set the number of slowest classes and archives listed in the summary.
+     *
+     * @param reportSlowestCount the reportSlowestCount to set
+     */
+    public void setReportSlowestCount(final int reportSlowestCount) {
+        this.reportSlowestCount = reportSlowestCount;
+    }
+
+    /**
+     * Set whether caches are kept across builds.
+     *
+     * @param useCache the useCache to set
+     */
+    public void setUseCache(final boolean useCache) {
+        this.useCache = useCache;
+    }
+
+    /**
+     * Set whether a mapper is generated next to each DTO.
+     *
+     * @param generateMappers the generateMappers to set
+     */
+    public void setGenerateMappers(final boolean generateMappers) {
+        this.generateMappers = generateMappers;
+    }
+
+    /**
+     * Set whether DTOs implement java.io.Externalizable.
+     *
+     * @param generateExternalizable the generateExternalizable to set
+     */
+    public void setGenerateExternalizable(final boolean generateExternalizable) {
+        this.generateExternalizable = generateExternalizable;
+    }
+
+    /**
+     * Set whether a JSON codec is generated next to each DTO.
+     *
+     * @param generateJsonCodecs the generateJsonCodecs to set
+     */
+    public void setGenerateJsonCodecs(final boolean generateJsonCodecs) {
+        this.generateJsonCodecs = generateJsonCodecs;
+    }
+
+    /**
+     * Set whether a binary codec is generated next to each DTO.
+     *
+     * @param generateBinaryCodecs the generateBinaryCodecs to set
+     */
+    public void setGenerateBinaryCodecs(final boolean generateBinaryCodecs) {
+        this.generateBinaryCodecs = generateBinaryCodecs;
+    }
+
+    /**
+     * Set whether the tests of the binary codecs are generated.
+     *
+     * @param generateCodecTests the generateCodecTests to set
+     */
+    public void setGenerateCodecTests(final boolean generateCodecTests) {
+        this.generateCodecTests = generateCodecTests;
+    }
+
+    /**
+     * Set the generated tests directory.
+     *
+     * @param generatedTestDirectory the generatedTestDirectory to set
+     */
+    public void setGeneratedTestDirectory(final File generatedTestDirectory) {
+        this.generatedTestDirectory = generatedTestDirectory;
+    }
+
+    /**
+     * Set whether the DTOs are compared by value.
+     *
+     * @param generateEquals the generateEquals to set
+     */
+    public void setGenerateEquals(final boolean generateEquals) {
+        this.generateEquals = generateEquals;
+    }
+
+    /**
+     * Set whether the DTOs are immutable.
+     *
+     * @param generateImmutable the generateImmutable to set
+     */
+    public void setGenerateImmutable(final boolean generateImmutable) {
+        this.generateImmutable = generateImmutable;
+    }
+
+    /**
+     * Set whether the deeply immutable DTOs cache their hash code.
+     *
+     * @param cacheHashCodes the cacheHashCodes to set
+     */
+    public void setCacheHashCodes(final boolean cacheHashCodes) {
+        this.cacheHashCodes = cacheHashCodes;
+    }
+
+    /**
+     * Set whether the lists and maps of wrappers are unboxed in the DTOs.
+     *
+     * @param generatePrimitiveCollections the generatePrimitiveCollections to set
+     */
+    public void setGeneratePrimitiveCollections(final boolean generatePrimitiveCollections) {
+        this.generatePrimitiveCollections = generatePrimitiveCollections;
+    }
+
+    /**
+     * Set whether flyweight views backed by a ByteBuffer are generated.
+     *
+     * @param generateFlyweights the generateFlyweights to set
+     */
+    public void setGenerateFlyweights(final boolean generateFlyweights) {
+        this.generateFlyweights = generateFlyweights;
+    }
+
+    /**
+     * Set whether columnar containers of DTOs are generated.
+     *
+     * @param generateColumns the generateColumns to set
+     */
+    public void setGenerateColumns(final boolean generateColumns) {
+        this.generateColumns = generateColumns;
+    }
+
+    /**
+     * Set whether the nested DTOs are converted lazily by the mappers.
+     *
+     * @param generateLazyHolders the generateLazyHolders to set
+     */
+    public void setGenerateLazyHolders(final boolean generateLazyHolders) {
+        this.generateLazyHolders = generateLazyHolders;
+    }
+
+    /**
+     * Set whether reset methods and pools of DTOs are generated.
+     *
+     * @param generatePools the generatePools to set
+     */
+    public void setGeneratePools(final boolean generatePools) {
+        this.generatePools = generatePools;
+    }
+
+    /**
+     * Set whether deep copy methods are generated in the DTOs.
+     *
+     * @param generateDeepCopies the generateDeepCopies to set
+     */
+    public void setGenerateDeepCopies(final boolean generateDeepCopies) {
+        this.generateDeepCopies = generateDeepCopies;
+    }
+
+    /**
+     * Set whether dirty tracking is generated in the DTOs.
+     *
+     * @param generateDirtyTracking the generateDirtyTracking to set
+     */
+    public void setGenerateDirtyTracking(final boolean generateDirtyTracking) {
+        this.generateDirtyTracking = generateDirtyTracking;
+    }
+
+    /**
+     * Set whether the DTOs are generated with a compact layout.
+     *
+     * @param generateCompactLayout the generateCompactLayout to set
+     */
+    public void setGenerateCompactLayout(final boolean generateCompactLayout) {
+        this.generateCompactLayout = generateCompactLayout;
+    }
+
+    /**
+     * Set whether the accessor classes of the DTOs are generated.
+     *
+     * @param generateAccessors the generateAccessors to set
+     */
+    public void setGenerateAccessors(final boolean generateAccessors) {
+        this.generateAccessors = generateAccessors;
+    }
+
+    /**
+     * Set whether the DTOs are converted to and from maps.
+     *
+     * @param generateMapConverters the generateMapConverters to set
+     */
+    public void setGenerateMapConverters(final boolean generateMapConverters) {
+        this.generateMapConverters = generateMapConverters;
+    }
+
+    /**
+     * Set the low-cardinality string fields whose values are interned.
+     *
+     * @param internedFields the internedFields to set
+     */
+    public void setInternedFields(final List<String> internedFields) {
+        this.internedFields = internedFields;
+    }
+
+    /**
+     * Set the substitutions of the type of the DTO fields.
+     *
+     * @param typeSubstitutions the typeSubstitutions to set
+     */
+    public void setTypeSubstitutions(final List<TypeSubstitution> typeSubstitutions) {
+        this.typeSubstitutions = typeSubstitutions;
+    }
+
+    /**
+     * Set the projections of the classes to generate.
+     *
+     * @param projections the projections to set
+     */
+    public void setProjections(final List<Projection> projections) {
+        this.projections = projections;
+    }
 }
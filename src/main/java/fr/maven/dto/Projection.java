@@ -0,0 +1,73 @@
+/**
+ *
+ */
+package fr.maven.dto;
+
+import java.util.List;
+
+/**
+ * A projection as configured in the plugin configuration: a name, the
+ * patterns of the classes projected and the fields their projected DTOs keep.
+ *
+ * @author Wilfried Petit
+ */
+public class Projection {
+
+    /**
+     * The projection name, inserted in the DTO names, e.g. Summary for
+     * BeanSummaryDTO.
+     */
+    private String name;
+
+    /**
+     * List of pattern classes the projection applies to.
+     */
+    private List<String> includes;
+
+    /**
+     * The names of the fields kept.
+     */
+    private List<String> fields;
+
+    /**
+     * @return the name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * @param name the name to set
+     */
+    public void setName(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the includes
+     */
+    public List<String> getIncludes() {
+        return this.includes;
+    }
+
+    /**
+     * @param includes the includes to set
+     */
+    public void setIncludes(final List<String> includes) {
+        this.includes = includes;
+    }
+
+    /**
+     * @return the fields
+     */
+    public List<String> getFields() {
+        return this.fields;
+    }
+
+    /**
+     * @param fields the fields to set
+     */
+    public void setFields(final List<String> fields) {
+        this.fields = fields;
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ *
+ */
+package fr.maven.dto;
+
+/**
+ * A type substitution as configured in the plugin configuration: the type of
+ * the fields substituted, the type holding them in the DTOs and the scale of
+ * the decimals.
+ *
+ * @author Wilfried Petit
+ */
+public class TypeSubstitution {
+
+    /**
+     * The canonical name of the type substituted, e.g. java.util.Date.
+     */
+    private String type;
+
+    /**
+     * The type holding the fields in the DTOs, long or java.lang.Long.
+     */
+    private String substitute;
+
+    /**
+     * The number of digits kept after the decimal point of the decimals.
+     */
+    private int scale;
+
+    /**
+     * @return the type
+     */
+    public String getType() {
+        return this.type;
+    }
+
+    /**
+     * @param type the type to set
+     */
+    public void setType(final String type) {
+        this.type = type;
+    }
+
+    /**
+     * @return the substitute
+     */
+    public String getSubstitute() {
+        return this.substitute;
+    }
+
+    /**
+     * @param substitute the substitute to set
+     */
+    public void setSubstitute(final String substitute) {
+        this.substitute = substitute;
+    }
+
+    /**
+     * @return the scale
+     */
+    public int getScale() {
+        return this.scale;
+    }
+
+    /**
+     * @param scale the scale to set
+     */
+    public void setScale(final int scale) {
+        this.scale = scale;
+    }
+}
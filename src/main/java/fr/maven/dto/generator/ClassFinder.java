@@ -34,4 +34,20 @@ public interface ClassFinder {
 	List<Class<?>> getClassesToGenerate(ClassLoader classLoader,
 			List<File> baseDirectories, List<String> includePatterns,
 			List<String> excludePatterns) throws ClassNotFoundException;
+
+	/**
+	 * Set the collector of the scan timings and counters.
+	 * 
+	 * @param statistics
+	 *            the execution statistics.
+	 */
+	void setStatistics(ExecutionStatistics statistics);
+
+	/**
+	 * Set the cache of scan indexes kept across builds.
+	 * 
+	 * @param cache
+	 *            the cache, <code>null</code> not to cache anything.
+	 */
+	void setCache(GenerationCache cache);
 }
@@ -46,4 +46,230 @@ public interface DTOGenerator {
     void setGeneratedPackage(String generatedPackage);
 
     void setExtraInterfaces(List<String> extraInterfaces);
+
+	/**
+	 * Set the collector of the generation timings and counters.
+	 * 
+	 * @param statistics
+	 *            the execution statistics.
+	 */
+	void setStatistics(ExecutionStatistics statistics);
+
+	/**
+	 * Set the cache of DTO models and generated files kept across builds.
+	 * 
+	 * @param cache
+	 *            the cache, <code>null</code> not to cache anything.
+	 */
+	void setCache(GenerationCache cache);
+
+	/**
+	 * Generate next to each DTO a mapper converting the class to its DTO and
+	 * back with direct getter and setter calls.
+	 * 
+	 * @param generateMappers
+	 *            <code>true</code> to generate mappers.
+	 */
+	void setGenerateMappers(boolean generateMappers);
+
+	/**
+	 * Generate DTOs implementing {@link java.io.Externalizable}, that write
+	 * and read their fields one by one instead of relying on the default
+	 * serialization.
+	 * 
+	 * @param generateExternalizable
+	 *            <code>true</code> to generate externalizable DTOs.
+	 */
+	void setGenerateExternalizable(boolean generateExternalizable);
+
+	/**
+	 * Generate next to each DTO a JSON codec writing and reading the DTO
+	 * field by field, without reflection.
+	 * 
+	 * @param generateJsonCodecs
+	 *            <code>true</code> to generate JSON codecs.
+	 */
+	void setGenerateJsonCodecs(boolean generateJsonCodecs);
+
+	/**
+	 * Generate next to each DTO a binary codec encoding the DTO in a
+	 * {@link java.nio.ByteBuffer}, and its round trip test when a test
+	 * directory is set.
+	 * 
+	 * @param generateBinaryCodecs
+	 *            <code>true</code> to generate binary codecs.
+	 */
+	void setGenerateBinaryCodecs(boolean generateBinaryCodecs);
+
+	/**
+	 * Set the directory the tests of the generated classes are generated in.
+	 * 
+	 * @param generatedTestDirectory
+	 *            the directory, <code>null</code> not to generate tests.
+	 */
+	void setGeneratedTestDirectory(File generatedTestDirectory);
+
+	/**
+	 * Generate in each DTO <code>equals</code> and <code>hashCode</code>
+	 * methods comparing its fields by value.
+	 * 
+	 * @param generateEquals
+	 *            <code>true</code> to generate equals and hashCode.
+	 */
+	void setGenerateEquals(boolean generateEquals);
+
+	/**
+	 * Generate immutable DTOs: final fields set by the constructor, copied
+	 * collections, <code>with</code> copy methods and a builder instead of
+	 * setters.
+	 * 
+	 * @param generateImmutable
+	 *            <code>true</code> to generate immutable DTOs.
+	 */
+	void setGenerateImmutable(boolean generateImmutable);
+
+	/**
+	 * Cache the hash code of the immutable DTOs compared by value whose
+	 * values never change: no date, array or collection held in a
+	 * collection, no value of an unknown class.
+	 * 
+	 * @param cacheHashCodes
+	 *            <code>true</code> to cache the hash codes.
+	 */
+	void setCacheHashCodes(boolean cacheHashCodes);
+
+	/**
+	 * Generate DTO fields without boxing for the lists and maps of wrappers:
+	 * a primitive array for a list, a generated primitive map for a map of
+	 * integral keys. Their elements, keys and values must not be
+	 * <code>null</code>.
+	 * 
+	 * @param generatePrimitiveCollections
+	 *            <code>true</code> to generate primitive collections.
+	 */
+	void setGeneratePrimitiveCollections(boolean generatePrimitiveCollections);
+
+	/**
+	 * Generate next to each DTO whose fields have a fixed size or are strings
+	 * and primitive arrays a flyweight view, with the getters of the DTO,
+	 * reading a record laid out in a <code>ByteBuffer</code>.
+	 * 
+	 * @param generateFlyweights
+	 *            <code>true</code> to generate flyweight views.
+	 */
+	void setGenerateFlyweights(boolean generateFlyweights);
+
+	/**
+	 * Generate next to each DTO a container holding the fields of many DTOs
+	 * in an array per field.
+	 * 
+	 * @param generateColumns
+	 *            <code>true</code> to generate columnar containers.
+	 */
+	void setGenerateColumns(boolean generateColumns);
+
+	/**
+	 * Generate lazy holders for the fields of the DTOs that refer to other
+	 * DTOs: the mapper keeps the object of such a field and converts it on the
+	 * first call of the getter only. Requires the mappers, ignored for
+	 * immutable DTOs.
+	 * 
+	 * @param generateLazyHolders
+	 *            <code>true</code> to convert the nested DTOs lazily.
+	 */
+	void setGenerateLazyHolders(boolean generateLazyHolders);
+
+	/**
+	 * Generate a reset method in each DTO, releasing its nested DTOs, and
+	 * next to each DTO the pools and the typed factory of its DTOs, on
+	 * commons-pool. Not available for immutable DTOs.
+	 * 
+	 * @param generatePools
+	 *            <code>true</code> to generate pools.
+	 */
+	void setGeneratePools(boolean generatePools);
+
+	/**
+	 * Generate in each DTO <code>deepCopy</code> methods copying it with its
+	 * nested DTOs, arrays and collections, optionally keeping shared
+	 * references and cycles.
+	 * 
+	 * @param generateDeepCopies
+	 *            <code>true</code> to generate deep copies.
+	 */
+	void setGenerateDeepCopies(boolean generateDeepCopies);
+
+	/**
+	 * Generate dirty tracking in each DTO: the setters mark the fields they
+	 * set, and the DTO returns the patch of its fields set, or of the fields
+	 * that differ from another DTO, and applies a patch. Not available for
+	 * immutable DTOs.
+	 * 
+	 * @param generateDirtyTracking
+	 *            <code>true</code> to generate dirty tracking.
+	 */
+	void setGenerateDirtyTracking(boolean generateDirtyTracking);
+
+	/**
+	 * Generate the DTOs with a compact layout: the booleans and the enums of
+	 * few constants are packed in bit fields, and the nullable wrappers of
+	 * numbers are stored as primitives with a presence bit. The getters and
+	 * setters keep their signatures. Not available for immutable DTOs.
+	 * 
+	 * @param generateCompactLayout
+	 *            <code>true</code> to pack the fields.
+	 */
+	void setGenerateCompactLayout(boolean generateCompactLayout);
+
+	/**
+	 * Generate next to each DTO a static accessor class, with the names and
+	 * the types of its fields and their getters and setters by index, so that
+	 * generic code can walk the DTOs without reflection.
+	 * 
+	 * @param generateAccessors
+	 *            <code>true</code> to generate accessor classes.
+	 */
+	void setGenerateAccessors(boolean generateAccessors);
+
+	/**
+	 * Generate in each DTO a <code>toMap()</code> method returning a map of
+	 * its fields by name, and a static <code>fromMap(Map)</code> method
+	 * converting such a map back, the numbers held exactly by their field
+	 * and the nested DTOs included.
+	 * 
+	 * @param generateMapConverters
+	 *            <code>true</code> to generate map converters.
+	 */
+	void setGenerateMapConverters(boolean generateMapConverters);
+
+	/**
+	 * Canonicalize the values of low-cardinality string fields through a
+	 * bounded intern table shared by the DTOs, in the setters, the
+	 * constructors and the decoders.
+	 * 
+	 * @param internedFields
+	 *            patterns of the canonical names of the fields, e.g.
+	 *            <code>**.Address.country</code>, or the names of runtime
+	 *            annotations of the fields prefixed by <code>@</code>.
+	 */
+	void setInternedFields(List<String> internedFields);
+
+	/**
+	 * Substitute the type of the DTO fields of some types, e.g. hold the
+	 * dates as a <code>long</code>, converted by the mappers.
+	 * 
+	 * @param typeSubstitutions
+	 *            the substitutions, one per type.
+	 */
+	void setTypeSubstitutions(List<DTOTypeSubstitution> typeSubstitutions);
+
+	/**
+	 * Generate for each class matching a projection, next to its full DTO and
+	 * with the same companion classes, a DTO keeping only the fields of the
+	 * projection.
+	 * 
+	 * @param projections
+	 *            the projections.
+	 */
+	void setProjections(List<DTOProjection> projections);
 }
@@ -0,0 +1,96 @@
+/**
+ *
+ */
+package fr.maven.dto.generator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A projection of the classes to generate: a DTO keeping some of their
+ * fields, generated next to their full DTO and named after the projection,
+ * e.g. BeanSummaryDTO for the Summary projection of Bean.
+ *
+ * @author Wilfried Petit
+ *
+ */
+public final class DTOProjection {
+
+	/**
+	 * The projection name, inserted in the DTO names.
+	 */
+	private final String name;
+
+	/**
+	 * The patterns of the classes projected, as the includes patterns.
+	 */
+	private final List<String> includePatterns;
+
+	/**
+	 * The names of the fields kept.
+	 */
+	private final List<String> fieldNames;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param name
+	 *            the projection name, a Java identifier.
+	 * @param includePatterns
+	 *            patterns that canonical name of the classes projected must
+	 *            match.
+	 * @param fieldNames
+	 *            the names of the fields kept.
+	 */
+	public DTOProjection(final String name, final List<String> includePatterns, final List<String> fieldNames) {
+		if (name == null || name.length() == 0 || !Character.isJavaIdentifierStart(name.charAt(0))) {
+			throw new IllegalArgumentException("Illegal projection name " + name);
+		}
+		for (int i = 1; i < name.length(); i++) {
+			if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+				throw new IllegalArgumentException("Illegal projection name " + name);
+			}
+		}
+		if (includePatterns == null || includePatterns.isEmpty()) {
+			throw new IllegalArgumentException("The projection " + name + " has no includes.");
+		}
+		if (fieldNames == null || fieldNames.isEmpty()) {
+			throw new IllegalArgumentException("The projection " + name + " has no fields.");
+		}
+		this.name = name;
+		this.includePatterns = Collections.unmodifiableList(new ArrayList<String>(includePatterns));
+		this.fieldNames = Collections.unmodifiableList(new ArrayList<String>(fieldNames));
+	}
+
+	/**
+	 * @return the projection name.
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * @return the patterns of the classes projected.
+	 */
+	public List<String> getIncludePatterns() {
+		return this.includePatterns;
+	}
+
+	/**
+	 * @return the names of the fields kept.
+	 */
+	public List<String> getFieldNames() {
+		return this.fieldNames;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return this.name + this.includePatterns + this.fieldNames;
+	}
+}
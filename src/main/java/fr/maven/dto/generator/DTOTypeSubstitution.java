@@ -0,0 +1,111 @@
+/**
+ *
+ */
+package fr.maven.dto.generator;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A substitution of the type of the DTO fields: the fields of a type
+ * costly to allocate and to encode, e.g. java.util.Date, are held by a
+ * <code>long</code> in the DTOs, and the mappers convert them. The fields
+ * are substituted when their declared type is the type, not when it is an
+ * element of an array or a collection.
+ * <p/>
+ * Dates are held as their milliseconds since the epoch, calendars as their
+ * milliseconds since the epoch too, read back in the default time zone, and
+ * decimals as their unscaled value at a fixed scale, rounded half even. A
+ * <code>long</code> DTO field holds <code>null</code> as
+ * {@link Long#MIN_VALUE}, a <code>java.lang.Long</code> one as
+ * <code>null</code>.
+ *
+ * @author Wilfried Petit
+ *
+ */
+public final class DTOTypeSubstitution {
+
+	/**
+	 * The types that can be substituted.
+	 */
+	public static final List<String> SUBSTITUTABLE_TYPES = Arrays.asList("java.util.Date", "java.util.Calendar",
+			"java.math.BigDecimal");
+
+	/**
+	 * The name of the type substituted.
+	 */
+	private final String typeName;
+
+	/**
+	 * The type holding the fields in the DTOs.
+	 */
+	private final Class<?> substituteType;
+
+	/**
+	 * The scale of the decimals.
+	 */
+	private final int scale;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param typeName
+	 *            the canonical name of the type substituted, one of
+	 *            {@link #SUBSTITUTABLE_TYPES}.
+	 * @param substituteName
+	 *            the type holding the fields in the DTOs,
+	 *            <code>long</code> or <code>java.lang.Long</code>.
+	 * @param scale
+	 *            the number of digits kept after the decimal point of the
+	 *            decimals, ignored for the other types.
+	 */
+	public DTOTypeSubstitution(final String typeName, final String substituteName, final int scale) {
+		if (!SUBSTITUTABLE_TYPES.contains(typeName)) {
+			throw new IllegalArgumentException("The type " + typeName + " can not be substituted, only "
+					+ SUBSTITUTABLE_TYPES + " can.");
+		}
+		if ("long".equals(substituteName)) {
+			this.substituteType = long.class;
+		}
+		else if ("java.lang.Long".equals(substituteName) || "Long".equals(substituteName)) {
+			this.substituteType = Long.class;
+		}
+		else {
+			throw new IllegalArgumentException("The type " + typeName + " can not be substituted by "
+					+ substituteName + ", only by long or java.lang.Long.");
+		}
+		this.typeName = typeName;
+		this.scale = "java.math.BigDecimal".equals(typeName) ? scale : 0;
+	}
+
+	/**
+	 * @return the canonical name of the type substituted.
+	 */
+	public String getTypeName() {
+		return this.typeName;
+	}
+
+	/**
+	 * @return the type holding the fields in the DTOs.
+	 */
+	public Class<?> getSubstituteType() {
+		return this.substituteType;
+	}
+
+	/**
+	 * @return the scale of the decimals.
+	 */
+	public int getScale() {
+		return this.scale;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return this.typeName + "->" + this.substituteType.getName() + ":" + this.scale;
+	}
+}
@@ -0,0 +1,158 @@
+/**
+ *
+ */
+package fr.maven.dto.generator;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This interface describes the collector of the timings and counters of a
+ * plugin execution.
+ *
+ * @author Wilfried Petit
+ *
+ */
+public interface ExecutionStatistics {
+
+	/**
+	 * Phase spent building the ClassLoader of the project classpath.
+	 */
+	String PHASE_CLASSLOADER = "classloader";
+
+	/**
+	 * Phase spent scanning directories and archives.
+	 */
+	String PHASE_SCAN = "scan";
+
+	/**
+	 * Phase spent loading the classes found.
+	 */
+	String PHASE_LOAD = "load";
+
+	/**
+	 * Phase spent reflecting the classes to build the DTO model.
+	 */
+	String PHASE_MODEL = "model";
+
+	/**
+	 * Phase spent rendering the DTO sources.
+	 */
+	String PHASE_RENDER = "render";
+
+	/**
+	 * Phase spent writing the DTO sources.
+	 */
+	String PHASE_WRITE = "write";
+
+	/**
+	 * Record the start of a step, and return the current time, to be given
+	 * back when the step ends.
+	 *
+	 * @param phase
+	 *            the phase of the step, e.g. {@link #PHASE_SCAN} for the scan
+	 *            of a directory or an archive.
+	 * @return the current time in nanoseconds.
+	 */
+	long start(String phase);
+
+	/**
+	 * Record the end of a phase.
+	 *
+	 * @param phase
+	 *            the phase name.
+	 * @param startTime
+	 *            the time returned by {@link #start(String)} when the phase began.
+	 */
+	void phaseEnded(String phase, long startTime);
+
+	/**
+	 * Record the end of the scan of a directory or an archive, before the
+	 * classes found are loaded.
+	 *
+	 * @param directoryOrArchive
+	 *            the directory or archive scanned.
+	 * @param entriesScanned
+	 *            the number of entries checked against the patterns, none when
+	 *            the scan index comes from the cache.
+	 * @param classesMatched
+	 *            the number of class files matching the patterns.
+	 * @param startTime
+	 *            the time returned by {@link #start(String)} when the scan began.
+	 */
+	void elementScanned(File directoryOrArchive, int entriesScanned,
+			int classesMatched, long startTime);
+
+	/**
+	 * Record the end of a class loading.
+	 *
+	 * @param className
+	 *            the class loaded.
+	 * @param startTime
+	 *            the time returned by {@link #start(String)} when the loading began.
+	 */
+	void classLoaded(String className, long startTime);
+
+	/**
+	 * Record the end of the DTO model building of a class.
+	 *
+	 * @param className
+	 *            the class reflected.
+	 * @param startTime
+	 *            the time returned by {@link #start(String)} when the
+	 *            building began.
+	 */
+	void classModelled(String className, long startTime);
+
+	/**
+	 * Record the end of the DTO rendering of a class.
+	 *
+	 * @param className
+	 *            the class rendered.
+	 * @param length
+	 *            the number of characters rendered.
+	 * @param startTime
+	 *            the time returned by {@link #start(String)} when the
+	 *            rendering began.
+	 */
+	void classRendered(String className, int length, long startTime);
+
+	/**
+	 * Record the end of a generated file writing.
+	 *
+	 * @param className
+	 *            the class the file was generated for.
+	 * @param file
+	 *            the file written.
+	 * @param bytes
+	 *            the number of bytes written.
+	 * @param startTime
+	 *            the time returned by {@link #start(String)} when the
+	 *            writing began.
+	 */
+	void fileWritten(String className, File file, long bytes, long startTime);
+
+	/**
+	 * Record the end of the execution.
+	 */
+	void executionEnded();
+
+	/**
+	 * Write the JSON report of the execution.
+	 *
+	 * @param reportFile
+	 *            the file to write the report in.
+	 * @throws IOException
+	 *             if the report can not be written.
+	 */
+	void writeReport(File reportFile) throws IOException;
+
+	/**
+	 * Return a one line summary of the execution.
+	 *
+	 * @param slowestCount
+	 *            the number of slowest classes and archives to list.
+	 * @return the summary.
+	 */
+	String getSummary(int slowestCount);
+}
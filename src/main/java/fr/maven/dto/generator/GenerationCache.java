@@ -0,0 +1,127 @@
+/**
+ *
+ */
+package fr.maven.dto.generator;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This interface describes a cache kept across builds while the plugin stays
+ * loaded, e.g. in the Maven daemon.
+ *
+ * @author Wilfried Petit
+ *
+ */
+public interface GenerationCache {
+
+	/**
+	 * Return the class loader built for the classpath given, if the classpath
+	 * has not changed since.
+	 *
+	 * @param classpath
+	 *            the directories and archives of the classpath.
+	 * @return the class loader, or <code>null</code> if none is valid.
+	 */
+	ClassLoader getClassLoader(List<File> classpath);
+
+	/**
+	 * Keep the class loader built for the classpath given.
+	 *
+	 * @param classpath
+	 *            the directories and archives of the classpath.
+	 * @param classLoader
+	 *            the class loader.
+	 */
+	void putClassLoader(List<File> classpath, ClassLoader classLoader);
+
+	/**
+	 * Return the entries found in a directory or an archive for the patterns
+	 * given, if its entries have not changed since.
+	 *
+	 * @param directoryOrArchive
+	 *            the directory or archive.
+	 * @param includesPath
+	 *            the includes path patterns.
+	 * @param excludesPath
+	 *            the excludes path patterns.
+	 * @return the entries paths, or <code>null</code> if none are valid.
+	 */
+	String[] getScanIndex(File directoryOrArchive, String[] includesPath,
+			String[] excludesPath);
+
+	/**
+	 * Keep the entries found in a directory or an archive for the patterns
+	 * given.
+	 *
+	 * @param directoryOrArchive
+	 *            the directory or archive.
+	 * @param includesPath
+	 *            the includes path patterns.
+	 * @param excludesPath
+	 *            the excludes path patterns.
+	 * @param entries
+	 *            the entries paths.
+	 */
+	void putScanIndex(File directoryOrArchive, String[] includesPath,
+			String[] excludesPath, String[] entries);
+
+	/**
+	 * Return the DTO field types of a class in a generation context.
+	 *
+	 * @param clazz
+	 *            the class.
+	 * @param context
+	 *            the generation context, e.g. the generated package and the
+	 *            classes to generate.
+	 * @return the DTO field types by field name, or <code>null</code> if they
+	 *         are not known.
+	 */
+	Map<String, String> getModel(Class<?> clazz, String context);
+
+	/**
+	 * Keep the DTO field types of a class in a generation context.
+	 *
+	 * @param clazz
+	 *            the class.
+	 * @param context
+	 *            the generation context.
+	 * @param model
+	 *            the DTO field types by field name.
+	 */
+	void putModel(Class<?> clazz, String context, Map<String, String> model);
+
+	/**
+	 * Check if a file has been written from a class in a generation context,
+	 * and has not been modified since.
+	 *
+	 * @param clazz
+	 *            the class the file is generated from.
+	 * @param context
+	 *            the generation context.
+	 * @param file
+	 *            the file.
+	 * @return <code>true</code> if the file does not need to be generated
+	 *         again.
+	 */
+	boolean isUpToDate(Class<?> clazz, String context, File file);
+
+	/**
+	 * Keep the fingerprint of a file written from a class in a generation
+	 * context.
+	 *
+	 * @param clazz
+	 *            the class the file is generated from.
+	 * @param context
+	 *            the generation context.
+	 * @param file
+	 *            the file written.
+	 */
+	void putOutput(Class<?> clazz, String context, File file);
+
+	/**
+	 * Forget every entry.
+	 */
+	void clear();
+}
@@ -4,6 +4,8 @@
 package fr.maven.dto.generator.impl;
 
 import fr.maven.dto.generator.ClassFinder;
+import fr.maven.dto.generator.ExecutionStatistics;
+import fr.maven.dto.generator.GenerationCache;
 import org.apache.tools.ant.DirectoryScanner;
 import org.apache.tools.ant.types.ZipScanner;
 
@@ -20,6 +22,36 @@ import java.util.List;
  */
 public class ClassFinderImpl implements ClassFinder {
 
+    /**
+     * The collector of the scan timings and counters.
+     */
+    protected ExecutionStatistics statistics = new ExecutionStatisticsImpl();
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ClassFinder#setStatistics(fr.maven.dto.generator.ExecutionStatistics)
+     */
+    @Override
+    public void setStatistics(final ExecutionStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * The cache of scan indexes, <code>null</code> not to cache anything.
+     */
+    protected GenerationCache cache;
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ClassFinder#setCache(fr.maven.dto.generator.GenerationCache)
+     */
+    @Override
+    public void setCache(final GenerationCache cache) {
+        this.cache = cache;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -91,15 +123,29 @@ public class ClassFinderImpl implements ClassFinder {
                                            final File directory, final String[] includesPath,
                                            final String[] excludesPath) throws ClassNotFoundException {
         final List<Class<?>> classes = new ArrayList<Class<?>>();
-        final DirectoryScanner ds = new DirectoryScanner();
-        ds.setBasedir(directory);
-        ds.setIncludes(includesPath);
-        ds.setExcludes(excludesPath);
-        ds.setCaseSensitive(true);
-        ds.scan();
-        for (final String fileFound : ds.getIncludedFiles()) {
+        final long scanStart = this.statistics.start(ExecutionStatistics.PHASE_SCAN);
+        String[] filesFound = this.cache == null ? null : this.cache.getScanIndex(directory, includesPath, excludesPath);
+        int entriesScanned = 0;
+        if (filesFound == null) {
+            final CountingDirectoryScanner ds = new CountingDirectoryScanner();
+            ds.setBasedir(directory);
+            ds.setIncludes(includesPath);
+            ds.setExcludes(excludesPath);
+            ds.setCaseSensitive(true);
+            ds.scan();
+            filesFound = ds.getIncludedFiles();
+            entriesScanned = ds.entriesScanned;
+            if (this.cache != null) {
+                this.cache.putScanIndex(directory, includesPath, excludesPath, filesFound);
+            }
+        }
+        this.statistics.phaseEnded(ExecutionStatistics.PHASE_SCAN, scanStart);
+        this.statistics.elementScanned(directory, entriesScanned, filesFound.length, scanStart);
+        for (final String fileFound : filesFound) {
             final String classString = this.convertPathToCanonicalClassName(fileFound);
+            final long loadStart = this.statistics.start(ExecutionStatistics.PHASE_LOAD);
             final Class<?> clazz = classLoader.loadClass(classString);
+            this.statistics.classLoaded(classString, loadStart);
             if (clazz.getEnclosingClass() == null) {
                 classes.add(clazz);
             }
@@ -125,16 +171,32 @@ public class ClassFinderImpl implements ClassFinder {
                                          final File archive, final String[] includesPath,
                                          final String[] excludesPath) throws ClassNotFoundException {
         final List<Class<?>> classes = new ArrayList<Class<?>>();
-        final ZipScanner ds = new ZipScanner();
-        ds.setSrc(archive);
-        ds.setIncludes(includesPath);
-        ds.setExcludes(excludesPath);
-        ds.setCaseSensitive(true);
-        for (final String fileFound : ds.getIncludedFiles()) {
+        final long scanStart = this.statistics.start(ExecutionStatistics.PHASE_SCAN);
+        String[] filesFound = this.cache == null ? null : this.cache.getScanIndex(archive, includesPath, excludesPath);
+        int entriesScanned = 0;
+        if (filesFound == null) {
+            final CountingZipScanner ds = new CountingZipScanner();
+            ds.setSrc(archive);
+            ds.setIncludes(includesPath);
+            ds.setExcludes(excludesPath);
+            ds.setCaseSensitive(true);
+            filesFound = ds.getIncludedFiles();
+            entriesScanned = ds.entriesScanned;
+            if (this.cache != null) {
+                this.cache.putScanIndex(archive, includesPath, excludesPath, filesFound);
+            }
+        }
+        this.statistics.phaseEnded(ExecutionStatistics.PHASE_SCAN, scanStart);
+        this.statistics.elementScanned(archive, entriesScanned, filesFound.length, scanStart);
+        for (final String fileFound : filesFound) {
             final String classString = this
                     .convertPathToCanonicalClassName(fileFound);
+            final long loadStart = this.statistics.start(ExecutionStatistics.PHASE_LOAD);
             final Class<?> clazz = classLoader.loadClass(classString);
-            classes.add(clazz);
+            this.statistics.classLoaded(classString, loadStart);
+            if (clazz.getEnclosingClass() == null) {
+                classes.add(clazz);
+            }
         }
         return classes;
     }
@@ -170,4 +232,50 @@ public class ClassFinderImpl implements ClassFinder {
         return classString;
     }
 
+    /**
+     * Directory scanner counting the files and directories it checks against
+     * the patterns.
+     */
+    private static final class CountingDirectoryScanner extends DirectoryScanner {
+
+        /**
+         * Number of entries checked against the patterns.
+         */
+        private int entriesScanned;
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see org.apache.tools.ant.DirectoryScanner#isIncluded(java.lang.String)
+         */
+        @Override
+        protected boolean isIncluded(final String name) {
+            this.entriesScanned++;
+            return super.isIncluded(name);
+        }
+    }
+
+    /**
+     * Archive scanner counting the file entries it checks against the
+     * patterns.
+     */
+    private static final class CountingZipScanner extends ZipScanner {
+
+        /**
+         * Number of entries checked against the patterns.
+         */
+        private int entriesScanned;
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see org.apache.tools.ant.types.ZipScanner#match(java.lang.String)
+         */
+        @Override
+        public boolean match(final String path) {
+            this.entriesScanned++;
+            return super.match(path);
+        }
+    }
+
 }
@@ -0,0 +1,442 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writer of the accessor of a DTO: a class implementing the generated
+ * <code>DTOAccessor</code> interface, e.g. <code>BeanDTOAccessor</code>, with
+ * the names and the types of the fields of the DTO in static tables, their
+ * getters and setters by index through a switch, and the index of a name
+ * through a perfect hash computed at generation time, so that generic code,
+ * e.g. audit logs, diffs or CSV exports, walks the DTOs without reflection.
+ * The declared classes have their own accessor nested in the same class, e.g.
+ * <code>BeanDTOAccessor.DetailAccessor</code> for <code>Bean.Detail</code>.
+ * <p/>
+ * The fields of an immutable DTO are set on its builder.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOAccessorWriter extends DTOCompanionWriter {
+
+    /**
+     * The support classes of the accessors.
+     */
+    private static final List<String> SUPPORT_CLASS_NAMES = Collections.singletonList("DTOAccessor");
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    public DTOAccessorWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#getSuffix()
+     */
+    @Override
+    public String getSuffix() {
+        return "Accessor";
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#accept(java.lang.Class)
+     */
+    @Override
+    public boolean accept(final Class<?> clazz) {
+        return super.accept(clazz) && !clazz.isEnum() && this.generator.isAccessible(clazz);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOSourceWriter#getSupportClassNames()
+     */
+    @Override
+    public List<String> getSupportClassNames() {
+        return SUPPORT_CLASS_NAMES;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#write(java.lang.Class, java.io.Writer)
+     */
+    @Override
+    public void write(final Class<?> clazz, final Writer fw) throws IOException {
+        this.writeHeader(clazz, fw, "Accessor of the fields of the DTOs of {@link " + clazz.getCanonicalName()
+                + "} by index.");
+        this.writeAccessor(clazz, "", fw);
+    }
+
+    /**
+     * Write the accessor of a class, then the accessors of its declared
+     * classes nested in it.
+     *
+     * @param clazz  the class.
+     * @param indent the indentation of the accessor class.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeAccessor(final Class<?> clazz, final String indent, final Writer fw) throws IOException {
+        final String accessorName = this.getAccessorName(clazz);
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        final String builderName = this.generator.getDTOBuilderName(clazz);
+        final List<Field> fields = this.generator.getDTOFields(clazz);
+        final String in = indent + "    ";
+
+        if (indent.length() > 0) {
+            fw.write(indent + "/**\n");
+            fw.write(indent + " * Accessor of the fields of {@link " + dtoName + "} by index.\n");
+            fw.write(indent + " */\n");
+        }
+        fw.write(indent + "public " + (indent.length() > 0 ? "static " : "") + "final class " + accessorName
+                + " implements DTOAccessor<" + dtoName + ", " + builderName + "> {\n\n");
+        fw.write(in + "/**\n");
+        fw.write(in + " * The shared accessor.\n");
+        fw.write(in + " */\n");
+        fw.write(in + "public static final " + accessorName + " INSTANCE = new " + accessorName + "();\n\n");
+        this.writeTables(clazz, fields, in, fw);
+        fw.write(in + "private " + accessorName + "() {\n");
+        fw.write(in + "}\n\n");
+
+        fw.write(in + "@Override\n");
+        fw.write(in + "public Class<" + dtoName + "> getDTOClass() {\n");
+        fw.write(in + "    return " + dtoName + ".class;\n");
+        fw.write(in + "}\n\n");
+        fw.write(in + "@Override\n");
+        fw.write(in + "public int getFieldCount() {\n");
+        fw.write(in + "    return " + fields.size() + ";\n");
+        fw.write(in + "}\n\n");
+        fw.write(in + "@Override\n");
+        fw.write(in + "public String getFieldName(final int index) {\n");
+        fw.write(in + "    return NAMES[index];\n");
+        fw.write(in + "}\n\n");
+        fw.write(in + "@Override\n");
+        fw.write(in + "public Class<?> getFieldType(final int index) {\n");
+        fw.write(in + "    return TYPES[index];\n");
+        fw.write(in + "}\n\n");
+        this.writeIndexOf(fields, in, fw);
+        this.writeGet(clazz, fields, in, fw);
+        this.writeSet(clazz, fields, in, fw);
+
+        for (final Class<?> declaredClass : this.generator.getDTODeclaredClasses(clazz)) {
+            if (this.isCodable(declaredClass)) {
+                this.writeAccessor(declaredClass, in, fw);
+            }
+        }
+        fw.write(indent + "}\n");
+        if (indent.length() > 0) {
+            fw.write("\n");
+        }
+    }
+
+    /**
+     * Write the tables of the names and the types of the fields, and the
+     * perfect hash of the names.
+     *
+     * @param clazz  the class.
+     * @param fields the fields.
+     * @param in     the indentation of the members.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeTables(final Class<?> clazz, final List<Field> fields, final String in, final Writer fw)
+            throws IOException {
+        final PerfectHash hash = PerfectHash.of(this.getNames(fields));
+        fw.write(in + "private static final String[] NAMES = {");
+        for (int i = 0; i < fields.size(); i++) {
+            fw.write((i == 0 ? "\n" : ",\n") + in + "        " + this.toJavaString(fields.get(i).getName()));
+        }
+        fw.write("};\n\n");
+        fw.write(in + "private static final Class<?>[] TYPES = {");
+        for (int i = 0; i < fields.size(); i++) {
+            fw.write((i == 0 ? "\n" : ",\n") + in + "        " + this.getClassLiteral(clazz, fields.get(i)));
+        }
+        fw.write("};\n\n");
+        fw.write(in + "/**\n");
+        fw.write(in + " * The index of the fields by perfect hash of their names, -1 in the free slots.\n");
+        fw.write(in + " */\n");
+        fw.write(in + "private static final int[] SLOTS = {");
+        final int[] slots = hash.getSlots();
+        for (int i = 0; i < slots.length; i++) {
+            fw.write((i == 0 ? "" : i % 16 == 0 ? ",\n" + in + "        " : ", ") + slots[i]);
+        }
+        fw.write("};\n\n");
+        fw.write(in + "private static final int SEED = " + hash.getSeed() + ";\n\n");
+        fw.write(in + "private static final int SHIFT = " + hash.getShift() + ";\n\n");
+    }
+
+    /**
+     * Write the method returning the index of a name: a single probe of the
+     * perfect hash, and a scan of the names sharing their hash code if any.
+     *
+     * @param fields the fields.
+     * @param in     the indentation of the members.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeIndexOf(final List<Field> fields, final String in, final Writer fw) throws IOException {
+        fw.write(in + "@Override\n");
+        fw.write(in + "public int indexOf(final String name) {\n");
+        fw.write(in + "    final int index = SLOTS[name.hashCode() * SEED >>> SHIFT];\n");
+        if (PerfectHash.hasSameHashCodes(this.getNames(fields))) {
+            fw.write(in + "    if (index < 0) {\n");
+            fw.write(in + "        return -1;\n");
+            fw.write(in + "    }\n");
+            fw.write(in + "    for (int i = index; i < NAMES.length; i++) {\n");
+            fw.write(in + "        if (NAMES[i].equals(name)) {\n");
+            fw.write(in + "            return i;\n");
+            fw.write(in + "        }\n");
+            fw.write(in + "    }\n");
+            fw.write(in + "    return -1;\n");
+        }
+        else {
+            fw.write(in + "    return index >= 0 && NAMES[index].equals(name) ? index : -1;\n");
+        }
+        fw.write(in + "}\n\n");
+    }
+
+    /**
+     * Write the getter by index.
+     *
+     * @param clazz  the class.
+     * @param fields the fields.
+     * @param in     the indentation of the members.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeGet(final Class<?> clazz, final List<Field> fields, final String in, final Writer fw)
+            throws IOException {
+        fw.write(in + "@Override\n");
+        fw.write(in + "public Object get(final " + this.generator.getDTOClassName(clazz)
+                + " dto, final int index) {\n");
+        fw.write(in + "    switch (index) {\n");
+        for (int i = 0; i < fields.size(); i++) {
+            fw.write(in + "        case " + i + ":\n");
+            fw.write(in + "            return dto." + this.generator.getDTOFieldGetterName(fields.get(i)) + "();\n");
+        }
+        fw.write(in + "        default:\n");
+        fw.write(in + "            throw new IndexOutOfBoundsException(\"Index \" + index + \", " + fields.size()
+                + " fields\");\n");
+        fw.write(in + "    }\n");
+        fw.write(in + "}\n\n");
+    }
+
+    /**
+     * Write the setter by index, casting the values to the field types,
+     * primitives to their wrapper.
+     *
+     * @param clazz  the class.
+     * @param fields the fields.
+     * @param in     the indentation of the members.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeSet(final Class<?> clazz, final List<Field> fields, final String in, final Writer fw)
+            throws IOException {
+        for (final Field field : fields) {
+            if (this.generator.getDTOFieldGenericType(field) instanceof ParameterizedType) {
+                fw.write(in + "@SuppressWarnings(\"unchecked\")\n");
+                break;
+            }
+        }
+        fw.write(in + "@Override\n");
+        fw.write(in + "public void set(final " + this.generator.getDTOBuilderName(clazz)
+                + " dto, final int index, final Object value) {\n");
+        fw.write(in + "    switch (index) {\n");
+        for (int i = 0; i < fields.size(); i++) {
+            final Field field = fields.get(i);
+            final Class<?> type = this.generator.getDTOFieldClass(field);
+            final String castType = type.isPrimitive() ? this.getWrapperName(type)
+                    : this.generator.getDTOFieldType(clazz, field);
+            fw.write(in + "        case " + i + ":\n");
+            fw.write(in + "            dto." + this.generator.getDTOFieldSetterName(field) + "((" + castType
+                    + ") value);\n");
+            fw.write(in + "            break;\n");
+        }
+        fw.write(in + "        default:\n");
+        fw.write(in + "            throw new IndexOutOfBoundsException(\"Index \" + index + \", " + fields.size()
+                + " fields\");\n");
+        fw.write(in + "    }\n");
+        fw.write(in + "}\n\n");
+    }
+
+    /**
+     * Return the name of the accessor of a class: the companion class name
+     * for the top level class, the names of the declared classes from it
+     * otherwise, e.g. <code>DetailAccessor</code> for
+     * <code>Bean.Detail</code>.
+     *
+     * @param clazz the class.
+     * @return the accessor name.
+     */
+    protected String getAccessorName(final Class<?> clazz) {
+        final String dtoClassName = this.generator.getDTOClassName(clazz);
+        final int dot = dtoClassName.indexOf('.');
+        return dot < 0 ? this.getCompanionClassName(clazz)
+                : dtoClassName.substring(dot + 1).replace(".", "") + this.getSuffix();
+    }
+
+    /**
+     * Return the names of fields.
+     *
+     * @param fields the fields.
+     * @return the names, in the same order.
+     */
+    private List<String> getNames(final List<Field> fields) {
+        final String[] names = new String[fields.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = fields.get(i).getName();
+        }
+        return Arrays.asList(names);
+    }
+
+    /**
+     * A perfect hash of names: the slot of a name is the high bits of the
+     * product of its hash code by an odd seed, and the seed is searched so
+     * that distinct hash codes never share a slot. The names sharing their
+     * hash code share their slot, that holds the first of them.
+     */
+    protected static final class PerfectHash {
+
+        /**
+         * The number of seeds tried before the table doubles.
+         */
+        private static final int MAX_SEEDS = 1 << 12;
+
+        /**
+         * The multiplier spreading the seeds tried, the golden ratio.
+         */
+        private static final int SEED_STEP = 0x9E3779B9;
+
+        /**
+         * The index of the names by slot, -1 for the free slots.
+         */
+        private final int[] slots;
+
+        /**
+         * The seed.
+         */
+        private final int seed;
+
+        /**
+         * The shift of the product, 32 minus the number of bits of a slot.
+         */
+        private final int shift;
+
+        /**
+         * Constructor.
+         *
+         * @param slots the index of the names by slot.
+         * @param seed  the seed.
+         * @param shift the shift of the product.
+         */
+        private PerfectHash(final int[] slots, final int seed, final int shift) {
+            this.slots = slots;
+            this.seed = seed;
+            this.shift = shift;
+        }
+
+        /**
+         * Compute the perfect hash of names, in the smallest table found
+         * with at least as many slots as names.
+         *
+         * @param names the names.
+         * @return the perfect hash.
+         */
+        static PerfectHash of(final List<String> names) {
+            int bits = 1;
+            while (1 << bits < names.size()) {
+                bits++;
+            }
+            for (; ; bits++) {
+                for (int attempt = 1; attempt <= MAX_SEEDS; attempt++) {
+                    final int seed = attempt * SEED_STEP | 1;
+                    final int[] slots = slots(names, seed, bits);
+                    if (slots != null) {
+                        return new PerfectHash(slots, seed, Integer.SIZE - bits);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Check if names share their hash code.
+         *
+         * @param names the names.
+         * @return <code>true</code> if two names have the same hash code.
+         */
+        static boolean hasSameHashCodes(final List<String> names) {
+            final Set<Integer> hashCodes = new HashSet<Integer>();
+            for (final String name : names) {
+                if (!hashCodes.add(Integer.valueOf(name.hashCode()))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Place names in a table with a seed.
+         *
+         * @param names the names.
+         * @param seed  the seed.
+         * @param bits  the number of bits of a slot.
+         * @return the index of the names by slot, <code>null</code> if two
+         *         distinct hash codes share a slot.
+         */
+        private static int[] slots(final List<String> names, final int seed, final int bits) {
+            final int[] slots = new int[1 << bits];
+            Arrays.fill(slots, -1);
+            for (int i = 0; i < names.size(); i++) {
+                final int hashCode = names.get(i).hashCode();
+                final int slot = hashCode * seed >>> Integer.SIZE - bits;
+                if (slots[slot] < 0) {
+                    slots[slot] = i;
+                }
+                else if (names.get(slots[slot]).hashCode() != hashCode) {
+                    return null;
+                }
+            }
+            return slots;
+        }
+
+        /**
+         * @return the index of the names by slot, -1 for the free slots.
+         */
+        int[] getSlots() {
+            return this.slots;
+        }
+
+        /**
+         * @return the seed.
+         */
+        int getSeed() {
+            return this.seed;
+        }
+
+        /**
+         * @return the shift of the product.
+         */
+        int getShift() {
+            return this.shift;
+        }
+    }
+}
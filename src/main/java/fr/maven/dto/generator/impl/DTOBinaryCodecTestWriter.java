@@ -0,0 +1,320 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Date;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * Writer of the JUnit 4 test of the binary codec of a DTO, generated in the
+ * test sources so that the codecs are checked by the build of the project
+ * that uses them.
+ * <p/>
+ * The test fills a DTO with a sample value for each field encoded: negative
+ * numbers, strings that are not ASCII, the last constant of enums, arrays
+ * holding a <code>null</code> element and collections of one element. Nested
+ * DTOs are filled too, down to a depth that keeps recursive DTOs finite. The
+ * DTO is encoded, decoded and encoded again, and the two encodings must be
+ * equal.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOBinaryCodecTestWriter extends DTOCompanionWriter {
+
+    /**
+     * Kind of the methods returning a sample value.
+     */
+    protected static final String SAMPLE = "sample";
+
+    /**
+     * The depth of the sample DTOs nested in the DTO tested.
+     */
+    private static final int SAMPLE_DEPTH = 2;
+
+    /**
+     * The writer of the codecs tested.
+     */
+    private final DTOBinaryCodecWriter codecWriter;
+
+    /**
+     * Constructor.
+     *
+     * @param generator   the DTO generator.
+     * @param codecWriter the writer of the codecs tested.
+     */
+    public DTOBinaryCodecTestWriter(final DTOGeneratorImpl generator, final DTOBinaryCodecWriter codecWriter) {
+        super(generator);
+        this.codecWriter = codecWriter;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#getSuffix()
+     */
+    @Override
+    public String getSuffix() {
+        return this.codecWriter.getSuffix() + "Test";
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#accept(java.lang.Class)
+     */
+    @Override
+    public boolean accept(final Class<?> clazz) {
+        return this.codecWriter.accept(clazz);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#isTestSource()
+     */
+    @Override
+    public boolean isTestSource() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#write(java.lang.Class, java.io.Writer)
+     */
+    @Override
+    public void write(final Class<?> clazz, final Writer fw) throws IOException {
+        this.resetHelperMethods();
+        final StringWriter samples = new StringWriter();
+        this.writeSamples(clazz, samples);
+        this.writeHelperMethods(clazz, samples);
+
+        final String testName = this.getCompanionClassName(clazz);
+        final String codecName = this.codecWriter.getCompanionClassName(clazz);
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        this.writeHeader(clazz, fw, "Round trip tests of {@link " + codecName + "}.");
+        fw.write("public class " + testName + " {\n\n");
+
+        fw.write("    @org.junit.Test\n");
+        fw.write("    public void testRoundTrip() {\n");
+        fw.write("        assertRoundTrip(" + SAMPLE + "(" + SAMPLE_DEPTH + "));\n");
+        fw.write("    }\n\n");
+
+        fw.write("    @org.junit.Test\n");
+        fw.write("    public void testDefaultValues() {\n");
+        fw.write("        assertRoundTrip(new " + dtoName + "());\n");
+        fw.write("    }\n\n");
+
+        fw.write("    @org.junit.Test(expected = IllegalArgumentException.class)\n");
+        fw.write("    public void testSchemaHashMismatch() {\n");
+        fw.write("        final java.nio.ByteBuffer buffer = " + codecName + ".encode(new " + dtoName + "());\n");
+        fw.write("        buffer.putInt(0, " + codecName + ".SCHEMA_HASH + 1);\n");
+        fw.write("        " + codecName + ".decode(buffer);\n");
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * Encode a DTO, decode it and check that it is encoded the same way again.\n");
+        fw.write("     *\n");
+        fw.write("     * @param dto the DTO.\n");
+        fw.write("     */\n");
+        fw.write("    private static void assertRoundTrip(final " + dtoName + " dto) {\n");
+        fw.write("        final java.nio.ByteBuffer buffer = " + codecName + ".encode(dto);\n");
+        fw.write("        org.junit.Assert.assertEquals(\"size\", " + codecName
+                + ".sizeOf(dto), buffer.remaining());\n");
+        fw.write("        final byte[] bytes = new byte[buffer.remaining()];\n");
+        fw.write("        buffer.duplicate().get(bytes);\n");
+        fw.write("        final " + dtoName + " decoded = " + codecName + ".decode(buffer);\n");
+        fw.write("        org.junit.Assert.assertFalse(\"bytes left\", buffer.hasRemaining());\n");
+        fw.write("        final java.nio.ByteBuffer again = " + codecName + ".encode(decoded);\n");
+        fw.write("        final byte[] againBytes = new byte[again.remaining()];\n");
+        fw.write("        again.get(againBytes);\n");
+        fw.write("        org.junit.Assert.assertArrayEquals(\"encoding\", bytes, againBytes);\n");
+        fw.write("    }\n\n");
+
+        fw.write(samples.toString());
+        fw.write("}\n");
+    }
+
+    /**
+     * Write the methods returning a sample DTO of a class and of its declared
+     * classes.
+     *
+     * @param clazz the class.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeSamples(final Class<?> clazz, final Writer fw) throws IOException {
+        if (this.isCodable(clazz)) {
+            final String dtoName = this.generator.getDTOClassName(clazz);
+            fw.write("    /**\n");
+            fw.write("     * Return a {@link " + dtoName + "} whose fields are set.\n");
+            fw.write("     *\n");
+            fw.write("     * @param depth the depth of the nested DTOs.\n");
+            fw.write("     * @return the DTO.\n");
+            fw.write("     */\n");
+            fw.write("    static " + dtoName + " " + this.getSampleMethodName(clazz) + "(final int depth) {\n");
+            final String builderName = this.generator.getDTOBuilderName(clazz);
+            fw.write("        final " + builderName + " dto = new " + builderName + "();\n");
+            final List<Field> fields = this.codecWriter.getEncodedFields(clazz);
+            for (int i = 0; i < fields.size(); i++) {
+                final Field field = fields.get(i);
+                fw.write("        dto." + this.generator.getDTOFieldSetterName(field) + "("
+                        + this.sampleValue(clazz, this.generator.getDTOFieldGenericType(field), i + 1) + ");\n");
+            }
+            fw.write("        return " + this.generator.getBuiltDTO("dto") + ";\n");
+            fw.write("    }\n\n");
+        }
+        for (final Class<?> declaredClass : this.generator.getDTODeclaredClasses(clazz)) {
+            this.writeSamples(declaredClass, fw);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOSourceWriter#writeHelperMethod(java.lang.Class, java.lang.String, java.lang.String, java.lang.reflect.Type, java.io.Writer)
+     */
+    @Override
+    protected void writeHelperMethod(final Class<?> clazz, final String name, final String kind, final Type type,
+                                     final Writer fw) throws IOException {
+        final String dtoType = this.generator.getDTOType(clazz, type);
+        fw.write("    private static " + dtoType + " " + name + "(final int depth) {\n");
+        if (type instanceof Class<?>) {
+            final Class<?> componentType = ((Class<?>) type).getComponentType();
+            final int dimension = this.generator.getArrayDimension((Class<?>) type);
+            final StringBuilder newArray = new StringBuilder("new ");
+            newArray.append(dtoType.substring(0, dtoType.length() - 2 * dimension)).append("[2]");
+            for (int i = 1; i < dimension; i++) {
+                newArray.append("[]");
+            }
+            fw.write("        final " + dtoType + " result = " + newArray + ";\n");
+            fw.write("        result[0] = " + this.sampleValue(clazz, componentType, 1) + ";\n");
+            if (componentType.isPrimitive()) {
+                fw.write("        result[1] = " + this.sampleValue(clazz, componentType, 2) + ";\n");
+            }
+            fw.write("        return result;\n");
+            fw.write("    }\n\n");
+            return;
+        }
+        if (type instanceof DTOPrimitiveMapType) {
+            final DTOPrimitiveMapType mapType = (DTOPrimitiveMapType) type;
+            fw.write("        final " + dtoType + " result = new " + dtoType + "();\n");
+            fw.write("        result.put(" + this.sampleValue(clazz, mapType.getKeyType(), 1) + ", "
+                    + this.sampleValue(clazz, mapType.getValueType(), 1) + ");\n");
+            fw.write("        result.put(" + this.sampleValue(clazz, mapType.getKeyType(), 2) + ", "
+                    + this.sampleValue(clazz, mapType.getValueType(), 2) + ");\n");
+            fw.write("        return result;\n");
+            fw.write("    }\n\n");
+            return;
+        }
+        final Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+        final Class<?> rawClass = this.getRawClass(type);
+        fw.write("        final " + dtoType + " result = "
+                + this.newCollection(type, this.getDTOTypes(clazz, typeArguments)) + ";\n");
+        final boolean sorted = SortedSet.class.isAssignableFrom(rawClass) || SortedMap.class.isAssignableFrom(rawClass)
+                || SortedSet.class.isAssignableFrom(this.getCollectionImplementation(rawClass))
+                || SortedMap.class.isAssignableFrom(this.getCollectionImplementation(rawClass));
+        if (!sorted || this.isComparable(typeArguments[0])) {
+            if (typeArguments.length == 2) {
+                fw.write("        result.put(" + this.sampleValue(clazz, typeArguments[0], 1) + ", "
+                        + this.sampleValue(clazz, typeArguments[1], 1) + ");\n");
+            }
+            else {
+                fw.write("        result.add(" + this.sampleValue(clazz, typeArguments[0], 1) + ");\n");
+                if (List.class.isAssignableFrom(rawClass)) {
+                    fw.write("        result.add(null);\n");
+                }
+            }
+        }
+        fw.write("        return result;\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Return the expression of a sample value, that is not <code>null</code>
+     * unless it is a DTO deeper than the sample depth.
+     *
+     * @param clazz the class a DTO is generated for.
+     * @param type  the value type, as declared in the class.
+     * @param index the index of the value, so that values differ.
+     * @return the expression.
+     */
+    protected String sampleValue(final Class<?> clazz, final Type type, final int index) {
+        if (!(type instanceof Class<?>) || ((Class<?>) type).isArray()) {
+            return this.getHelperMethodName(SAMPLE, type) + "(depth)";
+        }
+        final Class<?> valueClass = (Class<?>) type;
+        final Class<?> primitiveType = valueClass.isPrimitive() ? valueClass : this.getPrimitiveType(valueClass);
+        if (primitiveType != null) {
+            final String value;
+            if (primitiveType.equals(boolean.class)) {
+                value = String.valueOf(index % 2 == 1);
+            }
+            else if (primitiveType.equals(byte.class)) {
+                value = "(byte) " + -index;
+            }
+            else if (primitiveType.equals(char.class)) {
+                value = "'\\u" + String.format("%04x", Integer.valueOf(0x3B0 + index)) + "'";
+            }
+            else if (primitiveType.equals(short.class)) {
+                value = "(short) " + -300 * index;
+            }
+            else if (primitiveType.equals(long.class)) {
+                value = -10000000000L * index + "L";
+            }
+            else if (primitiveType.equals(float.class)) {
+                value = index + ".5F";
+            }
+            else if (primitiveType.equals(double.class)) {
+                value = index + ".25D";
+            }
+            else {
+                value = String.valueOf(-100000 * index);
+            }
+            return valueClass.isPrimitive() ? value : valueClass.getSimpleName() + ".valueOf(" + value + ")";
+        }
+        if (valueClass.equals(String.class)) {
+            return this.toJavaString("value " + index + " \u00e9\u4e2d\ud83d\ude00");
+        }
+        if (valueClass.equals(Date.class)) {
+            return "new java.util.Date(" + (86400000L * index + 123L) + "L)";
+        }
+        final String dtoType = this.generator.getDTOType(clazz, valueClass);
+        if (valueClass.isEnum()) {
+            final Object[] constants = valueClass.getEnumConstants();
+            return constants.length == 0 ? "null" : dtoType + "." + ((Enum<?>) constants[constants.length - 1]).name();
+        }
+        return "depth > 0 ? " + this.getCompanionClassName(valueClass) + "." + this.getSampleMethodName(valueClass)
+                + "(depth - 1) : null";
+    }
+
+    /**
+     * Check if the values of a type can be held by a sorted collection.
+     *
+     * @param type the type, as declared in the class.
+     * @return <code>true</code> for comparable classes.
+     */
+    private boolean isComparable(final Type type) {
+        return type instanceof Class<?> && Comparable.class.isAssignableFrom((Class<?>) type);
+    }
+
+    /**
+     * Return the name of the method returning a sample DTO of a class: sample
+     * for a top level class, followed by the declared class names otherwise.
+     *
+     * @param clazz the class.
+     * @return the method name.
+     */
+    protected String getSampleMethodName(final Class<?> clazz) {
+        return SAMPLE + this.codecWriter.getReadMethodName(clazz).substring(DTOBinaryCodecWriter.READ.length());
+    }
+}
@@ -0,0 +1,948 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Writer of the binary codec of a DTO: a class with static methods encoding
+ * the DTO in a {@link java.nio.ByteBuffer} and decoding it in place, through
+ * the generated <code>DTOBinary</code>.
+ * <p/>
+ * A DTO is encoded as a bitmap followed by its fields, in declaration order
+ * and without names. The bitmap holds a presence bit for each field that may
+ * be <code>null</code> and the value of the boolean fields; absent fields
+ * take no other byte. Integers are variable length, zigzag encoded when
+ * signed; enums are written as their ordinal, dates as their number of
+ * milliseconds, strings as their UTF-8 length and bytes, arrays, collections
+ * and maps as their number of elements, a presence bitmap of the elements and
+ * the elements that are not <code>null</code>; primitive arrays and maps have
+ * no presence bitmap. Fields of other types are left
+ * out, as by the JSON codec.
+ * <p/>
+ * The encoded DTO is preceded by a hash of its schema, i.e. of the names and
+ * types of the fields encoded and of the DTOs and enums they reference, so
+ * that a payload encoded by another version of the DTO is rejected instead of
+ * being misread. The size of a DTO is computed before it is encoded, so that
+ * <code>encode</code> allocates its buffer once and exactly.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOBinaryCodecWriter extends DTOCompanionWriter {
+
+    /**
+     * Kind of the methods writing a value.
+     */
+    protected static final String WRITE = "write";
+
+    /**
+     * Kind of the methods returning the encoded size of a value.
+     */
+    protected static final String SIZE = "size";
+
+    /**
+     * Kind of the methods reading a value.
+     */
+    protected static final String READ = "read";
+
+    /**
+     * Kind of the constants holding the constants of an enum, by ordinal.
+     */
+    protected static final String CONSTANTS = "CONSTANTS";
+
+    /**
+     * The version of the encoding, part of the schema hash.
+     */
+    private static final String FORMAT = "binary-1";
+
+    /**
+     * The support classes of the codecs.
+     */
+    private static final List<String> SUPPORT_CLASS_NAMES = Collections.singletonList("DTOBinary");
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    public DTOBinaryCodecWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#getSuffix()
+     */
+    @Override
+    public String getSuffix() {
+        return "BinaryCodec";
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Enums have no codec: their constants are written by ordinal where they
+     * are used.
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#accept(java.lang.Class)
+     */
+    @Override
+    public boolean accept(final Class<?> clazz) {
+        return super.accept(clazz) && !clazz.isEnum() && this.generator.isAccessible(clazz);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOSourceWriter#getSupportClassNames()
+     */
+    @Override
+    public List<String> getSupportClassNames() {
+        return SUPPORT_CLASS_NAMES;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#write(java.lang.Class, java.io.Writer)
+     */
+    @Override
+    public void write(final Class<?> clazz, final Writer fw) throws IOException {
+        this.resetHelperMethods();
+        final StringWriter codecs = new StringWriter();
+        this.writeCodecs(clazz, codecs);
+        this.writeHelperMethods(clazz, codecs);
+
+        final String codecName = this.getCompanionClassName(clazz);
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        this.writeHeader(clazz, fw, "Binary codec of the DTO of {@link " + clazz.getCanonicalName() + "}.");
+        fw.write("public final class " + codecName + " {\n\n");
+        fw.write("    /**\n");
+        fw.write("     * The hash of the fields encoded, written before each DTO.\n");
+        fw.write("     */\n");
+        fw.write("    public static final int SCHEMA_HASH = 0x" + Integer.toHexString(this.getSchemaHash(clazz))
+                + ";\n\n");
+        fw.write("    private " + codecName + "() {\n");
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * Return the number of bytes of an encoded DTO, schema hash included.\n");
+        fw.write("     *\n");
+        fw.write("     * @param dto the DTO.\n");
+        fw.write("     * @return the number of bytes.\n");
+        fw.write("     */\n");
+        fw.write("    public static int sizeOf(final " + dtoName + " dto) {\n");
+        fw.write("        return 4 + " + SIZE + "(dto);\n");
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * Encode a DTO in a buffer of its exact size.\n");
+        fw.write("     *\n");
+        fw.write("     * @param dto the DTO.\n");
+        fw.write("     * @return the buffer, ready to be read.\n");
+        fw.write("     */\n");
+        fw.write("    public static java.nio.ByteBuffer encode(final " + dtoName + " dto) {\n");
+        fw.write("        if (dto == null) {\n");
+        fw.write("            throw new IllegalArgumentException(\"A null DTO can not be encoded.\");\n");
+        fw.write("        }\n");
+        fw.write("        final java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(sizeOf(dto));\n");
+        fw.write("        encode(dto, buffer);\n");
+        fw.write("        buffer.flip();\n");
+        fw.write("        return buffer;\n");
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * Encode a DTO at the position of a buffer, preceded by the schema hash.\n");
+        fw.write("     *\n");
+        fw.write("     * @param dto    the DTO.\n");
+        fw.write("     * @param buffer the buffer, with at least {@link #sizeOf(" + dtoName
+                + ")} bytes remaining.\n");
+        fw.write("     */\n");
+        fw.write("    public static void encode(final " + dtoName + " dto, final java.nio.ByteBuffer buffer) {\n");
+        fw.write("        if (dto == null) {\n");
+        fw.write("            throw new IllegalArgumentException(\"A null DTO can not be encoded.\");\n");
+        fw.write("        }\n");
+        fw.write("        buffer.putInt(SCHEMA_HASH);\n");
+        fw.write("        " + WRITE + "(dto, buffer);\n");
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * Decode a DTO at the position of a buffer.\n");
+        fw.write("     *\n");
+        fw.write("     * @param buffer the buffer, positioned after the DTO on return.\n");
+        fw.write("     * @return the DTO.\n");
+        fw.write("     * @throws IllegalArgumentException if the DTO was encoded with another schema or is\n");
+        fw.write("     *                                  malformed.\n");
+        fw.write("     */\n");
+        fw.write("    public static " + dtoName + " decode(final java.nio.ByteBuffer buffer) {\n");
+        fw.write("        final int schemaHash = buffer.getInt();\n");
+        fw.write("        if (schemaHash != SCHEMA_HASH) {\n");
+        fw.write("            throw new IllegalArgumentException(\"The schema hash \" + Integer.toHexString(schemaHash)\n");
+        fw.write("                    + \" is not the schema hash \" + Integer.toHexString(SCHEMA_HASH) + \" of "
+                + dtoName + ".\");\n");
+        fw.write("        }\n");
+        fw.write("        return " + READ + "(buffer);\n");
+        fw.write("    }\n\n");
+
+        fw.write(codecs.toString());
+        fw.write("}\n");
+    }
+
+    /**
+     * Write the methods writing, sizing and reading the DTO of a class and of
+     * its declared classes.
+     *
+     * @param clazz the class.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeCodecs(final Class<?> clazz, final Writer fw) throws IOException {
+        if (this.isCodable(clazz)) {
+            final List<Field> fields = this.getEncodedFields(clazz);
+            final int[] presenceBits = new int[fields.size()];
+            final int[] valueBits = new int[fields.size()];
+            final int bits = this.layoutBitmap(fields, presenceBits, valueBits);
+            this.writeWrite(clazz, fields, presenceBits, valueBits, bits, fw);
+            this.writeSize(clazz, fields, bits, fw);
+            this.writeRead(clazz, fields, presenceBits, valueBits, bits, fw);
+        }
+        for (final Class<?> declaredClass : this.generator.getDTODeclaredClasses(clazz)) {
+            this.writeCodecs(declaredClass, fw);
+        }
+    }
+
+    /**
+     * Return the fields of a class that are encoded.
+     *
+     * @param clazz the class.
+     * @return the fields, in declaration order.
+     */
+    protected List<Field> getEncodedFields(final Class<?> clazz) {
+        final List<Field> fields = new ArrayList<Field>();
+        for (final Field field : this.generator.getDTOFields(clazz)) {
+            if (this.isSupported(this.generator.getDTOFieldGenericType(field))) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Assign the bits of the bitmap written before the fields: a presence bit
+     * for each field that may be <code>null</code>, then a value bit for each
+     * boolean field.
+     *
+     * @param fields       the fields encoded.
+     * @param presenceBits the presence bit of each field, -1 for none.
+     * @param valueBits    the value bit of each field, -1 for none.
+     * @return the number of bits.
+     */
+    protected int layoutBitmap(final List<Field> fields, final int[] presenceBits, final int[] valueBits) {
+        int bits = 0;
+        for (int i = 0; i < fields.size(); i++) {
+            final Class<?> type = this.generator.getDTOFieldClass(fields.get(i));
+            presenceBits[i] = type.isPrimitive() ? -1 : bits++;
+            valueBits[i] = type.equals(boolean.class) || type.equals(Boolean.class) ? bits++ : -1;
+        }
+        return bits;
+    }
+
+    /**
+     * Write the method writing a DTO: its bitmap, then its fields.
+     *
+     * @param clazz        the class.
+     * @param fields       the fields written.
+     * @param presenceBits the presence bit of each field.
+     * @param valueBits    the value bit of each field.
+     * @param bits         the number of bits of the bitmap.
+     * @param fw           the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeWrite(final Class<?> clazz, final List<Field> fields, final int[] presenceBits,
+                              final int[] valueBits, final int bits, final Writer fw) throws IOException {
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        fw.write("    /**\n");
+        fw.write("     * Write a {@link " + dtoName + "} without its schema hash.\n");
+        fw.write("     *\n");
+        fw.write("     * @param dto    the DTO, not <code>null</code>.\n");
+        fw.write("     * @param buffer the buffer.\n");
+        fw.write("     */\n");
+        fw.write("    public static void " + WRITE + "(final " + dtoName + " dto, final java.nio.ByteBuffer buffer) {\n");
+        for (int bitmapByte = 0; bitmapByte << 3 < bits; bitmapByte++) {
+            final StringBuilder value = new StringBuilder();
+            for (int i = 0; i < fields.size(); i++) {
+                final String getter = "dto." + this.generator.getDTOFieldGetterName(fields.get(i)) + "()";
+                if (presenceBits[i] >> 3 == bitmapByte) {
+                    this.appendBit(value, getter + " != null", presenceBits[i]);
+                }
+                if (valueBits[i] >> 3 == bitmapByte) {
+                    this.appendBit(value, this.generator.getDTOFieldClass(fields.get(i)).isPrimitive() ? getter
+                            : "Boolean.TRUE.equals(" + getter + ")", valueBits[i]);
+                }
+            }
+            fw.write("        buffer.put((byte) (" + value + "));\n");
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            final Field field = fields.get(i);
+            if (valueBits[i] >= 0) {
+                continue;
+            }
+            final String getter = "dto." + this.generator.getDTOFieldGetterName(field) + "()";
+            if (presenceBits[i] < 0) {
+                fw.write("        " + this.writeValue(this.generator.getDTOFieldGenericType(field), getter) + "\n");
+            }
+            else {
+                fw.write("        if (" + getter + " != null) {\n");
+                fw.write("            " + this.writeValue(this.generator.getDTOFieldGenericType(field), getter) + "\n");
+                fw.write("        }\n");
+            }
+        }
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Append a bit to the expression of a bitmap byte.
+     *
+     * @param value     the expression.
+     * @param condition the condition setting the bit.
+     * @param bit       the bit index.
+     */
+    private void appendBit(final StringBuilder value, final String condition, final int bit) {
+        if (value.length() > 0) {
+            value.append("\n                | ");
+        }
+        value.append('(').append(condition).append(" ? ").append(1 << (bit & 7)).append(" : 0)");
+    }
+
+    /**
+     * Write the method returning the number of bytes of an encoded DTO.
+     *
+     * @param clazz  the class.
+     * @param fields the fields written.
+     * @param bits   the number of bits of the bitmap.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeSize(final Class<?> clazz, final List<Field> fields, final int bits, final Writer fw)
+            throws IOException {
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        int fixedSize = bits + 7 >> 3;
+        final List<Field> variableFields = new ArrayList<Field>();
+        for (final Field field : fields) {
+            final Class<?> type = this.generator.getDTOFieldClass(field);
+            if (type.equals(boolean.class) || type.equals(Boolean.class)) {
+                continue;
+            }
+            if (type.isPrimitive() && this.getFixedSize(type) > 0) {
+                fixedSize += this.getFixedSize(type);
+            }
+            else {
+                variableFields.add(field);
+            }
+        }
+        fw.write("    /**\n");
+        fw.write("     * Return the number of bytes of a {@link " + dtoName + "} without its schema hash.\n");
+        fw.write("     *\n");
+        fw.write("     * @param dto the DTO, not <code>null</code>.\n");
+        fw.write("     * @return the number of bytes.\n");
+        fw.write("     */\n");
+        fw.write("    public static int " + SIZE + "(final " + dtoName + " dto) {\n");
+        if (variableFields.isEmpty()) {
+            fw.write("        return " + fixedSize + ";\n");
+            fw.write("    }\n\n");
+            return;
+        }
+        fw.write("        int size = " + fixedSize + ";\n");
+        for (final Field field : variableFields) {
+            final String getter = "dto." + this.generator.getDTOFieldGetterName(field) + "()";
+            if (this.generator.getDTOFieldClass(field).isPrimitive()) {
+                fw.write("        size += " + this.sizeValue(this.generator.getDTOFieldGenericType(field), getter) + ";\n");
+            }
+            else {
+                fw.write("        if (" + getter + " != null) {\n");
+                fw.write("            size += " + this.sizeValue(this.generator.getDTOFieldGenericType(field), getter) + ";\n");
+                fw.write("        }\n");
+            }
+        }
+        fw.write("        return size;\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write the method reading a DTO.
+     *
+     * @param clazz        the class.
+     * @param fields       the fields read.
+     * @param presenceBits the presence bit of each field.
+     * @param valueBits    the value bit of each field.
+     * @param bits         the number of bits of the bitmap.
+     * @param fw           the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeRead(final Class<?> clazz, final List<Field> fields, final int[] presenceBits,
+                             final int[] valueBits, final int bits, final Writer fw) throws IOException {
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        fw.write("    /**\n");
+        fw.write("     * Read a {@link " + dtoName + "} written without its schema hash.\n");
+        fw.write("     *\n");
+        fw.write("     * @param buffer the buffer.\n");
+        fw.write("     * @return the DTO.\n");
+        fw.write("     */\n");
+        fw.write("    public static " + dtoName + " " + this.getReadMethodName(clazz)
+                + "(final java.nio.ByteBuffer buffer) {\n");
+        final String builderName = this.generator.getDTOBuilderName(clazz);
+        fw.write("        final " + builderName + " dto = new " + builderName + "();\n");
+        if (bits > 0) {
+            fw.write("        final int bitmap = DTOBinary.skipBitmap(buffer, " + bits + ");\n");
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            final Field field = fields.get(i);
+            final String setter = "dto." + this.generator.getDTOFieldSetterName(field);
+            final String value;
+            if (valueBits[i] < 0) {
+                value = this.readValue(this.generator.getDTOFieldGenericType(field));
+            }
+            else if (presenceBits[i] < 0) {
+                value = "DTOBinary.isSet(buffer, bitmap, " + valueBits[i] + ")";
+            }
+            else {
+                value = "Boolean.valueOf(DTOBinary.isSet(buffer, bitmap, " + valueBits[i] + "))";
+            }
+            if (presenceBits[i] < 0) {
+                fw.write("        " + setter + "(" + value + ");\n");
+            }
+            else {
+                fw.write("        if (DTOBinary.isSet(buffer, bitmap, " + presenceBits[i] + ")) {\n");
+                fw.write("            " + setter + "(" + value + ");\n");
+                fw.write("        }\n");
+            }
+        }
+        fw.write("        return " + this.generator.getBuiltDTO("dto") + ";\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOSourceWriter#writeHelperMethod(java.lang.Class, java.lang.String, java.lang.String, java.lang.reflect.Type, java.io.Writer)
+     */
+    @Override
+    protected void writeHelperMethod(final Class<?> clazz, final String name, final String kind, final Type type,
+                                     final Writer fw) throws IOException {
+        final String dtoType = this.generator.getDTOType(clazz, type);
+        if (CONSTANTS.equals(kind)) {
+            fw.write("    private static final " + dtoType + "[] " + name + " = " + dtoType + ".values();\n\n");
+        }
+        else if (WRITE.equals(kind)) {
+            fw.write("    private static void " + name + "(final " + dtoType
+                    + " value, final java.nio.ByteBuffer buffer) {\n");
+            this.writeWriteHelperBody(clazz, type, fw);
+            fw.write("    }\n\n");
+        }
+        else if (SIZE.equals(kind)) {
+            fw.write("    private static int " + name + "(final " + dtoType + " value) {\n");
+            this.writeSizeHelperBody(clazz, type, fw);
+            fw.write("    }\n\n");
+        }
+        else {
+            fw.write("    private static " + dtoType + " " + name + "(final java.nio.ByteBuffer buffer) {\n");
+            this.writeReadHelperBody(clazz, type, dtoType, fw);
+            fw.write("    }\n\n");
+        }
+    }
+
+    /**
+     * Write the body of a method writing an array, a collection or a map that
+     * is not <code>null</code>.
+     *
+     * @param clazz the class a DTO is generated for.
+     * @param type  the type, as declared in the class.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    private void writeWriteHelperBody(final Class<?> clazz, final Type type, final Writer fw) throws IOException {
+        if (type instanceof Class<?>) {
+            final Class<?> componentType = ((Class<?>) type).getComponentType();
+            fw.write("        DTOBinary.putVarInt(buffer, value.length);\n");
+            if (componentType.equals(byte.class)) {
+                fw.write("        buffer.put(value);\n");
+                return;
+            }
+            if (!componentType.isPrimitive()) {
+                fw.write("        DTOBinary.putPresence(buffer, value);\n");
+            }
+            fw.write("        for (int i = 0; i < value.length; i++) {\n");
+            this.writeElement(componentType, "value[i]", fw);
+            fw.write("        }\n");
+            return;
+        }
+        if (type instanceof DTOPrimitiveMapType) {
+            final DTOPrimitiveMapType mapType = (DTOPrimitiveMapType) type;
+            fw.write("        DTOBinary.putVarInt(buffer, value.size());\n");
+            fw.write("        for (int i = 0; i < value.size(); i++) {\n");
+            this.writeElement(mapType.getKeyType(), "value.keyAt(i)", fw);
+            this.writeElement(mapType.getValueType(), "value.valueAt(i)", fw);
+            fw.write("        }\n");
+            return;
+        }
+        final Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+        fw.write("        DTOBinary.putVarInt(buffer, value.size());\n");
+        if (typeArguments.length == 2) {
+            fw.write("        DTOBinary.putPresence(buffer, value.keySet());\n");
+            fw.write("        DTOBinary.putPresence(buffer, value.values());\n");
+            fw.write("        for (final java.util.Map.Entry<" + this.getDTOTypes(clazz, typeArguments)
+                    + "> entry : value.entrySet()) {\n");
+            this.writeElement(typeArguments[0], "entry.getKey()", fw);
+            this.writeElement(typeArguments[1], "entry.getValue()", fw);
+        }
+        else {
+            fw.write("        DTOBinary.putPresence(buffer, value);\n");
+            fw.write("        for (final " + this.generator.getDTOType(clazz, typeArguments[0]) + " element : value) {\n");
+            this.writeElement(typeArguments[0], "element", fw);
+        }
+        fw.write("        }\n");
+    }
+
+    /**
+     * Write the statement writing an element of an array, a collection or a
+     * map, skipped if it is <code>null</code>.
+     *
+     * @param type    the element type, as declared in the class.
+     * @param element the element expression.
+     * @param fw      the writer.
+     * @throws IOException if the writer fails.
+     */
+    private void writeElement(final Type type, final String element, final Writer fw) throws IOException {
+        if (type instanceof Class<?> && ((Class<?>) type).isPrimitive()) {
+            fw.write("            " + this.writeValue(type, element) + "\n");
+        }
+        else {
+            fw.write("            if (" + element + " != null) {\n");
+            fw.write("                " + this.writeValue(type, element) + "\n");
+            fw.write("            }\n");
+        }
+    }
+
+    /**
+     * Write the body of a method returning the number of bytes of an array, a
+     * collection or a map that is not <code>null</code>.
+     *
+     * @param clazz the class a DTO is generated for.
+     * @param type  the type, as declared in the class.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    private void writeSizeHelperBody(final Class<?> clazz, final Type type, final Writer fw) throws IOException {
+        if (type instanceof Class<?>) {
+            final Class<?> componentType = ((Class<?>) type).getComponentType();
+            if (componentType.isPrimitive() && this.getFixedSize(componentType) > 0) {
+                fw.write("        return DTOBinary.varIntSize(value.length) + value.length * "
+                        + this.getFixedSize(componentType) + ";\n");
+                return;
+            }
+            if (componentType.isPrimitive()) {
+                fw.write("        int size = DTOBinary.varIntSize(value.length);\n");
+            }
+            else {
+                fw.write("        int size = DTOBinary.varIntSize(value.length) + DTOBinary.bitmapSize(value.length);\n");
+            }
+            fw.write("        for (int i = 0; i < value.length; i++) {\n");
+            this.writeElementSize(componentType, "value[i]", fw);
+            fw.write("        }\n");
+            fw.write("        return size;\n");
+            return;
+        }
+        if (type instanceof DTOPrimitiveMapType) {
+            final DTOPrimitiveMapType mapType = (DTOPrimitiveMapType) type;
+            fw.write("        int size = DTOBinary.varIntSize(value.size());\n");
+            fw.write("        for (int i = 0; i < value.size(); i++) {\n");
+            this.writeElementSize(mapType.getKeyType(), "value.keyAt(i)", fw);
+            this.writeElementSize(mapType.getValueType(), "value.valueAt(i)", fw);
+            fw.write("        }\n");
+            fw.write("        return size;\n");
+            return;
+        }
+        final Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+        if (typeArguments.length == 2) {
+            fw.write("        int size = DTOBinary.varIntSize(value.size()) + 2 * DTOBinary.bitmapSize(value.size());\n");
+            fw.write("        for (final java.util.Map.Entry<" + this.getDTOTypes(clazz, typeArguments)
+                    + "> entry : value.entrySet()) {\n");
+            this.writeElementSize(typeArguments[0], "entry.getKey()", fw);
+            this.writeElementSize(typeArguments[1], "entry.getValue()", fw);
+        }
+        else {
+            fw.write("        int size = DTOBinary.varIntSize(value.size()) + DTOBinary.bitmapSize(value.size());\n");
+            fw.write("        for (final " + this.generator.getDTOType(clazz, typeArguments[0]) + " element : value) {\n");
+            this.writeElementSize(typeArguments[0], "element", fw);
+        }
+        fw.write("        }\n");
+        fw.write("        return size;\n");
+    }
+
+    /**
+     * Write the statement adding the number of bytes of an element to the
+     * size, skipped if it is <code>null</code>.
+     *
+     * @param type    the element type, as declared in the class.
+     * @param element the element expression.
+     * @param fw      the writer.
+     * @throws IOException if the writer fails.
+     */
+    private void writeElementSize(final Type type, final String element, final Writer fw) throws IOException {
+        if (type instanceof Class<?> && ((Class<?>) type).isPrimitive()) {
+            fw.write("            size += " + this.sizeValue(type, element) + ";\n");
+        }
+        else {
+            fw.write("            if (" + element + " != null) {\n");
+            fw.write("                size += " + this.sizeValue(type, element) + ";\n");
+            fw.write("            }\n");
+        }
+    }
+
+    /**
+     * Write the body of a method reading an enum, an array, a collection or a
+     * map.
+     *
+     * @param clazz   the class a DTO is generated for.
+     * @param type    the type, as declared in the class.
+     * @param dtoType the type, as written.
+     * @param fw      the writer.
+     * @throws IOException if the writer fails.
+     */
+    private void writeReadHelperBody(final Class<?> clazz, final Type type, final String dtoType, final Writer fw)
+            throws IOException {
+        if (type instanceof Class<?> && ((Class<?>) type).isEnum()) {
+            final String constants = this.getHelperMethodName(CONSTANTS, type);
+            fw.write("        final int ordinal = DTOBinary.getVarInt(buffer);\n");
+            fw.write("        if (ordinal < 0 || ordinal >= " + constants + ".length) {\n");
+            fw.write("            throw new IllegalArgumentException(\"Unknown ordinal \" + ordinal + \" of "
+                    + dtoType + ".\");\n");
+            fw.write("        }\n");
+            fw.write("        return " + constants + "[ordinal];\n");
+            return;
+        }
+        if (type instanceof Class<?>) {
+            final Class<?> componentType = ((Class<?>) type).getComponentType();
+            final int dimension = this.generator.getArrayDimension((Class<?>) type);
+            final StringBuilder newArray = new StringBuilder("new ");
+            newArray.append(dtoType.substring(0, dtoType.length() - 2 * dimension)).append("[length]");
+            for (int i = 1; i < dimension; i++) {
+                newArray.append("[]");
+            }
+            if (componentType.isPrimitive()) {
+                fw.write("        final int length = DTOBinary.getLength(buffer);\n");
+                fw.write("        final " + dtoType + " result = " + newArray + ";\n");
+                if (componentType.equals(byte.class)) {
+                    fw.write("        buffer.get(result);\n");
+                }
+                else {
+                    fw.write("        for (int i = 0; i < length; i++) {\n");
+                    fw.write("            result[i] = " + this.readValue(componentType) + ";\n");
+                    fw.write("        }\n");
+                }
+            }
+            else {
+                fw.write("        final int length = DTOBinary.getCount(buffer);\n");
+                fw.write("        final " + dtoType + " result = " + newArray + ";\n");
+                fw.write("        final int presence = DTOBinary.skipBitmap(buffer, length);\n");
+                fw.write("        for (int i = 0; i < length; i++) {\n");
+                fw.write("            if (DTOBinary.isSet(buffer, presence, i)) {\n");
+                fw.write("                result[i] = " + this.readValue(componentType) + ";\n");
+                fw.write("            }\n");
+                fw.write("        }\n");
+            }
+            fw.write("        return result;\n");
+            return;
+        }
+        if (type instanceof DTOPrimitiveMapType) {
+            final DTOPrimitiveMapType mapType = (DTOPrimitiveMapType) type;
+            fw.write("        final int count = DTOBinary.getLength(buffer);\n");
+            fw.write("        final " + dtoType + " result = new " + dtoType + "(count);\n");
+            fw.write("        for (int i = 0; i < count; i++) {\n");
+            fw.write("            final " + mapType.getKeyType().getName() + " key = "
+                    + this.readValue(mapType.getKeyType()) + ";\n");
+            fw.write("            result.put(key, " + this.readValue(mapType.getValueType()) + ");\n");
+            fw.write("        }\n");
+            fw.write("        return result;\n");
+            return;
+        }
+        final Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+        fw.write("        final int count = DTOBinary.getCount(buffer);\n");
+        fw.write("        final " + dtoType + " result = "
+                + this.newCollection(type, this.getDTOTypes(clazz, typeArguments), "count") + ";\n");
+        if (typeArguments.length == 2) {
+            fw.write("        final int keys = DTOBinary.skipBitmap(buffer, count);\n");
+            fw.write("        final int values = DTOBinary.skipBitmap(buffer, count);\n");
+            fw.write("        for (int i = 0; i < count; i++) {\n");
+            fw.write("            final " + this.generator.getDTOType(clazz, typeArguments[0])
+                    + " key = DTOBinary.isSet(buffer, keys, i) ? " + this.readValue(typeArguments[0]) + " : null;\n");
+            fw.write("            result.put(key, DTOBinary.isSet(buffer, values, i) ? "
+                    + this.readValue(typeArguments[1]) + " : null);\n");
+        }
+        else {
+            fw.write("        final int presence = DTOBinary.skipBitmap(buffer, count);\n");
+            fw.write("        for (int i = 0; i < count; i++) {\n");
+            fw.write("            result.add(DTOBinary.isSet(buffer, presence, i) ? "
+                    + this.readValue(typeArguments[0]) + " : null);\n");
+        }
+        fw.write("        }\n");
+        fw.write("        return result;\n");
+    }
+
+    /**
+     * Return the statement writing a value that is not <code>null</code>.
+     *
+     * @param type  the value type, as declared in the class.
+     * @param value the value expression.
+     * @return the statement.
+     */
+    protected String writeValue(final Type type, final String value) {
+        if (type instanceof Class<?>) {
+            final Class<?> clazz = (Class<?>) type;
+            final Class<?> primitiveType = clazz.isPrimitive() ? clazz : this.getPrimitiveType(clazz);
+            if (primitiveType != null) {
+                if (primitiveType.equals(boolean.class)) {
+                    return "buffer.put((byte) (" + value + " ? 1 : 0));";
+                }
+                if (primitiveType.equals(byte.class)) {
+                    return "buffer.put(" + value + ");";
+                }
+                if (primitiveType.equals(char.class)) {
+                    return "DTOBinary.putVarInt(buffer, " + value + ");";
+                }
+                if (primitiveType.equals(long.class)) {
+                    return "DTOBinary.putSignedVarLong(buffer, " + value + ");";
+                }
+                if (primitiveType.equals(float.class) || primitiveType.equals(double.class)) {
+                    return "buffer.put" + this.getPrimitiveName(primitiveType) + "(" + value + ");";
+                }
+                return "DTOBinary.putSignedVarInt(buffer, " + value + ");";
+            }
+            if (clazz.equals(String.class)) {
+                return "DTOBinary.putString(buffer, " + value + ");";
+            }
+            if (clazz.equals(Date.class)) {
+                return "DTOBinary.putSignedVarLong(buffer, " + value + ".getTime());";
+            }
+            if (clazz.isEnum()) {
+                return "DTOBinary.putVarInt(buffer, " + value + ".ordinal());";
+            }
+            if (!clazz.isArray()) {
+                return this.getCompanionClassName(clazz) + "." + WRITE + "(" + value + ", buffer);";
+            }
+        }
+        return this.getHelperMethodName(WRITE, type) + "(" + value + ", buffer);";
+    }
+
+    /**
+     * Return the expression of the number of bytes of a value that is not
+     * <code>null</code>.
+     *
+     * @param type  the value type, as declared in the class.
+     * @param value the value expression.
+     * @return the expression.
+     */
+    protected String sizeValue(final Type type, final String value) {
+        if (type instanceof Class<?>) {
+            final Class<?> clazz = (Class<?>) type;
+            final Class<?> primitiveType = clazz.isPrimitive() ? clazz : this.getPrimitiveType(clazz);
+            if (primitiveType != null) {
+                if (this.getFixedSize(primitiveType) > 0) {
+                    return String.valueOf(this.getFixedSize(primitiveType));
+                }
+                if (primitiveType.equals(char.class)) {
+                    return "DTOBinary.varIntSize(" + value + ")";
+                }
+                if (primitiveType.equals(long.class)) {
+                    return "DTOBinary.signedVarLongSize(" + value + ")";
+                }
+                return "DTOBinary.signedVarIntSize(" + value + ")";
+            }
+            if (clazz.equals(String.class)) {
+                return "DTOBinary.stringSize(" + value + ")";
+            }
+            if (clazz.equals(Date.class)) {
+                return "DTOBinary.signedVarLongSize(" + value + ".getTime())";
+            }
+            if (clazz.isEnum()) {
+                return "DTOBinary.varIntSize(" + value + ".ordinal())";
+            }
+            if (!clazz.isArray()) {
+                return this.getCompanionClassName(clazz) + "." + SIZE + "(" + value + ")";
+            }
+        }
+        return this.getHelperMethodName(SIZE, type) + "(" + value + ")";
+    }
+
+    /**
+     * Return the expression reading a value that is not <code>null</code>.
+     *
+     * @param type the value type, as declared in the class.
+     * @return the expression.
+     */
+    protected String readValue(final Type type) {
+        if (type instanceof Class<?>) {
+            final Class<?> clazz = (Class<?>) type;
+            final Class<?> primitiveType = clazz.isPrimitive() ? clazz : this.getPrimitiveType(clazz);
+            if (primitiveType != null) {
+                final String value;
+                if (primitiveType.equals(boolean.class)) {
+                    value = "buffer.get() != 0";
+                }
+                else if (primitiveType.equals(byte.class)) {
+                    value = "buffer.get()";
+                }
+                else if (primitiveType.equals(char.class)) {
+                    value = "(char) DTOBinary.getVarInt(buffer)";
+                }
+                else if (primitiveType.equals(short.class)) {
+                    value = "(short) DTOBinary.getSignedVarInt(buffer)";
+                }
+                else if (primitiveType.equals(long.class)) {
+                    value = "DTOBinary.getSignedVarLong(buffer)";
+                }
+                else if (primitiveType.equals(float.class) || primitiveType.equals(double.class)) {
+                    value = "buffer.get" + this.getPrimitiveName(primitiveType) + "()";
+                }
+                else {
+                    value = "DTOBinary.getSignedVarInt(buffer)";
+                }
+                return clazz.isPrimitive() ? value : clazz.getSimpleName() + ".valueOf(" + value + ")";
+            }
+            if (clazz.equals(String.class)) {
+                return "DTOBinary.getString(buffer)";
+            }
+            if (clazz.equals(Date.class)) {
+                return "new java.util.Date(DTOBinary.getSignedVarLong(buffer))";
+            }
+            if (!clazz.isEnum() && !clazz.isArray()) {
+                return this.getCompanionClassName(clazz) + "." + this.getReadMethodName(clazz) + "(buffer)";
+            }
+        }
+        return this.getHelperMethodName(READ, type) + "(buffer)";
+    }
+
+    /**
+     * Return the number of bytes of the primitives encoded with a fixed size.
+     *
+     * @param primitiveType the primitive type.
+     * @return the number of bytes, 0 if the primitive has a variable size.
+     */
+    protected int getFixedSize(final Class<?> primitiveType) {
+        if (primitiveType.equals(boolean.class) || primitiveType.equals(byte.class)) {
+            return 1;
+        }
+        if (primitiveType.equals(float.class)) {
+            return 4;
+        }
+        if (primitiveType.equals(double.class)) {
+            return 8;
+        }
+        return 0;
+    }
+
+    /**
+     * Return the name of the method reading the DTO of a class: read for a
+     * top level class, followed by the declared class names otherwise.
+     *
+     * @param clazz the class.
+     * @return the method name.
+     */
+    protected String getReadMethodName(final Class<?> clazz) {
+        final String dtoClassName = this.generator.getDTOClassName(clazz);
+        final int dot = dtoClassName.indexOf('.');
+        return dot < 0 ? READ : READ + dtoClassName.substring(dot + 1).replace(".", "");
+    }
+
+    /**
+     * Return the schema hash of the DTO of a class: the CRC32 of the names and
+     * types of the fields encoded, and of the DTOs and enums they reference.
+     *
+     * @param clazz the class.
+     * @return the hash.
+     */
+    protected int getSchemaHash(final Class<?> clazz) {
+        final StringBuilder schema = new StringBuilder(FORMAT);
+        this.appendSchema(clazz, schema, new HashSet<Class<?>>());
+        final CRC32 crc = new CRC32();
+        try {
+            crc.update(schema.toString().getBytes("UTF-8"));
+        }
+        catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Append the schema of a DTO or an enum, once.
+     *
+     * @param clazz   the class.
+     * @param schema  the schema.
+     * @param visited the classes already appended.
+     */
+    private void appendSchema(final Class<?> clazz, final StringBuilder schema, final Set<Class<?>> visited) {
+        if (!visited.add(clazz)) {
+            return;
+        }
+        if (clazz.isEnum()) {
+            schema.append('|').append(clazz.getName()).append('(');
+            for (final Object constant : clazz.getEnumConstants()) {
+                schema.append(((Enum<?>) constant).name()).append(';');
+            }
+            schema.append(')');
+            return;
+        }
+        final List<Field> fields = this.getEncodedFields(clazz);
+        schema.append('|').append(this.generator.getDTOClassName(clazz)).append('{');
+        for (final Field field : fields) {
+            schema.append(field.getName()).append(':')
+                    .append(this.generator.getDTOType(clazz, this.generator.getDTOFieldGenericType(field))).append(';');
+        }
+        schema.append('}');
+        for (final Field field : fields) {
+            this.appendTypeSchema(this.generator.getDTOFieldGenericType(field), schema, visited);
+        }
+    }
+
+    /**
+     * Append the schemas of the DTOs and enums a type references.
+     *
+     * @param type    the type, as declared in the class.
+     * @param schema  the schema.
+     * @param visited the classes already appended.
+     */
+    private void appendTypeSchema(final Type type, final StringBuilder schema, final Set<Class<?>> visited) {
+        if (type instanceof DTOPrimitiveMapType) {
+            return;
+        }
+        if (type instanceof ParameterizedType) {
+            for (final Type typeArgument : ((ParameterizedType) type).getActualTypeArguments()) {
+                this.appendTypeSchema(typeArgument, schema, visited);
+            }
+            return;
+        }
+        final Class<?> clazz = (Class<?>) type;
+        if (clazz.isArray()) {
+            this.appendTypeSchema(clazz.getComponentType(), schema, visited);
+        }
+        else if (clazz.isEnum() || this.isCodable(clazz)) {
+            this.appendSchema(clazz, schema, visited);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.util.List;
+
+/**
+ * Writer of the columnar container of a DTO: a class holding the fields of
+ * many DTOs in one array per field, a struct of arrays, e.g.
+ * <code>BeanDTOColumns</code>. The values of a field are contiguous, so that
+ * a scan over a field reads a single primitive array, and a container of
+ * millions of DTOs costs neither their object headers nor their references.
+ * The arrays double when they are full.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOColumnsWriter extends DTOCompanionWriter {
+
+    /**
+     * The capacity of a container created without one.
+     */
+    protected static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    public DTOColumnsWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#getSuffix()
+     */
+    @Override
+    public String getSuffix() {
+        return "Columns";
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#accept(java.lang.Class)
+     */
+    @Override
+    public boolean accept(final Class<?> clazz) {
+        return super.accept(clazz) && !clazz.isEnum() && this.generator.isAccessible(clazz);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#write(java.lang.Class, java.io.Writer)
+     */
+    @Override
+    public void write(final Class<?> clazz, final Writer fw) throws IOException {
+        final String columnsName = this.getCompanionClassName(clazz);
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        final List<Field> fields = this.generator.getDTOFields(clazz);
+
+        this.writeHeader(clazz, fw, "Columns of the DTOs of {@link " + clazz.getCanonicalName()
+                + "}: an array per field, indexed by DTO.");
+        fw.write("public final class " + columnsName + " {\n\n");
+        fw.write("    /**\n");
+        fw.write("     * Maximum capacity, as large as an array can be on most virtual machines.\n");
+        fw.write("     */\n");
+        fw.write("    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;\n\n");
+        fw.write("    private int size;\n\n");
+        fw.write("    private int capacity;\n\n");
+        for (final Field field : fields) {
+            fw.write("    private " + this.generator.getDTOFieldType(clazz, field) + "[] " + this.getColumnName(field)
+                    + ";\n\n");
+        }
+        fw.write("    public " + columnsName + "() {\n");
+        fw.write("        this(" + DEFAULT_CAPACITY + ");\n");
+        fw.write("    }\n\n");
+        this.writeConstructor(clazz, columnsName, fields, fw);
+        fw.write("    /**\n");
+        fw.write("     * Return the columns of a list of DTOs.\n");
+        fw.write("     *\n");
+        fw.write("     * @param dtos the DTOs, not <code>null</code>.\n");
+        fw.write("     * @return the columns, as large as the list.\n");
+        fw.write("     */\n");
+        fw.write("    public static " + columnsName + " of(final java.util.List<" + dtoName + "> dtos) {\n");
+        fw.write("        final " + columnsName + " columns = new " + columnsName + "(dtos.size());\n");
+        fw.write("        columns.addAll(dtos);\n");
+        fw.write("        return columns;\n");
+        fw.write("    }\n\n");
+        fw.write("    public int size() {\n");
+        fw.write("        return this.size;\n");
+        fw.write("    }\n\n");
+        fw.write("    public boolean isEmpty() {\n");
+        fw.write("        return this.size == 0;\n");
+        fw.write("    }\n\n");
+        fw.write("    /**\n");
+        fw.write("     * Append the fields of a DTO.\n");
+        fw.write("     *\n");
+        fw.write("     * @param dto the DTO, not <code>null</code>.\n");
+        fw.write("     * @return the index of the DTO.\n");
+        fw.write("     */\n");
+        fw.write("    public int add(final " + dtoName + " dto) {\n");
+        fw.write("        this.ensureCapacity(this.size + 1);\n");
+        fw.write("        this.write(this.size, dto);\n");
+        fw.write("        return this.size++;\n");
+        fw.write("    }\n\n");
+        fw.write("    /**\n");
+        fw.write("     * Append the fields of DTOs, growing the columns once.\n");
+        fw.write("     *\n");
+        fw.write("     * @param dtos the DTOs, none of them <code>null</code>.\n");
+        fw.write("     */\n");
+        fw.write("    public void addAll(final java.util.List<" + dtoName + "> dtos) {\n");
+        fw.write("        this.ensureCapacity(this.size + dtos.size());\n");
+        fw.write("        for (final " + dtoName + " dto : dtos) {\n");
+        fw.write("            this.write(this.size, dto);\n");
+        fw.write("            this.size++;\n");
+        fw.write("        }\n");
+        fw.write("    }\n\n");
+        this.writeGet(clazz, fields, fw);
+        fw.write("    /**\n");
+        fw.write("     * Replace the fields of a DTO.\n");
+        fw.write("     *\n");
+        fw.write("     * @param index the index of the DTO.\n");
+        fw.write("     * @param dto   the DTO, not <code>null</code>.\n");
+        fw.write("     */\n");
+        fw.write("    public void set(final int index, final " + dtoName + " dto) {\n");
+        fw.write("        this.checkIndex(index);\n");
+        fw.write("        this.write(index, dto);\n");
+        fw.write("    }\n\n");
+        for (final Field field : fields) {
+            this.writeColumnAccessors(clazz, field, fw);
+        }
+        this.writeClear(fields, fw);
+        this.writeEnsureCapacity(fields, fw);
+        fw.write("    private void write(final int index, final " + dtoName + " dto) {\n");
+        for (final Field field : fields) {
+            fw.write("        this." + this.getColumnName(field) + "[index] = dto."
+                    + this.generator.getDTOFieldGetterName(field) + "();\n");
+        }
+        fw.write("    }\n\n");
+        fw.write("    private void checkIndex(final int index) {\n");
+        fw.write("        if (index < 0 || index >= this.size) {\n");
+        fw.write("            throw new IndexOutOfBoundsException(\"Index \" + index + \", size \" + this.size);\n");
+        fw.write("        }\n");
+        fw.write("    }\n");
+        fw.write("}\n");
+    }
+
+    /**
+     * Write the constructor allocating the columns. Arrays of parameterized
+     * types are allocated as arrays of their raw type.
+     *
+     * @param clazz       the class a DTO is generated for.
+     * @param columnsName the name of the columns class.
+     * @param fields      the fields.
+     * @param fw          the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeConstructor(final Class<?> clazz, final String columnsName, final List<Field> fields,
+                                    final Writer fw) throws IOException {
+        fw.write("    /**\n");
+        fw.write("     * Constructor.\n");
+        fw.write("     *\n");
+        fw.write("     * @param initialCapacity the number of DTOs held before the columns grow.\n");
+        fw.write("     */\n");
+        for (final Field field : fields) {
+            if (this.generator.getDTOFieldGenericType(field) instanceof ParameterizedType) {
+                fw.write("    @SuppressWarnings(\"unchecked\")\n");
+                break;
+            }
+        }
+        fw.write("    public " + columnsName + "(final int initialCapacity) {\n");
+        fw.write("        if (initialCapacity < 0 || initialCapacity > MAX_CAPACITY) {\n");
+        fw.write("            throw new IllegalArgumentException(\"Illegal capacity \" + initialCapacity);\n");
+        fw.write("        }\n");
+        fw.write("        this.capacity = initialCapacity;\n");
+        for (final Field field : fields) {
+            final String dtoType = this.generator.getDTOFieldType(clazz, field);
+            final int typeArguments = dtoType.indexOf('<');
+            if (typeArguments < 0) {
+                fw.write("        this." + this.getColumnName(field) + " = " + this.newArray(dtoType, "initialCapacity")
+                        + ";\n");
+            }
+            else {
+                fw.write("        this." + this.getColumnName(field) + " = (" + dtoType + "[]) "
+                        + this.newArray(dtoType.substring(0, typeArguments), "initialCapacity") + ";\n");
+            }
+        }
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write the method returning a DTO of the fields at an index.
+     *
+     * @param clazz  the class a DTO is generated for.
+     * @param fields the fields.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeGet(final Class<?> clazz, final List<Field> fields, final Writer fw) throws IOException {
+        final String builderName = this.generator.getDTOBuilderName(clazz);
+        fw.write("    /**\n");
+        fw.write("     * Return a DTO of the fields at an index.\n");
+        fw.write("     *\n");
+        fw.write("     * @param index the index of the DTO.\n");
+        fw.write("     * @return a new DTO.\n");
+        fw.write("     */\n");
+        fw.write("    public " + this.generator.getDTOClassName(clazz) + " get(final int index) {\n");
+        fw.write("        this.checkIndex(index);\n");
+        fw.write("        final " + builderName + " dto = new " + builderName + "();\n");
+        for (final Field field : fields) {
+            fw.write("        dto." + this.generator.getDTOFieldSetterName(field) + "(this." + this.getColumnName(field)
+                    + "[index]);\n");
+        }
+        fw.write("        return " + this.generator.getBuiltDTO("dto") + ";\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write the accessors of the column of a field: its value at an index,
+     * and the column itself for the scans.
+     *
+     * @param clazz the class a DTO is generated for.
+     * @param field the field.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeColumnAccessors(final Class<?> clazz, final Field field, final Writer fw)
+            throws IOException {
+        final String dtoType = this.generator.getDTOFieldType(clazz, field);
+        final String columnName = this.getColumnName(field);
+        final String getterName = this.generator.getDTOFieldGetterName(field);
+        fw.write("    public " + dtoType + " " + getterName + "(final int index) {\n");
+        fw.write("        this.checkIndex(index);\n");
+        fw.write("        return this." + columnName + "[index];\n");
+        fw.write("    }\n\n");
+        fw.write("    public void " + this.generator.getDTOFieldSetterName(field) + "(final int index, final " + dtoType
+                + " value) {\n");
+        fw.write("        this.checkIndex(index);\n");
+        fw.write("        this." + columnName + "[index] = value;\n");
+        fw.write("    }\n\n");
+        fw.write("    /**\n");
+        fw.write("     * Return the column of the " + field.getName() + " field, shared: only its first\n");
+        fw.write("     * {@link #size()} values are set, and it is replaced when the columns grow.\n");
+        fw.write("     *\n");
+        fw.write("     * @return the column.\n");
+        fw.write("     */\n");
+        fw.write("    public " + dtoType + "[] " + "get" + Character.toUpperCase(columnName.charAt(0))
+                + columnName.substring(1) + "() {\n");
+        fw.write("        return this." + columnName + ";\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write the method removing the DTOs, releasing the references they hold.
+     *
+     * @param fields the fields.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeClear(final List<Field> fields, final Writer fw) throws IOException {
+        fw.write("    /**\n");
+        fw.write("     * Remove the DTOs, keeping the capacity.\n");
+        fw.write("     */\n");
+        fw.write("    public void clear() {\n");
+        for (final Field field : fields) {
+            if (!this.generator.getDTOFieldClass(field).isPrimitive()) {
+                fw.write("        java.util.Arrays.fill(this." + this.getColumnName(field)
+                        + ", 0, this.size, null);\n");
+            }
+        }
+        fw.write("        this.size = 0;\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write the method growing the columns, doubling their capacity.
+     *
+     * @param fields the fields.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeEnsureCapacity(final List<Field> fields, final Writer fw) throws IOException {
+        fw.write("    /**\n");
+        fw.write("     * Grow the columns, at least doubling their capacity, so that they hold a\n");
+        fw.write("     * number of DTOs.\n");
+        fw.write("     *\n");
+        fw.write("     * @param minCapacity the number of DTOs.\n");
+        fw.write("     */\n");
+        fw.write("    public void ensureCapacity(final int minCapacity) {\n");
+        fw.write("        if (minCapacity <= this.capacity) {\n");
+        fw.write("            return;\n");
+        fw.write("        }\n");
+        fw.write("        if (minCapacity > MAX_CAPACITY) {\n");
+        fw.write("            throw new IllegalStateException(\"Capacity \" + minCapacity + \" exceeds \"\n");
+        fw.write("                    + MAX_CAPACITY);\n");
+        fw.write("        }\n");
+        fw.write("        final int doubled = this.capacity < MAX_CAPACITY >> 1 ? this.capacity << 1\n");
+        fw.write("                : MAX_CAPACITY;\n");
+        fw.write("        this.capacity = Math.max(minCapacity, Math.max(" + DEFAULT_CAPACITY + ", doubled));\n");
+        for (final Field field : fields) {
+            final String columnName = this.getColumnName(field);
+            fw.write("        this." + columnName + " = java.util.Arrays.copyOf(this." + columnName
+                    + ", this.capacity);\n");
+        }
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Return the name of the column of a field.
+     *
+     * @param field the field.
+     * @return the column name.
+     */
+    protected String getColumnName(final Field field) {
+        return field.getName() + "Column";
+    }
+
+    /**
+     * Return the expression allocating an array of a type, of any dimension.
+     *
+     * @param type   the element type name, itself an array type or not.
+     * @param length the length expression.
+     * @return the expression.
+     */
+    private String newArray(final String type, final String length) {
+        final int dimensions = type.indexOf('[');
+        if (dimensions < 0) {
+            return "new " + type + "[" + length + "]";
+        }
+        return "new " + type.substring(0, dimensions) + "[" + length + "]" + type.substring(dimensions);
+    }
+}
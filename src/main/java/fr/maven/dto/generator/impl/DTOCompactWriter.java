@@ -0,0 +1,357 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writer of the compact layout of a DTO: its booleans and its enums of up to
+ * {@value #MAX_ENUM_CONSTANTS} constants are packed in <code>int</code> bit
+ * fields, or <code>long</code> ones beyond 32 bits, and its nullable
+ * <code>Byte</code>, <code>Short</code>, <code>Integer</code>,
+ * <code>Long</code>, <code>Float</code> and <code>Double</code> fields are
+ * stored as primitives with a presence bit in the same bit fields.
+ * <p/>
+ * The getters and setters keep their signatures: a getter decodes its bits,
+ * and a setter calls a private <code>store</code> method encoding them, that
+ * the other members call too. An enum is stored as its ordinal plus one, 0
+ * being <code>null</code>, and decoded by a table of its constants, so it is
+ * only packed in the classes that can declare static fields. The bits of a
+ * field never straddle two bit fields.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOCompactWriter extends DTOMemberWriter {
+
+    /**
+     * The maximum number of constants of a packed enum, so that its ordinal
+     * plus one fits in a byte.
+     */
+    public static final int MAX_ENUM_CONSTANTS = 255;
+
+    /**
+     * Prefix of the names of the bit fields.
+     */
+    private static final String PACKED_FIELD = "packedBits";
+
+    /**
+     * Prefix of the names of the methods storing a packed field.
+     */
+    private static final String STORE_METHOD = "store";
+
+    /**
+     * Suffix of the names of the tables of the constants of a packed enum.
+     */
+    private static final String CONSTANTS = "_CONSTANTS";
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    public DTOCompactWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Only the DTOs with packed fields get bit fields.
+     *
+     * @see fr.maven.dto.generator.impl.DTOMemberWriter#accept(java.lang.Class)
+     */
+    @Override
+    public boolean accept(final Class<?> clazz) {
+        return super.accept(clazz) && this.getLayout(clazz).words > 0;
+    }
+
+    /**
+     * Check if a field is packed: a boolean, a wrapper of a number, substitute
+     * types included, or an enum of few constants in a class that can declare
+     * its table.
+     *
+     * @param field the field.
+     * @return <code>true</code> if the field is packed.
+     */
+    protected boolean isPacked(final Field field) {
+        final Class<?> type = this.generator.getDTOFieldClass(field);
+        if (type.equals(boolean.class)) {
+            return true;
+        }
+        if (type.isEnum()) {
+            return type.getEnumConstants().length <= MAX_ENUM_CONSTANTS
+                    && this.isStaticClass(field.getDeclaringClass());
+        }
+        return Number.class.isAssignableFrom(type) && this.getPrimitiveType(type) != null;
+    }
+
+    /**
+     * Return the primitive type a packed wrapper field is declared with.
+     *
+     * @param field the packed field.
+     * @return the primitive type, <code>null</code> if the field is held by
+     *         the bit fields only.
+     */
+    protected Class<?> getStorageType(final Field field) {
+        return this.getPrimitiveType(this.generator.getDTOFieldClass(field));
+    }
+
+    /**
+     * Return the name of the method storing a packed field.
+     *
+     * @param field the packed field.
+     * @return the method name.
+     */
+    protected String getStoreMethodName(final Field field) {
+        return STORE_METHOD + this.generator.capitalize(field.getName());
+    }
+
+    /**
+     * Return the expression of the value of a packed field, as its getter
+     * returns it.
+     *
+     * @param clazz the class a DTO is generated for, or a declared class.
+     * @param field the packed field.
+     * @return the expression.
+     */
+    protected String getValue(final Class<?> clazz, final Field field) {
+        final Layout layout = this.getLayout(clazz);
+        final int index = this.generator.getDTOFields(clazz).indexOf(field);
+        final String word = "this." + PACKED_FIELD + layout.word(index);
+        final int shift = layout.shift(index);
+        final Class<?> type = this.generator.getDTOFieldClass(field);
+        if (type.isEnum()) {
+            final String bits = (shift == 0 ? word : word + " >>> " + shift) + " & "
+                    + layout.literal((1L << layout.widths[index]) - 1);
+            return this.getConstantsName(field) + "[" + (layout.isLong() ? "(int) (" + bits + ")" : bits) + "]";
+        }
+        final String present = "(" + word + " & " + layout.bit(shift) + ") != 0";
+        if (type.equals(boolean.class)) {
+            return present;
+        }
+        return present + " ? " + type.getSimpleName() + ".valueOf(this." + field.getName() + ") : null";
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOMemberWriter#writeMembers(java.lang.Class, java.io.Writer)
+     */
+    @Override
+    public void writeMembers(final Class<?> clazz, final Writer fw) throws IOException {
+        final Layout layout = this.getLayout(clazz);
+        final String wordType = layout.isLong() ? "long" : "int";
+        for (int word = 0; word < layout.words; word++) {
+            fw.write("    /**\n");
+            fw.write("     * Packed fields.\n");
+            fw.write("     */\n");
+            fw.write("    private " + wordType + " " + PACKED_FIELD + word + ";\n\n");
+        }
+        final List<Field> fields = this.generator.getDTOFields(clazz);
+        for (final Field field : fields) {
+            if (field.getType().isEnum() && this.generator.isPackedField(field)) {
+                final String dtoType = this.generator.getDTOFieldType(clazz, field);
+                fw.write("    /**\n");
+                fw.write("     * The constants of {@link #" + this.generator.getDTOFieldGetterName(field)
+                        + "()}, by ordinal plus one.\n");
+                fw.write("     */\n");
+                fw.write("    private static final " + dtoType + "[] " + this.getConstantsName(field) + " = {null");
+                for (final Object constant : field.getType().getEnumConstants()) {
+                    fw.write(",\n            " + dtoType + "." + ((Enum<?>) constant).name());
+                }
+                fw.write("};\n\n");
+            }
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            if (layout.widths[i] > 0) {
+                this.writeStoreMethod(clazz, fields.get(i), layout, i, fw);
+            }
+        }
+    }
+
+    /**
+     * Write the method storing a packed field.
+     *
+     * @param clazz  the class a DTO is generated for, or a declared class.
+     * @param field  the packed field.
+     * @param layout the layout of the DTO.
+     * @param index  the field index.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    private void writeStoreMethod(final Class<?> clazz, final Field field, final Layout layout, final int index,
+                                  final Writer fw) throws IOException {
+        final String name = field.getName();
+        final String word = "this." + PACKED_FIELD + layout.word(index);
+        final int shift = layout.shift(index);
+        final String bit = layout.bit(shift);
+        final Class<?> type = this.generator.getDTOFieldClass(field);
+        fw.write("    /**\n");
+        fw.write("     * Store the packed field {@link #" + this.generator.getDTOFieldGetterName(field) + "()}.\n");
+        fw.write("     */\n");
+        fw.write("    private void " + this.getStoreMethodName(field) + "(final "
+                + this.generator.getDTOFieldType(clazz, field) + " " + name + ") {\n");
+        if (type.equals(boolean.class)) {
+            fw.write("        " + word + " = " + name + " ? " + word + " | " + bit + " : " + word + " & ~(" + bit
+                    + ");\n");
+        }
+        else if (type.isEnum()) {
+            final String mask = layout.literal((1L << layout.widths[index]) - 1);
+            final String ordinal = "(" + name + " == null ? 0 : " + name + ".ordinal() + 1)";
+            fw.write("        " + word + " = " + word + " & ~(" + mask + (shift == 0 ? "" : " << " + shift) + ")\n");
+            fw.write("                | " + (layout.isLong() ? "(long) " : "") + ordinal
+                    + (shift == 0 ? "" : " << " + shift) + ";\n");
+        }
+        else {
+            fw.write("        if (" + name + " == null) {\n");
+            fw.write("            " + word + " &= ~(" + bit + ");\n");
+            fw.write("            this." + name + " = 0;\n");
+            fw.write("        }\n");
+            fw.write("        else {\n");
+            fw.write("            " + word + " |= " + bit + ";\n");
+            fw.write("            this." + name + " = " + name + ";\n");
+            fw.write("        }\n");
+        }
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Return the name of the table of the constants of a packed enum field.
+     *
+     * @param field the packed enum field.
+     * @return the table name.
+     */
+    private String getConstantsName(final Field field) {
+        return field.getName().toUpperCase(Locale.ENGLISH) + CONSTANTS;
+    }
+
+    /**
+     * Return the number of bits of a packed field: its presence bit, or the
+     * bits of its ordinal plus one.
+     *
+     * @param field the field.
+     * @return the number of bits, 0 if the field is not packed.
+     */
+    private int getWidth(final Field field) {
+        if (!this.generator.isPackedField(field)) {
+            return 0;
+        }
+        if (field.getType().isEnum()) {
+            return Integer.SIZE - Integer.numberOfLeadingZeros(field.getType().getEnumConstants().length);
+        }
+        return 1;
+    }
+
+    /**
+     * Lay the packed fields of a DTO out in its bit fields, in declaration
+     * order: one <code>int</code> if their bits fit, <code>long</code>
+     * words otherwise.
+     *
+     * @param clazz the class a DTO is generated for, or a declared class.
+     * @return the layout.
+     */
+    private Layout getLayout(final Class<?> clazz) {
+        final List<Field> fields = this.generator.getDTOFields(clazz);
+        final Layout layout = new Layout(fields.size());
+        int bits = 0;
+        for (int i = 0; i < fields.size(); i++) {
+            layout.widths[i] = this.getWidth(fields.get(i));
+            bits += layout.widths[i];
+        }
+        layout.wordSize = bits > Integer.SIZE ? Long.SIZE : Integer.SIZE;
+        int position = 0;
+        for (int i = 0; i < fields.size(); i++) {
+            if (layout.widths[i] > 0) {
+                if (position % layout.wordSize + layout.widths[i] > layout.wordSize) {
+                    position += layout.wordSize - position % layout.wordSize;
+                }
+                layout.positions[i] = position;
+                position += layout.widths[i];
+            }
+        }
+        layout.words = (position + layout.wordSize - 1) / layout.wordSize;
+        return layout;
+    }
+
+    /**
+     * The position of the packed fields of a DTO in its bit fields.
+     */
+    protected static final class Layout {
+
+        /**
+         * The number of bits of each field, 0 for the fields not packed.
+         */
+        private final int[] widths;
+
+        /**
+         * The position of the first bit of each packed field, over all the
+         * bit fields.
+         */
+        private final int[] positions;
+
+        /**
+         * The number of bits of a bit field, 32 or 64.
+         */
+        private int wordSize;
+
+        /**
+         * The number of bit fields.
+         */
+        private int words;
+
+        /**
+         * Constructor.
+         *
+         * @param fields the number of fields.
+         */
+        Layout(final int fields) {
+            this.widths = new int[fields];
+            this.positions = new int[fields];
+        }
+
+        /**
+         * @return <code>true</code> if the bit fields are <code>long</code>.
+         */
+        boolean isLong() {
+            return this.wordSize == Long.SIZE;
+        }
+
+        /**
+         * @param index the index of a packed field.
+         * @return the bit field holding the field.
+         */
+        int word(final int index) {
+            return this.positions[index] / this.wordSize;
+        }
+
+        /**
+         * @param index the index of a packed field.
+         * @return the position of the field in its bit field.
+         */
+        int shift(final int index) {
+            return this.positions[index] % this.wordSize;
+        }
+
+        /**
+         * @param shift a position in a bit field.
+         * @return the expression of the bit at this position.
+         */
+        String bit(final int shift) {
+            final String one = this.isLong() ? "1L" : "1";
+            return shift == 0 ? one : one + " << " + shift;
+        }
+
+        /**
+         * @param value a mask.
+         * @return the literal of the mask, of the type of the bit fields.
+         */
+        String literal(final long value) {
+            return value + (this.isLong() ? "L" : "");
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Base of the writers of the classes generated next to a DTO, e.g. its mapper.
+ * A companion class is named after the DTO of a top level class with a
+ * suffix, and is generated in the DTO package.
+ *
+ * @author Wilfried Petit
+ */
+public abstract class DTOCompanionWriter extends DTOSourceWriter {
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    protected DTOCompanionWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+    }
+
+    /**
+     * Return the suffix appended to the DTO name to name the companion class.
+     *
+     * @return the suffix.
+     */
+    public abstract String getSuffix();
+
+    /**
+     * Check if a companion class is generated for the class given.
+     *
+     * @param clazz the class a DTO is generated for.
+     * @return <code>true</code> if a companion class is generated.
+     */
+    public boolean accept(final Class<?> clazz) {
+        return !clazz.isInterface() && !clazz.isAnnotation();
+    }
+
+    /**
+     * Check if the companion class is a test, generated in the test sources.
+     *
+     * @return <code>true</code> for a test.
+     */
+    public boolean isTestSource() {
+        return false;
+    }
+
+    /**
+     * Write the companion class of the DTO of the class given.
+     *
+     * @param clazz the class a DTO is generated for.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    public abstract void write(Class<?> clazz, Writer fw) throws IOException;
+
+    /**
+     * Return the name of the companion class of the DTO of the class given,
+     * or of the DTO of its top level class for a declared class.
+     *
+     * @param clazz the class that has a DTO.
+     * @return the companion class name.
+     */
+    public String getCompanionClassName(final Class<?> clazz) {
+        return this.generator.getDTOClassName(this.generator.getOutermostClass(clazz)) + this.getSuffix();
+    }
+
+    /**
+     * Write the package and the comment of the companion class.
+     *
+     * @param clazz       the class a DTO is generated for.
+     * @param fw          the writer.
+     * @param description the description of the companion class.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeHeader(final Class<?> clazz, final Writer fw, final String description)
+            throws IOException {
+        fw.write("package " + this.generator.getDTOPackage(clazz) + ";\n\n");
+        fw.write("/**\n");
+        fw.write(" * " + description + "\n");
+        fw.write(" * This class was generated by the DTO Maven Plugin.\n");
+        fw.write(" * " + new SimpleDateFormat("yyyy-MM-dd HH:mm").format(new Date()) + "\n");
+        fw.write(" */\n");
+    }
+
+    /**
+     * Check if the values of a type can be written and read by a codec.
+     *
+     * @param type the type, as declared in the class.
+     * @return <code>true</code> for primitives, their wrappers, strings,
+     *         dates, enums, DTOs that have a companion class, and arrays and
+     *         collections of them, primitive maps included.
+     */
+    protected boolean isSupported(final Type type) {
+        if (type instanceof DTOPrimitiveMapType) {
+            return true;
+        }
+        if (type instanceof ParameterizedType) {
+            if (!this.isSupportedCollection(type)) {
+                return false;
+            }
+            for (final Type typeArgument : ((ParameterizedType) type).getActualTypeArguments()) {
+                if (!this.isSupported(typeArgument)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (!(type instanceof Class<?>)) {
+            return false;
+        }
+        final Class<?> clazz = (Class<?>) type;
+        if (clazz.isArray()) {
+            return this.isSupported(clazz.getComponentType());
+        }
+        return clazz.isPrimitive() || this.getPrimitiveType(clazz) != null || clazz.equals(String.class)
+                || clazz.equals(Date.class) || (clazz.isEnum() && this.generator.isAccessible(clazz))
+                || this.isCodable(clazz);
+    }
+
+    /**
+     * Check if the companion class of a class that has a DTO is generated.
+     *
+     * @param clazz the class.
+     * @return <code>true</code> if the DTO can be referenced and instantiated
+     *         from the companion class of its top level class.
+     */
+    protected boolean isCodable(final Class<?> clazz) {
+        return this.generator.isDTOClass(clazz) && !clazz.isEnum() && !clazz.isInterface() && !clazz.isAnnotation()
+                && this.isStaticClass(clazz) && this.generator.isAccessible(clazz)
+                && this.accept(this.generator.getOutermostClass(clazz));
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Writer of the <code>deepCopy</code> methods of a DTO, copying it without a
+ * serialization round trip.
+ * <p/>
+ * Primitives, wrappers, strings and enums are shared. Nested DTOs are copied
+ * by their own <code>deepCopy</code>, dates cloned, arrays of any dimension
+ * and collections copied element by element into new ones sized exactly.
+ * Values of other types are shared. <code>deepCopy()</code> copies the
+ * object graph as a tree; <code>deepCopy(Map)</code> takes an identity map of
+ * the DTOs already copied, so that a DTO referenced twice is copied once and
+ * cycles are copied.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOCopyWriter extends DTOMemberWriter {
+
+    /**
+     * Name of the methods copying a DTO.
+     */
+    protected static final String COPY_METHOD = "deepCopy";
+
+    /**
+     * Kind of the helper methods copying an array or a collection.
+     */
+    protected static final String COPY = "copy";
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    public DTOCopyWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOMemberWriter#writeMembers(java.lang.Class, java.io.Writer)
+     */
+    @Override
+    public void writeMembers(final Class<?> clazz, final Writer fw) throws IOException {
+        this.resetHelperMethods();
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        final List<Field> fields = this.generator.getDTOFields(clazz);
+        fw.write("    /**\n");
+        fw.write("     * Copy this DTO and its nested DTOs, arrays, collections and dates, as a tree.\n");
+        fw.write("     *\n");
+        fw.write("     * @return the copy.\n");
+        fw.write("     */\n");
+        fw.write("    public " + dtoName + " " + COPY_METHOD + "() {\n");
+        fw.write("        return this." + COPY_METHOD + "(null);\n");
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * Copy this DTO and its nested DTOs, arrays, collections and dates.\n");
+        fw.write("     *\n");
+        fw.write("     * @param copies the identity map of the DTOs already copied to their copy, filled with\n");
+        fw.write("     *               this one, e.g. a java.util.IdentityHashMap: a DTO referenced twice is\n");
+        fw.write("     *               copied once and cycles are copied. <code>null</code> to copy as a tree.\n");
+        fw.write("     * @return the copy.\n");
+        fw.write("     */\n");
+        fw.write("    public " + dtoName + " " + COPY_METHOD + "(final java.util.Map<Object, Object> copies) {\n");
+        fw.write("        if (copies != null) {\n");
+        fw.write("            final Object copied = copies.get(this);\n");
+        fw.write("            if (copied != null) {\n");
+        fw.write("                return (" + dtoName + ") copied;\n");
+        fw.write("            }\n");
+        fw.write("        }\n");
+        if (this.generator.hasLazyFields(clazz)) {
+            fw.write("        this." + DTOLazyWriter.CONVERT_METHOD + "();\n");
+        }
+        if (this.generator.generateImmutable) {
+            fw.write("        final " + dtoName + " copy = new " + dtoName + "(");
+            for (int i = 0; i < fields.size(); i++) {
+                final Field field = fields.get(i);
+                final String value = "this." + field.getName();
+                fw.write(i == 0 ? "\n" : ",\n");
+                fw.write("                " + (this.isCopiedByConstructor(clazz, field) ? value
+                        : this.copy(clazz, this.generator.getDTOFieldGenericType(field), value)));
+            }
+            fw.write(");\n");
+            fw.write("        if (copies != null) {\n");
+            fw.write("            copies.put(this, copy);\n");
+            fw.write("        }\n");
+        }
+        else {
+            fw.write("        final " + dtoName + " copy = new " + dtoName + "();\n");
+            fw.write("        if (copies != null) {\n");
+            fw.write("            copies.put(this, copy);\n");
+            fw.write("        }\n");
+            for (final Field field : fields) {
+                fw.write("        " + this.generator.getFieldAssignment(field, "copy", this.copy(clazz,
+                        this.generator.getDTOFieldGenericType(field), this.generator.getFieldValue(field, "this")))
+                        + ";\n");
+            }
+        }
+        fw.write("        return copy;\n");
+        fw.write("    }\n\n");
+        this.writeHelperMethods(clazz, fw);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The helper methods are instance methods, so that they can be declared
+     * in inner classes.
+     *
+     * @see fr.maven.dto.generator.impl.DTOSourceWriter#writeHelperMethod(java.lang.Class, java.lang.String, java.lang.String, java.lang.reflect.Type, java.io.Writer)
+     */
+    @Override
+    protected void writeHelperMethod(final Class<?> clazz, final String name, final String kind, final Type type,
+                                     final Writer fw) throws IOException {
+        final String dtoType = this.generator.getDTOType(clazz, type);
+        fw.write("    private " + dtoType + " " + name + "(final " + dtoType
+                + " value, final java.util.Map<Object, Object> copies) {\n");
+        fw.write("        if (value == null) {\n");
+        fw.write("            return null;\n");
+        fw.write("        }\n");
+        if (type instanceof Class<?>) {
+            final Class<?> componentType = ((Class<?>) type).getComponentType();
+            final int dimension = this.generator.getArrayDimension((Class<?>) type);
+            final StringBuilder newArray = new StringBuilder("new ");
+            newArray.append(dtoType.substring(0, dtoType.length() - 2 * dimension)).append("[value.length]");
+            for (int i = 1; i < dimension; i++) {
+                newArray.append("[]");
+            }
+            fw.write("        final " + dtoType + " result = " + newArray + ";\n");
+            fw.write("        for (int i = 0; i < value.length; i++) {\n");
+            fw.write("            result[i] = " + this.copy(clazz, componentType, "value[i]") + ";\n");
+            fw.write("        }\n");
+        }
+        else {
+            final Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+            final String dtoTypes = this.getDTOTypes(clazz, typeArguments);
+            fw.write("        final " + dtoType + " result = " + this.newCollection(type, dtoTypes, "value.size()")
+                    + ";\n");
+            if (typeArguments.length == 2) {
+                if (this.isMutable(typeArguments[0]) || this.isMutable(typeArguments[1])) {
+                    fw.write("        for (final java.util.Map.Entry<" + dtoTypes + "> entry : value.entrySet()) {\n");
+                    fw.write("            result.put(" + this.copy(clazz, typeArguments[0], "entry.getKey()") + ", "
+                            + this.copy(clazz, typeArguments[1], "entry.getValue()") + ");\n");
+                    fw.write("        }\n");
+                }
+                else {
+                    fw.write("        result.putAll(value);\n");
+                }
+            }
+            else if (this.isMutable(typeArguments[0])) {
+                fw.write("        for (final " + dtoTypes + " element : value) {\n");
+                fw.write("            result.add(" + this.copy(clazz, typeArguments[0], "element") + ");\n");
+                fw.write("        }\n");
+            }
+            else {
+                fw.write("        result.addAll(value);\n");
+            }
+        }
+        fw.write("        return result;\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Return the expression copying a value.
+     *
+     * @param clazz the class a DTO is generated for.
+     * @param type  the value type, as held by the DTO.
+     * @param value the value expression, evaluated more than once.
+     * @return the copy expression, the value itself if it is shared.
+     */
+    protected String copy(final Class<?> clazz, final Type type, final String value) {
+        if (!this.isMutable(type)) {
+            return value;
+        }
+        if (type instanceof DTOPrimitiveMapType) {
+            return "(" + value + " == null ? null : new " + this.generator.getDTOType(clazz, type) + "(" + value
+                    + "))";
+        }
+        if (type instanceof ParameterizedType) {
+            return "this." + this.getHelperMethodName(COPY, type) + "(" + value + ", copies)";
+        }
+        final Class<?> valueClass = (Class<?>) type;
+        if (valueClass.isArray()) {
+            if (!this.isMutable(valueClass.getComponentType())) {
+                return "(" + value + " == null ? null : " + value + ".clone())";
+            }
+            return "this." + this.getHelperMethodName(COPY, type) + "(" + value + ", copies)";
+        }
+        if (Date.class.isAssignableFrom(valueClass)) {
+            return "(" + value + " == null ? null : (" + valueClass.getCanonicalName() + ") " + value + ".clone())";
+        }
+        return "(" + value + " == null ? null : " + value + "." + COPY_METHOD + "(copies))";
+    }
+
+    /**
+     * Check if the immutable DTO constructor copies the value of a field
+     * itself: an array, a date or a collection without nested DTOs, which the
+     * constructor would share.
+     *
+     * @param clazz the class a DTO is generated for.
+     * @param field the field.
+     * @return <code>true</code> if the value can be given as is.
+     */
+    protected boolean isCopiedByConstructor(final Class<?> clazz, final Field field) {
+        return !this.generator.getDTOFieldValue(clazz, field).equals(field.getName())
+                && !this.generator.refersToDTOClass(this.generator.getDTOFieldGenericType(field));
+    }
+
+    /**
+     * Check if the values of a type are copied rather than shared.
+     *
+     * @param type the value type, as held by the DTO.
+     * @return <code>true</code> for nested DTOs, dates, arrays, primitive
+     *         maps and the collections that can be instantiated.
+     */
+    protected boolean isMutable(final Type type) {
+        if (type instanceof DTOPrimitiveMapType) {
+            return true;
+        }
+        if (type instanceof ParameterizedType) {
+            return this.isSupportedCollection(type);
+        }
+        if (!(type instanceof Class<?>)) {
+            return false;
+        }
+        final Class<?> valueClass = (Class<?>) type;
+        return valueClass.isArray() || Date.class.isAssignableFrom(valueClass)
+                || (this.generator.isDTOClass(valueClass) && !valueClass.isEnum() && !valueClass.isInterface()
+                && !valueClass.isAnnotation());
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writer of the dirty tracking of a DTO: the setters set the bit of their
+ * field in transient <code>long</code> words, one per 64 fields, and the DTO
+ * has <code>isDirty</code>, <code>clearDirty</code>, <code>toPatch</code>,
+ * <code>diff</code> and <code>applyPatch</code> methods exchanging
+ * <code>DTOPatch</code> objects, that hold and encode the changed fields only.
+ * <p/>
+ * The fields are numbered in declaration order. <code>diff</code> compares
+ * the fields as the generated <code>equals</code> does, so a nested DTO is
+ * compared by reference unless <code>equals</code> is generated too.
+ * <code>applyPatch</code> does not mark the fields it sets, so that a patch
+ * received is not sent back. The values of a patch are shared, not copied.
+ *
+ * @author Wilfried Petit
+ */
+public class DTODirtyWriter extends DTOMemberWriter {
+
+    /**
+     * Name of the support class of the patches.
+     */
+    protected static final String PATCH_CLASS = "DTOPatch";
+
+    /**
+     * Name of the method clearing the dirty fields.
+     */
+    protected static final String CLEAR_METHOD = "clearDirty";
+
+    /**
+     * Prefix of the names of the fields holding the dirty bits.
+     */
+    private static final String DIRTY_FIELD = "dirtyFields";
+
+    /**
+     * The writer of the comparisons of the fields.
+     */
+    private final DTOEqualsWriter equalsWriter;
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    public DTODirtyWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+        this.equalsWriter = new DTOEqualsWriter(generator);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOSourceWriter#getSupportClassNames()
+     */
+    @Override
+    public List<String> getSupportClassNames() {
+        return Collections.singletonList(PATCH_CLASS);
+    }
+
+    /**
+     * Return the name of the field holding the dirty bit of a field.
+     *
+     * @param index the field index, in declaration order.
+     * @return the name of the field.
+     */
+    protected static String getDirtyFieldName(final int index) {
+        return DIRTY_FIELD + (index >>> 6);
+    }
+
+    /**
+     * Return the expression of the dirty bit of a field, in its word.
+     *
+     * @param index the field index, in declaration order.
+     * @return the bit expression.
+     */
+    protected static String getDirtyBit(final int index) {
+        return "1L << " + (index & 63);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOMemberWriter#writeMembers(java.lang.Class, java.io.Writer)
+     */
+    @Override
+    public void writeMembers(final Class<?> clazz, final Writer fw) throws IOException {
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        final List<Field> fields = this.generator.getDTOFields(clazz);
+        final int words = fields.size() + 63 >>> 6;
+        final boolean lazy = this.generator.hasLazyFields(clazz);
+        for (int word = 0; word < words; word++) {
+            fw.write("    private transient long " + DIRTY_FIELD + word + ";\n\n");
+        }
+
+        fw.write("    /**\n");
+        fw.write("     * @return <code>true</code> if a setter was called since the creation of the DTO or the\n");
+        fw.write("     *         last {@link #" + CLEAR_METHOD + "()}.\n");
+        fw.write("     */\n");
+        fw.write("    public boolean isDirty() {\n");
+        fw.write("        return ");
+        if (words == 0) {
+            fw.write("false");
+        }
+        for (int word = 0; word < words; word++) {
+            fw.write((word == 0 ? "" : "\n                || ") + "this." + DIRTY_FIELD + word + " != 0L");
+        }
+        fw.write(";\n");
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * Forget the fields set, e.g. once their patch is sent.\n");
+        fw.write("     */\n");
+        fw.write("    public void " + CLEAR_METHOD + "() {\n");
+        for (int word = 0; word < words; word++) {
+            fw.write("        this." + DIRTY_FIELD + word + " = 0L;\n");
+        }
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * Return the patch of the fields set since the creation of the DTO or the last\n");
+        fw.write("     * {@link #" + CLEAR_METHOD + "()}.\n");
+        fw.write("     *\n");
+        fw.write("     * @return the patch, empty if the DTO is not dirty.\n");
+        fw.write("     */\n");
+        fw.write("    public " + PATCH_CLASS + " toPatch() {\n");
+        fw.write("        final " + PATCH_CLASS + " patch = new " + PATCH_CLASS + "(" + fields.size() + ");\n");
+        for (int i = 0; i < fields.size(); i++) {
+            fw.write("        if ((this." + getDirtyFieldName(i) + " & " + getDirtyBit(i) + ") != 0L) {\n");
+            fw.write("            patch.add(" + i + ", " + this.generator.getFieldValue(fields.get(i), "this")
+                    + ");\n");
+            fw.write("        }\n");
+        }
+        fw.write("        return patch;\n");
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * Return the patch of the fields that differ from another DTO, with its values: applied to\n");
+        fw.write("     * this DTO, it gives it the values of the other one.\n");
+        fw.write("     *\n");
+        fw.write("     * @param other the other DTO.\n");
+        fw.write("     * @return the patch, empty if the DTOs have the same values.\n");
+        fw.write("     */\n");
+        fw.write("    public " + PATCH_CLASS + " diff(final " + dtoName + " other) {\n");
+        if (lazy) {
+            fw.write("        this." + DTOLazyWriter.CONVERT_METHOD + "();\n");
+            fw.write("        other." + DTOLazyWriter.CONVERT_METHOD + "();\n");
+        }
+        fw.write("        final " + PATCH_CLASS + " patch = new " + PATCH_CLASS + "(" + fields.size() + ");\n");
+        for (int i = 0; i < fields.size(); i++) {
+            fw.write("        if (!(" + this.equalsWriter.equalsValue(fields.get(i)) + ")) {\n");
+            fw.write("            patch.add(" + i + ", " + this.generator.getFieldValue(fields.get(i), "other")
+                    + ");\n");
+            fw.write("        }\n");
+        }
+        fw.write("        return patch;\n");
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * Set the fields of a patch, without marking them dirty.\n");
+        fw.write("     *\n");
+        fw.write("     * @param patch the patch of a DTO of this class.\n");
+        fw.write("     */\n");
+        if (this.hasGenericFields(clazz, fields)) {
+            fw.write("    @SuppressWarnings(\"unchecked\")\n");
+        }
+        fw.write("    public void applyPatch(final " + PATCH_CLASS + " patch) {\n");
+        fw.write("        if (patch.getFieldCount() != " + fields.size() + ") {\n");
+        fw.write("            throw new IllegalArgumentException(\"Patch of \" + patch.getFieldCount()\n");
+        fw.write("                    + \" fields applied to a DTO of " + fields.size() + " fields.\");\n");
+        fw.write("        }\n");
+        if (!fields.isEmpty()) {
+            fw.write("        int i = 0;\n");
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            final Field field = fields.get(i);
+            final Class<?> type = this.generator.getDTOFieldClass(field);
+            final String castType = type.isPrimitive() ? this.getWrapperName(type)
+                    : this.generator.getDTOFieldType(clazz, field);
+            fw.write("        if (patch.isChanged(" + i + ")) {\n");
+            fw.write("            " + this.generator.getFieldAssignment(field, "this",
+                    this.generator.getInternedValue(field, "(" + castType + ") patch.getValue(i++)")) + ";\n");
+            if (this.generator.isLazyField(field)) {
+                fw.write("            this." + this.generator.getLazyHolderName(field) + " = null;\n");
+            }
+            fw.write("        }\n");
+        }
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Check if the values of some fields are cast to a parameterized type.
+     *
+     * @param clazz  the class a DTO is generated for.
+     * @param fields the fields.
+     * @return <code>true</code> if a cast is unchecked.
+     */
+    private boolean hasGenericFields(final Class<?> clazz, final List<Field> fields) {
+        for (final Field field : fields) {
+            if (!this.generator.getDTOFieldClass(field).isPrimitive() && this.generator.getDTOFieldType(clazz, field).contains("<")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,363 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writer of the <code>equals</code> and <code>hashCode</code> methods of a
+ * DTO, comparing its fields by value.
+ * <p/>
+ * <code>equals</code> compares the cheapest fields first, so that DTOs that
+ * differ are told apart before a string, a nested DTO or a collection is
+ * walked: integral primitives, floating point primitives by their bits, enums
+ * by reference, strings, wrappers and dates, nested DTOs, and last arrays,
+ * collections and maps. Arrays are compared element by element, nested arrays
+ * deeply. Object graphs are compared as trees: a cycle between DTOs is not
+ * detected.
+ * <p/>
+ * With the <code>cacheHashCodes</code> option, the immutable DTOs whose
+ * values can not change once built compute their hash code once, and
+ * <code>equals</code> tells apart the DTOs whose cached hash codes differ.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOEqualsWriter extends DTOMemberWriter {
+
+    /**
+     * Rank of integral primitives and booleans, compared first.
+     */
+    private static final int INTEGRAL_RANK = 0;
+
+    /**
+     * Rank of floating point primitives, compared by their bits.
+     */
+    private static final int FLOATING_RANK = 1;
+
+    /**
+     * Rank of enums, compared by reference.
+     */
+    private static final int ENUM_RANK = 2;
+
+    /**
+     * Rank of strings, wrappers, dates and other values compared with their
+     * <code>equals</code> method.
+     */
+    private static final int VALUE_RANK = 3;
+
+    /**
+     * Rank of nested DTOs.
+     */
+    private static final int DTO_RANK = 4;
+
+    /**
+     * Rank of arrays, collections and maps, compared last.
+     */
+    private static final int CONTAINER_RANK = 5;
+
+    /**
+     * Name of the field caching the hash code.
+     */
+    private static final String HASH_CODE_FIELD = "cachedHashCode";
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    public DTOEqualsWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOMemberWriter#writeMembers(java.lang.Class, java.io.Writer)
+     */
+    @Override
+    public void writeMembers(final Class<?> clazz, final Writer fw) throws IOException {
+        final List<Field> fields = this.getComparedFields(clazz);
+        final boolean hashCached = this.isHashCached(clazz);
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        if (hashCached) {
+            fw.write("    private transient int " + HASH_CODE_FIELD + ";\n\n");
+        }
+
+        fw.write("    /**\n");
+        fw.write("     * Compare the fields by value, the cheapest first.\n");
+        fw.write("     *\n");
+        fw.write("     * @see java.lang.Object#equals(java.lang.Object)\n");
+        fw.write("     */\n");
+        fw.write("    @Override\n");
+        fw.write("    public boolean equals(final Object obj) {\n");
+        fw.write("        if (this == obj) {\n");
+        fw.write("            return true;\n");
+        fw.write("        }\n");
+        fw.write("        if (obj == null || obj.getClass() != this.getClass()) {\n");
+        fw.write("            return false;\n");
+        fw.write("        }\n");
+        if (fields.isEmpty()) {
+            fw.write("        return true;\n");
+        }
+        else {
+            fw.write("        final " + dtoName + " other = (" + dtoName + ") obj;\n");
+            if (this.generator.hasLazyFields(clazz)) {
+                fw.write("        this." + DTOLazyWriter.CONVERT_METHOD + "();\n");
+                fw.write("        other." + DTOLazyWriter.CONVERT_METHOD + "();\n");
+            }
+            if (hashCached) {
+                fw.write("        if (this." + HASH_CODE_FIELD + " != 0 && other." + HASH_CODE_FIELD + " != 0\n");
+                fw.write("                && this." + HASH_CODE_FIELD + " != other." + HASH_CODE_FIELD + ") {\n");
+                fw.write("            return false;\n");
+                fw.write("        }\n");
+            }
+            for (int i = 0; i < fields.size(); i++) {
+                fw.write(i == 0 ? "        return " : "\n                && ");
+                fw.write(this.equalsValue(fields.get(i)));
+            }
+            fw.write(";\n");
+        }
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * Hash the fields compared by {@link #equals(Object)}.\n");
+        fw.write("     *\n");
+        fw.write("     * @see java.lang.Object#hashCode()\n");
+        fw.write("     */\n");
+        fw.write("    @Override\n");
+        fw.write("    public int hashCode() {\n");
+        final String indent = hashCached ? "            " : "        ";
+        if (hashCached) {
+            fw.write("        int result = this." + HASH_CODE_FIELD + ";\n");
+            fw.write("        if (result == 0) {\n");
+            fw.write(indent + "result = 1;\n");
+        }
+        else {
+            fw.write(indent + "int result = 1;\n");
+        }
+        if (this.generator.hasLazyFields(clazz)) {
+            fw.write(indent + "this." + DTOLazyWriter.CONVERT_METHOD + "();\n");
+        }
+        boolean temporary = false;
+        for (final Field field : fields) {
+            final Class<?> type = this.getComparedType(field);
+            final String value = this.generator.getFieldValue(field, "this");
+            if (type.equals(double.class)) {
+                fw.write(indent + (temporary ? "" : "long ") + "bits = Double.doubleToLongBits(" + value + ");\n");
+                fw.write(indent + "result = 31 * result + (int) (bits ^ bits >>> 32);\n");
+                temporary = true;
+            }
+            else {
+                fw.write(indent + "result = 31 * result + " + this.hashValue(field) + ";\n");
+            }
+        }
+        if (hashCached) {
+            fw.write(indent + "this." + HASH_CODE_FIELD + " = result;\n");
+            fw.write("        }\n");
+        }
+        fw.write("        return result;\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Return the fields compared, the cheapest first.
+     *
+     * @param clazz the class a DTO is generated for, or a declared class.
+     * @return the fields.
+     */
+    protected List<Field> getComparedFields(final Class<?> clazz) {
+        final List<Field> fields = new ArrayList<Field>();
+        for (int rank = INTEGRAL_RANK; rank <= CONTAINER_RANK; rank++) {
+            for (final Field field : this.generator.getDTOFields(clazz)) {
+                if (this.getRank(field) == rank) {
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Return the rank of a field in the comparison order.
+     *
+     * @param field the field.
+     * @return the rank, from the cheapest to the most expensive comparison.
+     */
+    protected int getRank(final Field field) {
+        final Class<?> type = this.getComparedType(field);
+        if (type.equals(float.class) || type.equals(double.class)) {
+            return FLOATING_RANK;
+        }
+        if (type.isPrimitive()) {
+            return INTEGRAL_RANK;
+        }
+        if (type.isEnum()) {
+            return ENUM_RANK;
+        }
+        if (type.isArray() || this.isSupportedCollection(field.getGenericType())) {
+            return CONTAINER_RANK;
+        }
+        if (this.generator.isDTOClass(type)) {
+            return DTO_RANK;
+        }
+        return VALUE_RANK;
+    }
+
+    /**
+     * Return the expression comparing a field of this DTO with the field of
+     * the other DTO.
+     *
+     * @param field the field.
+     * @return the expression.
+     */
+    protected String equalsValue(final Field field) {
+        final Class<?> type = this.getComparedType(field);
+        final String value = this.generator.getFieldValue(field, "this");
+        final String otherValue = this.generator.getFieldValue(field, "other");
+        if (type.equals(float.class)) {
+            return "Float.floatToIntBits(" + value + ") == Float.floatToIntBits(" + otherValue + ")";
+        }
+        if (type.equals(double.class)) {
+            return "Double.doubleToLongBits(" + value + ") == Double.doubleToLongBits(" + otherValue + ")";
+        }
+        if (type.isPrimitive() || type.isEnum()) {
+            return value + " == " + otherValue;
+        }
+        if (type.isArray()) {
+            final String method = type.getComponentType().isPrimitive() ? "equals" : "deepEquals";
+            return "java.util.Arrays." + method + "(" + value + ", " + otherValue + ")";
+        }
+        return "(" + value + " == null ? " + otherValue + " == null : " + value + ".equals(" + otherValue + "))";
+    }
+
+    /**
+     * Return the expression of the hash code of a field that is not a
+     * <code>double</code>.
+     *
+     * @param field the field.
+     * @return the expression.
+     */
+    protected String hashValue(final Field field) {
+        final Class<?> type = this.getComparedType(field);
+        final String value = this.generator.getFieldValue(field, "this");
+        if (type.equals(boolean.class)) {
+            return "(" + value + " ? 1231 : 1237)";
+        }
+        if (type.equals(long.class)) {
+            return "(int) (" + value + " ^ " + value + " >>> 32)";
+        }
+        if (type.equals(float.class)) {
+            return "Float.floatToIntBits(" + value + ")";
+        }
+        if (type.isPrimitive()) {
+            return value;
+        }
+        if (type.isArray()) {
+            final String method = type.getComponentType().isPrimitive() ? "hashCode" : "deepHashCode";
+            return "java.util.Arrays." + method + "(" + value + ")";
+        }
+        return "(" + value + " == null ? 0 : " + value + ".hashCode())";
+    }
+
+    /**
+     * Return the class of a field in the DTO.
+     *
+     * @param field the field.
+     * @return the class of the field, or its primitive array class.
+     */
+    private Class<?> getComparedType(final Field field) {
+        final Type dtoType = this.generator.getDTOFieldGenericType(field);
+        return dtoType instanceof Class<?> ? (Class<?>) dtoType : field.getType();
+    }
+
+    /**
+     * Check if the hash code of the DTO of a class is computed once and
+     * cached, which is only correct if its values never change.
+     *
+     * @param clazz the class a DTO is generated for, or a declared class.
+     * @return <code>true</code> if the option is set and the DTOs are deeply
+     *         immutable.
+     */
+    protected boolean isHashCached(final Class<?> clazz) {
+        return this.generator.cacheHashCodes && this.generator.generateImmutable
+                && this.isDeeplyImmutable(clazz, new HashSet<Class<?>>());
+    }
+
+    /**
+     * Check if the immutable DTO of a class holds values that can not change:
+     * the immutable DTOs copy the dates and the arrays their getters return,
+     * but not the dates and the arrays held in their collections.
+     *
+     * @param clazz          the class a DTO is generated for, or a declared
+     *                       class.
+     * @param checkedClasses the classes already checked or being checked.
+     * @return <code>true</code> if the values of the DTO can not change.
+     */
+    protected boolean isDeeplyImmutable(final Class<?> clazz, final Set<Class<?>> checkedClasses) {
+        if (!checkedClasses.add(clazz)) {
+            return true;
+        }
+        for (final Field field : this.generator.getDTOFields(clazz)) {
+            if (!this.isImmutableValue(this.generator.getDTOFieldGenericType(field), true, checkedClasses)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if the values of a type held by an immutable DTO can not change.
+     *
+     * @param type           the type, as handled by the writers.
+     * @param copied         <code>true</code> if the getter returns a copy of
+     *                       the values, i.e. they are not held in a
+     *                       collection.
+     * @param checkedClasses the DTO classes already checked or being checked.
+     * @return <code>true</code> if the values can not change.
+     */
+    private boolean isImmutableValue(final Type type, final boolean copied, final Set<Class<?>> checkedClasses) {
+        if (type instanceof ParameterizedType) {
+            final Type rawType = ((ParameterizedType) type).getRawType();
+            if (!(rawType instanceof Class<?>) || !Collection.class.isAssignableFrom((Class<?>) rawType)
+                    && !Map.class.isAssignableFrom((Class<?>) rawType)) {
+                return false;
+            }
+            for (final Type typeArgument : ((ParameterizedType) type).getActualTypeArguments()) {
+                if (!this.isImmutableValue(typeArgument, false, checkedClasses)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (!(type instanceof Class<?>)) {
+            return false;
+        }
+        final Class<?> valueClass = (Class<?>) type;
+        if (valueClass.isArray()) {
+            return copied && this.isImmutableValue(valueClass.getComponentType(), true, checkedClasses);
+        }
+        if (Date.class.isAssignableFrom(valueClass)) {
+            return copied;
+        }
+        if (valueClass.isPrimitive() || valueClass.isEnum() || this.getPrimitiveType(valueClass) != null
+                || valueClass.equals(String.class) || valueClass.equals(BigDecimal.class)
+                || valueClass.equals(BigInteger.class)) {
+            return true;
+        }
+        return this.generator.isDTOClass(valueClass) && this.isDeeplyImmutable(valueClass, checkedClasses);
+    }
+}
@@ -0,0 +1,465 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Writer of the <code>writeExternal</code> and <code>readExternal</code>
+ * methods of an {@link java.io.Externalizable} DTO.
+ * <p/>
+ * Fields are written one by one in their declaration order: primitives with
+ * their own method, objects after a null marker, enums as their ordinal by
+ * the <code>writeOrdinal</code> and <code>readOrdinal</code> methods of their
+ * DTO, nested DTOs, arrays and collections element by element. Only the
+ * fields of other types are left to
+ * {@link java.io.ObjectOutput#writeObject(Object)}.
+ * The format is not versioned: a DTO must be read by the DTO that wrote it.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOExternalizableWriter extends DTOMemberWriter {
+
+    /**
+     * Maximum length of a string written with
+     * {@link java.io.DataOutput#writeUTF(String)}, which encodes a character
+     * in 3 bytes at most and is limited to 65535 bytes.
+     */
+    private static final int MAX_UTF_LENGTH = 21845;
+
+    /**
+     * Set when a read needs an unchecked cast.
+     */
+    private boolean uncheckedRead;
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    public DTOExternalizableWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Inner classes are left {@link java.io.Serializable}: they can not be
+     * instantiated without their enclosing instance.
+     *
+     * @see fr.maven.dto.generator.impl.DTOMemberWriter#accept(java.lang.Class)
+     */
+    @Override
+    public boolean accept(final Class<?> clazz) {
+        return super.accept(clazz) && this.isStaticClass(clazz);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOMemberWriter#getInterfaces(java.lang.Class)
+     */
+    @Override
+    public List<String> getInterfaces(final Class<?> clazz) {
+        return Collections.singletonList("java.io.Externalizable");
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOMemberWriter#writeMembers(java.lang.Class, java.io.Writer)
+     */
+    @Override
+    public void writeMembers(final Class<?> clazz, final Writer fw) throws IOException {
+        fw.write("    /**\n");
+        fw.write("     * Write the fields one by one, with a null marker before each object.\n");
+        fw.write("     *\n");
+        fw.write("     * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)\n");
+        fw.write("     */\n");
+        fw.write("    public void writeExternal(final java.io.ObjectOutput out) throws java.io.IOException {\n");
+        if (this.generator.hasLazyFields(clazz)) {
+            fw.write("        this." + DTOLazyWriter.CONVERT_METHOD + "();\n");
+        }
+        for (final Field field : this.generator.getDTOFields(clazz)) {
+            this.writeValue(clazz, this.generator.getDTOFieldGenericType(field),
+                    this.generator.getFieldValue(field, "this"), 0, "        ", fw);
+        }
+        fw.write("    }\n\n");
+
+        this.uncheckedRead = false;
+        final StringWriter readBody = new StringWriter();
+        for (final Field field : this.generator.getDTOFields(clazz)) {
+            if (this.generator.isPackedField(field)) {
+                // read in a local, then stored in the bit fields
+                readBody.write("        {\n");
+                readBody.write("            " + this.generator.getDTOFieldType(clazz, field) + " " + field.getName()
+                        + ";\n");
+                this.readValue(clazz, this.generator.getDTOFieldGenericType(field), field.getName(), 0,
+                        "            ", readBody);
+                readBody.write("            " + this.generator.getFieldAssignment(field, "this", field.getName())
+                        + ";\n");
+                readBody.write("        }\n");
+            }
+            else if (this.declaresLocals(this.generator.getDTOFieldGenericType(field))) {
+                readBody.write("        {\n");
+                this.readValue(clazz, this.generator.getDTOFieldGenericType(field), "this." + field.getName(), 0, "            ", readBody);
+                readBody.write("        }\n");
+            }
+            else if (this.generator.isInternedField(field)) {
+                readBody.write("        this." + field.getName() + " = "
+                        + this.generator.getInternedValue(field, "readString(in)") + ";\n");
+            }
+            else {
+                this.readValue(clazz, this.generator.getDTOFieldGenericType(field), "this." + field.getName(), 0, "        ", readBody);
+            }
+        }
+        fw.write("    /**\n");
+        fw.write("     * Read the fields in the order they have been written.\n");
+        fw.write("     *\n");
+        fw.write("     * @see java.io.Externalizable#readExternal(java.io.ObjectInput)\n");
+        fw.write("     */\n");
+        if (this.uncheckedRead) {
+            fw.write("    @SuppressWarnings(\"unchecked\")\n");
+        }
+        fw.write("    public void readExternal(final java.io.ObjectInput in)\n");
+        fw.write("            throws java.io.IOException, ClassNotFoundException {\n");
+        fw.write(readBody.toString());
+        fw.write("    }\n\n");
+
+        if (this.isTopLevel(clazz)) {
+            this.writeStringMethods(fw);
+        }
+    }
+
+    /**
+     * Write the methods writing and reading a string of any length, shared
+     * with the declared classes of the DTO.
+     *
+     * @param fw the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeStringMethods(final Writer fw) throws IOException {
+        fw.write("    private static void writeString(final java.io.ObjectOutput out, final String value)\n");
+        fw.write("            throws java.io.IOException {\n");
+        fw.write("        if (value == null) {\n");
+        fw.write("            out.writeByte(-1);\n");
+        fw.write("        }\n");
+        fw.write("        else if (value.length() <= " + MAX_UTF_LENGTH + ") {\n");
+        fw.write("            out.writeByte(0);\n");
+        fw.write("            out.writeUTF(value);\n");
+        fw.write("        }\n");
+        fw.write("        else {\n");
+        fw.write("            out.writeByte(1);\n");
+        fw.write("            out.writeInt(value.length());\n");
+        fw.write("            out.writeChars(value);\n");
+        fw.write("        }\n");
+        fw.write("    }\n\n");
+        fw.write("    private static String readString(final java.io.ObjectInput in) throws java.io.IOException {\n");
+        fw.write("        final byte marker = in.readByte();\n");
+        fw.write("        if (marker < 0) {\n");
+        fw.write("            return null;\n");
+        fw.write("        }\n");
+        fw.write("        if (marker == 0) {\n");
+        fw.write("            return in.readUTF();\n");
+        fw.write("        }\n");
+        fw.write("        final char[] chars = new char[in.readInt()];\n");
+        fw.write("        for (int i = 0; i < chars.length; i++) {\n");
+        fw.write("            chars[i] = in.readChar();\n");
+        fw.write("        }\n");
+        fw.write("        return new String(chars);\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write the statements writing a value.
+     *
+     * @param clazz  the class a DTO is generated for.
+     * @param type   the value type, as declared in the class.
+     * @param value  the value expression.
+     * @param depth  the nesting depth, that names the local variables.
+     * @param indent the indentation.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeValue(final Class<?> clazz, final Type type, final String value, final int depth,
+                              final String indent, final Writer fw) throws IOException {
+        final Class<?> rawClass = type instanceof ParameterizedType || type instanceof Class<?>
+                ? this.getRawClass(type) : Object.class;
+        if (type instanceof DTOPrimitiveMapType) {
+            final DTOPrimitiveMapType mapType = (DTOPrimitiveMapType) type;
+            final String index = "i" + depth;
+            fw.write(indent + "if (" + value + " == null) {\n");
+            fw.write(indent + "    out.writeInt(-1);\n");
+            fw.write(indent + "}\n");
+            fw.write(indent + "else {\n");
+            fw.write(indent + "    out.writeInt(" + value + ".size());\n");
+            fw.write(indent + "    for (int " + index + " = 0; " + index + " < " + value + ".size(); " + index
+                    + "++) {\n");
+            fw.write(indent + "        out.write" + this.getPrimitiveName(mapType.getKeyType()) + "(" + value
+                    + ".keyAt(" + index + "));\n");
+            fw.write(indent + "        out.write" + this.getPrimitiveName(mapType.getValueType()) + "(" + value
+                    + ".valueAt(" + index + "));\n");
+            fw.write(indent + "    }\n");
+            fw.write(indent + "}\n");
+        }
+        else if (rawClass.isPrimitive()) {
+            fw.write(indent + "out.write" + this.getPrimitiveName(rawClass) + "(" + value + ");\n");
+        }
+        else if (this.getPrimitiveType(rawClass) != null) {
+            fw.write(indent + "out.writeBoolean(" + value + " != null);\n");
+            fw.write(indent + "if (" + value + " != null) {\n");
+            fw.write(indent + "    out.write" + this.getPrimitiveName(this.getPrimitiveType(rawClass)) + "(" + value
+                    + ");\n");
+            fw.write(indent + "}\n");
+        }
+        else if (rawClass.equals(String.class)) {
+            fw.write(indent + "writeString(out, " + value + ");\n");
+        }
+        else if (rawClass.equals(Date.class)) {
+            fw.write(indent + "out.writeBoolean(" + value + " != null);\n");
+            fw.write(indent + "if (" + value + " != null) {\n");
+            fw.write(indent + "    out.writeLong(" + value + ".getTime());\n");
+            fw.write(indent + "}\n");
+        }
+        else if (rawClass.isEnum() && this.generator.isDTOClass(rawClass)) {
+            fw.write(indent + this.generator.getDTOType(clazz, rawClass) + ".writeOrdinal(out, " + value + ");\n");
+        }
+        else if (this.isExternalizable(rawClass)) {
+            fw.write(indent + "out.writeBoolean(" + value + " != null);\n");
+            fw.write(indent + "if (" + value + " != null) {\n");
+            fw.write(indent + "    " + value + ".writeExternal(out);\n");
+            fw.write(indent + "}\n");
+        }
+        else if (rawClass.isArray()) {
+            final String index = "i" + depth;
+            fw.write(indent + "if (" + value + " == null) {\n");
+            fw.write(indent + "    out.writeInt(-1);\n");
+            fw.write(indent + "}\n");
+            fw.write(indent + "else {\n");
+            fw.write(indent + "    out.writeInt(" + value + ".length);\n");
+            if (rawClass.getComponentType().equals(byte.class)) {
+                fw.write(indent + "    out.write(" + value + ");\n");
+            }
+            else {
+                fw.write(indent + "    for (int " + index + " = 0; " + index + " < " + value + ".length; " + index
+                        + "++) {\n");
+                this.writeValue(clazz, rawClass.getComponentType(), value + "[" + index + "]", depth + 1,
+                        indent + "        ", fw);
+                fw.write(indent + "    }\n");
+            }
+            fw.write(indent + "}\n");
+        }
+        else if (this.isSupportedCollection(type)) {
+            final Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+            final String element = "e" + depth;
+            fw.write(indent + "if (" + value + " == null) {\n");
+            fw.write(indent + "    out.writeInt(-1);\n");
+            fw.write(indent + "}\n");
+            fw.write(indent + "else {\n");
+            fw.write(indent + "    out.writeInt(" + value + ".size());\n");
+            if (typeArguments.length == 2) {
+                fw.write(indent + "    for (final java.util.Map.Entry<" + this.getDTOTypes(clazz, typeArguments) + "> "
+                        + element + " : " + value + ".entrySet()) {\n");
+                this.writeValue(clazz, typeArguments[0], element + ".getKey()", depth + 1, indent + "        ", fw);
+                this.writeValue(clazz, typeArguments[1], element + ".getValue()", depth + 1, indent + "        ", fw);
+            }
+            else {
+                fw.write(indent + "    for (final " + this.generator.getDTOType(clazz, typeArguments[0]) + " "
+                        + element + " : " + value + ") {\n");
+                this.writeValue(clazz, typeArguments[0], element, depth + 1, indent + "        ", fw);
+            }
+            fw.write(indent + "    }\n");
+            fw.write(indent + "}\n");
+        }
+        else {
+            fw.write(indent + "out.writeObject(" + value + ");\n");
+        }
+    }
+
+    /**
+     * Write the statements reading a value.
+     *
+     * @param clazz  the class a DTO is generated for.
+     * @param type   the value type, as declared in the class.
+     * @param target the variable assigned with the value read, once.
+     * @param depth  the nesting depth, that names the local variables.
+     * @param indent the indentation.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void readValue(final Class<?> clazz, final Type type, final String target, final int depth,
+                             final String indent, final Writer fw) throws IOException {
+        final Class<?> rawClass = type instanceof ParameterizedType || type instanceof Class<?>
+                ? this.getRawClass(type) : Object.class;
+        final String dtoType = rawClass.equals(Object.class) && !(type instanceof DTOPrimitiveMapType) ? "Object"
+                : this.generator.getDTOType(clazz, type);
+        if (type instanceof DTOPrimitiveMapType) {
+            final DTOPrimitiveMapType mapType = (DTOPrimitiveMapType) type;
+            final String size = "s" + depth;
+            final String map = "c" + depth;
+            final String index = "i" + depth;
+            fw.write(indent + "final int " + size + " = in.readInt();\n");
+            fw.write(indent + "if (" + size + " < 0) {\n");
+            fw.write(indent + "    " + target + " = null;\n");
+            fw.write(indent + "}\n");
+            fw.write(indent + "else {\n");
+            fw.write(indent + "    final " + dtoType + " " + map + " = new " + dtoType + "(" + size + ");\n");
+            fw.write(indent + "    for (int " + index + " = 0; " + index + " < " + size + "; " + index + "++) {\n");
+            fw.write(indent + "        " + map + ".put(in.read" + this.getPrimitiveName(mapType.getKeyType())
+                    + "(), in.read" + this.getPrimitiveName(mapType.getValueType()) + "());\n");
+            fw.write(indent + "    }\n");
+            fw.write(indent + "    " + target + " = " + map + ";\n");
+            fw.write(indent + "}\n");
+        }
+        else if (rawClass.isPrimitive()) {
+            fw.write(indent + target + " = in.read" + this.getPrimitiveName(rawClass) + "();\n");
+        }
+        else if (this.getPrimitiveType(rawClass) != null) {
+            fw.write(indent + target + " = in.readBoolean() ? " + rawClass.getSimpleName() + ".valueOf(in.read"
+                    + this.getPrimitiveName(this.getPrimitiveType(rawClass)) + "()) : null;\n");
+        }
+        else if (rawClass.equals(String.class)) {
+            fw.write(indent + target + " = readString(in);\n");
+        }
+        else if (rawClass.equals(Date.class)) {
+            fw.write(indent + target + " = in.readBoolean() ? new java.util.Date(in.readLong()) : null;\n");
+        }
+        else if (rawClass.isEnum() && this.generator.isDTOClass(rawClass)) {
+            fw.write(indent + target + " = " + dtoType + ".readOrdinal(in);\n");
+        }
+        else if (this.isExternalizable(rawClass)) {
+            final String object = "x" + depth;
+            fw.write(indent + "if (in.readBoolean()) {\n");
+            fw.write(indent + "    final " + dtoType + " " + object + " = new " + dtoType + "();\n");
+            fw.write(indent + "    " + object + ".readExternal(in);\n");
+            fw.write(indent + "    " + target + " = " + object + ";\n");
+            fw.write(indent + "}\n");
+            fw.write(indent + "else {\n");
+            fw.write(indent + "    " + target + " = null;\n");
+            fw.write(indent + "}\n");
+        }
+        else if (rawClass.isArray()) {
+            final String length = "l" + depth;
+            final String array = "a" + depth;
+            final String index = "i" + depth;
+            final int dimension = this.generator.getArrayDimension(rawClass);
+            final StringBuilder newArray = new StringBuilder("new ");
+            newArray.append(dtoType.substring(0, dtoType.length() - 2 * dimension)).append('[').append(length)
+                    .append(']');
+            for (int i = 1; i < dimension; i++) {
+                newArray.append("[]");
+            }
+            fw.write(indent + "final int " + length + " = in.readInt();\n");
+            fw.write(indent + "if (" + length + " < 0) {\n");
+            fw.write(indent + "    " + target + " = null;\n");
+            fw.write(indent + "}\n");
+            fw.write(indent + "else {\n");
+            fw.write(indent + "    final " + dtoType + " " + array + " = " + newArray + ";\n");
+            if (rawClass.getComponentType().equals(byte.class)) {
+                fw.write(indent + "    in.readFully(" + array + ");\n");
+            }
+            else {
+                fw.write(indent + "    for (int " + index + " = 0; " + index + " < " + length + "; " + index
+                        + "++) {\n");
+                this.readValue(clazz, rawClass.getComponentType(), array + "[" + index + "]", depth + 1,
+                        indent + "        ", fw);
+                fw.write(indent + "    }\n");
+            }
+            fw.write(indent + "    " + target + " = " + array + ";\n");
+            fw.write(indent + "}\n");
+        }
+        else if (this.isSupportedCollection(type)) {
+            final Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+            final String size = "s" + depth;
+            final String collection = "c" + depth;
+            final String index = "i" + depth;
+            fw.write(indent + "final int " + size + " = in.readInt();\n");
+            fw.write(indent + "if (" + size + " < 0) {\n");
+            fw.write(indent + "    " + target + " = null;\n");
+            fw.write(indent + "}\n");
+            fw.write(indent + "else {\n");
+            fw.write(indent + "    final " + dtoType + " " + collection + " = "
+                    + this.newCollection(type, this.getDTOTypes(clazz, typeArguments), size) + ";\n");
+            fw.write(indent + "    for (int " + index + " = 0; " + index + " < " + size + "; " + index + "++) {\n");
+            if (typeArguments.length == 2) {
+                final String key = "k" + depth;
+                final String value = "v" + depth;
+                this.readLocal(clazz, typeArguments[0], key, depth + 1, indent + "        ", fw);
+                this.readLocal(clazz, typeArguments[1], value, depth + 1, indent + "        ", fw);
+                fw.write(indent + "        " + collection + ".put(" + key + ", " + value + ");\n");
+            }
+            else {
+                final String element = "e" + depth;
+                this.readLocal(clazz, typeArguments[0], element, depth + 1, indent + "        ", fw);
+                fw.write(indent + "        " + collection + ".add(" + element + ");\n");
+            }
+            fw.write(indent + "    }\n");
+            fw.write(indent + "    " + target + " = " + collection + ";\n");
+            fw.write(indent + "}\n");
+        }
+        else {
+            if (type instanceof ParameterizedType) {
+                this.uncheckedRead = true;
+            }
+            fw.write(indent + target + " = (" + dtoType + ") in.readObject();\n");
+        }
+    }
+
+    /**
+     * Write the statements declaring a local variable and reading its value.
+     *
+     * @param clazz    the class a DTO is generated for.
+     * @param type     the value type, as declared in the class.
+     * @param variable the local variable name.
+     * @param depth    the nesting depth, that names the local variables.
+     * @param indent   the indentation.
+     * @param fw       the writer.
+     * @throws IOException if the writer fails.
+     */
+    private void readLocal(final Class<?> clazz, final Type type, final String variable, final int depth,
+                           final String indent, final Writer fw) throws IOException {
+        fw.write(indent + "final " + this.generator.getDTOType(clazz, type) + " " + variable + ";\n");
+        fw.write(indent + "{\n");
+        this.readValue(clazz, type, variable, depth, indent + "    ", fw);
+        fw.write(indent + "}\n");
+    }
+
+    /**
+     * Check if reading a value declares local variables in the current block.
+     *
+     * @param type the value type, as declared in the class.
+     * @return <code>true</code> for enums, arrays and collections.
+     */
+    private boolean declaresLocals(final Type type) {
+        if (type instanceof DTOPrimitiveMapType) {
+            return true;
+        }
+        if (type instanceof ParameterizedType) {
+            return this.isSupportedCollection(type);
+        }
+        if (type instanceof Class<?>) {
+            final Class<?> clazz = (Class<?>) type;
+            return clazz.isArray() || (clazz.isEnum() && this.generator.isDTOClass(clazz));
+        }
+        return false;
+    }
+
+    /**
+     * Check if the DTO of a class is written by this writer.
+     *
+     * @param clazz the class.
+     * @return <code>true</code> if the class has an externalizable DTO.
+     */
+    protected boolean isExternalizable(final Class<?> clazz) {
+        return this.generator.isDTOClass(clazz) && this.accept(clazz);
+    }
+}
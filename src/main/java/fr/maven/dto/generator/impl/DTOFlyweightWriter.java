@@ -0,0 +1,606 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Writer of the flyweight view of a DTO: a class with the getters of the DTO,
+ * that decodes each field when it is read from a record of a
+ * {@link java.nio.ByteBuffer}, and static methods laying the records out.
+ * A single view moved from record to record reads a whole dataset held in one
+ * buffer, heap or direct, without a DTO per record.
+ * <p/>
+ * A record starts with the fixed size slots of its fields, the widest first so
+ * that they are aligned when the record is: primitives, wrappers, dates as
+ * their number of milliseconds, enums as their ordinal, and the position of
+ * the strings and arrays relative to the record. The record size and a
+ * presence bitmap of the fields that may be <code>null</code> come next, then
+ * the strings as their UTF-8 length and bytes and the arrays as their length
+ * and elements. Records are padded to {@value #ALIGNMENT} bytes. The strings
+ * and the bitmaps are encoded by the generated <code>DTOBinary</code> class,
+ * as in the binary codecs.
+ * <p/>
+ * Views are generated for the classes whose fields all have such types, so
+ * that they have every getter of the DTO.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOFlyweightWriter extends DTOCompanionWriter {
+
+    /**
+     * The alignment of the records, in bytes.
+     */
+    public static final int ALIGNMENT = 8;
+
+    /**
+     * Kind of the constants holding the constants of an enum, by ordinal.
+     */
+    protected static final String CONSTANTS = "CONSTANTS";
+
+    /**
+     * The support classes of the views.
+     */
+    private static final List<String> SUPPORT_CLASS_NAMES = Arrays.asList("DTOFlyweight", "DTOBinary");
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    public DTOFlyweightWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#getSuffix()
+     */
+    @Override
+    public String getSuffix() {
+        return "View";
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Only the classes whose fields all have a fixed size slot get a view.
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#accept(java.lang.Class)
+     */
+    @Override
+    public boolean accept(final Class<?> clazz) {
+        if (!super.accept(clazz) || clazz.isEnum() || !this.generator.isAccessible(clazz)
+                || !this.isStaticClass(clazz)) {
+            return false;
+        }
+        for (final Field field : this.generator.getDTOFields(clazz)) {
+            if (this.getSlotSize(this.generator.getDTOFieldGenericType(field)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOSourceWriter#getSupportClassNames()
+     */
+    @Override
+    public List<String> getSupportClassNames() {
+        return SUPPORT_CLASS_NAMES;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#write(java.lang.Class, java.io.Writer)
+     */
+    @Override
+    public void write(final Class<?> clazz, final Writer fw) throws IOException {
+        this.resetHelperMethods();
+        final String viewName = this.getCompanionClassName(clazz);
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        final List<Field> fields = this.generator.getDTOFields(clazz);
+        final Layout layout = this.layout(fields);
+
+        this.writeHeader(clazz, fw, "Flyweight view of the DTO of {@link " + clazz.getCanonicalName()
+                + "}, reading its fields from a buffer.");
+        fw.write("public final class " + viewName + " {\n\n");
+        fw.write("    /**\n");
+        fw.write("     * The number of bytes of a record before its strings and arrays.\n");
+        fw.write("     */\n");
+        fw.write("    public static final int FIXED_SIZE = " + layout.fixedSize + ";\n\n");
+        fw.write("    private java.nio.ByteBuffer buffer;\n\n");
+        fw.write("    private int offset;\n\n");
+        fw.write("    /**\n");
+        fw.write("     * Constructor of a view to wrap a record later.\n");
+        fw.write("     */\n");
+        fw.write("    public " + viewName + "() {\n");
+        fw.write("    }\n\n");
+        fw.write("    /**\n");
+        fw.write("     * Constructor.\n");
+        fw.write("     *\n");
+        fw.write("     * @param buffer the buffer holding the record.\n");
+        fw.write("     * @param offset the position of the record.\n");
+        fw.write("     */\n");
+        fw.write("    public " + viewName + "(final java.nio.ByteBuffer buffer, final int offset) {\n");
+        fw.write("        this.buffer = buffer;\n");
+        fw.write("        this.offset = offset;\n");
+        fw.write("    }\n\n");
+        fw.write("    /**\n");
+        fw.write("     * Move this view to another record.\n");
+        fw.write("     *\n");
+        fw.write("     * @param buffer the buffer holding the record.\n");
+        fw.write("     * @param offset the position of the record.\n");
+        fw.write("     * @return this view.\n");
+        fw.write("     */\n");
+        fw.write("    public " + viewName + " wrap(final java.nio.ByteBuffer buffer, final int offset) {\n");
+        fw.write("        this.buffer = buffer;\n");
+        fw.write("        this.offset = offset;\n");
+        fw.write("        return this;\n");
+        fw.write("    }\n\n");
+        fw.write("    /**\n");
+        fw.write("     * Move this view to the record following the current one.\n");
+        fw.write("     *\n");
+        fw.write("     * @return this view.\n");
+        fw.write("     */\n");
+        fw.write("    public " + viewName + " next() {\n");
+        fw.write("        this.offset += this.getRecordSize();\n");
+        fw.write("        return this;\n");
+        fw.write("    }\n\n");
+        fw.write("    public java.nio.ByteBuffer getBuffer() {\n");
+        fw.write("        return this.buffer;\n");
+        fw.write("    }\n\n");
+        fw.write("    public int getOffset() {\n");
+        fw.write("        return this.offset;\n");
+        fw.write("    }\n\n");
+        fw.write("    /**\n");
+        fw.write("     * @return the number of bytes of the current record, padding included.\n");
+        fw.write("     */\n");
+        fw.write("    public int getRecordSize() {\n");
+        fw.write("        return this.buffer.getInt(" + this.getPosition("this.offset", layout.sizeOffset) + ");\n");
+        fw.write("    }\n\n");
+        for (int i = 0; i < fields.size(); i++) {
+            this.writeGetter(clazz, fields.get(i), layout.offsets[i], layout.bitmapOffset, layout.presenceBits[i], fw);
+        }
+        this.writeToDTO(clazz, fields, fw);
+        this.writeSizeOf(dtoName, fields, layout, fw);
+        this.writeAppend(clazz, fields, layout, fw);
+        this.writeHelperMethods(clazz, fw);
+        fw.write("}\n");
+    }
+
+    /**
+     * Assign the slots of the fields, the widest first, then the record size
+     * and the presence bits.
+     *
+     * @param fields the fields.
+     * @return the layout.
+     */
+    protected Layout layout(final List<Field> fields) {
+        final Layout layout = new Layout(fields.size());
+        int position = 0;
+        for (int slotSize = 8; slotSize > 0; slotSize >>= 1) {
+            if (slotSize == 4) {
+                layout.sizeOffset = position;
+                position += 4;
+            }
+            for (int i = 0; i < fields.size(); i++) {
+                if (this.getSlotSize(this.generator.getDTOFieldGenericType(fields.get(i))) == slotSize) {
+                    layout.offsets[i] = position;
+                    position += slotSize;
+                }
+            }
+        }
+        int bits = 0;
+        for (int i = 0; i < fields.size(); i++) {
+            layout.presenceBits[i] = this.generator.getDTOFieldClass(fields.get(i)).isPrimitive() ? -1 : bits++;
+        }
+        layout.bitmapOffset = position;
+        layout.bitmapSize = bits + 7 >> 3;
+        layout.fixedSize = position + layout.bitmapSize;
+        return layout;
+    }
+
+    /**
+     * Write the getter of a field, reading its slot.
+     *
+     * @param clazz        the class a DTO is generated for.
+     * @param field        the field.
+     * @param slot         the position of the slot in the record.
+     * @param bitmapOffset the position of the presence bitmap in the record.
+     * @param presenceBit  the presence bit of the field, -1 for none.
+     * @param fw           the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeGetter(final Class<?> clazz, final Field field, final int slot, final int bitmapOffset,
+                               final int presenceBit, final Writer fw) throws IOException {
+        final Class<?> type = (Class<?>) this.generator.getDTOFieldGenericType(field);
+        final String dtoType = this.generator.getDTOFieldType(clazz, field);
+        final String position = this.getPosition("this.offset", slot);
+        fw.write("    public " + dtoType + " " + this.generator.getDTOFieldGetterName(field) + "() {\n");
+        if (presenceBit >= 0) {
+            fw.write("        if (!DTOBinary.isSet(this.buffer, this.offset + " + bitmapOffset + ", " + presenceBit
+                    + ")) {\n");
+            fw.write("            return null;\n");
+            fw.write("        }\n");
+        }
+        final Class<?> primitiveType = type.isPrimitive() ? type : this.getPrimitiveType(type);
+        if (primitiveType != null) {
+            final String value = this.getValue(primitiveType, position);
+            fw.write("        return " + (type.isPrimitive() ? value : type.getSimpleName() + ".valueOf(" + value
+                    + ")") + ";\n");
+        }
+        else if (type.equals(Date.class)) {
+            fw.write("        return new java.util.Date(this.buffer.getLong(" + position + "));\n");
+        }
+        else if (type.isEnum()) {
+            fw.write("        return " + this.getHelperMethodName(CONSTANTS, type) + "[this.buffer.getInt(" + position
+                    + ")];\n");
+        }
+        else if (type.equals(String.class)) {
+            fw.write("        return DTOFlyweight.getString(this.buffer, this.offset + this.buffer.getInt(" + position
+                    + "));\n");
+        }
+        else {
+            final Class<?> componentType = type.getComponentType();
+            final int elementSize = this.getSlotSize(componentType);
+            fw.write("        final int index = this.offset + this.buffer.getInt(" + position + ");\n");
+            fw.write("        final " + dtoType + " result = new " + componentType.getName()
+                    + "[this.buffer.getInt(index)];\n");
+            fw.write("        for (int i = 0; i < result.length; i++) {\n");
+            fw.write("            result[i] = " + this.getValue(componentType, "index + 4 + i"
+                    + (elementSize > 1 ? " * " + elementSize : "")) + ";\n");
+            fw.write("        }\n");
+            fw.write("        return result;\n");
+        }
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write the method copying the record into a DTO.
+     *
+     * @param clazz  the class a DTO is generated for.
+     * @param fields the fields.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeToDTO(final Class<?> clazz, final List<Field> fields, final Writer fw) throws IOException {
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        final String builderName = this.generator.getDTOBuilderName(clazz);
+        fw.write("    /**\n");
+        fw.write("     * @return a DTO holding the fields of the current record.\n");
+        fw.write("     */\n");
+        fw.write("    public " + dtoName + " toDTO() {\n");
+        fw.write("        final " + builderName + " dto = new " + builderName + "();\n");
+        for (final Field field : fields) {
+            fw.write("        dto." + this.generator.getDTOFieldSetterName(field) + "(this."
+                    + this.generator.getDTOFieldGetterName(field) + "());\n");
+        }
+        fw.write("        return " + this.generator.getBuiltDTO("dto") + ";\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write the method returning the number of bytes of the record of a DTO.
+     *
+     * @param dtoName the DTO name.
+     * @param fields  the fields.
+     * @param layout  the layout of the records.
+     * @param fw      the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeSizeOf(final String dtoName, final List<Field> fields, final Layout layout,
+                               final Writer fw) throws IOException {
+        fw.write("    /**\n");
+        fw.write("     * Return the number of bytes of the record of a DTO.\n");
+        fw.write("     *\n");
+        fw.write("     * @param dto the DTO.\n");
+        fw.write("     * @return the number of bytes, padding included.\n");
+        fw.write("     */\n");
+        fw.write("    public static int sizeOf(final " + dtoName + " dto) {\n");
+        final List<Field> variableFields = this.getVariableFields(fields);
+        if (variableFields.isEmpty()) {
+            fw.write("        return " + this.align(layout.fixedSize) + ";\n");
+            fw.write("    }\n\n");
+            return;
+        }
+        fw.write("        int size = FIXED_SIZE;\n");
+        for (final Field field : variableFields) {
+            final String getter = "dto." + this.generator.getDTOFieldGetterName(field) + "()";
+            fw.write("        if (" + getter + " != null) {\n");
+            if (field.getType().equals(String.class)) {
+                fw.write("            size += 4 + DTOBinary.utf8Length(" + getter + ");\n");
+            }
+            else {
+                final Class<?> componentType =
+                        ((Class<?>) this.generator.getDTOFieldGenericType(field)).getComponentType();
+                final int elementSize = this.getSlotSize(componentType);
+                fw.write("            size += 4 + " + getter + ".length" + (elementSize > 1 ? " * " + elementSize : "")
+                        + ";\n");
+            }
+            fw.write("        }\n");
+        }
+        fw.write("        return size + " + (ALIGNMENT - 1) + " & " + -ALIGNMENT + ";\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write the method laying the record of a DTO out at the position of a
+     * buffer.
+     *
+     * @param clazz  the class a DTO is generated for.
+     * @param fields the fields.
+     * @param layout the layout of the records.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeAppend(final Class<?> clazz, final List<Field> fields, final Layout layout,
+                               final Writer fw) throws IOException {
+        fw.write("    /**\n");
+        fw.write("     * Write the record of a DTO at the position of a buffer, and move the\n");
+        fw.write("     * position after it.\n");
+        fw.write("     *\n");
+        fw.write("     * @param dto    the DTO.\n");
+        fw.write("     * @param buffer the buffer.\n");
+        fw.write("     * @return the position of the record, to wrap a view.\n");
+        fw.write("     * @throws java.nio.BufferOverflowException if the record does not fit.\n");
+        fw.write("     */\n");
+        fw.write("    public static int append(final " + this.generator.getDTOClassName(clazz)
+                + " dto, final java.nio.ByteBuffer buffer) {\n");
+        fw.write("        final int size = sizeOf(dto);\n");
+        fw.write("        final int start = buffer.position();\n");
+        fw.write("        if (buffer.remaining() < size) {\n");
+        fw.write("            throw new java.nio.BufferOverflowException();\n");
+        fw.write("        }\n");
+        fw.write("        buffer.putInt(" + this.getPosition("start", layout.sizeOffset) + ", size);\n");
+        for (int i = 0; i < fields.size(); i++) {
+            final Field field = fields.get(i);
+            final Class<?> type = (Class<?>) this.generator.getDTOFieldGenericType(field);
+            final String getter = "dto." + this.generator.getDTOFieldGetterName(field) + "()";
+            final String position = this.getPosition("start", layout.offsets[i]);
+            final Class<?> primitiveType = type.isPrimitive() ? type : this.getPrimitiveType(type);
+            if (type.isPrimitive()) {
+                fw.write("        " + this.putValue(primitiveType, position, getter) + "\n");
+            }
+            else if (primitiveType != null) {
+                fw.write("        " + this.putValue(primitiveType, position, getter + " == null ? "
+                        + this.generator.getDefaultValue(primitiveType) + " : " + getter + "."
+                        + primitiveType.getName() + "Value()") + "\n");
+            }
+            else if (type.equals(Date.class)) {
+                fw.write("        buffer.putLong(" + position + ", " + getter + " == null ? 0L : " + getter
+                        + ".getTime());\n");
+            }
+            else if (type.isEnum()) {
+                fw.write("        buffer.putInt(" + position + ", " + getter + " == null ? 0 : " + getter
+                        + ".ordinal());\n");
+            }
+        }
+        for (int bitmapByte = 0; bitmapByte < layout.bitmapSize; bitmapByte++) {
+            final StringBuilder value = new StringBuilder();
+            for (int i = 0; i < fields.size(); i++) {
+                if (layout.presenceBits[i] >> 3 == bitmapByte) {
+                    if (value.length() > 0) {
+                        value.append("\n                | ");
+                    }
+                    value.append("(dto.").append(this.generator.getDTOFieldGetterName(fields.get(i)))
+                            .append("() != null ? ").append(1 << (layout.presenceBits[i] & 7)).append(" : 0)");
+                }
+            }
+            fw.write("        buffer.put(start + " + (layout.bitmapOffset + bitmapByte) + ", (byte) (" + value
+                    + "));\n");
+        }
+        fw.write("        int end = start + FIXED_SIZE;\n");
+        for (final Field field : this.getVariableFields(fields)) {
+            final String name = field.getName() + "Value";
+            final String position = this.getPosition("start", layout.offsets[fields.indexOf(field)]);
+            fw.write("        final " + this.generator.getDTOFieldType(clazz, field) + " " + name + " = dto."
+                    + this.generator.getDTOFieldGetterName(field) + "();\n");
+            fw.write("        if (" + name + " == null) {\n");
+            fw.write("            buffer.putInt(" + position + ", 0);\n");
+            fw.write("        }\n");
+            fw.write("        else {\n");
+            fw.write("            buffer.putInt(" + position + ", end - start);\n");
+            if (field.getType().equals(String.class)) {
+                fw.write("            end = DTOFlyweight.putString(buffer, end, " + name + ");\n");
+            }
+            else {
+                final Class<?> componentType =
+                        ((Class<?>) this.generator.getDTOFieldGenericType(field)).getComponentType();
+                final int elementSize = this.getSlotSize(componentType);
+                fw.write("            buffer.putInt(end, " + name + ".length);\n");
+                fw.write("            end += 4;\n");
+                fw.write("            for (int i = 0; i < " + name + ".length; i++) {\n");
+                fw.write("                " + this.putValue(componentType, "end", name + "[i]") + "\n");
+                fw.write("                end += " + elementSize + ";\n");
+                fw.write("            }\n");
+            }
+            fw.write("        }\n");
+        }
+        fw.write("        while (end < start + size) {\n");
+        fw.write("            buffer.put(end++, (byte) 0);\n");
+        fw.write("        }\n");
+        fw.write("        buffer.position(end);\n");
+        fw.write("        return start;\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOSourceWriter#writeHelperMethod(java.lang.Class, java.lang.String, java.lang.String, java.lang.reflect.Type, java.io.Writer)
+     */
+    @Override
+    protected void writeHelperMethod(final Class<?> clazz, final String name, final String kind, final Type type,
+                                     final Writer fw) throws IOException {
+        final String dtoType = this.generator.getDTOType(clazz, type);
+        fw.write("    private static final " + dtoType + "[] " + name + " = " + dtoType + ".values();\n\n");
+    }
+
+    /**
+     * Return the number of bytes of the slot of a type in the records.
+     *
+     * @param type the type, as held by the DTO.
+     * @return the number of bytes, 0 if the type has no slot.
+     */
+    protected int getSlotSize(final Type type) {
+        if (!(type instanceof Class<?>)) {
+            return 0;
+        }
+        final Class<?> clazz = (Class<?>) type;
+        final Class<?> primitiveType = clazz.isPrimitive() ? clazz : this.getPrimitiveType(clazz);
+        if (primitiveType != null) {
+            if (primitiveType.equals(long.class) || primitiveType.equals(double.class)) {
+                return 8;
+            }
+            if (primitiveType.equals(int.class) || primitiveType.equals(float.class)) {
+                return 4;
+            }
+            if (primitiveType.equals(char.class) || primitiveType.equals(short.class)) {
+                return 2;
+            }
+            return 1;
+        }
+        if (clazz.equals(Date.class)) {
+            return 8;
+        }
+        if (clazz.isEnum()) {
+            return this.generator.isAccessible(clazz) ? 4 : 0;
+        }
+        if (clazz.equals(String.class) || (clazz.isArray() && clazz.getComponentType().isPrimitive())) {
+            return 4;
+        }
+        return 0;
+    }
+
+    /**
+     * Return the fields laid out after the fixed size slots.
+     *
+     * @param fields the fields.
+     * @return the string and array fields.
+     */
+    private List<Field> getVariableFields(final List<Field> fields) {
+        final List<Field> variableFields = new ArrayList<Field>();
+        for (final Field field : fields) {
+            final Class<?> type = (Class<?>) this.generator.getDTOFieldGenericType(field);
+            if (type.equals(String.class) || type.isArray()) {
+                variableFields.add(field);
+            }
+        }
+        return variableFields;
+    }
+
+    /**
+     * Return the expression reading a primitive.
+     *
+     * @param primitiveType the primitive type.
+     * @param position      the position expression.
+     * @return the expression.
+     */
+    private String getValue(final Class<?> primitiveType, final String position) {
+        if (primitiveType.equals(boolean.class)) {
+            return "this.buffer.get(" + position + ") != 0";
+        }
+        if (primitiveType.equals(byte.class)) {
+            return "this.buffer.get(" + position + ")";
+        }
+        return "this.buffer.get" + this.getPrimitiveName(primitiveType) + "(" + position + ")";
+    }
+
+    /**
+     * Return the statement writing a primitive.
+     *
+     * @param primitiveType the primitive type.
+     * @param position      the position expression.
+     * @param value         the value expression.
+     * @return the statement.
+     */
+    private String putValue(final Class<?> primitiveType, final String position, final String value) {
+        if (primitiveType.equals(boolean.class)) {
+            return "buffer.put(" + position + ", (byte) (" + value + " ? 1 : 0));";
+        }
+        if (primitiveType.equals(byte.class)) {
+            return "buffer.put(" + position + ", " + value + ");";
+        }
+        return "buffer.put" + this.getPrimitiveName(primitiveType) + "(" + position + ", " + value + ");";
+    }
+
+    /**
+     * Return the expression of a position in a record.
+     *
+     * @param start the expression of the position of the record.
+     * @param slot  the position in the record.
+     * @return the expression.
+     */
+    private String getPosition(final String start, final int slot) {
+        return slot == 0 ? start : start + " + " + slot;
+    }
+
+    /**
+     * Round a number of bytes up to the alignment of the records.
+     *
+     * @param size the number of bytes.
+     * @return the aligned number of bytes.
+     */
+    private int align(final int size) {
+        return size + ALIGNMENT - 1 & -ALIGNMENT;
+    }
+
+    /**
+     * The positions of the slots and bits of the fields in a record.
+     */
+    protected static final class Layout {
+
+        /**
+         * The position of the slot of each field.
+         */
+        private final int[] offsets;
+
+        /**
+         * The presence bit of each field, -1 for none.
+         */
+        private final int[] presenceBits;
+
+        /**
+         * The position of the record size.
+         */
+        private int sizeOffset;
+
+        /**
+         * The position of the presence bitmap.
+         */
+        private int bitmapOffset;
+
+        /**
+         * The number of bytes of the presence bitmap.
+         */
+        private int bitmapSize;
+
+        /**
+         * The number of bytes before the strings and arrays.
+         */
+        private int fixedSize;
+
+        /**
+         * Constructor.
+         *
+         * @param fields the number of fields.
+         */
+        Layout(final int fields) {
+            this.offsets = new int[fields];
+            this.presenceBits = new int[fields];
+        }
+    }
+}
@@ -4,14 +4,29 @@
 package fr.maven.dto.generator.impl;
 
 import fr.maven.dto.generator.DTOGenerator;
+import fr.maven.dto.generator.DTOProjection;
+import fr.maven.dto.generator.DTOTypeSubstitution;
+import fr.maven.dto.generator.ExecutionStatistics;
+import fr.maven.dto.generator.GenerationCache;
+import org.apache.tools.ant.types.selectors.SelectorUtils;
 
 import java.io.File;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
@@ -22,128 +37,1597 @@ import java.util.*;
  */
 public class DTOGeneratorImpl implements DTOGenerator {
 
+    /**
+     * The collection and map interfaces replaced by primitive collections.
+     */
+    private static final List<Class<?>> PRIMITIVE_COLLECTION_INTERFACES = Arrays.<Class<?>>asList(List.class,
+            Collection.class, Map.class, SortedMap.class);
+
+    /**
+     * The key types of the primitive maps, compared with <code>==</code>.
+     */
+    private static final List<Class<?>> PRIMITIVE_MAP_KEY_TYPES = Arrays.<Class<?>>asList(byte.class, short.class,
+            char.class, int.class, long.class);
+
     /**
      * File writes associated to classes.
      */
-    protected final Map<Class<?>, FileWriter> fileWriters;
+    protected final Map<Class<?>, FileWriter> fileWriters;
+
+    /**
+     * The classes list we want to generate for.
+     */
+    protected List<Class<?>> classesToGenerate;
+
+    /**
+     * Index of the classes list, so that looking a class up does not walk the
+     * list.
+     */
+    private Set<Class<?>> classesToGenerateIndex;
+
+    /**
+     * The classes list size when the index was built.
+     */
+    private int classesToGenerateIndexSize = -1;
+
+    /**
+     * The generation context of the classes list indexed, <code>null</code>
+     * until it is needed.
+     */
+    private String generationContext;
+
+    /**
+     * The size of the classes list the generation context was computed for.
+     */
+    private int generationContextSize = -1;
+
+    /**
+     * The directory where DTOs will be generated.
+     */
+    protected File generatedDirectory;
+
+    private String generatedPackage;
+    private Set<String> additionalImports = new TreeSet<String>();
+
+
+    private List<String> extraInterfaces;
+
+    /**
+     * The DTO field types resolved while building the DTO model.
+     */
+    protected final Map<Field, String> dtoFieldTypes;
+
+    /**
+     * The collector of the generation timings and counters.
+     */
+    protected ExecutionStatistics statistics;
+
+    /**
+     * The cache of DTO models and generated files, <code>null</code> not to
+     * cache anything.
+     */
+    protected GenerationCache cache;
+
+    /**
+     * Generate a mapper next to each DTO.
+     */
+    protected boolean generateMappers;
+
+    /**
+     * Generate a JSON codec next to each DTO.
+     */
+    protected boolean generateJsonCodecs;
+
+    /**
+     * Generate a binary codec next to each DTO.
+     */
+    protected boolean generateBinaryCodecs;
+
+    /**
+     * The directory where the tests of the generated classes are generated,
+     * <code>null</code> not to generate tests.
+     */
+    protected File generatedTestDirectory;
+
+    /**
+     * The writers of the classes generated next to each DTO, <code>null</code>
+     * until they are needed.
+     */
+    protected List<DTOCompanionWriter> companionWriters;
+
+    /**
+     * Generate DTOs implementing {@link java.io.Externalizable}.
+     */
+    protected boolean generateExternalizable;
+
+    /**
+     * Generate DTOs compared by value.
+     */
+    protected boolean generateEquals;
+
+    /**
+     * Generate immutable DTOs.
+     */
+    protected boolean generateImmutable;
+
+    /**
+     * Cache the hash codes of the deeply immutable DTOs.
+     */
+    protected boolean cacheHashCodes;
+
+    /**
+     * Generate primitive arrays and maps for the lists and maps of wrappers.
+     */
+    protected boolean generatePrimitiveCollections;
+
+    /**
+     * Generate flyweight views backed by a ByteBuffer.
+     */
+    protected boolean generateFlyweights;
+
+    /**
+     * Generate columnar containers of DTOs.
+     */
+    protected boolean generateColumns;
+
+    /**
+     * Generate lazy holders for the fields referring to other DTOs.
+     */
+    protected boolean generateLazyHolders;
+
+    /**
+     * Generate reset methods and pools of DTOs.
+     */
+    protected boolean generatePools;
+
+    /**
+     * Generate deep copy methods in the DTOs.
+     */
+    protected boolean generateDeepCopies;
+
+    /**
+     * Generate dirty tracking, with patches, in the DTOs.
+     */
+    protected boolean generateDirtyTracking;
+
+    /**
+     * Generate the DTOs with a compact layout, packing their fields.
+     */
+    protected boolean generateCompactLayout;
+
+    /**
+     * Generate the accessor classes of the DTOs.
+     */
+    protected boolean generateAccessors;
+
+    /**
+     * Generate the conversions of the DTOs to and from maps.
+     */
+    protected boolean generateMapConverters;
+
+    /**
+     * The patterns of the string fields interned, or the names of the
+     * annotations marking them prefixed by <code>@</code>.
+     */
+    protected List<String> internedFields;
+
+    /**
+     * The substitutions of the type of the DTO fields, by name of the type
+     * substituted.
+     */
+    protected Map<String, DTOTypeSubstitution> typeSubstitutions;
+
+    /**
+     * The projections of the classes to generate.
+     */
+    protected List<DTOProjection> projections;
+
+    /**
+     * The projection being generated, <code>null</code> while the full DTOs
+     * are.
+     */
+    protected DTOProjection projection;
+
+    /**
+     * The class the projection being generated is applied to.
+     */
+    protected Class<?> projectedClass;
+
+    /**
+     * The writers of the members added to each DTO, <code>null</code> until
+     * they are needed.
+     */
+    protected List<DTOMemberWriter> memberWriters;
+
+    /**
+     * The writer of the compact layout, <code>null</code> until it is needed.
+     */
+    protected DTOCompactWriter compactWriter;
+
+    /**
+     * Constructor.
+     */
+    public DTOGeneratorImpl() {
+        this.classesToGenerate = new ArrayList<Class<?>>();
+        this.fileWriters = new HashMap<Class<?>, FileWriter>();
+        this.dtoFieldTypes = new HashMap<Field, String>();
+        this.statistics = new ExecutionStatisticsImpl();
+        this.projections = Collections.emptyList();
+        this.internedFields = Collections.emptyList();
+        this.typeSubstitutions = Collections.emptyMap();
+    }
+
+    /**
+     * Set the DTOs generated directory.
+     *
+     * @param generatedDirectory the DTOs generated directory to set
+     */
+    @Override
+    public void setGeneratedDirectory(final File generatedDirectory) {
+        this.generatedDirectory = generatedDirectory;
+    }
+
+    @Override
+    public void setGeneratedPackage(String generatedPackage) {
+        this.generatedPackage = generatedPackage;
+    }
+
+    @Override
+    public void setExtraInterfaces(List<String> extraInterfaces) {
+        this.extraInterfaces = extraInterfaces;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setStatistics(fr.maven.dto.generator.ExecutionStatistics)
+     */
+    @Override
+    public void setStatistics(final ExecutionStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setCache(fr.maven.dto.generator.GenerationCache)
+     */
+    @Override
+    public void setCache(final GenerationCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setGenerateMappers(boolean)
+     */
+    @Override
+    public void setGenerateMappers(final boolean generateMappers) {
+        this.generateMappers = generateMappers;
+        this.companionWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setGenerateExternalizable(boolean)
+     */
+    @Override
+    public void setGenerateExternalizable(final boolean generateExternalizable) {
+        this.generateExternalizable = generateExternalizable;
+        this.memberWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setGenerateJsonCodecs(boolean)
+     */
+    @Override
+    public void setGenerateJsonCodecs(final boolean generateJsonCodecs) {
+        this.generateJsonCodecs = generateJsonCodecs;
+        this.companionWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setGenerateBinaryCodecs(boolean)
+     */
+    @Override
+    public void setGenerateBinaryCodecs(final boolean generateBinaryCodecs) {
+        this.generateBinaryCodecs = generateBinaryCodecs;
+        this.companionWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setGeneratedTestDirectory(java.io.File)
+     */
+    @Override
+    public void setGeneratedTestDirectory(final File generatedTestDirectory) {
+        this.generatedTestDirectory = generatedTestDirectory;
+        this.companionWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setGenerateEquals(boolean)
+     */
+    @Override
+    public void setGenerateEquals(final boolean generateEquals) {
+        this.generateEquals = generateEquals;
+        this.memberWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setGenerateImmutable(boolean)
+     */
+    @Override
+    public void setGenerateImmutable(final boolean generateImmutable) {
+        this.generateImmutable = generateImmutable;
+        this.memberWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setCacheHashCodes(boolean)
+     */
+    @Override
+    public void setCacheHashCodes(final boolean cacheHashCodes) {
+        this.cacheHashCodes = cacheHashCodes;
+        this.memberWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setGeneratePrimitiveCollections(boolean)
+     */
+    @Override
+    public void setGeneratePrimitiveCollections(final boolean generatePrimitiveCollections) {
+        this.generatePrimitiveCollections = generatePrimitiveCollections;
+        this.dtoFieldTypes.clear();
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setGenerateFlyweights(boolean)
+     */
+    @Override
+    public void setGenerateFlyweights(final boolean generateFlyweights) {
+        this.generateFlyweights = generateFlyweights;
+        this.companionWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setGenerateColumns(boolean)
+     */
+    @Override
+    public void setGenerateColumns(final boolean generateColumns) {
+        this.generateColumns = generateColumns;
+        this.companionWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setGenerateLazyHolders(boolean)
+     */
+    @Override
+    public void setGenerateLazyHolders(final boolean generateLazyHolders) {
+        this.generateLazyHolders = generateLazyHolders;
+        this.memberWriters = null;
+        this.companionWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setGeneratePools(boolean)
+     */
+    @Override
+    public void setGeneratePools(final boolean generatePools) {
+        this.generatePools = generatePools;
+        this.memberWriters = null;
+        this.companionWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setGenerateDeepCopies(boolean)
+     */
+    @Override
+    public void setGenerateDeepCopies(final boolean generateDeepCopies) {
+        this.generateDeepCopies = generateDeepCopies;
+        this.memberWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setGenerateDirtyTracking(boolean)
+     */
+    @Override
+    public void setGenerateDirtyTracking(final boolean generateDirtyTracking) {
+        this.generateDirtyTracking = generateDirtyTracking;
+        this.memberWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setGenerateCompactLayout(boolean)
+     */
+    @Override
+    public void setGenerateCompactLayout(final boolean generateCompactLayout) {
+        this.generateCompactLayout = generateCompactLayout;
+        this.memberWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setGenerateAccessors(boolean)
+     */
+    @Override
+    public void setGenerateAccessors(final boolean generateAccessors) {
+        this.generateAccessors = generateAccessors;
+        this.companionWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setGenerateMapConverters(boolean)
+     */
+    @Override
+    public void setGenerateMapConverters(final boolean generateMapConverters) {
+        this.generateMapConverters = generateMapConverters;
+        this.memberWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setInternedFields(java.util.List)
+     */
+    @Override
+    public void setInternedFields(final List<String> internedFields) {
+        this.internedFields = new ArrayList<String>(internedFields);
+        this.memberWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setTypeSubstitutions(java.util.List)
+     */
+    @Override
+    public void setTypeSubstitutions(final List<DTOTypeSubstitution> typeSubstitutions) {
+        this.typeSubstitutions = new LinkedHashMap<String, DTOTypeSubstitution>();
+        for (final DTOTypeSubstitution typeSubstitution : typeSubstitutions) {
+            this.typeSubstitutions.put(typeSubstitution.getTypeName(), typeSubstitution);
+        }
+        this.dtoFieldTypes.clear();
+        this.memberWriters = null;
+        this.companionWriters = null;
+        this.generationContext = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#setProjections(java.util.List)
+     */
+    @Override
+    public void setProjections(final List<DTOProjection> projections) {
+        this.projections = new ArrayList<DTOProjection>(projections);
+        this.generationContext = null;
+    }
+
+    /**
+     * Return the writers of the members added to each DTO, according to the
+     * options.
+     *
+     * @return the member writers.
+     * @throws IllegalStateException if immutable DTOs are Externalizable,
+     *                               pooled, track dirty fields or are packed,
+     *                               or if mutable DTOs cache their hash code.
+     */
+    protected List<DTOMemberWriter> getMemberWriters() {
+        if (this.memberWriters == null) {
+            if (this.generateImmutable && this.generateExternalizable) {
+                throw new IllegalStateException("Immutable DTOs can not be Externalizable.");
+            }
+            if (this.generateImmutable && this.generatePools) {
+                throw new IllegalStateException("Immutable DTOs can not be pooled.");
+            }
+            if (this.generateImmutable && this.generateDirtyTracking) {
+                throw new IllegalStateException("Immutable DTOs can not track dirty fields.");
+            }
+            if (this.generateImmutable && this.generateCompactLayout) {
+                throw new IllegalStateException("Immutable DTOs can not be packed.");
+            }
+            if (this.cacheHashCodes && !this.generateImmutable) {
+                throw new IllegalStateException("Only immutable DTOs can cache their hash code.");
+            }
+            this.memberWriters = new ArrayList<DTOMemberWriter>();
+            if (this.generateImmutable) {
+                this.memberWriters.add(new DTOImmutableWriter(this));
+            }
+            if (this.generateExternalizable) {
+                this.memberWriters.add(new DTOExternalizableWriter(this));
+            }
+            if (this.generateEquals) {
+                this.memberWriters.add(new DTOEqualsWriter(this));
+            }
+            if (this.isLazyHolding()) {
+                this.memberWriters.add(new DTOLazyWriter(this));
+            }
+            if (this.generatePools) {
+                this.memberWriters.add(new DTOResetWriter(this));
+            }
+            if (this.generateDeepCopies) {
+                this.memberWriters.add(new DTOCopyWriter(this));
+            }
+            if (this.generateDirtyTracking) {
+                this.memberWriters.add(new DTODirtyWriter(this));
+            }
+            if (!this.internedFields.isEmpty()) {
+                this.memberWriters.add(new DTOInternWriter(this));
+            }
+            if (this.generateCompactLayout) {
+                this.memberWriters.add(this.getCompactWriter());
+            }
+            if (this.generateMapConverters) {
+                this.memberWriters.add(new DTOMapConverterWriter(this));
+            }
+        }
+        return this.memberWriters;
+    }
+
+    /**
+     * Return the writers of the classes generated next to each DTO, according
+     * to the options.
+     *
+     * @return the companion writers.
+     */
+    protected List<DTOCompanionWriter> getCompanionWriters() {
+        if (this.companionWriters == null) {
+            this.companionWriters = new ArrayList<DTOCompanionWriter>();
+            if (this.generateMappers) {
+                this.companionWriters.add(new DTOMapperWriter(this));
+            }
+            if (this.generateJsonCodecs) {
+                this.companionWriters.add(new DTOJsonCodecWriter(this));
+            }
+            if (this.generateBinaryCodecs) {
+                final DTOBinaryCodecWriter binaryCodecWriter = new DTOBinaryCodecWriter(this);
+                this.companionWriters.add(binaryCodecWriter);
+                if (this.generatedTestDirectory != null) {
+                    this.companionWriters.add(new DTOBinaryCodecTestWriter(this, binaryCodecWriter));
+                }
+            }
+            if (this.generateFlyweights) {
+                this.companionWriters.add(new DTOFlyweightWriter(this));
+            }
+            if (this.generateColumns) {
+                this.companionWriters.add(new DTOColumnsWriter(this));
+            }
+            if (this.generatePools) {
+                this.companionWriters.add(new DTOPoolWriter(this));
+            }
+            if (this.generateAccessors) {
+                this.companionWriters.add(new DTOAccessorWriter(this));
+            }
+        }
+        return this.companionWriters;
+    }
+
+    /**
+     * Return the options that change the generated sources.
+     *
+     * @return the options.
+     */
+    protected String getOptions() {
+        return "mappers=" + this.generateMappers + ",externalizable=" + this.generateExternalizable
+                + ",json=" + this.generateJsonCodecs + ",binary=" + this.generateBinaryCodecs
+                + ",tests=" + (this.generatedTestDirectory != null) + ",equals=" + this.generateEquals
+                + ",immutable=" + this.generateImmutable + ",hashCodes=" + this.cacheHashCodes
+                + ",primitives=" + this.generatePrimitiveCollections
+                + ",flyweights=" + this.generateFlyweights + ",columns=" + this.generateColumns
+                + ",projections=" + this.projections + ",lazy=" + this.isLazyHolding()
+                + ",pools=" + this.generatePools + ",copies=" + this.generateDeepCopies
+                + ",dirty=" + this.generateDirtyTracking + ",interned=" + this.internedFields
+                + ",compact=" + this.generateCompactLayout + ",substitutions=" + this.typeSubstitutions.values()
+                + ",accessors=" + this.generateAccessors + ",maps=" + this.generateMapConverters;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#generateDTOs(java.util.List)
+     */
+    @Override
+    public void generateDTOs(final List<Class<?>> classes) throws IOException {
+        this.classesToGenerate = classes;
+        this.classesToGenerateIndex = null;
+        this.generationContext = null;
+        for (final Class<?> clazz : classes) {
+            // the annotations marking the fields, e.g. as interned, are not DTOs
+            if (!clazz.isAnnotation()) {
+                this.generateDTO(clazz);
+            }
+        }
+        for (final DTOProjection dtoProjection : this.projections) {
+            for (final Class<?> clazz : classes) {
+                if (!clazz.isEnum() && !clazz.isAnnotation() && this.isProjected(clazz, dtoProjection)) {
+                    this.generateProjection(clazz, dtoProjection);
+                }
+            }
+        }
+        if (!classes.isEmpty()) {
+            this.generateSupportClasses();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.DTOGenerator#generateDTO(java.lang.Class)
+     */
+    @Override
+    public void generateDTO(final Class<?> clazz) throws IOException {
+        final File classFile = this.getDTOClassFile(clazz);
+        if (this.isUpToDate(clazz)) {
+            return;
+        }
+        this.makeDTOPackage(clazz);
+
+        final long modelStart = this.statistics.start(ExecutionStatistics.PHASE_MODEL);
+        this.buildDTOModel(clazz);
+        this.statistics.classModelled(clazz.getName(), modelStart);
+
+        final long renderStart = this.statistics.start(ExecutionStatistics.PHASE_RENDER);
+        final StringWriter sw = new StringWriter();
+        if (clazz.isEnum()) {
+            this.makeDTOEnum(clazz, sw);
+        }
+        else {
+            this.makeDTOClass(clazz, sw);
+        }
+        this.statistics.classRendered(clazz.getName(), sw.getBuffer().length(), renderStart);
+
+        final long writeStart = this.statistics.start(ExecutionStatistics.PHASE_WRITE);
+        final FileWriter fw = this.getDTOClassFileWriter(clazz);
+        fw.write(sw.toString());
+        fw.close();
+        this.fileWriters.remove(clazz);
+        this.statistics.fileWritten(clazz.getName(), classFile, classFile.length(), writeStart);
+        if (this.cache != null) {
+            this.cache.putOutput(clazz, this.getGenerationContext(), classFile);
+        }
+        for (final DTOCompanionWriter companionWriter : this.getCompanionWriters()) {
+            if (companionWriter.accept(clazz)) {
+                this.generateCompanion(clazz, companionWriter);
+            }
+        }
+    }
+
+    /**
+     * Generate the DTO of a projection of the class given and its companion
+     * classes. The fields kept must not refer to the class or to its declared
+     * classes, whose DTOs stay in the full DTO.
+     *
+     * @param clazz         the class we want to generate DTO for.
+     * @param dtoProjection the projection.
+     * @throws IOException if a file is not writable.
+     */
+    protected void generateProjection(final Class<?> clazz, final DTOProjection dtoProjection)
+            throws IOException {
+        final Set<String> fieldNames = new HashSet<String>();
+        for (final Field field : this.getDTOFields(clazz)) {
+            fieldNames.add(field.getName());
+            if (dtoProjection.getFieldNames().contains(field.getName())
+                    && this.refersTo(field.getGenericType(), clazz)) {
+                throw new IllegalArgumentException("The projection " + dtoProjection.getName() + " of "
+                        + clazz.getName() + " can not keep the field " + field.getName()
+                        + ", that refers to the class.");
+            }
+        }
+        for (final String fieldName : dtoProjection.getFieldNames()) {
+            if (!fieldNames.contains(fieldName)) {
+                throw new IllegalArgumentException("The projection " + dtoProjection.getName() + " of "
+                        + clazz.getName() + " keeps the field " + fieldName + ", that does not exist.");
+            }
+        }
+        this.projection = dtoProjection;
+        this.projectedClass = clazz;
+        try {
+            this.generateDTO(clazz);
+        }
+        finally {
+            this.projection = null;
+            this.projectedClass = null;
+        }
+    }
+
+    /**
+     * Check if a class matches the includes patterns of a projection.
+     *
+     * @param clazz         the class.
+     * @param dtoProjection the projection.
+     * @return <code>true</code> if the class is projected.
+     */
+    protected boolean isProjected(final Class<?> clazz, final DTOProjection dtoProjection) {
+        final String path = clazz.getName().replace(".", File.separator) + ".class";
+        for (final String includePattern : dtoProjection.getIncludePatterns()) {
+            if (SelectorUtils.matchPath(includePattern.replace(".", File.separator) + ".class", path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if a type refers to a class or to its declared classes.
+     *
+     * @param type  the type.
+     * @param clazz the class.
+     * @return <code>true</code> if the type, its component type or one of its
+     *         type arguments is the class or one of its declared classes.
+     */
+    private boolean refersTo(final Type type, final Class<?> clazz) {
+        if (type instanceof ParameterizedType) {
+            for (final Type typeArgument : ((ParameterizedType) type).getActualTypeArguments()) {
+                if (this.refersTo(typeArgument, clazz)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (!(type instanceof Class<?>)) {
+            return false;
+        }
+        for (Class<?> typeClass = this.getArrayComponentType((Class<?>) type); typeClass != null;
+             typeClass = typeClass.getDeclaringClass()) {
+            if (typeClass.equals(clazz)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the declared classes of the class given whose DTOs are nested in
+     * its DTO: none for a projection, the DTOs of the full DTO are used.
+     *
+     * @param clazz the class.
+     * @return the declared classes.
+     */
+    protected Class<?>[] getDTODeclaredClasses(final Class<?> clazz) {
+        if (clazz.equals(this.projectedClass)) {
+            return new Class<?>[0];
+        }
+        return clazz.getDeclaredClasses();
+    }
+
+    /**
+     * Generate a class next to the DTO of the class given.
+     *
+     * @param clazz           the class we want to generate DTO for.
+     * @param companionWriter the writer of the companion class.
+     * @throws IOException if the file is not writable.
+     */
+    protected void generateCompanion(final Class<?> clazz, final DTOCompanionWriter companionWriter)
+            throws IOException {
+        final long renderStart = this.statistics.start(ExecutionStatistics.PHASE_RENDER);
+        final StringWriter sw = new StringWriter();
+        companionWriter.write(clazz, sw);
+        this.statistics.classRendered(clazz.getName(), sw.getBuffer().length(), renderStart);
+
+        final long writeStart = this.statistics.start(ExecutionStatistics.PHASE_WRITE);
+        final File companionFile = this.getCompanionClassFile(clazz, companionWriter);
+        if (!companionFile.getParentFile().isDirectory() && !companionFile.getParentFile().mkdirs()) {
+            throw new IOException("The generated directory can not be created.");
+        }
+        final FileWriter fw = new FileWriter(companionFile);
+        try {
+            fw.write(sw.toString());
+        }
+        finally {
+            fw.close();
+        }
+        this.statistics.fileWritten(clazz.getName(), companionFile, companionFile.length(), writeStart);
+        if (this.cache != null) {
+            this.cache.putOutput(clazz, this.getGenerationContext(), companionFile);
+        }
+    }
+
+    /**
+     * Generate the support classes the member and companion writers use,
+     * once for all the DTOs.
+     *
+     * @throws IOException if a file is not writable.
+     */
+    protected void generateSupportClasses() throws IOException {
+        final List<DTOSourceWriter> sourceWriters = new ArrayList<DTOSourceWriter>(this.getMemberWriters());
+        sourceWriters.addAll(this.getCompanionWriters());
+        if (this.generatePrimitiveCollections) {
+            sourceWriters.add(new DTOPrimitiveMapWriter(this));
+        }
+        final Set<String> supportClassNames = new HashSet<String>();
+        for (final DTOSourceWriter sourceWriter : sourceWriters) {
+            for (final String supportClassName : sourceWriter.getSupportClassNames()) {
+                if (supportClassNames.add(supportClassName)) {
+                    this.generateSupportClass(sourceWriter, supportClassName);
+                }
+            }
+        }
+    }
+
+    /**
+     * Generate a support class. The file is left untouched when its content
+     * does not change, so that it is not compiled again.
+     *
+     * @param sourceWriter the writer that uses the support class.
+     * @param name         the support class name.
+     * @throws IOException if the file is not writable.
+     */
+    protected void generateSupportClass(final DTOSourceWriter sourceWriter, final String name)
+            throws IOException {
+        final StringWriter sw = new StringWriter();
+        sourceWriter.writeSupportClass(name, this.generatedPackage, sw);
+        final File supportFile = this.getSupportClassFile(name);
+        if (supportFile.isFile() && sw.toString().equals(readFile(supportFile))) {
+            return;
+        }
+        final long writeStart = this.statistics.start(ExecutionStatistics.PHASE_WRITE);
+        if (!supportFile.getParentFile().isDirectory() && !supportFile.getParentFile().mkdirs()) {
+            throw new IOException("The generated directory can not be created.");
+        }
+        final FileWriter fw = new FileWriter(supportFile);
+        try {
+            fw.write(sw.toString());
+        }
+        finally {
+            fw.close();
+        }
+        this.statistics.fileWritten(this.generatedPackage + "." + name, supportFile, supportFile.length(),
+                writeStart);
+    }
+
+    /**
+     * Read a text file.
+     *
+     * @param file the file.
+     * @return the file content.
+     * @throws IOException if the file can not be read.
+     */
+    private static String readFile(final File file) throws IOException {
+        final StringBuilder content = new StringBuilder();
+        final FileReader reader = new FileReader(file);
+        try {
+            final char[] buffer = new char[4096];
+            int read = reader.read(buffer);
+            while (read >= 0) {
+                content.append(buffer, 0, read);
+                read = reader.read(buffer);
+            }
+        }
+        finally {
+            reader.close();
+        }
+        return content.toString();
+    }
+
+    /**
+     * Check if the DTO of the class given and its companion classes have
+     * already been generated in the same context and not been modified since.
+     *
+     * @param clazz the class we want to generate DTO for.
+     * @return <code>true</code> if nothing needs to be generated.
+     */
+    protected boolean isUpToDate(final Class<?> clazz) {
+        if (this.cache == null) {
+            return false;
+        }
+        final String context = this.getGenerationContext();
+        if (!this.cache.isUpToDate(clazz, context, this.getDTOClassFile(clazz))) {
+            return false;
+        }
+        for (final DTOCompanionWriter companionWriter : this.getCompanionWriters()) {
+            if (companionWriter.accept(clazz)
+                    && !this.cache.isUpToDate(clazz, context, this.getCompanionClassFile(clazz, companionWriter))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Resolve the DTO types of the fields of the class given and of its
+     * declared classes, so that rendering does not reflect them again.
+     *
+     * @param clazz the class we want to generate DTO for.
+     */
+    protected void buildDTOModel(final Class<?> clazz) {
+        if (!clazz.isEnum()) {
+            final Map<String, String> cachedModel = this.cache == null ? null
+                    : this.cache.getModel(clazz, this.getGenerationContext());
+            final Map<String, String> model = new HashMap<String, String>();
+            for (final Field field : getDeclaredFields(clazz)) {
+                if (!Modifier.isStatic(field.getModifiers()) && !this.dtoFieldTypes.containsKey(field)) {
+                    String dtoFieldType = cachedModel == null ? null : cachedModel.get(field.getName());
+                    if (dtoFieldType == null) {
+                        dtoFieldType = this.getDTOType(clazz, this.getDTOFieldGenericType(field));
+                    }
+                    this.dtoFieldTypes.put(field, dtoFieldType);
+                    model.put(field.getName(), dtoFieldType);
+                }
+            }
+            if (this.cache != null && cachedModel == null) {
+                this.cache.putModel(clazz, this.getGenerationContext(), model);
+            }
+            for (final Class<?> declaredClass : clazz.getDeclaredClasses()) {
+                this.buildDTOModel(declaredClass);
+            }
+        }
+    }
+
+    /**
+     * Return the generation context: everything but the class itself that a
+     * DTO depends on. It is computed once for the classes list.
+     *
+     * @return the generation context.
+     */
+    protected String getGenerationContext() {
+        if (this.generationContext == null || this.generationContextSize != this.classesToGenerate.size()) {
+            this.isClassToGenerate(Object.class);
+            this.generationContextSize = this.classesToGenerate.size();
+            final List<String> classNames = new ArrayList<String>(this.classesToGenerateIndex.size());
+            for (final Class<?> classToGenerate : this.classesToGenerateIndex) {
+                classNames.add(classToGenerate.getName());
+            }
+            Collections.sort(classNames);
+            final StringBuilder context = new StringBuilder();
+            context.append(this.generatedPackage).append('|').append(this.extraInterfaces).append('|');
+            context.append(this.getOptions()).append('|');
+            for (final String className : classNames) {
+                context.append(className).append(',');
+            }
+            this.generationContext = digest(context.toString());
+        }
+        return this.generationContext;
+    }
+
+    /**
+     * Return the digest of a string.
+     *
+     * @param value the string.
+     * @return the hexadecimal digest.
+     */
+    private static String digest(final String value) {
+        try {
+            final MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+            return new BigInteger(1, messageDigest.digest(value.getBytes("UTF-8"))).toString(16);
+        }
+        catch (final NoSuchAlgorithmException e) {
+            return Integer.toHexString(value.hashCode()) + Integer.toHexString(value.length());
+        }
+        catch (final java.io.UnsupportedEncodingException e) {
+            return Integer.toHexString(value.hashCode()) + Integer.toHexString(value.length());
+        }
+    }
+
+    /**
+     * Create the directory of the class package.
+     *
+     * @param clazz the class we want to create the package directory for.
+     * @throws IOException if the directory creation failed.
+     */
+    protected void makeDTOPackage(final Class<?> clazz) throws IOException {
+        final File packageDirectory = new File(
+                this.generatedDirectory.getAbsolutePath()
+                        + File.separator
+                        + this.getDTOPackage(clazz).replace('.',
+                        File.separatorChar));
+        if (!packageDirectory.exists()) {
+            final boolean directoryCreated = packageDirectory.mkdirs();
+            if (!directoryCreated) {
+                throw new IOException(
+                        "The generated directory can not be created.");
+            }
+        }
+    }
+
+    /**
+     * Return the package name of the DTO for the clazz given.
+     *
+     * @param clazz the class we want to generate DTO for.
+     * @return the package name got.
+     */
+    protected String getDTOPackage(final Class<?> clazz) {
+//        return clazz.getPackage().getName() + ".dto";
+        return this.generatedPackage;
+    }
+
+    /**
+     * Check if the class belongs to the classes we want to generate DTO for.
+     *
+     * @param clazz the class to check.
+     * @return <code>true</code> if the classes list contains the class.
+     */
+    protected boolean isClassToGenerate(final Class<?> clazz) {
+        if (this.classesToGenerateIndex == null || this.classesToGenerateIndexSize != this.classesToGenerate.size()) {
+            this.classesToGenerateIndex = new HashSet<Class<?>>(this.classesToGenerate);
+            this.classesToGenerateIndexSize = this.classesToGenerate.size();
+        }
+        return this.classesToGenerateIndex.contains(clazz);
+    }
+
+    /**
+     * Check if a DTO is generated for the class given, either in its own file
+     * or declared in the DTO of its declaring class.
+     *
+     * @param clazz the class to check.
+     * @return <code>true</code> if the class has a DTO.
+     */
+    protected boolean isDTOClass(final Class<?> clazz) {
+        if (this.isClassToGenerate(clazz)) {
+            return true;
+        }
+        final Class<?> declaringClass = clazz.getDeclaringClass();
+        return declaringClass != null && !declaringClass.isEnum() && this.isDTOClass(declaringClass);
+    }
+
+    /**
+     * Check if a type involves a class that has a DTO, i.e. if its values
+     * differ between a class and its DTO.
+     *
+     * @param type the type, as declared in the class.
+     * @return <code>true</code> if the type is, or is an array or a
+     *         collection of, a class that has a DTO.
+     */
+    protected boolean refersToDTOClass(final Type type) {
+        if (type instanceof ParameterizedType) {
+            for (final Type typeArgument : ((ParameterizedType) type).getActualTypeArguments()) {
+                if (this.refersToDTOClass(typeArgument)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (type instanceof Class<?>) {
+            return this.isDTOClass(this.getArrayComponentType((Class<?>) type));
+        }
+        return false;
+    }
+
+    /**
+     * Check if the nested DTOs are converted lazily: the option is set, the
+     * mappers convert them and the DTOs have setters.
+     *
+     * @return <code>true</code> if the DTOs have lazy holders.
+     */
+    protected boolean isLazyHolding() {
+        return this.generateLazyHolders && this.generateMappers && !this.generateImmutable;
+    }
+
+    /**
+     * Check if the enum DTOs have ordinal helpers: the mappers, the
+     * Externalizable DTOs or the codecs are generated.
+     *
+     * @return <code>true</code> if the enum DTOs have ordinal helpers.
+     */
+    protected boolean hasEnumOrdinals() {
+        return this.generateMappers || this.generateExternalizable || this.generateJsonCodecs
+                || this.generateBinaryCodecs;
+    }
+
+    /**
+     * Check if the values of a string field are interned, i.e. if its
+     * canonical name, e.g. <code>fr.package.Address.country</code>, matches a
+     * pattern of the interned fields, or if it has a runtime annotation named
+     * by one of them after <code>@</code>.
+     *
+     * @param field the field.
+     * @return <code>true</code> if the field is a string interned.
+     */
+    protected boolean isInternedField(final Field field) {
+        if (this.internedFields.isEmpty() || !field.getType().equals(String.class)) {
+            return false;
+        }
+        final String path = (field.getDeclaringClass().getCanonicalName() + "." + field.getName())
+                .replace(".", File.separator);
+        for (final String internedField : this.internedFields) {
+            if (internedField.startsWith("@")) {
+                for (final Annotation annotation : field.getAnnotations()) {
+                    if (annotation.annotationType().getName().equals(internedField.substring(1))) {
+                        return true;
+                    }
+                }
+            }
+            else if (SelectorUtils.matchPath(internedField.replace(".", File.separator), path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the expression of a value assigned to a field, interned if the
+     * field is.
+     *
+     * @param field the field.
+     * @param value the value expression.
+     * @return the expression.
+     */
+    protected String getInternedValue(final Field field, final String value) {
+        return this.isInternedField(field) ? DTOInternWriter.STRINGS_CLASS + ".intern(" + value + ")" : value;
+    }
+
+    /**
+     * @return the writer of the compact layout.
+     */
+    protected DTOCompactWriter getCompactWriter() {
+        if (this.compactWriter == null) {
+            this.compactWriter = new DTOCompactWriter(this);
+        }
+        return this.compactWriter;
+    }
+
+    /**
+     * Check if a field of a DTO is packed by the compact layout, and so is
+     * only read by its getter and written by its store method.
+     *
+     * @param field the field.
+     * @return <code>true</code> if the field is packed.
+     */
+    protected boolean isPackedField(final Field field) {
+        return this.generateCompactLayout && this.getCompactWriter().isPacked(field);
+    }
+
+    /**
+     * Return the expression of the value of a field of a DTO, read by the
+     * members of the DTO.
+     *
+     * @param field  the field.
+     * @param target the expression of the DTO, e.g. <code>this</code>.
+     * @return the expression.
+     */
+    protected String getFieldValue(final Field field, final String target) {
+        if (this.isPackedField(field)) {
+            return target + "." + this.getDTOFieldGetterName(field) + "()";
+        }
+        return target + "." + field.getName();
+    }
+
+    /**
+     * Return the statement, without semicolon, assigning a field of a DTO in
+     * the members of the DTO.
+     *
+     * @param field  the field.
+     * @param target the expression of the DTO, e.g. <code>this</code>.
+     * @param value  the value expression, evaluated once.
+     * @return the statement.
+     */
+    protected String getFieldAssignment(final Field field, final String target, final String value) {
+        if (this.isPackedField(field)) {
+            return target + "." + this.getCompactWriter().getStoreMethodName(field) + "(" + value + ")";
+        }
+        return target + "." + field.getName() + " = " + value;
+    }
+
+    /**
+     * Check if a field of a DTO has a lazy holder, i.e. if the nested DTOs
+     * are converted lazily and the field refers to a DTO. An enum constant is
+     * converted by a table lookup, cheaper than a holder.
+     *
+     * @param field the field.
+     * @return <code>true</code> if the field has a lazy holder.
+     */
+    protected boolean isLazyField(final Field field) {
+        return this.isLazyHolding() && !field.getType().isEnum()
+                && this.getPrimitiveCollectionType(field.getGenericType()) == null
+                && this.refersToDTOClass(field.getGenericType());
+    }
+
+    /**
+     * Return the name of the package private method setting the lazy holder
+     * of a field, e.g. <code>holdDetail</code> for the <code>detail</code>
+     * field.
+     *
+     * @param field the field.
+     * @return the method name.
+     */
+    protected String getDTOFieldHolderSetterName(final Field field) {
+        return "hold" + this.capitalize(field.getName());
+    }
+
+    /**
+     * Check if the DTO of a class has lazy holders.
+     *
+     * @param clazz the class a DTO is generated for, or a declared class.
+     * @return <code>true</code> if a field of the DTO has a lazy holder.
+     */
+    protected boolean hasLazyFields(final Class<?> clazz) {
+        if (!this.isLazyHolding() || clazz.isEnum()) {
+            return false;
+        }
+        for (final Field field : this.getDTOFields(clazz)) {
+            if (this.isLazyField(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the name of the lazy holder of a field, in the DTO.
+     *
+     * @param field the field.
+     * @return the holder name.
+     */
+    protected String getLazyHolderName(final Field field) {
+        return field.getName() + "Holder";
+    }
+
+    /**
+     * Return the name of the DTO of the class given, as it can be referenced
+     * from the DTO package. E.g. BeanDTO for Bean, BeanDTO.Detail for
+     * Bean.Detail.
+     *
+     * @param clazz the class that has a DTO.
+     * @return the DTO name.
+     */
+    protected String getDTOClassName(final Class<?> clazz) {
+        if (clazz.equals(this.projectedClass)) {
+            return clazz.getSimpleName() + this.projection.getName() + "DTO";
+        }
+        if (clazz.getDeclaringClass() != null && !this.isClassToGenerate(clazz)) {
+            return this.getDTOClassName(clazz.getDeclaringClass()) + "." + clazz.getSimpleName();
+        }
+        return clazz.getSimpleName() + "DTO";
+    }
+
+    /**
+     * Return the top level class that declares the class given.
+     *
+     * @param clazz the class.
+     * @return the top level class, the class itself if it is not declared in
+     *         another.
+     */
+    protected Class<?> getOutermostClass(final Class<?> clazz) {
+        if (clazz.getDeclaringClass() != null && !this.isClassToGenerate(clazz)) {
+            return this.getOutermostClass(clazz.getDeclaringClass());
+        }
+        return clazz;
+    }
 
     /**
-     * The classes list we want to generate for.
+     * Check if the class given can be referenced from the DTO package.
+     *
+     * @param clazz the class to check.
+     * @return <code>true</code> if the class and its declaring classes are
+     *         public.
      */
-    protected List<Class<?>> classesToGenerate;
+    protected boolean isAccessible(final Class<?> clazz) {
+        if (clazz.isPrimitive()) {
+            return true;
+        }
+        if (clazz.isArray()) {
+            return this.isAccessible(this.getArrayComponentType(clazz));
+        }
+        if (!Modifier.isPublic(clazz.getModifiers())) {
+            return false;
+        }
+        return clazz.getDeclaringClass() == null || this.isAccessible(clazz.getDeclaringClass());
+    }
 
     /**
-     * The directory where DTOs will be generated.
+     * Check if the class given can be instantiated from the DTO package with
+     * its no argument constructor.
+     *
+     * @param clazz the class to check.
+     * @return <code>true</code> if the class has a public no argument
+     *         constructor.
      */
-    protected File generatedDirectory;
+    protected boolean isInstantiable(final Class<?> clazz) {
+        if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers()) || !this.isAccessible(clazz)
+                || (clazz.getDeclaringClass() != null && !Modifier.isStatic(clazz.getModifiers()))) {
+            return false;
+        }
+        try {
+            final Constructor<?> constructor = clazz.getConstructor();
+            return Modifier.isPublic(constructor.getModifiers());
+        }
+        catch (final NoSuchMethodException e) {
+            return false;
+        }
+    }
 
-    private String generatedPackage;
-    private Set<String> additionalImports = new TreeSet<String>();
+    /**
+     * Return the fields of the class given that are copied in its DTO.
+     *
+     * @param clazz the class we want to generate DTO for.
+     * @return the non static declared fields, those kept by the projection
+     *         being generated for the class it is applied to.
+     */
+    protected List<Field> getDTOFields(final Class<?> clazz) {
+        final List<Field> dtoFields = new ArrayList<Field>();
+        for (final Field field : this.getDeclaredFields(clazz)) {
+            if (!Modifier.isStatic(field.getModifiers()) && (!clazz.equals(this.projectedClass)
+                    || this.projection.getFieldNames().contains(field.getName()))) {
+                dtoFields.add(field);
+            }
+        }
+        return dtoFields;
+    }
 
+    /**
+     * Return the name of the DTO getter of a field.
+     *
+     * @param field the field.
+     * @return the getter name.
+     */
+    protected String getDTOFieldGetterName(final Field field) {
+        if (field.getType().equals(boolean.class)) {
+            return "is" + this.capitalize(field.getName());
+        }
+        return "get" + this.capitalize(field.getName());
+    }
 
-    private List<String> extraInterfaces;
+    /**
+     * Return the name of the DTO setter of a field.
+     *
+     * @param field the field.
+     * @return the setter name.
+     */
+    protected String getDTOFieldSetterName(final Field field) {
+        return "set" + this.capitalize(field.getName());
+    }
 
     /**
-     * Constructor.
+     * Return the public getter of a field of the class given.
+     *
+     * @param clazz the class that contains the field.
+     * @param field the field.
+     * @return the getter, <code>null</code> if the class has none.
      */
-    public DTOGeneratorImpl() {
-        this.classesToGenerate = new ArrayList<Class<?>>();
-        this.fileWriters = new HashMap<Class<?>, FileWriter>();
+    protected Method getBeanGetter(final Class<?> clazz, final Field field) {
+        Method getter = null;
+        if (field.getType().equals(boolean.class) || field.getType().equals(Boolean.class)) {
+            getter = this.getPublicMethod(clazz, "is" + this.capitalize(field.getName()));
+        }
+        if (getter == null) {
+            getter = this.getPublicMethod(clazz, "get" + this.capitalize(field.getName()));
+        }
+        if (getter != null && getter.getGenericReturnType().equals(field.getGenericType())) {
+            return getter;
+        }
+        return null;
     }
 
     /**
-     * Set the DTOs generated directory.
+     * Return the public setter of a field of the class given.
      *
-     * @param generatedDirectory the DTOs generated directory to set
+     * @param clazz the class that contains the field.
+     * @param field the field.
+     * @return the setter, <code>null</code> if the class has none.
      */
-    @Override
-    public void setGeneratedDirectory(final File generatedDirectory) {
-        this.generatedDirectory = generatedDirectory;
+    protected Method getBeanSetter(final Class<?> clazz, final Field field) {
+        final Method setter = this.getPublicMethod(clazz, "set" + this.capitalize(field.getName()), field.getType());
+        if (setter != null && setter.getGenericParameterTypes()[0].equals(field.getGenericType())) {
+            return setter;
+        }
+        return null;
     }
 
-    @Override
-    public void setGeneratedPackage(String generatedPackage) {
-        this.generatedPackage = generatedPackage;
+    /**
+     * Return a public instance method of the class given.
+     *
+     * @param clazz          the class.
+     * @param name           the method name.
+     * @param parameterTypes the method parameter types.
+     * @return the method, <code>null</code> if the class has none.
+     */
+    private Method getPublicMethod(final Class<?> clazz, final String name, final Class<?>... parameterTypes) {
+        try {
+            final Method method = clazz.getMethod(name, parameterTypes);
+            if (Modifier.isStatic(method.getModifiers())) {
+                return null;
+            }
+            return method;
+        }
+        catch (final NoSuchMethodException e) {
+            return null;
+        }
     }
 
-    @Override
-    public void setExtraInterfaces(List<String> extraInterfaces) {
-        this.extraInterfaces = extraInterfaces;
+    /**
+     * Return the name given with its first character upper case.
+     *
+     * @param name the name.
+     * @return the capitalized name.
+     */
+    protected String capitalize(final String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
     }
 
     /**
-     * {@inheritDoc}
+     * Return the canonical name of the type given as it is declared in the
+     * class, e.g. java.util.List&lt;fr.maven.dto.bean.Bean&gt;.
      *
-     * @see fr.maven.dto.generator.DTOGenerator#generateDTOs(java.util.List)
+     * @param type the type.
+     * @return the type canonical name.
      */
-    @Override
-    public void generateDTOs(final List<Class<?>> classes) throws IOException {
-        this.classesToGenerate = classes;
-        for (final Class<?> clazz : classes) {
-            this.generateDTO(clazz);
+    protected String getBeanType(final Type type) {
+        if (type instanceof DTOPrimitiveMapType) {
+            return type.toString();
+        }
+        if (type instanceof ParameterizedType) {
+            final ParameterizedType parameterizedType = (ParameterizedType) type;
+            final StringBuilder beanType = new StringBuilder();
+            beanType.append(((Class<?>) parameterizedType.getRawType()).getCanonicalName()).append('<');
+            final Type[] typeArguments = parameterizedType.getActualTypeArguments();
+            for (int i = 0; i < typeArguments.length; i++) {
+                if (i > 0) {
+                    beanType.append(", ");
+                }
+                beanType.append(this.getBeanType(typeArguments[i]));
+            }
+            return beanType.append('>').toString();
         }
+        return ((Class<?>) type).getCanonicalName();
     }
 
     /**
-     * {@inheritDoc}
+     * Return the default value of a type, as a Java expression.
      *
-     * @see fr.maven.dto.generator.DTOGenerator#generateDTO(java.lang.Class)
+     * @param type the type.
+     * @return the default value.
      */
-    @Override
-    public void generateDTO(final Class<?> clazz) throws IOException {
-        this.makeDTOPackage(clazz);
-        if (clazz.isEnum()) {
-            final FileWriter fw = this.getDTOClassFileWriter(clazz);
+    protected String getDefaultValue(final Class<?> type) {
+        if (!type.isPrimitive()) {
+            return "null";
+        }
+        if (type.equals(boolean.class)) {
+            return "false";
+        }
+        if (type.equals(char.class)) {
+            return "'\\0'";
+        }
+        if (type.equals(byte.class) || type.equals(short.class)) {
+            return "(" + type.getName() + ") 0";
+        }
+        if (type.equals(long.class)) {
+            return "0L";
+        }
+        if (type.equals(float.class)) {
+            return "0F";
+        }
+        if (type.equals(double.class)) {
+            return "0D";
+        }
+        return "0";
+    }
 
-            this.makeDTOEnum(clazz, fw);
+    /**
+     * Return the value the DTO constructor assigns to a field: the parameter,
+     * or for an immutable DTO a copy of an array or a date parameter, and an
+     * unmodifiable copy of a list, set or map parameter, primitive maps
+     * included, with its nested collections, arrays and dates copied.
+     *
+     * @param clazz the class that contains the field.
+     * @param field the field.
+     * @return the value, as a Java expression.
+     */
+    protected String getDTOFieldValue(final Class<?> clazz, final Field field) {
+        final String name = field.getName();
+        final Class<?> type = field.getType();
+        final Type genericType = this.getDTOFieldGenericType(field);
+        if (this.generateImmutable && genericType instanceof DTOPrimitiveMapType) {
+            return name + " == null ? null : " + name + ".toUnmodifiable()";
+        }
+        if (this.generateImmutable && this.isCopiedByImmutableDTO(field)) {
+            return DTOImmutableWriter.IMMUTABLES_CLASS + ".copy(" + name + ")";
+        }
+        if (!this.generateImmutable || !(genericType instanceof ParameterizedType)) {
+            return this.getInternedValue(field, name);
+        }
+        final String method;
+        if (type.equals(List.class) || type.equals(Collection.class)) {
+            method = "list";
+        }
+        else if (type.equals(Set.class)) {
+            method = "set";
+        }
+        else if (type.equals(SortedSet.class)) {
+            method = "sortedSet";
+        }
+        else if (type.equals(Map.class)) {
+            method = "map";
+        }
+        else if (type.equals(SortedMap.class)) {
+            method = "sortedMap";
         }
         else {
-            final FileWriter fw = this.getDTOClassFileWriter(clazz);
-            this.makeDTOClass(clazz, fw);
+            return name;
         }
-        this.getDTOClassFileWriter(clazz).close();
+        return DTOImmutableWriter.IMMUTABLES_CLASS + "." + method + "(" + name + ")";
     }
 
     /**
-     * Create the directory of the class package.
+     * Check if the values of a field are copied by the constructor and the
+     * getter of an immutable DTO, so that they are never shared: the arrays
+     * and the dates.
      *
-     * @param clazz the class we want to create the package directory for.
-     * @throws IOException if the directory creation failed.
+     * @param field the field.
+     * @return <code>true</code> for the arrays and the dates.
      */
-    protected void makeDTOPackage(final Class<?> clazz) throws IOException {
-        final File packageDirectory = new File(
-                this.generatedDirectory.getAbsolutePath()
-                        + File.separator
-                        + this.getDTOPackage(clazz).replace('.',
-                        File.separatorChar));
-        if (!packageDirectory.exists()) {
-            final boolean directoryCreated = packageDirectory.mkdirs();
-            if (!directoryCreated) {
-                throw new IOException(
-                        "The generated directory can not be created.");
-            }
-        }
+    protected boolean isCopiedByImmutableDTO(final Field field) {
+        final Class<?> type = this.getDTOFieldClass(field);
+        return type.isArray() || Date.class.isAssignableFrom(type);
     }
 
     /**
-     * Return the package name of the DTO for the clazz given.
+     * Return the type that collects the field values of the DTO of a class
+     * before it is built: the DTO itself, or the builder of an immutable DTO.
+     * Both have the DTO setters.
      *
-     * @param clazz the class we want to generate DTO for.
-     * @return the package name got.
+     * @param clazz the class.
+     * @return the type name.
      */
-    protected String getDTOPackage(final Class<?> clazz) {
-//        return clazz.getPackage().getName() + ".dto";
-        return this.generatedPackage;
+    protected String getDTOBuilderName(final Class<?> clazz) {
+        if (this.generateImmutable) {
+            return this.getDTOClassName(clazz) + ".Builder";
+        }
+        return this.getDTOClassName(clazz);
     }
 
     /**
-     * Check if the class belongs to the classes we want to generate DTO for.
+     * Return the DTO built from a variable of the type returned by
+     * {@link #getDTOBuilderName(Class)}.
      *
-     * @param clazz the class to check.
-     * @return <code>true</code> if the classes list contains the class.
+     * @param variable the variable name.
+     * @return the DTO, as a Java expression.
      */
-    protected boolean isClassToGenerate(final Class<?> clazz) {
-        return this.classesToGenerate.contains(clazz);
+    protected String getBuiltDTO(final String variable) {
+        if (this.generateImmutable) {
+            return variable + ".build()";
+        }
+        return variable;
     }
 
     /**
@@ -154,7 +1638,102 @@ public class DTOGeneratorImpl implements DTOGenerator {
      * @return the type.
      */
     protected String getDTOFieldType(final Class<?> clazz, final Field field) {
-        return this.getDTOType(clazz, field.getGenericType());
+        final String dtoFieldType = this.dtoFieldTypes.get(field);
+        if (dtoFieldType != null) {
+            return dtoFieldType;
+        }
+        return this.getDTOType(clazz, this.getDTOFieldGenericType(field));
+    }
+
+    /**
+     * Return the type of a DTO field, as the writers handle it: the type
+     * declared in the class, or its primitive array or map.
+     *
+     * @param field the field.
+     * @return the type.
+     */
+    protected Type getDTOFieldGenericType(final Field field) {
+        final DTOTypeSubstitution typeSubstitution = this.getTypeSubstitution(field);
+        if (typeSubstitution != null) {
+            return typeSubstitution.getSubstituteType();
+        }
+        final Type primitiveCollectionType = this.getPrimitiveCollectionType(field.getGenericType());
+        return primitiveCollectionType == null ? field.getGenericType() : primitiveCollectionType;
+    }
+
+    /**
+     * Return the class of a DTO field, as the writers handle it.
+     *
+     * @param field the field.
+     * @return the class of the field, its substitute, or its primitive array
+     *         class.
+     */
+    protected Class<?> getDTOFieldClass(final Field field) {
+        final Type dtoType = this.getDTOFieldGenericType(field);
+        return dtoType instanceof Class<?> ? (Class<?>) dtoType : field.getType();
+    }
+
+    /**
+     * Return the substitution of the type of a field.
+     *
+     * @param field the field.
+     * @return the substitution, <code>null</code> if the field keeps its type.
+     */
+    protected DTOTypeSubstitution getTypeSubstitution(final Field field) {
+        return this.typeSubstitutions.get(field.getType().getName());
+    }
+
+    /**
+     * Return the value of a DTO field that is not set, as a Java expression:
+     * the default value of its class, or the <code>long</code> standing for
+     * <code>null</code> in a substituted field.
+     *
+     * @param field the field.
+     * @return the default value.
+     */
+    protected String getDTOFieldDefaultValue(final Field field) {
+        if (this.getTypeSubstitution(field) != null && this.getDTOFieldClass(field).isPrimitive()) {
+            return "Long.MIN_VALUE";
+        }
+        return this.getDefaultValue(this.getDTOFieldClass(field));
+    }
+
+    /**
+     * Return the primitive type that holds a list or a map of wrappers in a
+     * DTO generated with primitive collections: a primitive array for a list
+     * or a collection, a {@link DTOPrimitiveMapType} for a map of integral
+     * keys. Sets keep their type, an array would lose their semantic.
+     *
+     * @param type the type, as declared in the class.
+     * @return the primitive type, <code>null</code> if the type is kept.
+     */
+    protected Type getPrimitiveCollectionType(final Type type) {
+        if (!this.generatePrimitiveCollections || !(type instanceof ParameterizedType)) {
+            return null;
+        }
+        final Class<?> rawClass = (Class<?>) ((ParameterizedType) type).getRawType();
+        final Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+        final Class<?>[] primitiveTypes = new Class<?>[typeArguments.length];
+        for (int i = 0; i < typeArguments.length; i++) {
+            primitiveTypes[i] = DTOSourceWriter.PRIMITIVE_TYPES.get(typeArguments[i]);
+            if (primitiveTypes[i] == null) {
+                return null;
+            }
+        }
+        // the mapper instantiates the class type back
+        final boolean instantiable = rawClass.isInterface() ? PRIMITIVE_COLLECTION_INTERFACES.contains(rawClass)
+                : this.isInstantiable(rawClass);
+        if (!instantiable) {
+            return null;
+        }
+        if (typeArguments.length == 1 && (List.class.isAssignableFrom(rawClass) || rawClass.equals(Collection.class))) {
+            return Array.newInstance(primitiveTypes[0], 0).getClass();
+        }
+        if (typeArguments.length == 2 && Map.class.isAssignableFrom(rawClass)
+                && PRIMITIVE_MAP_KEY_TYPES.contains(primitiveTypes[0])) {
+            return new DTOPrimitiveMapType(primitiveTypes[0], primitiveTypes[1]);
+        }
+        return null;
     }
 
     /**
@@ -165,6 +1744,9 @@ public class DTOGeneratorImpl implements DTOGenerator {
      * @return the type canonical name.
      */
     protected String getDTOType(final Class<?> clazz, final Type type) {
+        if (type instanceof DTOPrimitiveMapType) {
+            return type.toString();
+        }
         final StringBuffer typeSimpleName = new StringBuffer();
         typeSimpleName.append(this.getDTOFieldPackage(clazz, type));
 
@@ -183,7 +1765,11 @@ public class DTOGeneratorImpl implements DTOGenerator {
         else {
             final Class<?> clazzType = ((Class<?>) type);
             if (clazzType.isArray()) {
-                typeSimpleName.append(this.getArrayComponentType(clazzType).getSimpleName());
+                final Class<?> componentType = this.getArrayComponentType(clazzType);
+                typeSimpleName.append(componentType.getSimpleName());
+                if (this.isClassToGenerate(componentType)) {
+                    typeSimpleName.append("DTO");
+                }
                 for (int i = 0; i < this.getArrayDimension(clazzType); i++) {
                     typeSimpleName.append("[]");
                 }
@@ -258,7 +1844,13 @@ public class DTOGeneratorImpl implements DTOGenerator {
                 }
             }
             else if (fieldTypeClass.getDeclaringClass() != null) {
-                result = "";
+                if (this.isDTOClass(fieldTypeClass)) {
+                    result = this.getDTOFieldPackage(clazz, this.getOutermostClass(fieldTypeClass))
+                            + this.getDTOClassName(fieldTypeClass.getDeclaringClass()) + ".";
+                }
+                else {
+                    result = fieldTypeClass.getDeclaringClass().getCanonicalName() + ".";
+                }
             }
             else {
                 result = fieldTypeClass.getPackage().getName() + ".";
@@ -276,8 +1868,7 @@ public class DTOGeneratorImpl implements DTOGenerator {
      */
     protected FileWriter getDTOClassFileWriter(final Class<?> clazz) throws IOException {
         if (!this.fileWriters.containsKey(clazz)) {
-            final String directory = this.generatedDirectory.getAbsolutePath() + File.separator + this.getDTOPackage(clazz).replace(".", File.separator);
-            final File classFile = new File(directory.concat(File.separator).concat(clazz.getSimpleName()).concat("DTO.java"));
+            final File classFile = this.getDTOClassFile(clazz);
             if (classFile.exists()) {
                 final boolean fileDeleted = classFile.delete();
                 if (fileDeleted) {
@@ -297,8 +1888,47 @@ public class DTOGeneratorImpl implements DTOGenerator {
     }
 
 
-    protected void makeDTOClass(final Class<?> clazz, FileWriter fw) throws IOException {
-        makeDTOClass(clazz, fw, "DTO", true);
+    /**
+     * Return the file the DTO for the class given is generated in.
+     *
+     * @param clazz the class we want to generate a DTO for.
+     * @return the DTO file.
+     */
+    protected File getDTOClassFile(final Class<?> clazz) {
+        final String directory = this.generatedDirectory.getAbsolutePath() + File.separator + this.getDTOPackage(clazz).replace(".", File.separator);
+        return new File(directory.concat(File.separator).concat(this.getDTOClassName(clazz)).concat(".java"));
+    }
+
+    /**
+     * Return the file a companion class of the DTO for the class given is
+     * generated in.
+     *
+     * @param clazz           the class we want to generate a DTO for.
+     * @param companionWriter the writer of the companion class.
+     * @return the companion class file.
+     */
+    protected File getCompanionClassFile(final Class<?> clazz, final DTOCompanionWriter companionWriter) {
+        if (companionWriter.isTestSource()) {
+            return new File(this.generatedTestDirectory, (this.getDTOPackage(clazz) + "."
+                    + companionWriter.getCompanionClassName(clazz)).replace('.', File.separatorChar) + ".java");
+        }
+        return new File(this.getDTOClassFile(clazz).getParentFile(),
+                companionWriter.getCompanionClassName(clazz) + ".java");
+    }
+
+    /**
+     * Return the file a support class is generated in, in the DTOs package.
+     *
+     * @param name the support class name.
+     * @return the support class file.
+     */
+    protected File getSupportClassFile(final String name) {
+        return new File(this.generatedDirectory, (this.generatedPackage + "." + name).replace('.', File.separatorChar)
+                + ".java");
+    }
+
+    protected void makeDTOClass(final Class<?> clazz, Writer fw) throws IOException {
+        makeDTOClass(clazz, fw, this.getDTOClassName(clazz).substring(clazz.getSimpleName().length()), true);
     }
 
 
@@ -309,17 +1939,15 @@ public class DTOGeneratorImpl implements DTOGenerator {
      * @throws IOException if the file is not writable.
      */
 
-    protected void makeDTOClass(final Class<?> clazz, FileWriter fw, String nameToAppend, boolean writeHeader) throws IOException {
+    protected void makeDTOClass(final Class<?> clazz, Writer fw, String nameToAppend, boolean writeHeader) throws IOException {
         if (writeHeader) {
             fw.write("package " + this.getDTOPackage(clazz) + ";" + "\n\n");
             fw.write("import java.io.Serializable;\n\n");
         }
         //make params into string buffer so we can have the data types for additional imports
         StringBuffer stringBuffer = new StringBuffer();
-        for (final Field field : getDeclaredFields(clazz)) {
-            if (!Modifier.isStatic(field.getModifiers())) {
-                stringBuffer.append(this.makeDTOField(clazz, field));
-            }
+        for (final Field field : this.getDTOFields(clazz)) {
+            stringBuffer.append(this.makeDTOField(clazz, field));
         }
         if (writeHeader) {
             for (String pack : additionalImports) {
@@ -332,6 +1960,13 @@ public class DTOGeneratorImpl implements DTOGenerator {
         fw.write(" * " + new SimpleDateFormat("yyyy-MM-dd HH:mm").format(new Date()) + "\n");
         fw.write(" */\n");
         fw.write(this.getClassModifiers(clazz) + "class " + clazz.getSimpleName() + nameToAppend + " implements Serializable");
+        for (final DTOMemberWriter memberWriter : this.getMemberWriters()) {
+            if (memberWriter.accept(clazz)) {
+                for (final String memberInterface : memberWriter.getInterfaces(clazz)) {
+                    fw.write(", " + memberInterface);
+                }
+            }
+        }
         for (String iface : this.extraInterfaces) {
             fw.write("," + iface);
         }
@@ -343,40 +1978,60 @@ public class DTOGeneratorImpl implements DTOGenerator {
 
 
         //make a no args constructor
-        fw.write("    public " + clazz.getSimpleName() + nameToAppend + "() { }\n\n");
+        if (this.generateImmutable && this.getDTOFields(clazz).size() > 0) {
+            fw.write("    public " + clazz.getSimpleName() + nameToAppend + "() {\n");
+            fw.write("        this(");
+            boolean first = true;
+            for (final Field field : this.getDTOFields(clazz)) {
+                if (first) {
+                    first = false;
+                }
+                else {
+                    fw.write(", ");
+                }
+                fw.write(this.getDTOFieldDefaultValue(field));
+            }
+            fw.write(");\n");
+            fw.write("    }\n\n");
+        }
+        else {
+            fw.write("    public " + clazz.getSimpleName() + nameToAppend + "() { }\n\n");
+        }
 
-        if (getDeclaredFields(clazz).size() > 0) {
+        if (this.getDTOFields(clazz).size() > 0) {
             //make constructor with all parameters
             fw.write("    public " + clazz.getSimpleName() + nameToAppend + "(");
             boolean first = true;
-            for (final Field field : getDeclaredFields(clazz)) {
-                if (!Modifier.isStatic(field.getModifiers())) {
-                    if (first) {
-                        first = false;
-                    }
-                    else {
-                        fw.write(", ");
-                    }
-                    fw.write(this.getDTOFieldType(clazz, field) + " " + field.getName());
+            for (final Field field : this.getDTOFields(clazz)) {
+                if (first) {
+                    first = false;
+                }
+                else {
+                    fw.write(", ");
                 }
+                fw.write(this.getDTOFieldType(clazz, field) + " " + field.getName());
             }
 
             fw.write(") {\n");
-            for (final Field field : getDeclaredFields(clazz)) {
-                if (!Modifier.isStatic(field.getModifiers())) {
-                    fw.write("        this." + field.getName() + " = " + field.getName() + ";\n");
-                }
+            for (final Field field : this.getDTOFields(clazz)) {
+                fw.write("        " + this.getFieldAssignment(field, "this", this.getDTOFieldValue(clazz, field))
+                        + ";\n");
             }
             fw.write("    }\n\n");
         }
-        for (final Field field : getDeclaredFields(clazz)) {
-            if (!Modifier.isStatic(field.getModifiers())) {
-                this.makeDTOFieldGetter(clazz, field, fw);
+        for (final Field field : this.getDTOFields(clazz)) {
+            this.makeDTOFieldGetter(clazz, field, fw);
+            if (!this.generateImmutable) {
                 this.makeDTOFieldSetter(clazz, field, fw);
             }
         }
+        for (final DTOMemberWriter memberWriter : this.getMemberWriters()) {
+            if (memberWriter.accept(clazz)) {
+                memberWriter.writeMembers(clazz, fw);
+            }
+        }
 
-        Class<?>[] clazzes = clazz.getDeclaredClasses();
+        Class<?>[] clazzes = this.getDTODeclaredClasses(clazz);
         for (Class<?> clazze : clazzes) {
             if (clazze.isEnum()) {
                 makeDTOEnum(clazze, fw, "", false);
@@ -426,7 +2081,7 @@ public class DTOGeneratorImpl implements DTOGenerator {
         return ret;
     }
 
-    protected void makeDTOEnum(final Class<?> clazz, FileWriter fw) throws IOException {
+    protected void makeDTOEnum(final Class<?> clazz, Writer fw) throws IOException {
         makeDTOEnum(clazz, fw, "DTO", true);
     }
 
@@ -436,7 +2091,7 @@ public class DTOGeneratorImpl implements DTOGenerator {
      * @param clazz the clazz we want a DTO for.
      * @throws IOException if the file is not writable.
      */
-    protected void makeDTOEnum(final Class<?> clazz, FileWriter fw, String nameToAppend, boolean writeHeader) throws IOException {
+    protected void makeDTOEnum(final Class<?> clazz, Writer fw, String nameToAppend, boolean writeHeader) throws IOException {
         if (writeHeader) {
             fw.write("package " + this.getDTOPackage(clazz) + ";" + "\n\n");
             fw.write("import java.io.Serializable;\n\n");
@@ -449,9 +2104,80 @@ public class DTOGeneratorImpl implements DTOGenerator {
 
 
         for (Object o : clazz.getEnumConstants()) {
-            fw.write("    " + o.toString() + ",\n");
+            fw.write("    " + ((Enum<?>) o).name() + ",\n");
         }
-        fw.write("\n}");
+        fw.write("    ;\n\n");
+        if (this.hasEnumOrdinals()) {
+            this.makeDTOEnumOrdinals(clazz, clazz.getSimpleName() + nameToAppend, fw);
+        }
+        fw.write("}");
+    }
+
+    /**
+     * Write the ordinal helpers of an enum DTO: the conversion of a constant
+     * to its ordinal and back, through a table of the constants, and their
+     * compact writing on one byte, or two above 255 constants. Written only
+     * for the mappers, the Externalizable DTOs and the codecs.
+     *
+     * @param clazz   the enum.
+     * @param dtoName the simple name of the enum DTO.
+     * @param fw      the writer.
+     * @throws IOException if the file is not writable.
+     */
+    protected void makeDTOEnumOrdinals(final Class<?> clazz, final String dtoName, final Writer fw)
+            throws IOException {
+        final boolean wide = clazz.getEnumConstants().length > 255;
+        fw.write("    private static final " + dtoName + "[] CONSTANTS_BY_ORDINAL = values();\n\n");
+        fw.write("    /**\n");
+        fw.write("     * @param value the constant, may be <code>null</code>.\n");
+        fw.write("     * @return the ordinal of the constant, -1 for <code>null</code>.\n");
+        fw.write("     */\n");
+        fw.write("    public static int toOrdinal(final " + dtoName + " value) {\n");
+        fw.write("        return value == null ? -1 : value.ordinal();\n");
+        fw.write("    }\n\n");
+        fw.write("    /**\n");
+        fw.write("     * @param ordinal the ordinal of a constant, -1 for <code>null</code>.\n");
+        fw.write("     * @return the constant.\n");
+        fw.write("     * @throws IllegalArgumentException if no constant has the ordinal.\n");
+        fw.write("     */\n");
+        fw.write("    public static " + dtoName + " fromOrdinal(final int ordinal) {\n");
+        fw.write("        if (ordinal == -1) {\n");
+        fw.write("            return null;\n");
+        fw.write("        }\n");
+        fw.write("        if (ordinal < 0 || ordinal >= CONSTANTS_BY_ORDINAL.length) {\n");
+        fw.write("            throw new IllegalArgumentException(\"Unknown ordinal \" + ordinal + \" of " + dtoName
+                + ".\");\n");
+        fw.write("        }\n");
+        fw.write("        return CONSTANTS_BY_ORDINAL[ordinal];\n");
+        fw.write("    }\n\n");
+        fw.write("    /**\n");
+        fw.write("     * Write a constant as its ordinal plus one on " + (wide ? "two bytes" : "one byte")
+                + ", 0 for <code>null</code>.\n");
+        fw.write("     *\n");
+        fw.write("     * @param out   the output.\n");
+        fw.write("     * @param value the constant, may be <code>null</code>.\n");
+        fw.write("     * @throws java.io.IOException if the output fails.\n");
+        fw.write("     */\n");
+        fw.write("    public static void writeOrdinal(final java.io.DataOutput out, final " + dtoName
+                + " value) throws java.io.IOException {\n");
+        fw.write("        out." + (wide ? "writeShort" : "writeByte") + "(toOrdinal(value) + 1);\n");
+        fw.write("    }\n\n");
+        fw.write("    /**\n");
+        fw.write("     * Read a constant written by {@link #writeOrdinal(java.io.DataOutput, " + dtoName + ")}.\n");
+        fw.write("     *\n");
+        fw.write("     * @param in the input.\n");
+        fw.write("     * @return the constant, <code>null</code> if it was.\n");
+        fw.write("     * @throws java.io.IOException if the input fails or the ordinal is unknown.\n");
+        fw.write("     */\n");
+        fw.write("    public static " + dtoName
+                + " readOrdinal(final java.io.DataInput in) throws java.io.IOException {\n");
+        fw.write("        final int ordinal = in." + (wide ? "readUnsignedShort" : "readUnsignedByte") + "() - 1;\n");
+        fw.write("        if (ordinal >= CONSTANTS_BY_ORDINAL.length) {\n");
+        fw.write("            throw new java.io.StreamCorruptedException(\"Unknown ordinal \" + ordinal + \" of "
+                + dtoName + ".\");\n");
+        fw.write("        }\n");
+        fw.write("        return fromOrdinal(ordinal);\n");
+        fw.write("    }\n");
     }
 
     /**
@@ -464,11 +2190,24 @@ public class DTOGeneratorImpl implements DTOGenerator {
      */
     protected String makeDTOField(final Class<?> clazz, final Field field) throws IOException {
         StringBuffer stringBuffer = new StringBuffer();
-        final String fieldType = this.getDTOFieldType(clazz, field);
+        if (this.isPackedField(field) && this.getCompactWriter().getStorageType(field) == null) {
+            return "";
+        }
+        final String fieldType = this.isPackedField(field) ? this.getCompactWriter().getStorageType(field).getName()
+                : this.getDTOFieldType(clazz, field);
         stringBuffer.append("    /**\n");
         stringBuffer.append("     * @see " + clazz.getCanonicalName() + "#" + field.getName() + "\n");
         stringBuffer.append("     */\n");
-        stringBuffer.append("    private " + fieldType + " " + field.getName() + ";\n\n");
+        stringBuffer.append("    private " + (this.generateImmutable ? "final " : "") + fieldType + " " + field.getName()
+                + ";\n\n");
+        if (this.isLazyField(field)) {
+            stringBuffer.append("    /**\n");
+            stringBuffer.append("     * The object converted to {@link #" + field.getName()
+                    + "} on the first call of the getter, <code>null</code> once converted.\n");
+            stringBuffer.append("     */\n");
+            stringBuffer.append("    private transient " + DTOLazyWriter.LAZY_CLASS + "<?, " + fieldType + "> "
+                    + this.getLazyHolderName(field) + ";\n\n");
+        }
         return stringBuffer.toString();
     }
 
@@ -479,27 +2218,29 @@ public class DTOGeneratorImpl implements DTOGenerator {
      * @param field the field we want to write the part for.
      * @throws IOException if the file is not writable.
      */
-    protected void makeDTOFieldGetter(final Class<?> clazz, final Field field, FileWriter fw)
+    protected void makeDTOFieldGetter(final Class<?> clazz, final Field field, Writer fw)
             throws IOException {
-        String methodSignature;
-        final char firstFieldNameCharacterUpper = Character.toUpperCase(field.getName().charAt(0));
-        String fieldNameWithoutFirstCharacter = "";
-        if (field.getName().length() > 1) {
-            fieldNameWithoutFirstCharacter = field.getName().substring(1);
-        }
-        if (field.getType().equals(boolean.class)) {
-            methodSignature = "is" + firstFieldNameCharacterUpper + fieldNameWithoutFirstCharacter;
-        }
-        else {
-
-            methodSignature = "get" + firstFieldNameCharacterUpper + fieldNameWithoutFirstCharacter;
-        }
+        final String methodSignature = this.getDTOFieldGetterName(field);
         fw.write("    /**\n");
         fw.write("     * @see " + clazz.getCanonicalName() + "#" + methodSignature + "()\n");
         fw.write("     */\n");
         fw.write("    public " + this.getDTOFieldType(clazz, field) + " "
                 + methodSignature + "() {\n");
-        fw.write("        return this." + field.getName() + ";\n");
+        if (this.isLazyField(field)) {
+            final String holder = "this." + this.getLazyHolderName(field);
+            fw.write("        if (" + holder + " != null) {\n");
+            fw.write("            this." + field.getName() + " = " + holder + ".get();\n");
+            fw.write("            " + holder + " = null;\n");
+            fw.write("        }\n");
+        }
+        if (this.generateImmutable && this.isCopiedByImmutableDTO(field)) {
+            fw.write("        return " + DTOImmutableWriter.IMMUTABLES_CLASS + ".copy(this." + field.getName()
+                    + ");\n");
+        }
+        else {
+            fw.write("        return " + (this.isPackedField(field) ? this.getCompactWriter().getValue(clazz, field)
+                    : "this." + field.getName()) + ";\n");
+        }
         fw.write("    }\n\n");
     }
 
@@ -510,21 +2251,24 @@ public class DTOGeneratorImpl implements DTOGenerator {
      * @param field the field we want to write the part for.
      * @throws IOException if the file is not writable.
      */
-    protected void makeDTOFieldSetter(final Class<?> clazz, final Field field, FileWriter fw) throws IOException {
-
-        final char firstFieldNameCharacterUpper = Character.toUpperCase(field.getName().charAt(0));
-        String fieldNameWithoutFirstCharacter = "";
-        if (field.getName().length() > 1) {
-            fieldNameWithoutFirstCharacter = field.getName().substring(1);
-        }
-        final String methodSignature = "set" + firstFieldNameCharacterUpper + fieldNameWithoutFirstCharacter;
+    protected void makeDTOFieldSetter(final Class<?> clazz, final Field field, Writer fw) throws IOException {
+        final String methodSignature = this.getDTOFieldSetterName(field);
         fw.write("    /**\n");
         fw.write("     * @see " + clazz.getCanonicalName() + "#" + methodSignature + "(" + field.getType().getSimpleName() + ")\n");
         fw.write("     */\n");
 
 
         fw.write("    public void " + methodSignature + "(" + this.getDTOFieldType(clazz, field) + " " + field.getName() + ") {\n");
-        fw.write("        this." + field.getName() + " = " + field.getName() + ";\n");
+        fw.write("        " + this.getFieldAssignment(field, "this", this.getInternedValue(field, field.getName()))
+                + ";\n");
+        if (this.isLazyField(field)) {
+            fw.write("        this." + this.getLazyHolderName(field) + " = null;\n");
+        }
+        if (this.generateDirtyTracking) {
+            final int index = this.getDTOFields(clazz).indexOf(field);
+            fw.write("        this." + DTODirtyWriter.getDirtyFieldName(index) + " |= "
+                    + DTODirtyWriter.getDirtyBit(index) + ";\n");
+        }
         fw.write("    }\n\n");
     }
 }
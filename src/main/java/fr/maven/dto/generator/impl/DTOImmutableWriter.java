@@ -0,0 +1,158 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writer of the members of an immutable DTO: a <code>with</code> method per
+ * field, returning a copy of the DTO with the field changed, and a
+ * <code>Builder</code> collecting the fields before the DTO is constructed.
+ * <p/>
+ * The fields of an immutable DTO are final and set by its constructor, which
+ * copies the lists, sets and maps given once, into unmodifiable collections,
+ * with their nested collections, arrays and dates, and copies the arrays and
+ * dates given, which their getters copy again, with the generated
+ * <code>DTOImmutables</code> class. The nested DTOs are immutable too: the
+ * DTO can be shared between threads and cached without a defensive copy. Only
+ * the arrays held in a collection, e.g. in a <code>List&lt;int[]&gt;</code>,
+ * can still be changed through the collection.
+ * The builder has the setters of a mutable DTO, so that the code reading DTOs
+ * only changes the type it fills.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOImmutableWriter extends DTOMemberWriter {
+
+    /**
+     * Name of the class copying the mutable values of the immutable DTOs.
+     */
+    protected static final String IMMUTABLES_CLASS = "DTOImmutables";
+
+    /**
+     * The support classes of the immutable DTOs.
+     */
+    private static final List<String> SUPPORT_CLASS_NAMES = Collections.singletonList(IMMUTABLES_CLASS);
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    public DTOImmutableWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOSourceWriter#getSupportClassNames()
+     */
+    @Override
+    public List<String> getSupportClassNames() {
+        return SUPPORT_CLASS_NAMES;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOMemberWriter#writeMembers(java.lang.Class, java.io.Writer)
+     */
+    @Override
+    public void writeMembers(final Class<?> clazz, final Writer fw) throws IOException {
+        final List<Field> fields = this.generator.getDTOFields(clazz);
+        for (final Field field : fields) {
+            this.writeWithMethod(clazz, fields, field, fw);
+        }
+        if (this.isStaticClass(clazz)) {
+            this.writeBuilder(clazz, fields, fw);
+        }
+    }
+
+    /**
+     * Write the method returning a copy of the DTO with a field changed.
+     *
+     * @param clazz  the class.
+     * @param fields the fields of the class.
+     * @param field  the field changed.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeWithMethod(final Class<?> clazz, final List<Field> fields, final Field field,
+                                   final Writer fw) throws IOException {
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        final String name = field.getName();
+        fw.write("    /**\n");
+        fw.write("     * Return a copy of this DTO with another " + name + ".\n");
+        fw.write("     *\n");
+        fw.write("     * @param " + name + " the " + name + " of the copy.\n");
+        fw.write("     * @return the copy, or this DTO if the " + name + " is the same.\n");
+        fw.write("     */\n");
+        fw.write("    public " + dtoName + " with" + this.generator.capitalize(name) + "(final "
+                + this.generator.getDTOFieldType(clazz, field) + " " + name + ") {\n");
+        fw.write("        if (this." + name + " == " + name + ") {\n");
+        fw.write("            return this;\n");
+        fw.write("        }\n");
+        fw.write("        return new " + dtoName + "(");
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                fw.write(", ");
+            }
+            fw.write(fields.get(i) == field ? name : "this." + fields.get(i).getName());
+        }
+        fw.write(");\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write the builder of the DTO, a static nested class named
+     * <code>Builder</code>.
+     *
+     * @param clazz  the class.
+     * @param fields the fields of the class.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeBuilder(final Class<?> clazz, final List<Field> fields, final Writer fw)
+            throws IOException {
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        fw.write("    /**\n");
+        fw.write("     * Builder of {@link " + dtoName + "}.\n");
+        fw.write("     */\n");
+        fw.write("    public static final class Builder {\n\n");
+        for (final Field field : fields) {
+            fw.write("        private " + this.generator.getDTOFieldType(clazz, field) + " " + field.getName() + ";\n\n");
+        }
+        for (final Field field : fields) {
+            final String name = field.getName();
+            fw.write("        /**\n");
+            fw.write("         * @param " + name + " the " + name + " of the DTO built.\n");
+            fw.write("         * @return this builder.\n");
+            fw.write("         */\n");
+            fw.write("        public Builder " + this.generator.getDTOFieldSetterName(field) + "(final "
+                    + this.generator.getDTOFieldType(clazz, field) + " " + name + ") {\n");
+            fw.write("            this." + name + " = " + name + ";\n");
+            fw.write("            return this;\n");
+            fw.write("        }\n\n");
+        }
+        fw.write("        /**\n");
+        fw.write("         * @return a DTO with the fields set, copying the collections, arrays and dates.\n");
+        fw.write("         */\n");
+        fw.write("        public " + dtoName + " build() {\n");
+        fw.write("            return new " + dtoName + "(");
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                fw.write(", ");
+            }
+            fw.write("this." + fields.get(i).getName());
+        }
+        fw.write(");\n");
+        fw.write("        }\n");
+        fw.write("    }\n\n");
+    }
+}
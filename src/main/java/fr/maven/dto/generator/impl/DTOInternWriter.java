@@ -0,0 +1,94 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writer of the interning of the low-cardinality string fields of a DTO, by
+ * the <code>DTOStrings</code> bounded table the generator emits.
+ * <p/>
+ * The setters and the constructors intern the values themselves, and so do
+ * the mappers and the codecs that call them. This writer adds the
+ * <code>readObject</code> method interning the fields read by the default
+ * serialization of the mutable DTOs that are not Externalizable, whose
+ * <code>readExternal</code> interns them.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOInternWriter extends DTOMemberWriter {
+
+    /**
+     * Name of the support class of the intern table.
+     */
+    protected static final String STRINGS_CLASS = "DTOStrings";
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    public DTOInternWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Only the DTOs with interned fields that are read by the default
+     * serialization into non final fields need a <code>readObject</code>
+     * method.
+     *
+     * @see fr.maven.dto.generator.impl.DTOMemberWriter#accept(java.lang.Class)
+     */
+    @Override
+    public boolean accept(final Class<?> clazz) {
+        if (!super.accept(clazz) || this.generator.generateImmutable
+                || (this.generator.generateExternalizable && this.isStaticClass(clazz))) {
+            return false;
+        }
+        for (final Field field : this.generator.getDTOFields(clazz)) {
+            if (this.generator.isInternedField(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOSourceWriter#getSupportClassNames()
+     */
+    @Override
+    public List<String> getSupportClassNames() {
+        return Collections.singletonList(STRINGS_CLASS);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOMemberWriter#writeMembers(java.lang.Class, java.io.Writer)
+     */
+    @Override
+    public void writeMembers(final Class<?> clazz, final Writer fw) throws IOException {
+        fw.write("    /**\n");
+        fw.write("     * Read the fields, then intern the low-cardinality strings.\n");
+        fw.write("     */\n");
+        fw.write("    private void readObject(final java.io.ObjectInputStream in)\n");
+        fw.write("            throws java.io.IOException, ClassNotFoundException {\n");
+        fw.write("        in.defaultReadObject();\n");
+        for (final Field field : this.generator.getDTOFields(clazz)) {
+            if (this.generator.isInternedField(field)) {
+                final String value = "this." + field.getName();
+                fw.write("        " + value + " = " + this.generator.getInternedValue(field, value) + ";\n");
+            }
+        }
+        fw.write("    }\n\n");
+    }
+}
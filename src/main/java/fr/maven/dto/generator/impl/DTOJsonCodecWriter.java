@@ -0,0 +1,634 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writer of the JSON codec of a DTO: a class with static <code>write</code>
+ * and <code>read</code> methods streaming the DTO through the generated
+ * <code>DTOJsonWriter</code> and <code>DTOJsonReader</code>, so that no
+ * reflection is needed at runtime.
+ * <p/>
+ * A DTO is written as an object whose keys are its field names, each written
+ * as a pre-encoded literal. It is read back by a switch on the hash code of
+ * the keys; unknown keys are skipped. Enums are written as their constant
+ * name, dates as their number of milliseconds, arrays and collections as
+ * arrays, maps as objects when their keys are strings or enums and as arrays
+ * of key and value pairs otherwise. Fields of other types are left out.
+ * Object graphs are written as trees: a cycle between objects is not
+ * detected.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOJsonCodecWriter extends DTOCompanionWriter {
+
+    /**
+     * Kind of the methods writing a value.
+     */
+    protected static final String WRITE = "write";
+
+    /**
+     * Kind of the methods reading a value.
+     */
+    protected static final String READ = "read";
+
+    /**
+     * Kind of the methods returning an enum constant by name.
+     */
+    protected static final String CONSTANT = "constant";
+
+    /**
+     * The support classes of the codecs.
+     */
+    private static final List<String> SUPPORT_CLASS_NAMES = Arrays.asList("DTOJsonWriter", "DTOJsonReader");
+
+    /**
+     * The size of the buffer of the writer created by <code>toJson</code>.
+     */
+    private static final int TO_JSON_BUFFER_SIZE = 1024;
+
+    /**
+     * The pre-encoded field names of the codec being written, by constant
+     * name.
+     */
+    private final Map<String, String> fieldNameConstants;
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    public DTOJsonCodecWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+        this.fieldNameConstants = new LinkedHashMap<String, String>();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#getSuffix()
+     */
+    @Override
+    public String getSuffix() {
+        return "JsonCodec";
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Enums have no codec: their constants are written by name where they are
+     * used.
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#accept(java.lang.Class)
+     */
+    @Override
+    public boolean accept(final Class<?> clazz) {
+        return super.accept(clazz) && !clazz.isEnum() && this.generator.isAccessible(clazz);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOSourceWriter#getSupportClassNames()
+     */
+    @Override
+    public List<String> getSupportClassNames() {
+        return SUPPORT_CLASS_NAMES;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#write(java.lang.Class, java.io.Writer)
+     */
+    @Override
+    public void write(final Class<?> clazz, final Writer fw) throws IOException {
+        this.resetHelperMethods();
+        this.fieldNameConstants.clear();
+        final StringWriter codecs = new StringWriter();
+        this.writeCodecs(clazz, codecs);
+        this.writeHelperMethods(clazz, codecs);
+
+        final String codecName = this.getCompanionClassName(clazz);
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        this.writeHeader(clazz, fw, "JSON codec of the DTO of {@link " + clazz.getCanonicalName() + "}.");
+        fw.write("public final class " + codecName + " {\n\n");
+        for (final Map.Entry<String, String> fieldNameConstant : this.fieldNameConstants.entrySet()) {
+            fw.write("    private static final char[] " + fieldNameConstant.getKey() + " = "
+                    + this.toJavaString(fieldNameConstant.getValue()) + ".toCharArray();\n\n");
+        }
+        fw.write("    private " + codecName + "() {\n");
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * Return the JSON text of a DTO.\n");
+        fw.write("     *\n");
+        fw.write("     * @param dto the DTO, may be <code>null</code>.\n");
+        fw.write("     * @return the JSON text.\n");
+        fw.write("     */\n");
+        fw.write("    public static String toJson(final " + dtoName + " dto) {\n");
+        fw.write("        final java.io.StringWriter writer = new java.io.StringWriter();\n");
+        fw.write("        final DTOJsonWriter out = new DTOJsonWriter(writer, " + TO_JSON_BUFFER_SIZE + ");\n");
+        fw.write("        try {\n");
+        fw.write("            " + WRITE + "(dto, out);\n");
+        fw.write("            out.flush();\n");
+        fw.write("        }\n");
+        fw.write("        catch (final java.io.IOException e) {\n");
+        fw.write("            throw new IllegalStateException(e);\n");
+        fw.write("        }\n");
+        fw.write("        return writer.toString();\n");
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * Read a DTO from its JSON text.\n");
+        fw.write("     *\n");
+        fw.write("     * @param json the JSON text.\n");
+        fw.write("     * @return the DTO, <code>null</code> for a <code>null</code> literal.\n");
+        fw.write("     * @throws java.io.IOException if the text is not the JSON text of a DTO.\n");
+        fw.write("     */\n");
+        fw.write("    public static " + dtoName + " fromJson(final String json) throws java.io.IOException {\n");
+        fw.write("        final DTOJsonReader in = new DTOJsonReader(json);\n");
+        fw.write("        final " + dtoName + " dto = " + READ + "(in);\n");
+        fw.write("        in.endDocument();\n");
+        fw.write("        return dto;\n");
+        fw.write("    }\n\n");
+
+        fw.write(codecs.toString());
+        fw.write("}\n");
+    }
+
+    /**
+     * Write the methods writing and reading the DTO of a class and of its
+     * declared classes.
+     *
+     * @param clazz the class.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeCodecs(final Class<?> clazz, final Writer fw) throws IOException {
+        if (this.isCodable(clazz)) {
+            final List<Field> fields = new ArrayList<Field>();
+            for (final Field field : this.generator.getDTOFields(clazz)) {
+                if (this.isSupported(this.generator.getDTOFieldGenericType(field))) {
+                    fields.add(field);
+                }
+            }
+            this.writeWrite(clazz, fields, fw);
+            this.writeRead(clazz, fields, fw);
+        }
+        for (final Class<?> declaredClass : this.generator.getDTODeclaredClasses(clazz)) {
+            this.writeCodecs(declaredClass, fw);
+        }
+    }
+
+    /**
+     * Write the method writing a DTO, field name literal by field name
+     * literal.
+     *
+     * @param clazz  the class.
+     * @param fields the fields written.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeWrite(final Class<?> clazz, final List<Field> fields, final Writer fw) throws IOException {
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        fw.write("    /**\n");
+        fw.write("     * Write a {@link " + dtoName + "} as a JSON object.\n");
+        fw.write("     *\n");
+        fw.write("     * @param dto the DTO, may be <code>null</code>.\n");
+        fw.write("     * @param out the sink.\n");
+        fw.write("     * @throws java.io.IOException if the sink fails.\n");
+        fw.write("     */\n");
+        fw.write("    public static void " + WRITE + "(final " + dtoName + " dto, final DTOJsonWriter out)\n");
+        fw.write("            throws java.io.IOException {\n");
+        fw.write("        if (dto == null) {\n");
+        fw.write("            out.writeNull();\n");
+        fw.write("            return;\n");
+        fw.write("        }\n");
+        if (fields.isEmpty()) {
+            fw.write("        out.writeRaw('{');\n");
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            final Field field = fields.get(i);
+            final String constant = this.getFieldNameConstant(clazz, field, (i == 0 ? "{" : ",") + "\""
+                    + field.getName() + "\":");
+            fw.write("        out.writeRaw(" + constant + ");\n");
+            fw.write("        " + this.writeValue(this.generator.getDTOFieldGenericType(field),
+                    "dto." + this.generator.getDTOFieldGetterName(field) + "()") + "\n");
+        }
+        fw.write("        out.writeRaw('}');\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write the method reading a DTO, that dispatches the keys with a switch
+     * on their hash code.
+     *
+     * @param clazz  the class.
+     * @param fields the fields read.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeRead(final Class<?> clazz, final List<Field> fields, final Writer fw) throws IOException {
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        fw.write("    /**\n");
+        fw.write("     * Read a {@link " + dtoName + "} from a JSON object.\n");
+        fw.write("     *\n");
+        fw.write("     * @param in the source.\n");
+        fw.write("     * @return the DTO, <code>null</code> for a <code>null</code> literal.\n");
+        fw.write("     * @throws java.io.IOException if the source fails or is not a DTO.\n");
+        fw.write("     */\n");
+        fw.write("    public static " + dtoName + " " + this.getReadMethodName(clazz)
+                + "(final DTOJsonReader in) throws java.io.IOException {\n");
+        fw.write("        if (in.nextNull()) {\n");
+        fw.write("            return null;\n");
+        fw.write("        }\n");
+        final String builderName = this.generator.getDTOBuilderName(clazz);
+        fw.write("        final " + builderName + " dto = new " + builderName + "();\n");
+        fw.write("        in.beginObject();\n");
+        fw.write("        while (in.hasNext()) {\n");
+        if (fields.isEmpty()) {
+            fw.write("            in.nextName();\n");
+        }
+        else {
+            final Map<Integer, List<Field>> fieldsByHash = new LinkedHashMap<Integer, List<Field>>();
+            for (final Field field : fields) {
+                final Integer hash = Integer.valueOf(field.getName().hashCode());
+                List<Field> sameHashFields = fieldsByHash.get(hash);
+                if (sameHashFields == null) {
+                    sameHashFields = new ArrayList<Field>();
+                    fieldsByHash.put(hash, sameHashFields);
+                }
+                sameHashFields.add(field);
+            }
+            fw.write("            final String name = in.nextName();\n");
+            fw.write("            switch (name.hashCode()) {\n");
+            for (final Map.Entry<Integer, List<Field>> sameHashFields : fieldsByHash.entrySet()) {
+                fw.write("                case " + sameHashFields.getKey() + ":\n");
+                for (final Field field : sameHashFields.getValue()) {
+                    fw.write("                    if (" + this.toJavaString(field.getName()) + ".equals(name)) {\n");
+                    fw.write("                        dto." + this.generator.getDTOFieldSetterName(field) + "("
+                            + this.readValue(this.generator.getDTOFieldGenericType(field)) + ");\n");
+                    fw.write("                        continue;\n");
+                    fw.write("                    }\n");
+                }
+                fw.write("                    break;\n");
+            }
+            fw.write("                default:\n");
+            fw.write("                    break;\n");
+            fw.write("            }\n");
+        }
+        fw.write("            in.skipValue();\n");
+        fw.write("        }\n");
+        fw.write("        in.endObject();\n");
+        fw.write("        return " + this.generator.getBuiltDTO("dto") + ";\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOSourceWriter#writeHelperMethod(java.lang.Class, java.lang.String, java.lang.String, java.lang.reflect.Type, java.io.Writer)
+     */
+    @Override
+    protected void writeHelperMethod(final Class<?> clazz, final String name, final String kind, final Type type,
+                                     final Writer fw) throws IOException {
+        final String dtoType = this.generator.getDTOType(clazz, type);
+        if (CONSTANT.equals(kind)) {
+            fw.write("    private static " + dtoType + " " + name + "(final String name) throws java.io.IOException {\n");
+            fw.write("        try {\n");
+            fw.write("            return " + dtoType + ".valueOf(name);\n");
+            fw.write("        }\n");
+            fw.write("        catch (final IllegalArgumentException e) {\n");
+            fw.write("            throw new java.io.IOException(\"Unknown constant \" + name + \" of "
+                    + dtoType + ".\");\n");
+            fw.write("        }\n");
+            fw.write("    }\n\n");
+        }
+        else if (WRITE.equals(kind)) {
+            fw.write("    private static void " + name + "(final " + dtoType + " value, final DTOJsonWriter out)\n");
+            fw.write("            throws java.io.IOException {\n");
+            fw.write("        if (value == null) {\n");
+            fw.write("            out.writeNull();\n");
+            fw.write("            return;\n");
+            fw.write("        }\n");
+            this.writeWriteHelperBody(clazz, type, fw);
+            fw.write("    }\n\n");
+        }
+        else {
+            fw.write("    private static " + dtoType + " " + name + "(final DTOJsonReader in) throws java.io.IOException {\n");
+            this.writeReadHelperBody(clazz, type, dtoType, fw);
+            fw.write("    }\n\n");
+        }
+    }
+
+    /**
+     * Write the body of a method writing an array, a collection or a map that
+     * is not <code>null</code>.
+     *
+     * @param clazz the class a DTO is generated for.
+     * @param type  the type, as declared in the class.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    private void writeWriteHelperBody(final Class<?> clazz, final Type type, final Writer fw) throws IOException {
+        if (type instanceof Class<?>) {
+            fw.write("        out.writeRaw('[');\n");
+            fw.write("        for (int i = 0; i < value.length; i++) {\n");
+            fw.write("            if (i > 0) {\n");
+            fw.write("                out.writeRaw(',');\n");
+            fw.write("            }\n");
+            fw.write("            " + this.writeValue(((Class<?>) type).getComponentType(), "value[i]") + "\n");
+            fw.write("        }\n");
+            fw.write("        out.writeRaw(']');\n");
+            return;
+        }
+        if (type instanceof DTOPrimitiveMapType) {
+            final DTOPrimitiveMapType mapType = (DTOPrimitiveMapType) type;
+            fw.write("        out.writeRaw('[');\n");
+            fw.write("        for (int i = 0; i < value.size(); i++) {\n");
+            fw.write("            if (i > 0) {\n");
+            fw.write("                out.writeRaw(',');\n");
+            fw.write("            }\n");
+            fw.write("            out.writeRaw('[');\n");
+            fw.write("            " + this.writeValue(mapType.getKeyType(), "value.keyAt(i)") + "\n");
+            fw.write("            out.writeRaw(',');\n");
+            fw.write("            " + this.writeValue(mapType.getValueType(), "value.valueAt(i)") + "\n");
+            fw.write("            out.writeRaw(']');\n");
+            fw.write("        }\n");
+            fw.write("        out.writeRaw(']');\n");
+            return;
+        }
+        final Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+        final boolean objectMap = typeArguments.length == 2 && this.isNameType(typeArguments[0]);
+        fw.write("        out.writeRaw('" + (objectMap ? '{' : '[') + "');\n");
+        fw.write("        boolean first = true;\n");
+        if (typeArguments.length == 2) {
+            fw.write("        for (final java.util.Map.Entry<" + this.getDTOTypes(clazz, typeArguments)
+                    + "> entry : value.entrySet()) {\n");
+        }
+        else {
+            fw.write("        for (final " + this.generator.getDTOType(clazz, typeArguments[0])
+                    + " element : value) {\n");
+        }
+        fw.write("            if (first) {\n");
+        fw.write("                first = false;\n");
+        fw.write("            }\n");
+        fw.write("            else {\n");
+        fw.write("                out.writeRaw(',');\n");
+        fw.write("            }\n");
+        if (objectMap) {
+            if (typeArguments[0].equals(String.class)) {
+                fw.write("            out.writeName(entry.getKey());\n");
+            }
+            else {
+                fw.write("            out.writeName(entry.getKey() == null ? null : entry.getKey().name());\n");
+            }
+            fw.write("            " + this.writeValue(typeArguments[1], "entry.getValue()") + "\n");
+        }
+        else if (typeArguments.length == 2) {
+            fw.write("            out.writeRaw('[');\n");
+            fw.write("            " + this.writeValue(typeArguments[0], "entry.getKey()") + "\n");
+            fw.write("            out.writeRaw(',');\n");
+            fw.write("            " + this.writeValue(typeArguments[1], "entry.getValue()") + "\n");
+            fw.write("            out.writeRaw(']');\n");
+        }
+        else {
+            fw.write("            " + this.writeValue(typeArguments[0], "element") + "\n");
+        }
+        fw.write("        }\n");
+        fw.write("        out.writeRaw('" + (objectMap ? '}' : ']') + "');\n");
+    }
+
+    /**
+     * Write the body of a method reading an enum, an array, a collection or a
+     * map.
+     *
+     * @param clazz   the class a DTO is generated for.
+     * @param type    the type, as declared in the class.
+     * @param dtoType the type, as written.
+     * @param fw      the writer.
+     * @throws IOException if the writer fails.
+     */
+    private void writeReadHelperBody(final Class<?> clazz, final Type type, final String dtoType, final Writer fw)
+            throws IOException {
+        if (type instanceof Class<?> && ((Class<?>) type).isEnum()) {
+            fw.write("        final String name = in.nextString();\n");
+            fw.write("        return name == null ? null : " + this.getHelperMethodName(CONSTANT, type) + "(name);\n");
+            return;
+        }
+        fw.write("        if (in.nextNull()) {\n");
+        fw.write("            return null;\n");
+        fw.write("        }\n");
+        if (type instanceof Class<?>) {
+            final Class<?> arrayClass = (Class<?>) type;
+            final int dimension = this.generator.getArrayDimension(arrayClass);
+            final StringBuilder newArray = new StringBuilder("new ");
+            newArray.append(dtoType.substring(0, dtoType.length() - 2 * dimension)).append("[8]");
+            for (int i = 1; i < dimension; i++) {
+                newArray.append("[]");
+            }
+            fw.write("        " + dtoType + " result = " + newArray + ";\n");
+            fw.write("        int size = 0;\n");
+            fw.write("        in.beginArray();\n");
+            fw.write("        while (in.hasNext()) {\n");
+            fw.write("            if (size == result.length) {\n");
+            fw.write("                result = java.util.Arrays.copyOf(result, size << 1);\n");
+            fw.write("            }\n");
+            fw.write("            result[size++] = " + this.readValue(arrayClass.getComponentType()) + ";\n");
+            fw.write("        }\n");
+            fw.write("        in.endArray();\n");
+            fw.write("        return size == result.length ? result : java.util.Arrays.copyOf(result, size);\n");
+            return;
+        }
+        if (type instanceof DTOPrimitiveMapType) {
+            final DTOPrimitiveMapType mapType = (DTOPrimitiveMapType) type;
+            fw.write("        final " + dtoType + " result = new " + dtoType + "();\n");
+            this.writeReadEntries(clazz, mapType.getKeyType(), mapType.getValueType(), fw);
+            fw.write("        return result;\n");
+            return;
+        }
+        final Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+        fw.write("        final " + dtoType + " result = "
+                + this.newCollection(type, this.getDTOTypes(clazz, typeArguments)) + ";\n");
+        if (typeArguments.length == 2 && this.isNameType(typeArguments[0])) {
+            final String key = typeArguments[0].equals(String.class) ? "in.nextName()"
+                    : this.getHelperMethodName(CONSTANT, typeArguments[0]) + "(in.nextName())";
+            fw.write("        in.beginObject();\n");
+            fw.write("        while (in.hasNext()) {\n");
+            fw.write("            result.put(" + key + ", " + this.readValue(typeArguments[1]) + ");\n");
+            fw.write("        }\n");
+            fw.write("        in.endObject();\n");
+        }
+        else if (typeArguments.length == 2) {
+            this.writeReadEntries(clazz, typeArguments[0], typeArguments[1], fw);
+        }
+        else {
+            fw.write("        in.beginArray();\n");
+            fw.write("        while (in.hasNext()) {\n");
+            fw.write("            result.add(" + this.readValue(typeArguments[0]) + ");\n");
+            fw.write("        }\n");
+            fw.write("        in.endArray();\n");
+        }
+        fw.write("        return result;\n");
+    }
+
+    /**
+     * Write the statements reading the entries of a map written as an array
+     * of key and value pairs into the <code>result</code> map.
+     *
+     * @param clazz     the class a DTO is generated for.
+     * @param keyType   the key type, as declared in the class.
+     * @param valueType the value type, as declared in the class.
+     * @param fw        the writer.
+     * @throws IOException if the writer fails.
+     */
+    private void writeReadEntries(final Class<?> clazz, final Type keyType, final Type valueType, final Writer fw)
+            throws IOException {
+        fw.write("        in.beginArray();\n");
+        fw.write("        while (in.hasNext()) {\n");
+        fw.write("            in.beginArray();\n");
+        fw.write("            in.nextElement();\n");
+        fw.write("            final " + this.generator.getDTOType(clazz, keyType) + " key = "
+                + this.readValue(keyType) + ";\n");
+        fw.write("            in.nextElement();\n");
+        fw.write("            result.put(key, " + this.readValue(valueType) + ");\n");
+        fw.write("            in.endArray();\n");
+        fw.write("        }\n");
+        fw.write("        in.endArray();\n");
+    }
+
+    /**
+     * Return the statement writing a value.
+     *
+     * @param type  the value type, as declared in the class.
+     * @param value the value expression.
+     * @return the statement.
+     */
+    protected String writeValue(final Type type, final String value) {
+        if (type instanceof Class<?>) {
+            final Class<?> clazz = (Class<?>) type;
+            if (clazz.isPrimitive()) {
+                return "out.write" + this.getPrimitiveName(clazz) + "(" + value + ");";
+            }
+            if (clazz.equals(Boolean.class) || clazz.equals(Character.class)) {
+                return "out.write" + this.getPrimitiveName(this.getPrimitiveType(clazz)) + "(" + value + ");";
+            }
+            if (this.getPrimitiveType(clazz) != null) {
+                return "out.writeNumber(" + value + ");";
+            }
+            if (clazz.equals(String.class)) {
+                return "out.writeString(" + value + ");";
+            }
+            if (clazz.equals(Date.class)) {
+                return "out.writeDate(" + value + ");";
+            }
+            if (clazz.isEnum()) {
+                return "out.writeEnum(" + value + ");";
+            }
+            if (!clazz.isArray()) {
+                return this.getCompanionClassName(clazz) + "." + WRITE + "(" + value + ", out);";
+            }
+        }
+        return this.getHelperMethodName(WRITE, type) + "(" + value + ", out);";
+    }
+
+    /**
+     * Return the expression reading a value.
+     *
+     * @param type the value type, as declared in the class.
+     * @return the expression.
+     */
+    protected String readValue(final Type type) {
+        if (type instanceof Class<?>) {
+            final Class<?> clazz = (Class<?>) type;
+            if (clazz.isPrimitive()) {
+                return "in.next" + this.getPrimitiveName(clazz) + "()";
+            }
+            final Class<?> primitiveType = this.getPrimitiveType(clazz);
+            if (primitiveType != null) {
+                return "in.nextNull() ? null : " + clazz.getSimpleName() + ".valueOf(in.next"
+                        + this.getPrimitiveName(primitiveType) + "())";
+            }
+            if (clazz.equals(String.class)) {
+                return "in.nextString()";
+            }
+            if (clazz.equals(Date.class)) {
+                return "in.nextNull() ? null : new java.util.Date(in.nextLong())";
+            }
+            if (!clazz.isEnum() && !clazz.isArray()) {
+                return this.getCompanionClassName(clazz) + "." + this.getReadMethodName(clazz) + "(in)";
+            }
+        }
+        return this.getHelperMethodName(READ, type) + "(in)";
+    }
+
+    /**
+     * Check if the values of a type are written as JSON object keys.
+     *
+     * @param type the map key type, as declared in the class.
+     * @return <code>true</code> for strings and enums.
+     */
+    private boolean isNameType(final Type type) {
+        return type.equals(String.class) || (type instanceof Class<?> && ((Class<?>) type).isEnum());
+    }
+
+    /**
+     * Return the name of the method reading the DTO of a class: read for a
+     * top level class, followed by the declared class names otherwise.
+     *
+     * @param clazz the class.
+     * @return the method name.
+     */
+    protected String getReadMethodName(final Class<?> clazz) {
+        final String dtoClassName = this.generator.getDTOClassName(clazz);
+        final int dot = dtoClassName.indexOf('.');
+        return dot < 0 ? READ : READ + dtoClassName.substring(dot + 1).replace(".", "");
+    }
+
+    /**
+     * Return the name of the constant holding a pre-encoded field name, and
+     * plan to write it.
+     *
+     * @param clazz   the class of the field.
+     * @param field   the field.
+     * @param literal the pre-encoded characters.
+     * @return the constant name.
+     */
+    private String getFieldNameConstant(final Class<?> clazz, final Field field, final String literal) {
+        final String readMethodName = this.getReadMethodName(clazz);
+        final String prefix = readMethodName.length() == READ.length() ? ""
+                : readMethodName.substring(READ.length()) + "_";
+        final StringBuilder constant = new StringBuilder();
+        final String name = prefix + field.getName();
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            if (Character.isUpperCase(c) && i > 0 && Character.isLowerCase(name.charAt(i - 1))) {
+                constant.append('_');
+            }
+            constant.append(Character.toUpperCase(c));
+        }
+        final Set<String> usedNames = new HashSet<String>(this.fieldNameConstants.keySet());
+        String constantName = constant.toString();
+        for (int i = 1; usedNames.contains(constantName); i++) {
+            constantName = constant.toString() + "_" + i;
+        }
+        this.fieldNameConstants.put(constantName, literal);
+        return constantName;
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writer of the members of a DTO whose fields referring to other DTOs are
+ * converted lazily: a package private method per field setting the holder of
+ * the object to convert, used by the mapper, and a method converting the
+ * pending fields before they are read directly, by <code>equals</code>,
+ * <code>hashCode</code> or the serialization.
+ * <p/>
+ * The getter of such a field converts the object held on its first call,
+ * keeps the result in the field and drops the holder. The object is converted
+ * as it is at that time, not as it was when the DTO was created. The
+ * conversion is not synchronized: a DTO read by several threads must be read
+ * once first.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOLazyWriter extends DTOMemberWriter {
+
+    /**
+     * Name of the support class of the lazy holders.
+     */
+    protected static final String LAZY_CLASS = "DTOLazy";
+
+    /**
+     * Name of the method converting the pending fields of a DTO.
+     */
+    protected static final String CONVERT_METHOD = "convertLazyFields";
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    public DTOLazyWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOMemberWriter#accept(java.lang.Class)
+     */
+    @Override
+    public boolean accept(final Class<?> clazz) {
+        return super.accept(clazz) && this.generator.hasLazyFields(clazz);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOSourceWriter#getSupportClassNames()
+     */
+    @Override
+    public List<String> getSupportClassNames() {
+        return Collections.singletonList(LAZY_CLASS);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOMemberWriter#writeMembers(java.lang.Class, java.io.Writer)
+     */
+    @Override
+    public void writeMembers(final Class<?> clazz, final Writer fw) throws IOException {
+        final List<Field> fields = this.generator.getDTOFields(clazz);
+        for (final Field field : fields) {
+            if (this.generator.isLazyField(field)) {
+                final String holder = this.generator.getLazyHolderName(field);
+                fw.write("    /**\n");
+                fw.write("     * Set the object converted to " + field.getName()
+                        + " on the first call of the getter.\n");
+                fw.write("     *\n");
+                fw.write("     * @param " + holder + " the holder of the object, <code>null</code> for a null "
+                        + field.getName() + ".\n");
+                fw.write("     */\n");
+                fw.write("    void " + this.generator.getDTOFieldHolderSetterName(field) + "(final " + LAZY_CLASS
+                        + "<?, " + this.generator.getDTOFieldType(clazz, field) + "> " + holder + ") {\n");
+                fw.write("        this." + field.getName() + " = null;\n");
+                fw.write("        this." + holder + " = " + holder + ";\n");
+                fw.write("    }\n\n");
+            }
+        }
+
+        fw.write("    /**\n");
+        fw.write("     * Convert the fields whose object is still held.\n");
+        fw.write("     */\n");
+        fw.write("    private void " + CONVERT_METHOD + "() {\n");
+        for (final Field field : fields) {
+            if (this.generator.isLazyField(field)) {
+                fw.write("        this." + this.generator.getDTOFieldGetterName(field) + "();\n");
+            }
+        }
+        fw.write("    }\n\n");
+
+        if (!this.generator.generateExternalizable || !this.isStaticClass(clazz)) {
+            fw.write("    /**\n");
+            fw.write("     * Convert the fields whose object is still held, then write the fields.\n");
+            fw.write("     *\n");
+            fw.write("     * @param out the stream.\n");
+            fw.write("     * @throws java.io.IOException if the stream fails.\n");
+            fw.write("     */\n");
+            fw.write("    private void writeObject(final java.io.ObjectOutputStream out)"
+                    + " throws java.io.IOException {\n");
+            fw.write("        this." + CONVERT_METHOD + "();\n");
+            fw.write("        out.defaultWriteObject();\n");
+            fw.write("    }\n\n");
+        }
+    }
+}
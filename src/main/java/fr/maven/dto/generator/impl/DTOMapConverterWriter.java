@@ -0,0 +1,456 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writer of the <code>toMap</code> and <code>fromMap</code> methods of a DTO,
+ * converting it to and from a <code>Map&lt;String, Object&gt;</code> of its
+ * fields without reflection, e.g. for templates and dynamic payloads.
+ * <p/>
+ * <code>toMap()</code> fills a <code>LinkedHashMap</code> sized so that it
+ * never rehashes, in declaration order, with the nested DTOs as maps, the
+ * arrays, lists and sets holding DTOs at any depth as lists, the maps holding
+ * DTOs as new maps, and the other values as held by the DTO. The static
+ * <code>fromMap(Map)</code> dispatches on the hash code of the keys, as the
+ * JSON decoders do, then on the names, and ignores the unknown keys. It
+ * converts the numbers held exactly by the field types, the enum names, and
+ * the maps of the nested DTOs through their own <code>fromMap</code>, with
+ * the generated <code>DTOMaps</code> class. The arrays and the collections
+ * are rebuilt from any collection or array of references, each element
+ * converted and checked the same way, by a helper method per type. The inner
+ * classes, that can not declare static methods, have <code>toMap()</code>
+ * only.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOMapConverterWriter extends DTOMemberWriter {
+
+    /**
+     * Name of the methods converting a DTO to a map.
+     */
+    protected static final String TO_MAP_METHOD = "toMap";
+
+    /**
+     * Name of the methods converting a map to a DTO.
+     */
+    protected static final String FROM_MAP_METHOD = "fromMap";
+
+    /**
+     * Kind of the helper methods converting an array or a collection holding
+     * DTOs to a list or a map of maps.
+     */
+    protected static final String TO_MAPS = "toMaps";
+
+    /**
+     * Kind of the helper methods converting a collection, an array or a map
+     * to the array or the collection of a field.
+     */
+    protected static final String FROM_MAPS = "fromMaps";
+
+    /**
+     * The support classes of the converters.
+     */
+    private static final List<String> SUPPORT_CLASS_NAMES = Collections.singletonList("DTOMaps");
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    public DTOMapConverterWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOSourceWriter#getSupportClassNames()
+     */
+    @Override
+    public List<String> getSupportClassNames() {
+        return SUPPORT_CLASS_NAMES;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOMemberWriter#writeMembers(java.lang.Class, java.io.Writer)
+     */
+    @Override
+    public void writeMembers(final Class<?> clazz, final Writer fw) throws IOException {
+        this.resetHelperMethods();
+        final List<Field> fields = this.generator.getDTOFields(clazz);
+        this.writeToMap(clazz, fields, fw);
+        if (this.isStaticClass(clazz)) {
+            this.writeFromMap(clazz, fields, fw);
+        }
+        this.writeHelperMethods(clazz, fw);
+    }
+
+    /**
+     * Write the method converting the DTO to a map.
+     *
+     * @param clazz  the class a DTO is generated for, or a declared class.
+     * @param fields the fields.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeToMap(final Class<?> clazz, final List<Field> fields, final Writer fw) throws IOException {
+        fw.write("    /**\n");
+        fw.write("     * Convert this DTO to a map of its fields by name, in declaration order, its nested DTOs\n");
+        fw.write("     * converted too.\n");
+        fw.write("     *\n");
+        fw.write("     * @return a new map.\n");
+        fw.write("     */\n");
+        fw.write("    public java.util.Map<String, Object> " + TO_MAP_METHOD + "() {\n");
+        fw.write("        final java.util.Map<String, Object> map = new java.util.LinkedHashMap<String, Object>("
+                + this.getCapacity(fields.size()) + ");\n");
+        for (final Field field : fields) {
+            fw.write("        map.put(" + this.toJavaString(field.getName()) + ", " + this.toMapValue(clazz,
+                    this.generator.getDTOFieldGenericType(field), "this."
+                    + this.generator.getDTOFieldGetterName(field) + "()") + ");\n");
+        }
+        fw.write("        return map;\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write the static method converting a map to a DTO.
+     *
+     * @param clazz  the class a DTO is generated for, or a declared class.
+     * @param fields the fields.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeFromMap(final Class<?> clazz, final List<Field> fields, final Writer fw)
+            throws IOException {
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        final String builderName = this.generator.getDTOBuilderName(clazz);
+        fw.write("    /**\n");
+        fw.write("     * Convert a map of fields by name to a DTO, ignoring the unknown names.\n");
+        fw.write("     *\n");
+        fw.write("     * @param map the map, e.g. returned by {@link #" + TO_MAP_METHOD + "()}.\n");
+        fw.write("     * @return a new DTO.\n");
+        fw.write("     * @throws IllegalArgumentException if a value does not fit its field.\n");
+        fw.write("     */\n");
+        for (final Field field : fields) {
+            final Class<?> type = this.generator.getDTOFieldClass(field);
+            if (this.generator.getDTOFieldGenericType(field) instanceof ParameterizedType
+                    || (this.isStaticClass(type) && this.hasMapConverter(type))) {
+                fw.write("    @SuppressWarnings(\"unchecked\")\n");
+                break;
+            }
+        }
+        fw.write("    public static " + dtoName + " " + FROM_MAP_METHOD
+                + "(final java.util.Map<String, ?> map) {\n");
+        fw.write("        final " + builderName + " dto = new " + builderName + "();\n");
+        if (!fields.isEmpty()) {
+            final Map<Integer, List<Field>> fieldsByHash = new LinkedHashMap<Integer, List<Field>>();
+            for (final Field field : fields) {
+                final Integer hash = Integer.valueOf(field.getName().hashCode());
+                List<Field> sameHashFields = fieldsByHash.get(hash);
+                if (sameHashFields == null) {
+                    sameHashFields = new ArrayList<Field>();
+                    fieldsByHash.put(hash, sameHashFields);
+                }
+                sameHashFields.add(field);
+            }
+            fw.write("        for (final java.util.Map.Entry<String, ?> entry : map.entrySet()) {\n");
+            fw.write("            final String name = entry.getKey();\n");
+            fw.write("            if (name == null) {\n");
+            fw.write("                continue;\n");
+            fw.write("            }\n");
+            fw.write("            final Object value = entry.getValue();\n");
+            fw.write("            switch (name.hashCode()) {\n");
+            for (final Map.Entry<Integer, List<Field>> sameHashFields : fieldsByHash.entrySet()) {
+                fw.write("                case " + sameHashFields.getKey() + ":\n");
+                for (final Field field : sameHashFields.getValue()) {
+                    fw.write("                    if (" + this.toJavaString(field.getName()) + ".equals(name)) {\n");
+                    fw.write("                        dto." + this.generator.getDTOFieldSetterName(field) + "("
+                            + this.convert(clazz, field) + ");\n");
+                    fw.write("                        continue;\n");
+                    fw.write("                    }\n");
+                }
+                fw.write("                    break;\n");
+            }
+            fw.write("                default:\n");
+            fw.write("                    break;\n");
+            fw.write("            }\n");
+            fw.write("        }\n");
+        }
+        fw.write("        return " + this.generator.getBuiltDTO("dto") + ";\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Return the expression converting the <code>value</code> of a map to the
+     * type of a field.
+     *
+     * @param clazz the class a DTO is generated for, or a declared class.
+     * @param field the field.
+     * @return the expression.
+     */
+    protected String convert(final Class<?> clazz, final Field field) {
+        final Class<?> type = this.generator.getDTOFieldClass(field);
+        final String name = this.toJavaString(field.getName());
+        if (type.isPrimitive()) {
+            return "DTOMaps.notNull(DTOMaps.to" + this.getWrapperName(type) + "(value, " + name + "), " + name + ")";
+        }
+        final Type dtoType = this.generator.getDTOFieldGenericType(field);
+        if (dtoType instanceof Class<?> || this.isSupportedCollection(dtoType)) {
+            return this.convert(clazz, dtoType, "value", name);
+        }
+        return "DTOMaps.cast(value, " + this.getClassLiteral(clazz, field) + ", " + name + ")";
+    }
+
+    /**
+     * Return the expression converting a value to a type: a wrapper, an enum,
+     * a nested DTO, or an array or a collection converted element by element
+     * by a helper method.
+     *
+     * @param clazz the class a DTO is generated for, or a declared class.
+     * @param type  the type, as handled by the writers.
+     * @param value the value expression, evaluated more than once.
+     * @param name  the expression of the field name, for the error messages.
+     * @return the expression.
+     */
+    protected String convert(final Class<?> clazz, final Type type, final String value, final String name) {
+        if (type instanceof ParameterizedType) {
+            if (this.isSupportedCollection(type)) {
+                return this.getHelperMethodName(FROM_MAPS, type) + "(" + value + ", " + name + ")";
+            }
+            return "DTOMaps.cast(" + value + ", " + this.getClassLiteral(clazz, type) + ", " + name + ")";
+        }
+        final Class<?> valueClass = (Class<?>) type;
+        if (valueClass.isArray() && !valueClass.getComponentType().isPrimitive()) {
+            return this.getHelperMethodName(FROM_MAPS, type) + "(" + value + ", " + name + ")";
+        }
+        if (this.getPrimitiveType(valueClass) != null) {
+            return "DTOMaps.to" + valueClass.getSimpleName() + "(" + value + ", " + name + ")";
+        }
+        final String classLiteral = this.getClassLiteral(clazz, type);
+        if (valueClass.isEnum()) {
+            return "DTOMaps.toEnum(" + value + ", " + classLiteral + ", " + name + ")";
+        }
+        if (this.isStaticClass(valueClass) && this.hasMapConverter(valueClass)) {
+            return value + " instanceof java.util.Map ? " + this.generator.getDTOType(clazz, valueClass) + "."
+                    + FROM_MAP_METHOD + "((java.util.Map<String, ?>) " + value + ") : DTOMaps.cast(" + value + ", "
+                    + classLiteral + ", " + name + ")";
+        }
+        return "DTOMaps.cast(" + value + ", " + classLiteral + ", " + name + ")";
+    }
+
+    /**
+     * Return the expression of a value as it is put in the map of a DTO: the
+     * nested DTOs converted to maps, the arrays and the collections holding
+     * DTOs converted by a helper method, the other values as they are.
+     *
+     * @param clazz the class a DTO is generated for, or a declared class.
+     * @param type  the type, as handled by the writers.
+     * @param value the value expression, evaluated more than once.
+     * @return the expression.
+     */
+    protected String toMapValue(final Class<?> clazz, final Type type, final String value) {
+        if (!this.holdsMapConverters(type)) {
+            return value;
+        }
+        if (type instanceof Class<?> && !((Class<?>) type).isArray()) {
+            return value + " == null ? null : " + value + "." + TO_MAP_METHOD + "()";
+        }
+        return "this." + this.getHelperMethodName(TO_MAPS, type) + "(" + value + ")";
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The helper methods converting to maps are instance methods, so that
+     * they can be declared in inner classes.
+     *
+     * @see fr.maven.dto.generator.impl.DTOSourceWriter#writeHelperMethod(java.lang.Class, java.lang.String, java.lang.String, java.lang.reflect.Type, java.io.Writer)
+     */
+    @Override
+    protected void writeHelperMethod(final Class<?> clazz, final String name, final String kind, final Type type,
+                                     final Writer fw) throws IOException {
+        if (TO_MAPS.equals(kind)) {
+            this.writeToMaps(clazz, name, type, fw);
+        }
+        else {
+            this.writeFromMaps(clazz, name, type, fw);
+        }
+    }
+
+    /**
+     * Write the helper method converting an array or a collection holding
+     * DTOs to a list of their maps, or a map holding DTOs to a map of their
+     * maps.
+     *
+     * @param clazz the class a DTO is generated for, or a declared class.
+     * @param name  the helper method name.
+     * @param type  the array or collection type.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeToMaps(final Class<?> clazz, final String name, final Type type, final Writer fw)
+            throws IOException {
+        final boolean map = type instanceof ParameterizedType && Map.class.isAssignableFrom(this.getRawClass(type));
+        final String resultType = map ? "java.util.Map<Object, Object>" : "java.util.List<Object>";
+        fw.write("    private " + resultType + " " + name + "(final " + this.generator.getDTOType(clazz, type)
+                + " value) {\n");
+        fw.write("        if (value == null) {\n");
+        fw.write("            return null;\n");
+        fw.write("        }\n");
+        if (map) {
+            final Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+            fw.write("        final " + resultType + " result = new java.util.LinkedHashMap<Object, Object>(\n");
+            fw.write("                (int) (value.size() / 0.75f) + 1);\n");
+            fw.write("        for (final java.util.Map.Entry<" + this.getDTOTypes(clazz, typeArguments)
+                    + "> entry : value.entrySet()) {\n");
+            fw.write("            result.put(" + this.toMapValue(clazz, typeArguments[0], "entry.getKey()") + ", "
+                    + this.toMapValue(clazz, typeArguments[1], "entry.getValue()") + ");\n");
+            fw.write("        }\n");
+        }
+        else {
+            final Type elementType = type instanceof Class<?> ? ((Class<?>) type).getComponentType()
+                    : ((ParameterizedType) type).getActualTypeArguments()[0];
+            fw.write("        final " + resultType + " result = new java.util.ArrayList<Object>(value."
+                    + (type instanceof Class<?> ? "length" : "size()") + ");\n");
+            fw.write("        for (final " + this.generator.getDTOType(clazz, elementType) + " element : value) {\n");
+            fw.write("            result.add(" + this.toMapValue(clazz, elementType, "element") + ");\n");
+            fw.write("        }\n");
+        }
+        fw.write("        return result;\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write the helper method converting the value of a map to an array or a
+     * collection: a collection or an array of references for an array or a
+     * collection, a map for a map, each element converted to its type.
+     *
+     * @param clazz the class a DTO is generated for, or a declared class.
+     * @param name  the helper method name.
+     * @param type  the array or collection type.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeFromMaps(final Class<?> clazz, final String name, final Type type, final Writer fw)
+            throws IOException {
+        final String dtoType = this.generator.getDTOType(clazz, type);
+        fw.write("    @SuppressWarnings(\"unchecked\")\n");
+        fw.write("    private static " + dtoType + " " + name + "(final Object value, final String name) {\n");
+        fw.write("        if (value == null) {\n");
+        fw.write("            return null;\n");
+        fw.write("        }\n");
+        if (type instanceof Class<?>) {
+            final int dimension = this.generator.getArrayDimension((Class<?>) type);
+            final StringBuilder newArray = new StringBuilder("new ");
+            newArray.append(dtoType.substring(0, dtoType.length() - 2 * dimension)).append("[elements.size()]");
+            for (int i = 1; i < dimension; i++) {
+                newArray.append("[]");
+            }
+            fw.write("        final java.util.Collection<?> elements = DTOMaps.elements(value, name);\n");
+            fw.write("        final " + dtoType + " result = " + newArray + ";\n");
+            fw.write("        int i = 0;\n");
+            fw.write("        for (final Object element : elements) {\n");
+            fw.write("            result[i++] = " + this.convert(clazz, ((Class<?>) type).getComponentType(),
+                    "element", "name") + ";\n");
+            fw.write("        }\n");
+        }
+        else {
+            final Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+            final String dtoTypes = this.getDTOTypes(clazz, typeArguments);
+            if (typeArguments.length == 2) {
+                fw.write("        final java.util.Map<?, ?> entries = DTOMaps.entries(value, name);\n");
+                fw.write("        final " + dtoType + " result = " + this.newCollection(type, dtoTypes,
+                        "entries.size()") + ";\n");
+                fw.write("        for (final java.util.Map.Entry<?, ?> entry : entries.entrySet()) {\n");
+                fw.write("            result.put(" + this.convert(clazz, typeArguments[0], "entry.getKey()", "name")
+                        + ", " + this.convert(clazz, typeArguments[1], "entry.getValue()", "name") + ");\n");
+            }
+            else {
+                fw.write("        final java.util.Collection<?> elements = DTOMaps.elements(value, name);\n");
+                fw.write("        final " + dtoType + " result = " + this.newCollection(type, dtoTypes,
+                        "elements.size()") + ";\n");
+                fw.write("        for (final Object element : elements) {\n");
+                fw.write("            result.add(" + this.convert(clazz, typeArguments[0], "element", "name")
+                        + ");\n");
+            }
+            fw.write("        }\n");
+        }
+        fw.write("        return result;\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Check if the values of a type are DTOs converted to and from maps.
+     *
+     * @param type the type of a DTO field, as declared in the class.
+     * @return <code>true</code> for the DTO classes.
+     */
+    protected boolean hasMapConverter(final Class<?> type) {
+        return this.generator.isDTOClass(type) && this.accept(type);
+    }
+
+    /**
+     * Check if the values of a type are, or hold in their arrays and
+     * collections, DTOs converted to maps.
+     *
+     * @param type the type, as handled by the writers.
+     * @return <code>true</code> if the values are converted by
+     *         <code>toMap()</code>.
+     */
+    protected boolean holdsMapConverters(final Type type) {
+        if (type instanceof Class<?>) {
+            final Class<?> valueClass = (Class<?>) type;
+            return valueClass.isArray() ? this.holdsMapConverters(valueClass.getComponentType())
+                    : this.hasMapConverter(valueClass);
+        }
+        if (this.isSupportedCollection(type)) {
+            for (final Type typeArgument : ((ParameterizedType) type).getActualTypeArguments()) {
+                if (this.holdsMapConverters(typeArgument)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the class literal of a type, without its type arguments.
+     *
+     * @param clazz the class a DTO is generated for, or a declared class.
+     * @param type  the type.
+     * @return the class literal.
+     */
+    private String getClassLiteral(final Class<?> clazz, final Type type) {
+        final String dtoType = this.generator.getDTOType(clazz, type);
+        final int typeArguments = dtoType.indexOf('<');
+        if (typeArguments < 0) {
+            return dtoType + ".class";
+        }
+        return dtoType.substring(0, typeArguments) + dtoType.substring(dtoType.lastIndexOf('>') + 1) + ".class";
+    }
+
+    /**
+     * Return the initial capacity of a hash map holding entries without
+     * rehashing, at the default load factor of 0.75.
+     *
+     * @param size the number of entries.
+     * @return the capacity.
+     */
+    private int getCapacity(final int size) {
+        return (size * 4 + 2) / 3;
+    }
+}
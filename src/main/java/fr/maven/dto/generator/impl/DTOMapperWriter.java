@@ -0,0 +1,708 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.generator.DTOTypeSubstitution;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Writer of the mapper of a DTO: a class with static <code>toDTO</code> and
+ * <code>toBean</code> methods converting a class to its DTO and back with
+ * direct getter and setter calls, so that no reflection is needed at runtime.
+ * <p/>
+ * Fields whose type has a DTO are converted by the mapper of that DTO.
+ * Arrays and collections are copied into new ones sized exactly, their
+ * elements converted when their type has a DTO, so that a DTO never shares
+ * them with its object. Lists and maps of wrappers held by primitive arrays
+ * and maps in the DTO are unboxed and boxed back. Other fields are copied as
+ * is. A field is left to its default value when
+ * the class has no public accessor for it. Object graphs are converted as
+ * trees: a cycle between objects is not detected.
+ * <p/>
+ * With lazy holders, the fields whose type has a DTO are not converted by
+ * <code>toDTO</code>: the DTO holds their object until the first call of
+ * their getter.
+ * <p/>
+ * Enum constants are converted with arrays indexed by ordinal, generated from
+ * the constants of the enum and checked against the enum and its DTO when
+ * the mapper is initialized: a constant added, removed or moved since the
+ * generation fails early rather than mapping to the wrong constant.
+ * <p/>
+ * The fields whose type is substituted in the DTO are converted to their
+ * substitute and back by helper methods.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOMapperWriter extends DTOCompanionWriter {
+
+    /**
+     * Kind of the methods converting to the DTO.
+     */
+    protected static final String TO_DTO = "toDTO";
+
+    /**
+     * Kind of the methods converting to the class.
+     */
+    protected static final String TO_BEAN = "toBean";
+
+    /**
+     * Kind of the methods converting a list or a map of wrappers to its
+     * primitive array or map.
+     */
+    protected static final String UNBOX = "unbox";
+
+    /**
+     * Kind of the methods converting a primitive array or map back to its list
+     * or map of wrappers.
+     */
+    protected static final String BOX = "box";
+
+    /**
+     * Kind of the methods returning the lazy holder of a value to convert to
+     * its DTO.
+     */
+    protected static final String LAZY = "lazy";
+
+    /**
+     * Kind of the constants holding the DTO constants by ordinal of the enum
+     * constants of the same name.
+     */
+    protected static final String DTO_CONSTANTS = "DTO_CONSTANTS";
+
+    /**
+     * Kind of the constants holding the enum constants by ordinal of the DTO
+     * constants of the same name.
+     */
+    protected static final String BEAN_CONSTANTS = "BEAN_CONSTANTS";
+
+    /**
+     * Kind of the method checking a table of constants when the mapper is
+     * initialized.
+     */
+    protected static final String CHECK_CONSTANTS = "checkConstants";
+
+    /**
+     * Kind of the methods converting a value to the substitute of its type.
+     */
+    protected static final String SUBSTITUTE = "substitute";
+
+    /**
+     * Kind of the methods converting a substitute back to its value.
+     */
+    protected static final String RESTORE = "restore";
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    public DTOMapperWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#getSuffix()
+     */
+    @Override
+    public String getSuffix() {
+        return "Mapper";
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#accept(java.lang.Class)
+     */
+    @Override
+    public boolean accept(final Class<?> clazz) {
+        return super.accept(clazz) && this.generator.isAccessible(clazz);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#write(java.lang.Class, java.io.Writer)
+     */
+    @Override
+    public void write(final Class<?> clazz, final Writer fw) throws IOException {
+        this.resetHelperMethods();
+        final String mapperName = this.getCompanionClassName(clazz);
+        this.writeHeader(clazz, fw, "Mapper between {@link " + clazz.getCanonicalName() + "} and its DTO.");
+        fw.write("public final class " + mapperName + " {\n\n");
+        fw.write("    private " + mapperName + "() {\n");
+        fw.write("    }\n\n");
+        this.writeMappings(clazz, fw);
+        this.writeHelperMethods(clazz, fw);
+        fw.write("}\n");
+    }
+
+    /**
+     * Write the conversion methods of a class and of its declared classes.
+     *
+     * @param clazz the class.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeMappings(final Class<?> clazz, final Writer fw) throws IOException {
+        if (clazz.isEnum()) {
+            this.writeEnumMapping(clazz, TO_DTO, DTO_CONSTANTS, clazz.getCanonicalName(),
+                    this.generator.getDTOClassName(clazz), fw);
+            this.writeEnumMapping(clazz, TO_BEAN, BEAN_CONSTANTS, this.generator.getDTOClassName(clazz),
+                    clazz.getCanonicalName(), fw);
+        }
+        else {
+            this.writeToDTO(clazz, fw);
+            this.writeToBean(clazz, fw);
+            for (final Class<?> declaredClass : this.generator.getDTODeclaredClasses(clazz)) {
+                if (this.isMappable(declaredClass)) {
+                    this.writeMappings(declaredClass, fw);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the method converting a class to its DTO, with the all arguments
+     * constructor of the DTO.
+     *
+     * @param clazz the class.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeToDTO(final Class<?> clazz, final Writer fw) throws IOException {
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        fw.write("    /**\n");
+        fw.write("     * Convert a {@link " + clazz.getCanonicalName() + "} to its DTO.\n");
+        fw.write("     *\n");
+        fw.write("     * @param bean the object to convert, may be <code>null</code>.\n");
+        fw.write("     * @return the DTO, <code>null</code> if the object is <code>null</code>.\n");
+        fw.write("     */\n");
+        fw.write("    public static " + dtoName + " " + TO_DTO + "(final " + clazz.getCanonicalName() + " bean) {\n");
+        fw.write("        if (bean == null) {\n");
+        fw.write("            return null;\n");
+        fw.write("        }\n");
+        final boolean lazy = this.generator.hasLazyFields(clazz);
+        fw.write((lazy ? "        final " + dtoName + " dto = new " : "        return new ") + dtoName + "(");
+        final List<Field> fields = this.generator.getDTOFields(clazz);
+        for (int i = 0; i < fields.size(); i++) {
+            final Field field = fields.get(i);
+            final Method getter = this.generator.getBeanGetter(clazz, field);
+            fw.write(i == 0 ? "\n" : ",\n");
+            if (getter != null && this.isHeldLazily(field)) {
+                fw.write("                null");
+            }
+            else if (getter != null && this.generator.getTypeSubstitution(field) != null) {
+                fw.write("                " + this.getHelperMethodName(SUBSTITUTE, field.getType()) + "(bean."
+                        + getter.getName() + "())");
+            }
+            else if (getter != null && this.generator.getPrimitiveCollectionType(field.getGenericType()) != null) {
+                fw.write("                " + this.getHelperMethodName(UNBOX, field.getGenericType()) + "(bean."
+                        + getter.getName() + "())");
+            }
+            else if (getter != null && this.isConvertible(field.getGenericType())) {
+                fw.write("                " + this.convert(TO_DTO, field.getGenericType(),
+                        "bean." + getter.getName() + "()"));
+            }
+            else {
+                fw.write("                " + this.generator.getDTOFieldDefaultValue(field));
+            }
+        }
+        fw.write(");\n");
+        if (lazy) {
+            for (final Field field : fields) {
+                final Method getter = this.generator.getBeanGetter(clazz, field);
+                if (getter != null && this.isHeldLazily(field)) {
+                    fw.write("        dto." + this.generator.getDTOFieldHolderSetterName(field) + "("
+                            + this.getHelperMethodName(LAZY, field.getGenericType()) + "(bean." + getter.getName()
+                            + "()));\n");
+                }
+            }
+            fw.write("        return dto;\n");
+        }
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write the method converting a DTO back to its class, with the no
+     * argument constructor and the setters of the class.
+     *
+     * @param clazz the class.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeToBean(final Class<?> clazz, final Writer fw) throws IOException {
+        final String beanName = clazz.getCanonicalName();
+        fw.write("    /**\n");
+        fw.write("     * Convert a DTO back to a {@link " + beanName + "}.\n");
+        fw.write("     *\n");
+        fw.write("     * @param dto the DTO to convert, may be <code>null</code>.\n");
+        fw.write("     * @return the object, <code>null</code> if the DTO is <code>null</code>.\n");
+        fw.write("     */\n");
+        fw.write("    public static " + beanName + " " + TO_BEAN + "(final " + this.generator.getDTOClassName(clazz)
+                + " dto) {\n");
+        fw.write("        if (dto == null) {\n");
+        fw.write("            return null;\n");
+        fw.write("        }\n");
+        if (this.generator.isInstantiable(clazz)) {
+            fw.write("        final " + beanName + " bean = new " + beanName + "();\n");
+            for (final Field field : this.generator.getDTOFields(clazz)) {
+                final Method setter = this.generator.getBeanSetter(clazz, field);
+                if (setter != null && this.generator.getTypeSubstitution(field) != null) {
+                    fw.write("        bean." + setter.getName() + "(" + this.getHelperMethodName(RESTORE,
+                            field.getType()) + "(dto." + this.generator.getDTOFieldGetterName(field) + "()));\n");
+                }
+                else if (setter != null && this.generator.getPrimitiveCollectionType(field.getGenericType()) != null) {
+                    fw.write("        bean." + setter.getName() + "(" + this.getHelperMethodName(BOX,
+                            field.getGenericType()) + "(dto." + this.generator.getDTOFieldGetterName(field)
+                            + "()));\n");
+                }
+                else if (setter != null && this.isConvertible(field.getGenericType())) {
+                    fw.write("        bean." + setter.getName() + "(" + this.convert(TO_BEAN, field.getGenericType(),
+                            "dto." + this.generator.getDTOFieldGetterName(field) + "()") + ");\n");
+                }
+            }
+            fw.write("        return bean;\n");
+        }
+        else {
+            fw.write("        throw new UnsupportedOperationException(\"" + beanName
+                    + " has no public no argument constructor.\");\n");
+        }
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write a method converting an enum constant to the constant of the same
+     * name, looked up by ordinal.
+     *
+     * @param clazz         the enum.
+     * @param kind          the conversion kind.
+     * @param constantsKind the kind of the constants looked up.
+     * @param fromName      the name of the enum converted.
+     * @param toName        the name of the enum returned.
+     * @param fw            the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeEnumMapping(final Class<?> clazz, final String kind, final String constantsKind,
+                                    final String fromName, final String toName, final Writer fw)
+            throws IOException {
+        fw.write("    /**\n");
+        fw.write("     * Convert a {@link " + fromName + "} to the {@link " + toName + "} of the same name.\n");
+        fw.write("     *\n");
+        fw.write("     * @param value the constant to convert, may be <code>null</code>.\n");
+        fw.write("     * @return the constant, <code>null</code> if the value is <code>null</code>.\n");
+        fw.write("     */\n");
+        fw.write("    public static " + toName + " " + kind + "(final " + fromName + " value) {\n");
+        fw.write("        if (value == null) {\n");
+        fw.write("            return null;\n");
+        fw.write("        }\n");
+        fw.write("        return " + this.getHelperMethodName(constantsKind, clazz) + "[value.ordinal()];\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write the constants of an enum or of its DTO by ordinal of the
+     * constants of the same name in the other, and the check of the table
+     * when the mapper is initialized.
+     *
+     * @param clazz the enum.
+     * @param name  the name of the constants.
+     * @param kind  the kind of the constants.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeEnumConstants(final Class<?> clazz, final String name, final String kind, final Writer fw)
+            throws IOException {
+        final String beanName = clazz.getCanonicalName();
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        final String fromName = DTO_CONSTANTS.equals(kind) ? beanName : dtoName;
+        final String toName = DTO_CONSTANTS.equals(kind) ? dtoName : beanName;
+        fw.write("    /**\n");
+        fw.write("     * The {@link " + toName + "} constants by ordinal of the {@link " + fromName
+                + "} constant of the same name.\n");
+        fw.write("     */\n");
+        fw.write("    private static final " + toName + "[] " + name + " = {");
+        final Object[] constants = clazz.getEnumConstants();
+        for (int i = 0; i < constants.length; i++) {
+            fw.write((i == 0 ? "\n            " : ",\n            ") + toName + "."
+                    + ((Enum<?>) constants[i]).name());
+        }
+        fw.write("};\n\n");
+        fw.write("    static {\n");
+        fw.write("        " + this.getHelperMethodName(CHECK_CONSTANTS, Enum.class) + "(" + fromName + ".values(), "
+                + name + ");\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write the method checking that a table of constants has the constant of
+     * the same name at the ordinal of each enum constant.
+     *
+     * @param name the method name.
+     * @param fw   the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeCheckConstantsMethod(final String name, final Writer fw) throws IOException {
+        fw.write("    private static void " + name + "(final Enum<?>[] constants, final Enum<?>[] table) {\n");
+        fw.write("        if (constants.length != table.length) {\n");
+        fw.write("            throw new IllegalStateException(\"The \" + table.length\n");
+        fw.write("                    + \" constants generated do not match the \" + constants.length + \" constants of \"\n");
+        fw.write("                    + constants.getClass().getComponentType().getName() + \".\");\n");
+        fw.write("        }\n");
+        fw.write("        for (int i = 0; i < constants.length; i++) {\n");
+        fw.write("            if (!constants[i].name().equals(table[i].name())) {\n");
+        fw.write("                throw new IllegalStateException(\"The constant generated \" + table[i]\n");
+        fw.write("                        + \" does not match the constant \" + constants[i] + \" of \"\n");
+        fw.write("                        + constants.getClass().getComponentType().getName() + \".\");\n");
+        fw.write("            }\n");
+        fw.write("        }\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#writeHelperMethod(java.lang.Class, java.lang.String, java.lang.String, java.lang.reflect.Type, java.io.Writer)
+     */
+    @Override
+    protected void writeHelperMethod(final Class<?> clazz, final String name, final String kind, final Type type,
+                                     final Writer fw) throws IOException {
+        if (UNBOX.equals(kind) || BOX.equals(kind)) {
+            this.writeBoxingMethod(clazz, name, kind, type, fw);
+            return;
+        }
+        if (LAZY.equals(kind)) {
+            this.writeLazyMethod(clazz, name, type, fw);
+            return;
+        }
+        if (DTO_CONSTANTS.equals(kind) || BEAN_CONSTANTS.equals(kind)) {
+            this.writeEnumConstants((Class<?>) type, name, kind, fw);
+            return;
+        }
+        if (CHECK_CONSTANTS.equals(kind)) {
+            this.writeCheckConstantsMethod(name, fw);
+            return;
+        }
+        if (SUBSTITUTE.equals(kind) || RESTORE.equals(kind)) {
+            this.writeSubstitutionMethod(name, kind, (Class<?>) type, fw);
+            return;
+        }
+        final String fromType = this.getType(clazz, kind, type, true);
+        final String toType = this.getType(clazz, kind, type, false);
+        fw.write("    private static " + toType + " " + name + "(final " + fromType + " value) {\n");
+        fw.write("        if (value == null) {\n");
+        fw.write("            return null;\n");
+        fw.write("        }\n");
+        if (type instanceof Class<?> && !this.needsCopy(((Class<?>) type).getComponentType())) {
+            fw.write("        return value.clone();\n");
+            fw.write("    }\n\n");
+            return;
+        }
+        if (type instanceof Class<?>) {
+            final Class<?> componentType = ((Class<?>) type).getComponentType();
+            final int dimension = this.generator.getArrayDimension((Class<?>) type);
+            final StringBuilder newArray = new StringBuilder("new ");
+            newArray.append(toType.substring(0, toType.length() - 2 * dimension)).append("[value.length]");
+            for (int i = 1; i < dimension; i++) {
+                newArray.append("[]");
+            }
+            fw.write("        final " + toType + " result = " + newArray + ";\n");
+            fw.write("        for (int i = 0; i < value.length; i++) {\n");
+            fw.write("            result[i] = " + this.convert(kind, componentType, "value[i]") + ";\n");
+            fw.write("        }\n");
+        }
+        else {
+            final Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+            final StringBuilder fromArguments = new StringBuilder();
+            final StringBuilder toArguments = new StringBuilder();
+            for (int i = 0; i < typeArguments.length; i++) {
+                if (i > 0) {
+                    fromArguments.append(", ");
+                    toArguments.append(", ");
+                }
+                fromArguments.append(this.getType(clazz, kind, typeArguments[i], true));
+                toArguments.append(this.getType(clazz, kind, typeArguments[i], false));
+            }
+            fw.write("        final " + toType + " result = "
+                    + this.newCollection(type, toArguments.toString(), "value.size()") + ";\n");
+            if (typeArguments.length == 2) {
+                fw.write("        for (final java.util.Map.Entry<" + fromArguments + "> entry : value.entrySet()) {\n");
+                fw.write("            result.put(" + this.convert(kind, typeArguments[0], "entry.getKey()") + ", "
+                        + this.convert(kind, typeArguments[1], "entry.getValue()") + ");\n");
+            }
+            else {
+                fw.write("        for (final " + fromArguments + " element : value) {\n");
+                fw.write("            result.add(" + this.convert(kind, typeArguments[0], "element") + ");\n");
+            }
+            fw.write("        }\n");
+        }
+        fw.write("        return result;\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write a helper method converting a list or a map of wrappers to its
+     * primitive array or map, or back. A <code>null</code> element, key or
+     * value can not be unboxed.
+     *
+     * @param clazz the class a DTO is generated for.
+     * @param name  the helper method name.
+     * @param kind  {@link #UNBOX} or {@link #BOX}.
+     * @param type  the list or map type, as declared in the class.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeBoxingMethod(final Class<?> clazz, final String name, final String kind, final Type type,
+                                     final Writer fw) throws IOException {
+        final Type primitiveType = this.generator.getPrimitiveCollectionType(type);
+        final String beanType = this.generator.getBeanType(type);
+        final String dtoType = this.generator.getDTOType(clazz, primitiveType);
+        final Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+        final boolean unbox = UNBOX.equals(kind);
+        fw.write("    private static " + (unbox ? dtoType : beanType) + " " + name + "(final "
+                + (unbox ? beanType : dtoType) + " value) {\n");
+        fw.write("        if (value == null) {\n");
+        fw.write("            return null;\n");
+        fw.write("        }\n");
+        if (primitiveType instanceof DTOPrimitiveMapType) {
+            final String keyType = this.generator.getBeanType(typeArguments[0]);
+            final String valueType = this.generator.getBeanType(typeArguments[1]);
+            if (unbox) {
+                fw.write("        final " + dtoType + " result = new " + dtoType + "(value.size());\n");
+                fw.write("        for (final java.util.Map.Entry<" + keyType + ", " + valueType
+                        + "> entry : value.entrySet()) {\n");
+                fw.write("            result.put(entry.getKey()." + this.getPrimitiveType((Class<?>) typeArguments[0])
+                        + "Value(), entry.getValue()." + this.getPrimitiveType((Class<?>) typeArguments[1])
+                        + "Value());\n");
+            }
+            else {
+                fw.write("        final " + beanType + " result = "
+                        + this.newCollection(type, keyType + ", " + valueType, "value.size()") + ";\n");
+                fw.write("        for (int i = 0; i < value.size(); i++) {\n");
+                fw.write("            result.put(" + keyType + ".valueOf(value.keyAt(i)), " + valueType
+                        + ".valueOf(value.valueAt(i)));\n");
+            }
+        }
+        else {
+            final String elementType = this.generator.getBeanType(typeArguments[0]);
+            if (unbox) {
+                fw.write("        final " + dtoType + " result = new "
+                        + dtoType.substring(0, dtoType.length() - 2) + "[value.size()];\n");
+                fw.write("        int i = 0;\n");
+                fw.write("        for (final " + elementType + " element : value) {\n");
+                fw.write("            result[i++] = element." + this.getPrimitiveType((Class<?>) typeArguments[0])
+                        + "Value();\n");
+            }
+            else {
+                fw.write("        final " + beanType + " result = "
+                        + this.newCollection(type, elementType, "value.length") + ";\n");
+                fw.write("        for (int i = 0; i < value.length; i++) {\n");
+                fw.write("            result.add(" + elementType + ".valueOf(value[i]));\n");
+            }
+        }
+        fw.write("        }\n");
+        fw.write("        return result;\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write a helper method converting a value to the substitute of its type,
+     * or back, <code>null</code> being {@link Long#MIN_VALUE} in a
+     * <code>long</code>.
+     *
+     * @param name the helper method name.
+     * @param kind the conversion kind.
+     * @param type the type substituted.
+     * @param fw   the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeSubstitutionMethod(final String name, final String kind, final Class<?> type,
+                                           final Writer fw) throws IOException {
+        final DTOTypeSubstitution typeSubstitution = this.generator.typeSubstitutions.get(type.getName());
+        final Class<?> substituteType = typeSubstitution.getSubstituteType();
+        final String nullValue = substituteType.isPrimitive() ? "Long.MIN_VALUE" : "null";
+        final String typeName = type.getCanonicalName();
+        final String substituteName = substituteType.getSimpleName();
+        final int scale = typeSubstitution.getScale();
+        if (SUBSTITUTE.equals(kind)) {
+            fw.write("    private static " + substituteName + " " + name + "(final " + typeName + " value) {\n");
+            fw.write("        if (value == null) {\n");
+            fw.write("            return " + nullValue + ";\n");
+            fw.write("        }\n");
+            if (type.equals(Calendar.class)) {
+                fw.write("        return value.getTimeInMillis();\n");
+            }
+            else if (type.equals(BigDecimal.class)) {
+                fw.write("        return value.setScale(" + scale + ", java.math.RoundingMode.HALF_EVEN)"
+                        + ".movePointRight(" + scale + ").longValueExact();\n");
+            }
+            else {
+                fw.write("        return value.getTime();\n");
+            }
+        }
+        else {
+            fw.write("    private static " + typeName + " " + name + "(final " + substituteName + " value) {\n");
+            fw.write("        if (value == " + nullValue + ") {\n");
+            fw.write("            return null;\n");
+            fw.write("        }\n");
+            if (type.equals(Calendar.class)) {
+                fw.write("        final java.util.Calendar calendar = java.util.Calendar.getInstance();\n");
+                fw.write("        calendar.setTimeInMillis(value);\n");
+                fw.write("        return calendar;\n");
+            }
+            else if (type.equals(BigDecimal.class)) {
+                fw.write("        return java.math.BigDecimal.valueOf(value, " + scale + ");\n");
+            }
+            else {
+                fw.write("        return new java.util.Date(value);\n");
+            }
+        }
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write a helper method returning the lazy holder of a value converted to
+     * its DTO on demand, <code>null</code> for a <code>null</code> value.
+     *
+     * @param clazz the class a DTO is generated for.
+     * @param name  the helper method name.
+     * @param type  the value type, as declared in the class.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeLazyMethod(final Class<?> clazz, final String name, final Type type, final Writer fw)
+            throws IOException {
+        final String beanType = this.generator.getBeanType(type);
+        final String holderType = DTOLazyWriter.LAZY_CLASS + "<" + beanType + ", "
+                + this.generator.getDTOType(clazz, type) + ">";
+        fw.write("    private static " + holderType + " " + name + "(final " + beanType + " value) {\n");
+        fw.write("        if (value == null) {\n");
+        fw.write("            return null;\n");
+        fw.write("        }\n");
+        fw.write("        return new " + holderType + "(value) {\n");
+        fw.write("            @Override\n");
+        fw.write("            protected " + this.generator.getDTOType(clazz, type) + " convert(final " + beanType
+                + " source) {\n");
+        fw.write("                return " + this.convert(TO_DTO, type, "source") + ";\n");
+        fw.write("            }\n");
+        fw.write("        };\n");
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Check if a field is converted lazily by the getter of the DTO instead
+     * of by the mapper.
+     *
+     * @param field the field.
+     * @return <code>true</code> if the DTO holds the object of the field.
+     */
+    protected boolean isHeldLazily(final Field field) {
+        return this.generator.isLazyField(field) && this.isConvertible(field.getGenericType());
+    }
+
+    /**
+     * Return a type as it is written on one side of a conversion.
+     *
+     * @param clazz the class a DTO is generated for.
+     * @param kind  the conversion kind.
+     * @param type  the type, as declared in the class.
+     * @param from  <code>true</code> for the side converted, <code>false</code>
+     *              for the side returned.
+     * @return the class type or the DTO type.
+     */
+    private String getType(final Class<?> clazz, final String kind, final Type type, final boolean from) {
+        if (TO_DTO.equals(kind) == from) {
+            return this.generator.getBeanType(type);
+        }
+        return this.generator.getDTOType(clazz, type);
+    }
+
+    /**
+     * Return the expression converting a value.
+     *
+     * @param kind  the conversion kind.
+     * @param type  the value type, as declared in the class.
+     * @param value the value expression.
+     * @return the conversion expression.
+     */
+    protected String convert(final String kind, final Type type, final String value) {
+        if (!this.needsCopy(type)) {
+            return value;
+        }
+        if (type instanceof Class<?> && !((Class<?>) type).isArray()) {
+            return this.getCompanionClassName((Class<?>) type) + "." + kind + "(" + value + ")";
+        }
+        return this.getHelperMethodName(kind, type) + "(" + value + ")";
+    }
+
+    /**
+     * Check if the values of a type differ between a class and its DTO, i.e.
+     * if the type involves a class that has a DTO.
+     *
+     * @param type the type, as declared in the class.
+     * @return <code>true</code> if the values must be converted.
+     */
+    protected boolean needsConversion(final Type type) {
+        return this.generator.refersToDTOClass(type);
+    }
+
+    /**
+     * Check if the values of a type are not given as is to the other side of
+     * a conversion: the values whose type involves a class that has a DTO,
+     * and the arrays and collections, copied.
+     *
+     * @param type the type, as declared in the class.
+     * @return <code>true</code> if the values must be converted or copied.
+     */
+    protected boolean needsCopy(final Type type) {
+        return this.needsConversion(type) || (type instanceof Class<?> && ((Class<?>) type).isArray())
+                || this.isSupportedCollection(type);
+    }
+
+    /**
+     * Check if the values of a type can be converted by the mapper.
+     *
+     * @param type the type, as declared in the class.
+     * @return <code>true</code> if the values can be copied or converted.
+     */
+    protected boolean isConvertible(final Type type) {
+        if (!this.needsConversion(type)) {
+            return true;
+        }
+        if (type instanceof ParameterizedType) {
+            if (!this.isSupportedCollection(type)) {
+                return false;
+            }
+            for (final Type typeArgument : ((ParameterizedType) type).getActualTypeArguments()) {
+                if (!this.isConvertible(typeArgument)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return this.isMappable(this.generator.getArrayComponentType((Class<?>) type));
+    }
+
+    /**
+     * Check if the mapper can convert a class that has a DTO.
+     *
+     * @param clazz the class.
+     * @return <code>true</code> if the class and its DTO can be referenced
+     *         and instantiated from the mapper.
+     */
+    protected boolean isMappable(final Class<?> clazz) {
+        return this.generator.isDTOClass(clazz) && this.generator.isAccessible(clazz) && this.isStaticClass(clazz)
+                && !clazz.isInterface() && !clazz.isAnnotation();
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Base of the writers of members added to a DTO, e.g. the methods of an
+ * interface it implements. Members are written after the getters and setters
+ * of the DTO, and before its declared classes.
+ *
+ * @author Wilfried Petit
+ */
+public abstract class DTOMemberWriter extends DTOSourceWriter {
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    protected DTOMemberWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+    }
+
+    /**
+     * Check if members are written in the DTO of the class given.
+     *
+     * @param clazz the class a DTO is generated for, or a declared class.
+     * @return <code>true</code> if members are written.
+     */
+    public boolean accept(final Class<?> clazz) {
+        return !clazz.isEnum() && !clazz.isInterface() && !clazz.isAnnotation();
+    }
+
+    /**
+     * Return the interfaces the DTO implements for the members written.
+     *
+     * @param clazz the class a DTO is generated for, or a declared class.
+     * @return the interfaces names.
+     */
+    public List<String> getInterfaces(final Class<?> clazz) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Write the members in the DTO of the class given.
+     *
+     * @param clazz the class a DTO is generated for, or a declared class.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    public abstract void writeMembers(Class<?> clazz, Writer fw) throws IOException;
+
+    /**
+     * Check if the class given is the top level class of its DTO source,
+     * where members shared with the declared classes are written.
+     *
+     * @param clazz the class a DTO is generated for, or a declared class.
+     * @return <code>true</code> if the class is not declared in a DTO.
+     */
+    protected boolean isTopLevel(final Class<?> clazz) {
+        return this.generator.getOutermostClass(clazz) == clazz;
+    }
+}
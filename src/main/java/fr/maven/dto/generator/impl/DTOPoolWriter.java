@@ -0,0 +1,258 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer of the pools of a DTO, on commons-pool: a class with static
+ * <code>borrow</code> and <code>release</code> methods on a shared
+ * {@link org.apache.commons.pool.impl.StackObjectPool}, and the typed
+ * factory of the pool, e.g. <code>BeanDTOPool</code> and
+ * <code>BeanDTOPool.Factory</code>. The declared classes have their own pool
+ * in the same class, e.g. <code>borrowDetail</code> and
+ * <code>DetailFactory</code> for <code>Bean.Detail</code>.
+ * <p/>
+ * A DTO released is reset, which releases its nested DTOs in turn, before
+ * the pool is locked. The DTOs released are tracked by identity during a
+ * release, so that a DTO shared within the graph is returned once; still, a
+ * DTO must be released only when nothing outside the graph references it or
+ * its nested DTOs. The factory resets the DTOs returned to a pool directly.
+ * The generated sources need commons-pool.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOPoolWriter extends DTOCompanionWriter {
+
+    /**
+     * The maximum number of idle DTOs a shared pool keeps.
+     */
+    protected static final int MAX_IDLE = 64;
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    public DTOPoolWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#getSuffix()
+     */
+    @Override
+    public String getSuffix() {
+        return "Pool";
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#accept(java.lang.Class)
+     */
+    @Override
+    public boolean accept(final Class<?> clazz) {
+        return super.accept(clazz) && !clazz.isEnum() && this.generator.isAccessible(clazz);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOCompanionWriter#write(java.lang.Class, java.io.Writer)
+     */
+    @Override
+    public void write(final Class<?> clazz, final Writer fw) throws IOException {
+        final String poolName = this.getCompanionClassName(clazz);
+        this.writeHeader(clazz, fw, "Pools of the DTOs of {@link " + clazz.getCanonicalName()
+                + "}, reset when released.");
+        fw.write("public final class " + poolName + " {\n\n");
+        fw.write("    /**\n");
+        fw.write("     * The maximum number of idle DTOs a shared pool keeps.\n");
+        fw.write("     */\n");
+        fw.write("    public static final int MAX_IDLE = " + MAX_IDLE + ";\n\n");
+        this.writePoolFields(clazz, fw);
+        fw.write("    private " + poolName + "() {\n");
+        fw.write("    }\n\n");
+        this.writePool(clazz, fw);
+        fw.write("}\n");
+    }
+
+    /**
+     * Write the fields of the shared pools of a class and of its declared
+     * classes.
+     *
+     * @param clazz the class.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writePoolFields(final Class<?> clazz, final Writer fw) throws IOException {
+        fw.write("    private static final org.apache.commons.pool.ObjectPool " + this.getPoolFieldName(clazz)
+                + " = new" + this.getPoolName(clazz) + "Pool(MAX_IDLE);\n\n");
+        for (final Class<?> declaredClass : this.generator.getDTODeclaredClasses(clazz)) {
+            if (this.isCodable(declaredClass)) {
+                this.writePoolFields(declaredClass, fw);
+            }
+        }
+    }
+
+    /**
+     * Write the methods and the factory of the pool of a class, then of its
+     * declared classes.
+     *
+     * @param clazz the class.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writePool(final Class<?> clazz, final Writer fw) throws IOException {
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        final String name = this.getPoolName(clazz);
+        final String poolField = this.getPoolFieldName(clazz);
+        final String factoryName = name + "Factory";
+
+        fw.write("    /**\n");
+        fw.write("     * Return a new pool of {@link " + dtoName + "}, to be used instead of the shared one.\n");
+        fw.write("     *\n");
+        fw.write("     * @param maxIdle the maximum number of idle DTOs kept.\n");
+        fw.write("     * @return the pool.\n");
+        fw.write("     */\n");
+        fw.write("    public static org.apache.commons.pool.ObjectPool new" + name + "Pool(final int maxIdle) {\n");
+        fw.write("        return new org.apache.commons.pool.impl.StackObjectPool(new " + factoryName
+                + "(), maxIdle);\n");
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * @return the shared pool of {@link " + dtoName + "}.\n");
+        fw.write("     */\n");
+        fw.write("    public static org.apache.commons.pool.ObjectPool get" + name + "Pool() {\n");
+        fw.write("        return " + poolField + ";\n");
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * Borrow a DTO from the shared pool, reset or new.\n");
+        fw.write("     *\n");
+        fw.write("     * @return the DTO.\n");
+        fw.write("     */\n");
+        fw.write("    public static " + dtoName + " borrow" + name + "() {\n");
+        fw.write("        try {\n");
+        fw.write("            return (" + dtoName + ") " + poolField + ".borrowObject();\n");
+        fw.write("        }\n");
+        fw.write("        catch (final RuntimeException e) {\n");
+        fw.write("            throw e;\n");
+        fw.write("        }\n");
+        fw.write("        catch (final Exception e) {\n");
+        fw.write("            throw new IllegalStateException(\"No DTO borrowed.\", e);\n");
+        fw.write("        }\n");
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * Reset a DTO, releasing its nested DTOs, then return it to the shared pool. The DTO must\n");
+        fw.write("     * not be used anymore.\n");
+        fw.write("     *\n");
+        fw.write("     * @param dto the DTO, ignored if <code>null</code>.\n");
+        fw.write("     */\n");
+        fw.write("    public static void release(final " + dtoName + " dto) {\n");
+        fw.write("        release(dto, " + DTOResetWriter.NEW_RELEASED + ");\n");
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * Reset a DTO, releasing its nested DTOs, then return it to the shared pool, unless it is\n");
+        fw.write("     * already released.\n");
+        fw.write("     *\n");
+        fw.write("     * @param dto      the DTO, ignored if <code>null</code>.\n");
+        fw.write("     * @param released the DTOs released so far, by identity.\n");
+        fw.write("     */\n");
+        fw.write("    public static void release(final " + dtoName + " dto, final " + DTOResetWriter.RELEASED_TYPE
+                + " released) {\n");
+        fw.write("        if (dto == null || !released.add(dto)) {\n");
+        fw.write("            return;\n");
+        fw.write("        }\n");
+        fw.write("        dto." + DTOResetWriter.RESET_METHOD + "(released);\n");
+        fw.write("        try {\n");
+        fw.write("            " + poolField + ".returnObject(dto);\n");
+        fw.write("        }\n");
+        fw.write("        catch (final RuntimeException e) {\n");
+        fw.write("            throw e;\n");
+        fw.write("        }\n");
+        fw.write("        catch (final Exception e) {\n");
+        fw.write("            throw new IllegalStateException(\"DTO not released.\", e);\n");
+        fw.write("        }\n");
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * Factory of the pools of {@link " + dtoName + "}: creates the DTOs and resets them when\n");
+        fw.write("     * they are returned.\n");
+        fw.write("     */\n");
+        fw.write("    public static final class " + factoryName
+                + " extends org.apache.commons.pool.BasePoolableObjectFactory {\n\n");
+        fw.write("        @Override\n");
+        fw.write("        public " + dtoName + " makeObject() {\n");
+        fw.write("            return new " + dtoName + "();\n");
+        fw.write("        }\n\n");
+        fw.write("        @Override\n");
+        fw.write("        public void passivateObject(final Object obj) {\n");
+        fw.write("            ((" + dtoName + ") obj)." + DTOResetWriter.RESET_METHOD + "();\n");
+        fw.write("        }\n");
+        fw.write("    }\n\n");
+
+        for (final Class<?> declaredClass : this.generator.getDTODeclaredClasses(clazz)) {
+            if (this.isCodable(declaredClass)) {
+                this.writePool(declaredClass, fw);
+            }
+        }
+    }
+
+    /**
+     * Return the name inserted in the methods and the factory of the pool of
+     * a class: empty for the top level class, the names of the declared
+     * classes from it otherwise, e.g. <code>Detail</code> for
+     * <code>Bean.Detail</code>.
+     *
+     * @param clazz the class.
+     * @return the name.
+     */
+    protected String getPoolName(final Class<?> clazz) {
+        final String dtoName = this.generator.getDTOClassName(clazz);
+        final String topLevelName = this.generator.getDTOClassName(this.generator.getOutermostClass(clazz));
+        return dtoName.substring(topLevelName.length()).replace(".", "");
+    }
+
+    /**
+     * Return the name of the field of the shared pool of a class, e.g.
+     * <code>POOL</code> for the top level class and <code>DETAIL_POOL</code>
+     * for <code>Bean.Detail</code>.
+     *
+     * @param clazz the class.
+     * @return the field name.
+     */
+    protected String getPoolFieldName(final Class<?> clazz) {
+        final String name = this.getPoolName(clazz);
+        final StringBuilder fieldName = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            if (i > 0 && Character.isUpperCase(c)) {
+                fieldName.append('_');
+            }
+            fieldName.append(Character.toUpperCase(c));
+        }
+        if (fieldName.length() > 0) {
+            fieldName.append('_');
+        }
+        return fieldName.append("POOL").toString();
+    }
+
+    /**
+     * Return the name of the method releasing a DTO of a class to its shared
+     * pool, as called from another DTO.
+     *
+     * @param clazz the class that has a DTO.
+     * @return the qualified method name.
+     */
+    protected String getReleaseMethodName(final Class<?> clazz) {
+        return this.getCompanionClassName(clazz) + ".release";
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.lang.reflect.Type;
+
+/**
+ * Type of a DTO field holding a map of primitive keys to primitive values,
+ * e.g. <code>DTOLongDoubleMap</code> for a <code>Map&lt;Long, Double&gt;</code>
+ * field of a class. The map class is a support class generated from the
+ * <code>DTOPrimitiveMap.java.template</code> resource.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOPrimitiveMapType implements Type {
+
+    /**
+     * The primitive type of the keys.
+     */
+    private final Class<?> keyType;
+
+    /**
+     * The primitive type of the values.
+     */
+    private final Class<?> valueType;
+
+    /**
+     * Constructor.
+     *
+     * @param keyType   the primitive type of the keys.
+     * @param valueType the primitive type of the values.
+     */
+    public DTOPrimitiveMapType(final Class<?> keyType, final Class<?> valueType) {
+        this.keyType = keyType;
+        this.valueType = valueType;
+    }
+
+    /**
+     * @return the primitive type of the keys.
+     */
+    public Class<?> getKeyType() {
+        return this.keyType;
+    }
+
+    /**
+     * @return the primitive type of the values.
+     */
+    public Class<?> getValueType() {
+        return this.valueType;
+    }
+
+    /**
+     * Return the name of the map class, generated in the package of the DTOs.
+     *
+     * @return the class name, without package.
+     */
+    public String getName() {
+        return "DTO" + capitalize(this.keyType.getName()) + capitalize(this.valueType.getName()) + "Map";
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof DTOPrimitiveMapType)) {
+            return false;
+        }
+        final DTOPrimitiveMapType other = (DTOPrimitiveMapType) obj;
+        return this.keyType.equals(other.keyType) && this.valueType.equals(other.valueType);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return 31 * this.keyType.hashCode() + this.valueType.hashCode();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return this.getName();
+    }
+
+    /**
+     * Capitalize a primitive type name.
+     *
+     * @param name the name.
+     * @return the name with its first letter upper case.
+     */
+    private static String capitalize(final String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+}
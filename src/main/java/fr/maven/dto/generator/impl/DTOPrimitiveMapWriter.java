@@ -0,0 +1,146 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writer of the primitive maps held by the DTOs generated with primitive
+ * collections: a class per pair of key and value types used, e.g.
+ * <code>DTOLongDoubleMap</code> for the <code>Map&lt;Long, Double&gt;</code>
+ * fields, generated from the <code>DTOPrimitiveMap.java.template</code>
+ * resource.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOPrimitiveMapWriter extends DTOSourceWriter {
+
+    /**
+     * The map types used by the classes to generate, by class name, filled by
+     * {@link #getSupportClassNames()}.
+     */
+    private final Map<String, DTOPrimitiveMapType> mapTypes;
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    public DTOPrimitiveMapWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+        this.mapTypes = new TreeMap<String, DTOPrimitiveMapType>();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The names of the maps used by the fields of the classes to generate.
+     *
+     * @see fr.maven.dto.generator.impl.DTOSourceWriter#getSupportClassNames()
+     */
+    @Override
+    public List<String> getSupportClassNames() {
+        this.mapTypes.clear();
+        for (final Class<?> clazz : this.generator.classesToGenerate) {
+            this.addMapTypes(clazz);
+        }
+        return new ArrayList<String>(this.mapTypes.keySet());
+    }
+
+    /**
+     * Add the map types used by the fields of a class and of its declared
+     * classes.
+     *
+     * @param clazz the class.
+     */
+    protected void addMapTypes(final Class<?> clazz) {
+        if (clazz.isEnum()) {
+            return;
+        }
+        for (final Field field : this.generator.getDTOFields(clazz)) {
+            final Type dtoType = this.generator.getDTOFieldGenericType(field);
+            if (dtoType instanceof DTOPrimitiveMapType) {
+                this.mapTypes.put(dtoType.toString(), (DTOPrimitiveMapType) dtoType);
+            }
+        }
+        for (final Class<?> declaredClass : clazz.getDeclaredClasses()) {
+            this.addMapTypes(declaredClass);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOSourceWriter#writeSupportClass(java.lang.String, java.lang.String, java.io.Writer)
+     */
+    @Override
+    public void writeSupportClass(final String name, final String packageName, final Writer fw)
+            throws IOException {
+        final DTOPrimitiveMapType mapType = this.mapTypes.get(name);
+        if (mapType == null) {
+            throw new IllegalArgumentException("Unknown primitive map " + name);
+        }
+        final Class<?> keyType = mapType.getKeyType();
+        final Class<?> valueType = mapType.getValueType();
+        fw.write(this.readTemplate("DTOPrimitiveMap")
+                .replace("${package}", packageName)
+                .replace("${name}", name)
+                .replace("${Key}", this.getWrapperName(keyType))
+                .replace("${Value}", this.getWrapperName(valueType))
+                .replace("${keyHashCode}", this.getHashCode(keyType, "key"))
+                .replace("${valueHashCode}", this.getHashCode(valueType, "value"))
+                .replace("${valueEquals}", this.getEquals(valueType, "value", "other"))
+                .replace("${key}", keyType.getName())
+                .replace("${value}", valueType.getName()));
+    }
+
+    /**
+     * Return the expression hashing a primitive value as its wrapper does.
+     *
+     * @param primitiveType the primitive type.
+     * @param value         the value expression, a variable.
+     * @return the hash code expression.
+     */
+    protected String getHashCode(final Class<?> primitiveType, final String value) {
+        if (primitiveType.equals(boolean.class)) {
+            return value + " ? 1231 : 1237";
+        }
+        if (primitiveType.equals(long.class)) {
+            return "(int) (" + value + " ^ " + value + " >>> 32)";
+        }
+        if (primitiveType.equals(float.class)) {
+            return "Float.floatToIntBits(" + value + ")";
+        }
+        if (primitiveType.equals(double.class)) {
+            return "(int) (Double.doubleToLongBits(" + value + ") ^ Double.doubleToLongBits(" + value + ") >>> 32)";
+        }
+        return value;
+    }
+
+    /**
+     * Return the expression comparing two primitive values as their wrappers
+     * do: floating point values by their bits, so that NaN equals NaN.
+     *
+     * @param primitiveType the primitive type.
+     * @param value         the value expression.
+     * @param other         the other value expression.
+     * @return the comparison expression.
+     */
+    protected String getEquals(final Class<?> primitiveType, final String value, final String other) {
+        if (primitiveType.equals(float.class)) {
+            return "Float.floatToIntBits(" + value + ") == Float.floatToIntBits(" + other + ")";
+        }
+        if (primitiveType.equals(double.class)) {
+            return "Double.doubleToLongBits(" + value + ") == Double.doubleToLongBits(" + other + ")";
+        }
+        return value + " == " + other;
+    }
+}
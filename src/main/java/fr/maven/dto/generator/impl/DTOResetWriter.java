@@ -0,0 +1,187 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/**
+ * Writer of the <code>reset</code> method of a pooled DTO, setting its fields
+ * back to their default value.
+ * <p/>
+ * The nested DTOs that have a pool are released to it first, with the DTOs
+ * held by the arrays, lists, sets and maps of the fields at any depth; the
+ * other nested values are dropped. The DTOs released are tracked by identity
+ * for the whole release, so that a DTO referenced twice in the graph, or by a
+ * cycle, is returned to its pool once. A DTO held lazily is dropped with its
+ * holder. The dirty fields are cleared.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOResetWriter extends DTOMemberWriter {
+
+    /**
+     * Name of the method resetting a DTO.
+     */
+    protected static final String RESET_METHOD = "reset";
+
+    /**
+     * Type of the identity sets of the DTOs released.
+     */
+    protected static final String RELEASED_TYPE = "java.util.Set<Object>";
+
+    /**
+     * Expression creating an identity set of the DTOs released.
+     */
+    protected static final String NEW_RELEASED =
+            "java.util.Collections.newSetFromMap(new java.util.IdentityHashMap<Object, Boolean>())";
+
+    /**
+     * The writer of the pools the nested DTOs are released to.
+     */
+    private final DTOPoolWriter poolWriter;
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    public DTOResetWriter(final DTOGeneratorImpl generator) {
+        super(generator);
+        this.poolWriter = new DTOPoolWriter(generator);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.impl.DTOMemberWriter#writeMembers(java.lang.Class, java.io.Writer)
+     */
+    @Override
+    public void writeMembers(final Class<?> clazz, final Writer fw) throws IOException {
+        fw.write("    /**\n");
+        fw.write("     * Set the fields back to their default value, releasing the nested DTOs to their pool.\n");
+        fw.write("     */\n");
+        fw.write("    public void " + RESET_METHOD + "() {\n");
+        fw.write("        final " + RELEASED_TYPE + " released = " + NEW_RELEASED + ";\n");
+        fw.write("        released.add(this);\n");
+        fw.write("        this." + RESET_METHOD + "(released);\n");
+        fw.write("    }\n\n");
+
+        fw.write("    /**\n");
+        fw.write("     * Set the fields back to their default value, releasing the nested DTOs to their pool unless\n");
+        fw.write("     * they are already released.\n");
+        fw.write("     *\n");
+        fw.write("     * @param released the DTOs released so far, by identity.\n");
+        fw.write("     */\n");
+        fw.write("    public void " + RESET_METHOD + "(final " + RELEASED_TYPE + " released) {\n");
+        for (final Field field : this.generator.getDTOFields(clazz)) {
+            if (this.generator.isLazyField(field)) {
+                fw.write("        this." + this.generator.getLazyHolderName(field) + " = null;\n");
+            }
+            this.writeRelease(clazz, field.getGenericType(), this.generator.getFieldValue(field, "this"), "        ",
+                    0, fw);
+            fw.write("        " + this.generator.getFieldAssignment(field, "this",
+                    this.generator.getDTOFieldDefaultValue(field)) + ";\n");
+        }
+        if (this.generator.generateDirtyTracking) {
+            fw.write("        this." + DTODirtyWriter.CLEAR_METHOD + "();\n");
+        }
+        fw.write("    }\n\n");
+    }
+
+    /**
+     * Write the statements releasing the pooled DTOs held by a value: the
+     * value itself, or the elements of an array, a list or a set, or the keys
+     * and the values of a map, at any depth.
+     *
+     * @param clazz  the class a DTO is generated for, or a declared class.
+     * @param type   the type of the value, as declared in the class.
+     * @param value  the expression of the value.
+     * @param indent the indentation of the statements.
+     * @param depth  the number of enclosing loops.
+     * @param fw     the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeRelease(final Class<?> clazz, final Type type, final String value, final String indent,
+                                final int depth, final Writer fw) throws IOException {
+        if (!this.holdsPooledDTOs(type)) {
+            return;
+        }
+        if (type instanceof Class<?> && !((Class<?>) type).isArray()) {
+            fw.write(indent + this.poolWriter.getReleaseMethodName((Class<?>) type) + "(" + value
+                    + ", released);\n");
+            return;
+        }
+        final String suffix = depth == 0 ? "" : String.valueOf(depth);
+        fw.write(indent + "if (" + value + " != null) {\n");
+        if (type instanceof Class<?>) {
+            this.writeReleaseLoop(clazz, ((Class<?>) type).getComponentType(), "element" + suffix, value, indent,
+                    depth, fw);
+        }
+        else if (Map.class.isAssignableFrom(this.getRawClass(type))) {
+            final Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+            this.writeReleaseLoop(clazz, typeArguments[0], "key" + suffix, value + ".keySet()", indent, depth, fw);
+            this.writeReleaseLoop(clazz, typeArguments[1], "element" + suffix, value + ".values()", indent, depth,
+                    fw);
+        }
+        else {
+            this.writeReleaseLoop(clazz, ((ParameterizedType) type).getActualTypeArguments()[0],
+                    "element" + suffix, value, indent, depth, fw);
+        }
+        fw.write(indent + "}\n");
+    }
+
+    /**
+     * Write a loop releasing the pooled DTOs held by the elements of an
+     * array or a collection.
+     *
+     * @param clazz       the class a DTO is generated for, or a declared
+     *                    class.
+     * @param elementType the type of the elements, as declared in the class.
+     * @param element     the name of the loop variable.
+     * @param elements    the expression of the array or the collection.
+     * @param indent      the indentation of the enclosing block.
+     * @param depth       the number of enclosing loops.
+     * @param fw          the writer.
+     * @throws IOException if the writer fails.
+     */
+    private void writeReleaseLoop(final Class<?> clazz, final Type elementType, final String element,
+                                  final String elements, final String indent, final int depth, final Writer fw)
+            throws IOException {
+        if (!this.holdsPooledDTOs(elementType)) {
+            return;
+        }
+        fw.write(indent + "    for (final " + this.generator.getDTOType(clazz, elementType) + " " + element + " : "
+                + elements + ") {\n");
+        this.writeRelease(clazz, elementType, element, indent + "        ", depth + 1, fw);
+        fw.write(indent + "    }\n");
+    }
+
+    /**
+     * Check if the values of a type are, or hold in their arrays, lists, sets
+     * or maps, DTOs that have a pool.
+     *
+     * @param type the type, as declared in the class.
+     * @return <code>true</code> if the values hold pooled DTOs.
+     */
+    protected boolean holdsPooledDTOs(final Type type) {
+        if (type instanceof Class<?>) {
+            final Class<?> valueClass = (Class<?>) type;
+            return valueClass.isArray() ? this.holdsPooledDTOs(valueClass.getComponentType())
+                    : this.poolWriter.isCodable(valueClass);
+        }
+        if (this.isSupportedCollection(type)) {
+            for (final Type typeArgument : ((ParameterizedType) type).getActualTypeArguments()) {
+                if (this.holdsPooledDTOs(typeArgument)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
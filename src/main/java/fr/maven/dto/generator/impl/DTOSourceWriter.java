@@ -0,0 +1,460 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+
+/**
+ * Base of the writers of generated source parts, either members of a DTO or
+ * classes generated next to it.
+ * <p/>
+ * Generated code often needs a method per field type, e.g. to convert a
+ * <code>List&lt;Bean&gt;</code>. Such helper methods are asked for by name
+ * while writing, and written at the end of the class.
+ *
+ * @author Wilfried Petit
+ */
+public abstract class DTOSourceWriter {
+
+    /**
+     * Implementations of the collection and map interfaces, by order of
+     * preference.
+     */
+    private static final Class<?>[] COLLECTION_IMPLEMENTATIONS = new Class<?>[]{ArrayList.class, HashSet.class,
+            HashMap.class, TreeSet.class, TreeMap.class, LinkedList.class};
+
+    /**
+     * Implementations whose constructor takes the number of elements.
+     */
+    private static final List<Class<?>> SIZED_IMPLEMENTATIONS = Arrays.<Class<?>>asList(
+            ArrayList.class, Vector.class, ArrayDeque.class);
+
+    /**
+     * Implementations whose constructor takes the capacity of their hash table.
+     */
+    private static final List<Class<?>> HASHED_IMPLEMENTATIONS = Arrays.<Class<?>>asList(
+            HashSet.class, LinkedHashSet.class, HashMap.class, LinkedHashMap.class);
+
+    /**
+     * Primitive types by wrapper class.
+     */
+    static final Map<Class<?>, Class<?>> PRIMITIVE_TYPES = new HashMap<Class<?>, Class<?>>();
+
+    static {
+        PRIMITIVE_TYPES.put(Boolean.class, boolean.class);
+        PRIMITIVE_TYPES.put(Byte.class, byte.class);
+        PRIMITIVE_TYPES.put(Character.class, char.class);
+        PRIMITIVE_TYPES.put(Short.class, short.class);
+        PRIMITIVE_TYPES.put(Integer.class, int.class);
+        PRIMITIVE_TYPES.put(Long.class, long.class);
+        PRIMITIVE_TYPES.put(Float.class, float.class);
+        PRIMITIVE_TYPES.put(Double.class, double.class);
+    }
+
+    /**
+     * The DTO generator, that resolves the DTO types.
+     */
+    protected final DTOGeneratorImpl generator;
+
+    /**
+     * Helper method names by kind and type, for the class being written.
+     */
+    private final Map<String, HelperMethod> helperMethods;
+
+    /**
+     * Helper methods asked for but not written yet.
+     */
+    private final List<HelperMethod> pendingHelperMethods;
+
+    /**
+     * Constructor.
+     *
+     * @param generator the DTO generator.
+     */
+    protected DTOSourceWriter(final DTOGeneratorImpl generator) {
+        this.generator = generator;
+        this.helperMethods = new HashMap<String, HelperMethod>();
+        this.pendingHelperMethods = new ArrayList<HelperMethod>();
+    }
+
+    /**
+     * Return the names of the support classes the generated code uses.
+     *
+     * @return the support class names, without package.
+     */
+    public List<String> getSupportClassNames() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Write a support class, from the <code>&lt;name&gt;.java.template</code>
+     * resource whose <code>${package}</code> placeholder is replaced by the
+     * package given.
+     *
+     * @param name        the support class name.
+     * @param packageName the package the class is generated in.
+     * @param fw          the writer.
+     * @throws IOException if the template can not be read or the writer
+     *                     fails.
+     */
+    public void writeSupportClass(final String name, final String packageName, final Writer fw)
+            throws IOException {
+        fw.write(this.readTemplate(name).replace("${package}", packageName));
+    }
+
+    /**
+     * Read the <code>&lt;name&gt;.java.template</code> resource of a support
+     * class.
+     *
+     * @param name the template name.
+     * @return the template.
+     * @throws IOException if the template can not be read.
+     */
+    protected String readTemplate(final String name) throws IOException {
+        final InputStream template = DTOSourceWriter.class.getResourceAsStream(name + ".java.template");
+        if (template == null) {
+            throw new IOException("The template of the support class " + name + " is missing.");
+        }
+        final StringBuilder source = new StringBuilder();
+        final Reader reader = new InputStreamReader(template, "UTF-8");
+        try {
+            final char[] buffer = new char[4096];
+            int read = reader.read(buffer);
+            while (read >= 0) {
+                source.append(buffer, 0, read);
+                read = reader.read(buffer);
+            }
+        }
+        finally {
+            reader.close();
+        }
+        return source.toString();
+    }
+
+    /**
+     * Return the name of the helper method of a kind for the type given, and
+     * plan to write it.
+     *
+     * @param kind the kind of helper method, used as the name prefix.
+     * @param type the type the helper method handles.
+     * @return the helper method name.
+     */
+    protected String getHelperMethodName(final String kind, final Type type) {
+        final String key = kind + '|' + this.generator.getBeanType(type);
+        HelperMethod helperMethod = this.helperMethods.get(key);
+        if (helperMethod == null) {
+            helperMethod = new HelperMethod(kind + this.helperMethods.size(), kind, type);
+            this.helperMethods.put(key, helperMethod);
+            this.pendingHelperMethods.add(helperMethod);
+        }
+        return helperMethod.name;
+    }
+
+    /**
+     * Forget the helper methods of the previous class written.
+     */
+    protected void resetHelperMethods() {
+        this.helperMethods.clear();
+        this.pendingHelperMethods.clear();
+    }
+
+    /**
+     * Write the helper methods asked for, including the ones asked for while
+     * writing them.
+     *
+     * @param clazz the class a DTO is generated for.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeHelperMethods(final Class<?> clazz, final Writer fw) throws IOException {
+        while (!this.pendingHelperMethods.isEmpty()) {
+            final HelperMethod helperMethod = this.pendingHelperMethods.remove(0);
+            this.writeHelperMethod(clazz, helperMethod.name, helperMethod.kind, helperMethod.type, fw);
+        }
+    }
+
+    /**
+     * Write a helper method.
+     *
+     * @param clazz the class a DTO is generated for.
+     * @param name  the helper method name.
+     * @param kind  the kind of helper method.
+     * @param type  the type the helper method handles.
+     * @param fw    the writer.
+     * @throws IOException if the writer fails.
+     */
+    protected void writeHelperMethod(final Class<?> clazz, final String name, final String kind, final Type type,
+                                     final Writer fw) throws IOException {
+        throw new UnsupportedOperationException(this.getClass().getName() + " has no helper method " + kind);
+    }
+
+    /**
+     * Return the simple name of the wrapper of a primitive type.
+     *
+     * @param primitiveType the primitive type.
+     * @return the wrapper name.
+     */
+    protected String getWrapperName(final Class<?> primitiveType) {
+        for (final Map.Entry<Class<?>, Class<?>> entry : PRIMITIVE_TYPES.entrySet()) {
+            if (entry.getValue().equals(primitiveType)) {
+                return entry.getKey().getSimpleName();
+            }
+        }
+        throw new IllegalArgumentException(primitiveType + " is not primitive");
+    }
+
+    /**
+     * Return the raw class of a type.
+     *
+     * @param type the type.
+     * @return the class, or the raw class of a parameterized type.
+     */
+    protected Class<?> getRawClass(final Type type) {
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        return (Class<?>) type;
+    }
+
+    /**
+     * Check if the type given is a collection or a map whose elements can be
+     * handled one by one, i.e. a parameterized collection or map of classes
+     * or parameterized types that can be instantiated.
+     *
+     * @param type the type.
+     * @return <code>true</code> if it is a supported collection or map.
+     */
+    protected boolean isSupportedCollection(final Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            return false;
+        }
+        final Class<?> rawClass = this.getRawClass(type);
+        final int expectedArguments;
+        if (Map.class.isAssignableFrom(rawClass)) {
+            expectedArguments = 2;
+        }
+        else if (Collection.class.isAssignableFrom(rawClass)) {
+            expectedArguments = 1;
+        }
+        else {
+            return false;
+        }
+        final Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+        if (typeArguments.length != expectedArguments || rawClass.getTypeParameters().length != expectedArguments
+                || this.getCollectionImplementation(rawClass) == null) {
+            return false;
+        }
+        for (final Type typeArgument : typeArguments) {
+            if (!(typeArgument instanceof Class<?>) && !(typeArgument instanceof ParameterizedType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the class instantiated for a collection or a map type.
+     *
+     * @param rawClass the collection or map type.
+     * @return the class itself if it can be instantiated, else the first
+     *         implementation of the type, <code>null</code> if there is none.
+     */
+    protected Class<?> getCollectionImplementation(final Class<?> rawClass) {
+        if (this.generator.isInstantiable(rawClass)) {
+            return rawClass;
+        }
+        for (final Class<?> implementation : COLLECTION_IMPLEMENTATIONS) {
+            if (rawClass.isAssignableFrom(implementation)) {
+                return implementation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the expression instantiating a collection or a map type, sized
+     * for the number of elements given so that it never grows.
+     *
+     * @param type          the collection or map type.
+     * @param typeArguments the type arguments, as they are written.
+     * @param size          the number of elements expression.
+     * @return the instantiation expression.
+     */
+    protected String newCollection(final Type type, final String typeArguments, final String size) {
+        final Class<?> implementation = this.getCollectionImplementation(this.getRawClass(type));
+        final String sizeArgument;
+        if (SIZED_IMPLEMENTATIONS.contains(implementation)) {
+            sizeArgument = size;
+        }
+        else if (HASHED_IMPLEMENTATIONS.contains(implementation)) {
+            sizeArgument = "(int) (" + size + " / 0.75f) + 1";
+        }
+        else {
+            sizeArgument = "";
+        }
+        return "new " + implementation.getName() + "<" + typeArguments + ">(" + sizeArgument + ")";
+    }
+
+    /**
+     * Return the expression instantiating a collection or a map type whose
+     * number of elements is not known in advance.
+     *
+     * @param type          the collection or map type.
+     * @param typeArguments the type arguments, as they are written.
+     * @return the instantiation expression.
+     */
+    protected String newCollection(final Type type, final String typeArguments) {
+        return "new " + this.getCollectionImplementation(this.getRawClass(type)).getName() + "<" + typeArguments
+                + ">()";
+    }
+
+    /**
+     * Return DTO type arguments as they are written.
+     *
+     * @param clazz         the class a DTO is generated for.
+     * @param typeArguments the type arguments, as declared in the class.
+     * @return the DTO types separated by commas.
+     */
+    protected String getDTOTypes(final Class<?> clazz, final Type[] typeArguments) {
+        final StringBuilder dtoTypes = new StringBuilder();
+        for (int i = 0; i < typeArguments.length; i++) {
+            if (i > 0) {
+                dtoTypes.append(", ");
+            }
+            dtoTypes.append(this.generator.getDTOType(clazz, typeArguments[i]));
+        }
+        return dtoTypes.toString();
+    }
+
+    /**
+     * Return the primitive type of a wrapper class.
+     *
+     * @param clazz the class.
+     * @return the primitive type, <code>null</code> if the class is not a
+     *         wrapper.
+     */
+    protected Class<?> getPrimitiveType(final Class<?> clazz) {
+        return PRIMITIVE_TYPES.get(clazz);
+    }
+
+    /**
+     * Return the name of a primitive type as it is used in method names, e.g.
+     * Int for int.
+     *
+     * @param primitiveType the primitive type.
+     * @return the capitalized name.
+     */
+    protected String getPrimitiveName(final Class<?> primitiveType) {
+        return this.generator.capitalize(primitiveType.getName());
+    }
+
+    /**
+     * Check if the type given is a class whose static nested classes can be
+     * instantiated, i.e. not an inner class.
+     *
+     * @param clazz the class.
+     * @return <code>true</code> if the class is top level, static or an enum.
+     */
+    protected boolean isStaticClass(final Class<?> clazz) {
+        return clazz.getDeclaringClass() == null || clazz.isEnum() || Modifier.isStatic(clazz.getModifiers());
+    }
+
+    /**
+     * Return the class literal of the type of a DTO field, without its type
+     * arguments.
+     *
+     * @param clazz the class a DTO is generated for.
+     * @param field the field.
+     * @return the class literal.
+     */
+    protected String getClassLiteral(final Class<?> clazz, final Field field) {
+        final String dtoType = this.generator.getDTOFieldType(clazz, field);
+        final int typeArguments = dtoType.indexOf('<');
+        if (typeArguments < 0) {
+            return dtoType + ".class";
+        }
+        return dtoType.substring(0, typeArguments) + dtoType.substring(dtoType.lastIndexOf('>') + 1) + ".class";
+    }
+
+    /**
+     * A helper method planned while writing a companion class.
+     */
+    private static final class HelperMethod {
+
+        /**
+         * The method name.
+         */
+        private final String name;
+
+        /**
+         * The kind of helper method.
+         */
+        private final String kind;
+
+        /**
+         * The type the method handles.
+         */
+        private final Type type;
+
+        /**
+         * Constructor.
+         *
+         * @param name the method name.
+         * @param kind the kind of helper method.
+         * @param type the type the method handles.
+         */
+        HelperMethod(final String name, final String kind, final Type type) {
+            this.name = name;
+            this.kind = kind;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Return a Java string literal, escaping quotes, backslashes and non
+     * ASCII characters.
+     *
+     * @param value the string.
+     * @return the literal, with its quotes.
+     */
+    protected String toJavaString(final String value) {
+        final StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            }
+            else if (c < 0x20 || c > 0x7E) {
+                literal.append(String.format("\\u%04x", Integer.valueOf(c)));
+            }
+            else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+}
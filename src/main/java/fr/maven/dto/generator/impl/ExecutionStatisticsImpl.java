@@ -0,0 +1,472 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.generator.ExecutionStatistics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * {@link ExecutionStatistics} implementation.
+ * <p/>
+ * It keeps the timings in memory and renders them as JSON. Phases are
+ * disjoint: the time of a class is the sum of its loading, model building,
+ * rendering and writing, the time of a directory or archive is its scan plus
+ * the loading of the classes it contains.
+ *
+ * @author Wilfried Petit
+ */
+public class ExecutionStatisticsImpl implements ExecutionStatistics {
+
+    /**
+     * Number of nanoseconds in a millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1000000d;
+
+    /**
+     * The time the execution began.
+     */
+    private final long executionStart;
+
+    /**
+     * The time the execution ended, 0 while it runs.
+     */
+    private long executionEnd;
+
+    /**
+     * The count and the time spent in each phase, in the phases order.
+     */
+    private final Map<String, long[]> phases;
+
+    /**
+     * The time spent for each class.
+     */
+    private final Map<String, long[]> classTimes;
+
+    /**
+     * The directories and archives scanned.
+     */
+    private final List<ElementStatistics> elements;
+
+    /**
+     * Number of entries checked against the patterns in directories and
+     * archives.
+     */
+    private long entriesScanned;
+
+    /**
+     * Number of class files matching the patterns.
+     */
+    private long classesMatched;
+
+    /**
+     * Number of files written.
+     */
+    private long filesWritten;
+
+    /**
+     * Number of bytes written.
+     */
+    private long bytesWritten;
+
+    /**
+     * Constructor.
+     */
+    public ExecutionStatisticsImpl() {
+        this.executionStart = System.nanoTime();
+        this.phases = new LinkedHashMap<String, long[]>();
+        for (final String phase : new String[]{PHASE_CLASSLOADER, PHASE_SCAN, PHASE_LOAD, PHASE_MODEL, PHASE_RENDER, PHASE_WRITE}) {
+            this.phases.put(phase, new long[2]);
+        }
+        this.classTimes = new HashMap<String, long[]>();
+        this.elements = new ArrayList<ElementStatistics>();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#start(java.lang.String)
+     */
+    @Override
+    public long start(final String phase) {
+        return System.nanoTime();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#phaseEnded(java.lang.String, long)
+     */
+    @Override
+    public synchronized void phaseEnded(final String phase, final long startTime) {
+        this.addPhaseTime(phase, System.nanoTime() - startTime);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#elementScanned(java.io.File, int, int, long)
+     */
+    @Override
+    public synchronized void elementScanned(final File directoryOrArchive, final int entries, final int matched,
+                                            final long startTime) {
+        this.elements.add(new ElementStatistics(directoryOrArchive.getPath(), entries, matched,
+                System.nanoTime() - startTime));
+        this.entriesScanned += entries;
+        this.classesMatched += matched;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#classLoaded(java.lang.String, long)
+     */
+    @Override
+    public synchronized void classLoaded(final String className, final long startTime) {
+        this.addClassTime(PHASE_LOAD, className, System.nanoTime() - startTime);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#classModelled(java.lang.String, long)
+     */
+    @Override
+    public synchronized void classModelled(final String className, final long startTime) {
+        this.addClassTime(PHASE_MODEL, className, System.nanoTime() - startTime);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#classRendered(java.lang.String, int, long)
+     */
+    @Override
+    public synchronized void classRendered(final String className, final int length, final long startTime) {
+        this.addClassTime(PHASE_RENDER, className, System.nanoTime() - startTime);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#fileWritten(java.lang.String, java.io.File, long, long)
+     */
+    @Override
+    public synchronized void fileWritten(final String className, final File file, final long bytes,
+                                         final long startTime) {
+        this.addClassTime(PHASE_WRITE, className, System.nanoTime() - startTime);
+        this.filesWritten++;
+        this.bytesWritten += bytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#executionEnded()
+     */
+    @Override
+    public synchronized void executionEnded() {
+        this.executionEnd = System.nanoTime();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#writeReport(java.io.File)
+     */
+    @Override
+    public void writeReport(final File reportFile) throws IOException {
+        final File reportDirectory = reportFile.getAbsoluteFile().getParentFile();
+        if (reportDirectory != null && !reportDirectory.exists() && !reportDirectory.mkdirs()) {
+            throw new IOException("The report directory " + reportDirectory + " can not be created.");
+        }
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(reportFile), "UTF-8");
+        try {
+            writer.write(this.toJSON());
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Render the statistics as a JSON document.
+     *
+     * @return the JSON document.
+     */
+    protected synchronized String toJSON() {
+        final StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"totalTimeNanos\": ").append(this.getExecutionTime()).append(",\n");
+        json.append("  \"phases\": {");
+        boolean first = true;
+        for (final Map.Entry<String, long[]> phase : this.phases.entrySet()) {
+            json.append(first ? "\n" : ",\n");
+            first = false;
+            json.append("    ").append(quote(phase.getKey())).append(": {\"count\": ").append(phase.getValue()[0])
+                    .append(", \"timeNanos\": ").append(phase.getValue()[1]).append("}");
+        }
+        json.append("\n  },\n");
+        json.append("  \"counters\": {\n");
+        json.append("    \"entriesScanned\": ").append(this.entriesScanned).append(",\n");
+        json.append("    \"classesMatched\": ").append(this.classesMatched).append(",\n");
+        json.append("    \"filesWritten\": ").append(this.filesWritten).append(",\n");
+        json.append("    \"bytesWritten\": ").append(this.bytesWritten).append("\n");
+        json.append("  },\n");
+        json.append("  \"classes\": [");
+        first = true;
+        for (final Map.Entry<String, long[]> classTime : this.getSlowestClasses(this.classTimes.size())) {
+            json.append(first ? "\n" : ",\n");
+            first = false;
+            final long[] times = classTime.getValue();
+            json.append("    {\"name\": ").append(quote(classTime.getKey()))
+                    .append(", \"timeNanos\": ").append(times[0])
+                    .append(", \"loadNanos\": ").append(times[1])
+                    .append(", \"modelNanos\": ").append(times[2])
+                    .append(", \"renderNanos\": ").append(times[3])
+                    .append(", \"writeNanos\": ").append(times[4]).append("}");
+        }
+        json.append(first ? "],\n" : "\n  ],\n");
+        json.append("  \"elements\": [");
+        first = true;
+        for (final ElementStatistics element : this.getSlowestElements(this.elements.size())) {
+            json.append(first ? "\n" : ",\n");
+            first = false;
+            json.append("    {\"path\": ").append(quote(element.path))
+                    .append(", \"entriesScanned\": ").append(element.entries)
+                    .append(", \"classesMatched\": ").append(element.matched)
+                    .append(", \"timeNanos\": ").append(element.time).append("}");
+        }
+        json.append(first ? "]\n" : "\n  ]\n");
+        json.append("}\n");
+        return json.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#getSummary(int)
+     */
+    @Override
+    public synchronized String getSummary(final int slowestCount) {
+        final StringBuilder summary = new StringBuilder();
+        summary.append("DTO generation took ").append(millis(this.getExecutionTime())).append(" (");
+        boolean first = true;
+        for (final Map.Entry<String, long[]> phase : this.phases.entrySet()) {
+            summary.append(first ? "" : ", ").append(phase.getKey()).append(" ").append(millis(phase.getValue()[1]));
+            first = false;
+        }
+        summary.append("), ").append(this.entriesScanned).append(" entries scanned, ")
+                .append(this.classesMatched).append(" classes matched, ")
+                .append(this.filesWritten).append(" files written, ")
+                .append(this.bytesWritten).append(" bytes written");
+        if (slowestCount > 0 && !this.classTimes.isEmpty()) {
+            summary.append("; slowest classes: ");
+            first = true;
+            for (final Map.Entry<String, long[]> classTime : this.getSlowestClasses(slowestCount)) {
+                summary.append(first ? "" : ", ").append(classTime.getKey())
+                        .append(" ").append(millis(classTime.getValue()[0]));
+                first = false;
+            }
+        }
+        if (slowestCount > 0 && !this.elements.isEmpty()) {
+            summary.append("; slowest archives: ");
+            first = true;
+            for (final ElementStatistics element : this.getSlowestElements(slowestCount)) {
+                summary.append(first ? "" : ", ").append(new File(element.path).getName())
+                        .append(" ").append(millis(element.time));
+                first = false;
+            }
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Return the time of the execution, up to now if it has not ended.
+     *
+     * @return the time in nanoseconds.
+     */
+    private long getExecutionTime() {
+        return (this.executionEnd == 0 ? System.nanoTime() : this.executionEnd) - this.executionStart;
+    }
+
+    /**
+     * Add time to a phase.
+     *
+     * @param phase the phase.
+     * @param time  the time to add in nanoseconds.
+     */
+    private void addPhaseTime(final String phase, final long time) {
+        long[] phaseTime = this.phases.get(phase);
+        if (phaseTime == null) {
+            phaseTime = new long[2];
+            this.phases.put(phase, phaseTime);
+        }
+        phaseTime[0]++;
+        phaseTime[1] += time;
+    }
+
+    /**
+     * Add time to a phase and to the class it has been spent for.
+     *
+     * @param phase     the phase, one of load, model, render or write.
+     * @param className the class.
+     * @param time      the time to add in nanoseconds.
+     */
+    private void addClassTime(final String phase, final String className, final long time) {
+        this.addPhaseTime(phase, time);
+        long[] times = this.classTimes.get(className);
+        if (times == null) {
+            // total, load, model, render, write
+            times = new long[5];
+            this.classTimes.put(className, times);
+        }
+        times[0] += time;
+        if (PHASE_LOAD.equals(phase)) {
+            times[1] += time;
+        }
+        else if (PHASE_MODEL.equals(phase)) {
+            times[2] += time;
+        }
+        else if (PHASE_RENDER.equals(phase)) {
+            times[3] += time;
+        }
+        else {
+            times[4] += time;
+        }
+    }
+
+    /**
+     * Return the slowest classes, the slowest first.
+     *
+     * @param count the maximum number of classes returned.
+     * @return the classes with their times.
+     */
+    private List<Map.Entry<String, long[]>> getSlowestClasses(final int count) {
+        final List<Map.Entry<String, long[]>> classes = new ArrayList<Map.Entry<String, long[]>>(
+                this.classTimes.entrySet());
+        Collections.sort(classes, new Comparator<Map.Entry<String, long[]>>() {
+            @Override
+            public int compare(final Map.Entry<String, long[]> first, final Map.Entry<String, long[]> second) {
+                return compareTimes(first.getValue()[0], second.getValue()[0]);
+            }
+        });
+        return classes.subList(0, Math.min(count, classes.size()));
+    }
+
+    /**
+     * Return the slowest directories and archives, the slowest first.
+     *
+     * @param count the maximum number of elements returned.
+     * @return the elements.
+     */
+    private List<ElementStatistics> getSlowestElements(final int count) {
+        final List<ElementStatistics> sorted = new ArrayList<ElementStatistics>(this.elements);
+        Collections.sort(sorted, new Comparator<ElementStatistics>() {
+            @Override
+            public int compare(final ElementStatistics first, final ElementStatistics second) {
+                return compareTimes(first.time, second.time);
+            }
+        });
+        return sorted.subList(0, Math.min(count, sorted.size()));
+    }
+
+    /**
+     * Compare two times so that the longest comes first.
+     *
+     * @param first  the first time.
+     * @param second the second time.
+     * @return the comparison result.
+     */
+    private static int compareTimes(final long first, final long second) {
+        return first > second ? -1 : (first == second ? 0 : 1);
+    }
+
+    /**
+     * Format nanoseconds as milliseconds.
+     *
+     * @param nanos the time in nanoseconds.
+     * @return the formatted time.
+     */
+    private static String millis(final long nanos) {
+        return String.format(Locale.ROOT, "%.1f ms", nanos / NANOS_PER_MILLI);
+    }
+
+    /**
+     * Quote a string for JSON.
+     *
+     * @param value the string to quote.
+     * @return the JSON string.
+     */
+    private static String quote(final String value) {
+        final StringBuilder quoted = new StringBuilder(value.length() + 2);
+        quoted.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            }
+            else if (c < ' ') {
+                quoted.append(String.format("\\u%04x", (int) c));
+            }
+            else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Timings of a directory or archive scan.
+     */
+    private static final class ElementStatistics {
+
+        /**
+         * The directory or archive path.
+         */
+        private final String path;
+
+        /**
+         * Number of entries checked against the patterns.
+         */
+        private final int entries;
+
+        /**
+         * Number of class files matching the patterns.
+         */
+        private final int matched;
+
+        /**
+         * Time spent in nanoseconds.
+         */
+        private final long time;
+
+        /**
+         * Constructor.
+         *
+         * @param path    the directory or archive path.
+         * @param entries number of entries checked against the patterns.
+         * @param matched number of class files matching the patterns.
+         * @param time    time spent in nanoseconds.
+         */
+        ElementStatistics(final String path, final int entries, final int matched, final long time) {
+            this.path = path;
+            this.entries = entries;
+            this.matched = matched;
+            this.time = time;
+        }
+    }
+}
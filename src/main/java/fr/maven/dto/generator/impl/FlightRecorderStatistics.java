@@ -0,0 +1,634 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.generator.ExecutionStatistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link ExecutionStatistics} decorator emitting Java Flight Recorder events.
+ * <p/>
+ * The events are defined at runtime through <code>jdk.jfr.EventFactory</code>
+ * and reached by reflection only, so that the plugin still runs unchanged on
+ * JVMs without Flight Recorder: {@link #decorate(ExecutionStatistics)} then
+ * returns the statistics given as is. The events are begun when their step
+ * starts and committed when it ends, so that Flight Recorder times them
+ * itself and they line up with the samples taken during the step.
+ *
+ * @author Wilfried Petit
+ */
+public class FlightRecorderStatistics implements ExecutionStatistics {
+
+    /**
+     * The category of every event.
+     */
+    private static final String CATEGORY = "DTO Maven Plugin";
+
+    /**
+     * The event types, <code>null</code> if Flight Recorder is not available.
+     */
+    private static final EventTypes EVENT_TYPES = EventTypes.create();
+
+    /**
+     * The decorated statistics.
+     */
+    private final ExecutionStatistics statistics;
+
+    /**
+     * The begun execution event, <code>null</code> if it is not enabled.
+     */
+    private final Object executionEvent;
+
+    /**
+     * The started steps of each thread, the innermost last.
+     */
+    private final ThreadLocal<List<Step>> steps = new ThreadLocal<List<Step>>() {
+        @Override
+        protected List<Step> initialValue() {
+            return new ArrayList<Step>();
+        }
+    };
+
+    /**
+     * Number of entries checked against the patterns in directories and
+     * archives.
+     */
+    private long entriesScanned;
+
+    /**
+     * Number of class files matching the patterns.
+     */
+    private long classesMatched;
+
+    /**
+     * Number of files written.
+     */
+    private long filesWritten;
+
+    /**
+     * Number of bytes written.
+     */
+    private long bytesWritten;
+
+    /**
+     * Constructor.
+     *
+     * @param statistics the decorated statistics.
+     */
+    protected FlightRecorderStatistics(final ExecutionStatistics statistics) {
+        this.statistics = statistics;
+        this.executionEvent = EVENT_TYPES.execution.begin();
+    }
+
+    /**
+     * Return statistics that also emit Flight Recorder events, if Flight
+     * Recorder is available in this JVM.
+     *
+     * @param statistics the statistics to decorate.
+     * @return the decorated statistics, or the statistics given if Flight
+     *         Recorder is not available.
+     */
+    public static ExecutionStatistics decorate(final ExecutionStatistics statistics) {
+        if (isAvailable()) {
+            return new FlightRecorderStatistics(statistics);
+        }
+        return statistics;
+    }
+
+    /**
+     * Check if Flight Recorder events can be emitted in this JVM.
+     *
+     * @return <code>true</code> if the events have been defined.
+     */
+    public static boolean isAvailable() {
+        return EVENT_TYPES != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#start(java.lang.String)
+     */
+    @Override
+    public long start(final String phase) {
+        final long startTime = this.statistics.start(phase);
+        final Step step = new Step(startTime);
+        for (final EventType eventType : EVENT_TYPES.getEndingTypes(phase)) {
+            final Object event = eventType.begin();
+            if (event != null) {
+                step.events.put(eventType, event);
+            }
+        }
+        if (!step.events.isEmpty()) {
+            this.steps.get().add(step);
+        }
+        return startTime;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#phaseEnded(java.lang.String, long)
+     */
+    @Override
+    public void phaseEnded(final String phase, final long startTime) {
+        this.statistics.phaseEnded(phase, startTime);
+        this.commit(EVENT_TYPES.phase, startTime, phase);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#elementScanned(java.io.File, int, int, long)
+     */
+    @Override
+    public void elementScanned(final File directoryOrArchive, final int entries, final int matched,
+                               final long startTime) {
+        this.statistics.elementScanned(directoryOrArchive, entries, matched, startTime);
+        synchronized (this) {
+            this.entriesScanned += entries;
+            this.classesMatched += matched;
+        }
+        this.commit(EVENT_TYPES.elementScan, startTime, directoryOrArchive.getPath(), entries, matched);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#classLoaded(java.lang.String, long)
+     */
+    @Override
+    public void classLoaded(final String className, final long startTime) {
+        this.statistics.classLoaded(className, startTime);
+        this.commit(EVENT_TYPES.classLoad, startTime, className);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#classModelled(java.lang.String, long)
+     */
+    @Override
+    public void classModelled(final String className, final long startTime) {
+        this.statistics.classModelled(className, startTime);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#classRendered(java.lang.String, int, long)
+     */
+    @Override
+    public void classRendered(final String className, final int length, final long startTime) {
+        this.statistics.classRendered(className, length, startTime);
+        this.commit(EVENT_TYPES.render, startTime, className, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#fileWritten(java.lang.String, java.io.File, long, long)
+     */
+    @Override
+    public void fileWritten(final String className, final File file, final long bytes, final long startTime) {
+        this.statistics.fileWritten(className, file, bytes, startTime);
+        synchronized (this) {
+            this.filesWritten++;
+            this.bytesWritten += bytes;
+        }
+        this.commit(EVENT_TYPES.fileWrite, startTime, className, file.getPath(), bytes);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#executionEnded()
+     */
+    @Override
+    public void executionEnded() {
+        this.statistics.executionEnded();
+        synchronized (this) {
+            EVENT_TYPES.execution.commit(this.executionEvent, this.entriesScanned, this.classesMatched,
+                    this.filesWritten, this.bytesWritten);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#writeReport(java.io.File)
+     */
+    @Override
+    public void writeReport(final File reportFile) throws IOException {
+        this.statistics.writeReport(reportFile);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.ExecutionStatistics#getSummary(int)
+     */
+    @Override
+    public String getSummary(final int slowestCount) {
+        return this.statistics.getSummary(slowestCount);
+    }
+
+    /**
+     * Commit the event of a type begun when the step started at the time
+     * given, on this thread. The steps started after it and never ended, e.g.
+     * because they failed, are dropped.
+     *
+     * @param eventType the event type.
+     * @param startTime the time returned by {@link #start(String)}.
+     * @param values    the field values, in the fields order.
+     */
+    private void commit(final EventType eventType, final long startTime, final Object... values) {
+        final List<Step> threadSteps = this.steps.get();
+        for (int i = threadSteps.size() - 1; i >= 0; i--) {
+            final Step step = threadSteps.get(i);
+            if (step.startTime == startTime && step.events.containsKey(eventType)) {
+                final Object event = step.events.remove(eventType);
+                threadSteps.subList(step.events.isEmpty() ? i : i + 1, threadSteps.size()).clear();
+                eventType.commit(event, values);
+                return;
+            }
+        }
+    }
+
+    /**
+     * A started step, with the events its end commits.
+     */
+    private static final class Step {
+
+        /**
+         * The time returned when the step started.
+         */
+        private final long startTime;
+
+        /**
+         * The begun events by type.
+         */
+        private final Map<EventType, Object> events = new IdentityHashMap<EventType, Object>();
+
+        /**
+         * Constructor.
+         *
+         * @param startTime the time returned when the step started.
+         */
+        Step(final long startTime) {
+            this.startTime = startTime;
+        }
+    }
+
+    /**
+     * The Flight Recorder event types of the plugin.
+     */
+    private static final class EventTypes {
+
+        /**
+         * A phase.
+         */
+        private EventType phase;
+
+        /**
+         * Scan of a directory or an archive.
+         */
+        private EventType elementScan;
+
+        /**
+         * Loading of a class.
+         */
+        private EventType classLoad;
+
+        /**
+         * Rendering of a DTO.
+         */
+        private EventType render;
+
+        /**
+         * Writing of a generated file.
+         */
+        private EventType fileWrite;
+
+        /**
+         * Summary of an execution.
+         */
+        private EventType execution;
+
+        /**
+         * Return the types of the events ending with the steps of a phase:
+         * the phase itself for the phases reported as a whole, and the event
+         * of each step.
+         *
+         * @param phase the phase.
+         * @return the event types.
+         */
+        List<EventType> getEndingTypes(final String phase) {
+            if (ExecutionStatistics.PHASE_CLASSLOADER.equals(phase)) {
+                return Collections.singletonList(this.phase);
+            }
+            if (ExecutionStatistics.PHASE_SCAN.equals(phase)) {
+                return Arrays.asList(this.phase, this.elementScan);
+            }
+            if (ExecutionStatistics.PHASE_LOAD.equals(phase)) {
+                return Collections.singletonList(this.classLoad);
+            }
+            if (ExecutionStatistics.PHASE_RENDER.equals(phase)) {
+                return Collections.singletonList(this.render);
+            }
+            if (ExecutionStatistics.PHASE_WRITE.equals(phase)) {
+                return Collections.singletonList(this.fileWrite);
+            }
+            return Collections.emptyList();
+        }
+
+        /**
+         * Define the event types.
+         *
+         * @return the event types, <code>null</code> if Flight Recorder is not
+         *         available.
+         */
+        static EventTypes create() {
+            try {
+                final Reflection jfr = new Reflection();
+                final EventTypes eventTypes = new EventTypes();
+                eventTypes.phase = jfr.define("Phase", "DTO Phase", "A DTO generation phase",
+                        jfr.text("phase", "Phase"));
+                eventTypes.elementScan = jfr.define("ElementScan", "DTO Classpath Element Scan",
+                        "Scan of a directory or an archive for classes to generate DTOs for",
+                        jfr.text("path", "Path"), jfr.count(int.class, "entriesScanned", "Entries Scanned"),
+                        jfr.count(int.class, "classesMatched", "Classes Matched"));
+                eventTypes.classLoad = jfr.define("ClassLoad", "DTO Class Load",
+                        "Loading of a class to generate a DTO for",
+                        jfr.text("className", "Class Name"));
+                eventTypes.render = jfr.define("Render", "DTO Render", "Rendering of a DTO source in memory",
+                        jfr.text("className", "Class Name"), jfr.count(int.class, "characters", "Characters"));
+                eventTypes.fileWrite = jfr.define("FileWrite", "DTO File Write", "Writing of a generated source",
+                        jfr.text("className", "Class Name"), jfr.text("path", "Path"), jfr.bytes("bytes", "Bytes"));
+                eventTypes.execution = jfr.define("Execution", "DTO Execution", "Summary of a plugin execution",
+                        jfr.count(long.class, "entriesScanned", "Entries Scanned"),
+                        jfr.count(long.class, "classesMatched", "Classes Matched"),
+                        jfr.count(long.class, "filesWritten", "Files Written"), jfr.bytes("bytesWritten", "Bytes Written"));
+                return eventTypes;
+            }
+            catch (final Exception e) {
+                // Flight Recorder is not available in this JVM.
+                return null;
+            }
+            catch (final LinkageError e) {
+                // Flight Recorder is not available in this JVM.
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A Flight Recorder event type built through <code>jdk.jfr.EventFactory</code>.
+     */
+    private static final class EventType {
+
+        /**
+         * The <code>jdk.jfr.EventFactory</code> of the events.
+         */
+        private final Object eventFactory;
+
+        /**
+         * The <code>jdk.jfr.EventType</code> of the events.
+         */
+        private final Object eventType;
+
+        /**
+         * The shared reflective accessors.
+         */
+        private final Reflection jfr;
+
+        /**
+         * Constructor.
+         *
+         * @param eventFactory the event factory.
+         * @param jfr          the shared reflective accessors.
+         * @throws Exception if the event type can not be reached.
+         */
+        EventType(final Object eventFactory, final Reflection jfr) throws Exception {
+            this.eventFactory = eventFactory;
+            this.eventType = jfr.getEventType.invoke(eventFactory);
+            this.jfr = jfr;
+        }
+
+        /**
+         * Create and begin an event, if the event type is enabled in a
+         * recording.
+         *
+         * @return the event, <code>null</code> if it is not enabled.
+         */
+        Object begin() {
+            try {
+                if ((Boolean) this.jfr.isEnabled.invoke(this.eventType)) {
+                    final Object event = this.jfr.newEvent.invoke(this.eventFactory);
+                    this.jfr.begin.invoke(event);
+                    return event;
+                }
+            }
+            catch (final Exception e) {
+                // Profiling must never break the generation.
+            }
+            return null;
+        }
+
+        /**
+         * End and commit a begun event.
+         *
+         * @param event  the event returned by {@link #begin()}, ignored if
+         *               <code>null</code>.
+         * @param values the field values, in the fields order.
+         */
+        void commit(final Object event, final Object... values) {
+            if (event == null) {
+                return;
+            }
+            try {
+                this.jfr.end.invoke(event);
+                for (int i = 0; i < values.length; i++) {
+                    this.jfr.set.invoke(event, i, values[i]);
+                }
+                this.jfr.commit.invoke(event);
+            }
+            catch (final Exception e) {
+                // Profiling must never break the generation.
+            }
+        }
+    }
+
+    /**
+     * The reflective accessors to the <code>jdk.jfr</code> API.
+     */
+    private static final class Reflection {
+
+        /**
+         * <code>jdk.jfr.AnnotationElement(Class, Object)</code>.
+         */
+        private final Constructor<?> annotationElement;
+
+        /**
+         * <code>jdk.jfr.ValueDescriptor(Class, String, List)</code>.
+         */
+        private final Constructor<?> valueDescriptor;
+
+        /**
+         * <code>jdk.jfr.EventFactory.create(List, List)</code>.
+         */
+        private final Method create;
+
+        /**
+         * <code>jdk.jfr.EventFactory.getEventType()</code>.
+         */
+        private final Method getEventType;
+
+        /**
+         * <code>jdk.jfr.EventFactory.newEvent()</code>.
+         */
+        private final Method newEvent;
+
+        /**
+         * <code>jdk.jfr.EventType.isEnabled()</code>.
+         */
+        private final Method isEnabled;
+
+        /**
+         * <code>jdk.jfr.Event.begin()</code>.
+         */
+        private final Method begin;
+
+        /**
+         * <code>jdk.jfr.Event.end()</code>.
+         */
+        private final Method end;
+
+        /**
+         * <code>jdk.jfr.Event.set(int, Object)</code>.
+         */
+        private final Method set;
+
+        /**
+         * <code>jdk.jfr.Event.commit()</code>.
+         */
+        private final Method commit;
+
+        /**
+         * Constructor.
+         *
+         * @throws Exception if the <code>jdk.jfr</code> API is not available.
+         */
+        Reflection() throws Exception {
+            final Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+            final Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            this.annotationElement = Class.forName("jdk.jfr.AnnotationElement").getConstructor(Class.class, Object.class);
+            this.valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class, String.class,
+                    List.class);
+            this.create = eventFactoryClass.getMethod("create", List.class, List.class);
+            this.getEventType = eventFactoryClass.getMethod("getEventType");
+            this.newEvent = eventFactoryClass.getMethod("newEvent");
+            this.isEnabled = Class.forName("jdk.jfr.EventType").getMethod("isEnabled");
+            this.begin = eventClass.getMethod("begin");
+            this.end = eventClass.getMethod("end");
+            this.set = eventClass.getMethod("set", int.class, Object.class);
+            this.commit = eventClass.getMethod("commit");
+        }
+
+        /**
+         * Define an event type.
+         *
+         * @param name        the simple name of the event.
+         * @param label       the label of the event.
+         * @param description the description of the event.
+         * @param fields      the fields of the event.
+         * @return the event type.
+         * @throws Exception if the event type can not be defined.
+         */
+        EventType define(final String name, final String label, final String description, final Object... fields)
+                throws Exception {
+            final List<Object> annotations = new ArrayList<Object>();
+            annotations.add(this.annotation("Name", "fr.maven.dto." + name));
+            annotations.add(this.annotation("Label", label));
+            annotations.add(this.annotation("Description", description));
+            annotations.add(this.annotation("Category", new String[]{CATEGORY}));
+            annotations.add(this.annotation("StackTrace", Boolean.FALSE));
+            return new EventType(this.create.invoke(null, annotations, Arrays.asList(fields)), this);
+        }
+
+        /**
+         * Describe a text field.
+         *
+         * @param name  the field name.
+         * @param label the field label.
+         * @return the field descriptor.
+         * @throws Exception if the field can not be described.
+         */
+        Object text(final String name, final String label) throws Exception {
+            return this.field(String.class, name, this.annotation("Label", label));
+        }
+
+        /**
+         * Describe a counter field.
+         *
+         * @param type  the field type, int or long.
+         * @param name  the field name.
+         * @param label the field label.
+         * @return the field descriptor.
+         * @throws Exception if the field can not be described.
+         */
+        Object count(final Class<?> type, final String name, final String label) throws Exception {
+            return this.field(type, name, this.annotation("Label", label));
+        }
+
+        /**
+         * Describe a field counting bytes.
+         *
+         * @param name  the field name.
+         * @param label the field label.
+         * @return the field descriptor.
+         * @throws Exception if the field can not be described.
+         */
+        Object bytes(final String name, final String label) throws Exception {
+            return this.field(long.class, name, this.annotation("Label", label),
+                    this.annotation("DataAmount", "BYTES"));
+        }
+
+        /**
+         * Describe a field.
+         *
+         * @param type        the field type.
+         * @param name        the field name.
+         * @param annotations the field annotations.
+         * @return the field descriptor.
+         * @throws Exception if the field can not be described.
+         */
+        private Object field(final Class<?> type, final String name, final Object... annotations) throws Exception {
+            return this.valueDescriptor.newInstance(type, name, Arrays.asList(annotations));
+        }
+
+        /**
+         * Build an annotation element.
+         *
+         * @param annotation the simple name of the <code>jdk.jfr</code>
+         *                   annotation.
+         * @param value      the annotation value.
+         * @return the annotation element.
+         * @throws Exception if the annotation element can not be built.
+         */
+        private Object annotation(final String annotation, final Object value) throws Exception {
+            return this.annotationElement.newInstance(Class.forName("jdk.jfr." + annotation), value);
+        }
+    }
+}
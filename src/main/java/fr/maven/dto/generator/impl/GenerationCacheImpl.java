@@ -0,0 +1,388 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.generator.GenerationCache;
+
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * {@link GenerationCache} implementation.
+ * <p/>
+ * It keeps the project class loaders, the scan indexes of directories and
+ * archives, the DTO models of the classes and the fingerprints of the files
+ * written. Entries are invalidated by fingerprints of the classpath, every map
+ * is bounded, and what depends on classes is weakly keyed by their class
+ * loader and only holds strings. The class loaders themselves are only softly
+ * held and never closed, as a concurrent build may still be loading classes
+ * with a class loader evicted or replaced here: nothing keeps them alive once
+ * no build uses them, and their archives are released when they are
+ * collected.
+ *
+ * @author Wilfried Petit
+ */
+public final class GenerationCacheImpl implements GenerationCache {
+
+    /**
+     * Maximum number of class loaders kept.
+     */
+    private static final int MAX_CLASS_LOADERS = 4;
+
+    /**
+     * Maximum number of scan indexes kept.
+     */
+    private static final int MAX_SCAN_INDEXES = 256;
+
+    /**
+     * Maximum number of class models kept per class loader.
+     */
+    private static final int MAX_MODELS = 10000;
+
+    /**
+     * Maximum number of written files kept per class loader.
+     */
+    private static final int MAX_OUTPUTS = 20000;
+
+    /**
+     * The cache shared by the executions of the plugin class realm.
+     */
+    private static final GenerationCacheImpl INSTANCE = new GenerationCacheImpl();
+
+    /**
+     * Class loaders by classpath, softly held.
+     */
+    private final Map<String, Fingerprinted<SoftReference<ClassLoader>>> classLoaders;
+
+    /**
+     * Entries found in directories and archives, by element and patterns.
+     */
+    private final Map<String, Fingerprinted<String[]>> scanIndexes;
+
+    /**
+     * DTO field types by class name and generation context, by class loader.
+     */
+    private final Map<ClassLoader, Map<String, Map<String, String>>> models;
+
+    /**
+     * Fingerprints of the files written, by path, by class loader.
+     */
+    private final Map<ClassLoader, Map<String, String>> outputs;
+
+    /**
+     * Constructor.
+     */
+    GenerationCacheImpl() {
+        this.classLoaders = new BoundedMap<String, Fingerprinted<SoftReference<ClassLoader>>>(MAX_CLASS_LOADERS);
+        this.scanIndexes = new BoundedMap<String, Fingerprinted<String[]>>(MAX_SCAN_INDEXES);
+        this.models = new WeakHashMap<ClassLoader, Map<String, Map<String, String>>>();
+        this.outputs = new WeakHashMap<ClassLoader, Map<String, String>>();
+    }
+
+    /**
+     * Return the cache shared by the executions of the plugin class realm.
+     *
+     * @return the cache.
+     */
+    public static GenerationCacheImpl getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.GenerationCache#getClassLoader(java.util.List)
+     */
+    @Override
+    public ClassLoader getClassLoader(final List<File> classpath) {
+        final String fingerprint = fingerprint(classpath, true);
+        synchronized (this) {
+            final Fingerprinted<SoftReference<ClassLoader>> classLoader =
+                    this.classLoaders.get(classpath.toString());
+            if (classLoader != null && classLoader.fingerprint.equals(fingerprint)) {
+                return classLoader.value.get();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.GenerationCache#putClassLoader(java.util.List, java.lang.ClassLoader)
+     */
+    @Override
+    public void putClassLoader(final List<File> classpath, final ClassLoader classLoader) {
+        final String fingerprint = fingerprint(classpath, true);
+        synchronized (this) {
+            this.classLoaders.put(classpath.toString(), new Fingerprinted<SoftReference<ClassLoader>>(fingerprint,
+                    new SoftReference<ClassLoader>(classLoader)));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.GenerationCache#getScanIndex(java.io.File, java.lang.String[], java.lang.String[])
+     */
+    @Override
+    public String[] getScanIndex(final File directoryOrArchive, final String[] includesPath,
+                                 final String[] excludesPath) {
+        final String fingerprint = fingerprint(directoryOrArchive, false);
+        synchronized (this) {
+            final Fingerprinted<String[]> scanIndex = this.scanIndexes.get(
+                    scanKey(directoryOrArchive, includesPath, excludesPath));
+            if (scanIndex != null && scanIndex.fingerprint.equals(fingerprint)) {
+                return scanIndex.value.clone();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.GenerationCache#putScanIndex(java.io.File, java.lang.String[], java.lang.String[], java.lang.String[])
+     */
+    @Override
+    public void putScanIndex(final File directoryOrArchive, final String[] includesPath,
+                             final String[] excludesPath, final String[] entries) {
+        final String fingerprint = fingerprint(directoryOrArchive, false);
+        synchronized (this) {
+            this.scanIndexes.put(scanKey(directoryOrArchive, includesPath, excludesPath),
+                    new Fingerprinted<String[]>(fingerprint, entries.clone()));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.GenerationCache#getModel(java.lang.Class, java.lang.String)
+     */
+    @Override
+    public synchronized Map<String, String> getModel(final Class<?> clazz, final String context) {
+        final Map<String, Map<String, String>> classLoaderModels = this.models.get(clazz.getClassLoader());
+        return classLoaderModels == null ? null : classLoaderModels.get(clazz.getName() + '|' + context);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.GenerationCache#putModel(java.lang.Class, java.lang.String, java.util.Map)
+     */
+    @Override
+    public synchronized void putModel(final Class<?> clazz, final String context, final Map<String, String> model) {
+        final ClassLoader classLoader = clazz.getClassLoader();
+        if (classLoader != null) {
+            Map<String, Map<String, String>> classLoaderModels = this.models.get(classLoader);
+            if (classLoaderModels == null) {
+                classLoaderModels = new BoundedMap<String, Map<String, String>>(MAX_MODELS);
+                this.models.put(classLoader, classLoaderModels);
+            }
+            classLoaderModels.put(clazz.getName() + '|' + context, model);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.GenerationCache#isUpToDate(java.lang.Class, java.lang.String, java.io.File)
+     */
+    @Override
+    public synchronized boolean isUpToDate(final Class<?> clazz, final String context, final File file) {
+        final Map<String, String> classLoaderOutputs = this.outputs.get(clazz.getClassLoader());
+        return classLoaderOutputs != null && file.exists()
+                && outputFingerprint(clazz, context, file).equals(classLoaderOutputs.get(file.getAbsolutePath()));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.GenerationCache#putOutput(java.lang.Class, java.lang.String, java.io.File)
+     */
+    @Override
+    public synchronized void putOutput(final Class<?> clazz, final String context, final File file) {
+        final ClassLoader classLoader = clazz.getClassLoader();
+        if (classLoader != null) {
+            Map<String, String> classLoaderOutputs = this.outputs.get(classLoader);
+            if (classLoaderOutputs == null) {
+                classLoaderOutputs = new BoundedMap<String, String>(MAX_OUTPUTS);
+                this.outputs.put(classLoader, classLoaderOutputs);
+            }
+            classLoaderOutputs.put(file.getAbsolutePath(), outputFingerprint(clazz, context, file));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see fr.maven.dto.generator.GenerationCache#clear()
+     */
+    @Override
+    public synchronized void clear() {
+        this.classLoaders.clear();
+        this.scanIndexes.clear();
+        this.models.clear();
+        this.outputs.clear();
+    }
+
+    /**
+     * Fingerprint the directories and archives given.
+     *
+     * @param elements the directories and archives.
+     * @param contents <code>true</code> to fingerprint the files contents,
+     *                 <code>false</code> to fingerprint only their names.
+     * @return the fingerprint.
+     */
+    static String fingerprint(final List<File> elements, final boolean contents) {
+        final StringBuilder fingerprint = new StringBuilder();
+        for (final File element : elements) {
+            fingerprint.append(fingerprint(element, contents)).append(';');
+        }
+        return fingerprint.toString();
+    }
+
+    /**
+     * Fingerprint a directory or an archive. An archive is fingerprinted by
+     * its size and modification date. A directory is fingerprinted by the
+     * modification dates of its sub directories, which change when an entry
+     * is added or removed, and by the size and modification date of every
+     * file when contents matter.
+     *
+     * @param element  the directory or archive.
+     * @param contents <code>true</code> to fingerprint the files contents,
+     *                 <code>false</code> to fingerprint only their names.
+     * @return the fingerprint.
+     */
+    static String fingerprint(final File element, final boolean contents) {
+        if (!element.isDirectory()) {
+            return Long.toHexString(element.length()) + '-' + Long.toHexString(element.lastModified());
+        }
+        final long[] fingerprint = new long[2];
+        fingerprintDirectory(element, contents, fingerprint);
+        return Long.toHexString(fingerprint[0]) + '-' + Long.toHexString(fingerprint[1]);
+    }
+
+    /**
+     * Fingerprint a directory recursively.
+     *
+     * @param directory   the directory.
+     * @param contents    <code>true</code> to fingerprint the files contents.
+     * @param fingerprint the entries count and the running hash.
+     */
+    private static void fingerprintDirectory(final File directory, final boolean contents, final long[] fingerprint) {
+        fingerprint[1] = 31 * fingerprint[1] + directory.getName().hashCode();
+        fingerprint[1] = 31 * fingerprint[1] + directory.lastModified();
+        final File[] children = directory.listFiles();
+        if (children != null) {
+            Arrays.sort(children);
+            for (final File child : children) {
+                if (child.isDirectory()) {
+                    fingerprintDirectory(child, contents, fingerprint);
+                }
+                else if (contents) {
+                    fingerprint[0]++;
+                    fingerprint[1] = 31 * fingerprint[1] + child.getName().hashCode();
+                    fingerprint[1] = 31 * fingerprint[1] + child.length();
+                    fingerprint[1] = 31 * fingerprint[1] + child.lastModified();
+                }
+                else {
+                    fingerprint[0]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the key of a scan index.
+     *
+     * @param directoryOrArchive the directory or archive.
+     * @param includesPath       the includes path patterns.
+     * @param excludesPath       the excludes path patterns.
+     * @return the key.
+     */
+    private static String scanKey(final File directoryOrArchive, final String[] includesPath,
+                                  final String[] excludesPath) {
+        return directoryOrArchive.getAbsolutePath() + '|' + Arrays.toString(includesPath) + '|'
+                + Arrays.toString(excludesPath);
+    }
+
+    /**
+     * Fingerprint a written file with the class and context it was generated
+     * from.
+     *
+     * @param clazz   the class the file is generated from.
+     * @param context the generation context.
+     * @param file    the file.
+     * @return the fingerprint.
+     */
+    private static String outputFingerprint(final Class<?> clazz, final String context, final File file) {
+        return clazz.getName() + '|' + context + '|' + file.length() + '|' + file.lastModified();
+    }
+
+    /**
+     * A value with the fingerprint of what it has been computed from.
+     *
+     * @param <T> the value type.
+     */
+    private static final class Fingerprinted<T> {
+
+        /**
+         * The fingerprint.
+         */
+        private final String fingerprint;
+
+        /**
+         * The value.
+         */
+        private final T value;
+
+        /**
+         * Constructor.
+         *
+         * @param fingerprint the fingerprint.
+         * @param value       the value.
+         */
+        Fingerprinted(final String fingerprint, final T value) {
+            this.fingerprint = fingerprint;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A map evicting its least recently used entry above a maximum size.
+     *
+     * @param <K> the key type.
+     * @param <V> the value type.
+     */
+    private static final class BoundedMap<K, V> extends LinkedHashMap<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The maximum size.
+         */
+        private final int maxSize;
+
+        /**
+         * Constructor.
+         *
+         * @param maxSize the maximum size.
+         */
+        BoundedMap(final int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+            return this.size() > this.maxSize;
+        }
+    }
+}
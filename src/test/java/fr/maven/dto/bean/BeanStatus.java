@@ -0,0 +1,24 @@
+/**
+ * 
+ */
+package fr.maven.dto.bean;
+
+/**
+ * Enum to test DTO generation.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public enum BeanStatus {
+
+	NEW, ACTIVE, CLOSED;
+
+	/**
+	 * The label is not the name, so that DTO constants must be named after
+	 * {@link #name()}.
+	 */
+	@Override
+	public String toString() {
+		return this.name().toLowerCase();
+	}
+}
@@ -0,0 +1,423 @@
+/**
+ * 
+ */
+package fr.maven.dto.bean;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bean with every kind of field to test the generated companion classes.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ComplexBean {
+
+	private int id;
+
+	private long version;
+
+	private boolean active;
+
+	private Double score;
+
+	private byte flags;
+
+	private char code;
+
+	private short level;
+
+	private String name;
+
+	private Date created;
+
+	private BeanStatus status;
+
+	private Kind kind;
+
+	private Detail detail;
+
+	private Bean bean;
+
+	private Bean[][] beanMatrix;
+
+	private int[][] grid;
+
+	private List<Bean> beans;
+
+	private Set<Bean> beanSet;
+
+	private Map<String, List<Bean>> beanIndex;
+
+	private List<String> tags;
+
+	private Map<BeanStatus, Integer> counts;
+
+	/**
+	 * @return the id
+	 */
+	public int getId() {
+		return this.id;
+	}
+
+	/**
+	 * @param id
+	 *            the id to set
+	 */
+	public void setId(final int id) {
+		this.id = id;
+	}
+
+	/**
+	 * @return the version
+	 */
+	public long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * @param version
+	 *            the version to set
+	 */
+	public void setVersion(final long version) {
+		this.version = version;
+	}
+
+	/**
+	 * @return the active
+	 */
+	public boolean isActive() {
+		return this.active;
+	}
+
+	/**
+	 * @param active
+	 *            the active to set
+	 */
+	public void setActive(final boolean active) {
+		this.active = active;
+	}
+
+	/**
+	 * @return the score
+	 */
+	public Double getScore() {
+		return this.score;
+	}
+
+	/**
+	 * @param score
+	 *            the score to set
+	 */
+	public void setScore(final Double score) {
+		this.score = score;
+	}
+
+	/**
+	 * @return the flags
+	 */
+	public byte getFlags() {
+		return this.flags;
+	}
+
+	/**
+	 * @param flags
+	 *            the flags to set
+	 */
+	public void setFlags(final byte flags) {
+		this.flags = flags;
+	}
+
+	/**
+	 * @return the code
+	 */
+	public char getCode() {
+		return this.code;
+	}
+
+	/**
+	 * @param code
+	 *            the code to set
+	 */
+	public void setCode(final char code) {
+		this.code = code;
+	}
+
+	/**
+	 * @return the level
+	 */
+	public short getLevel() {
+		return this.level;
+	}
+
+	/**
+	 * @param level
+	 *            the level to set
+	 */
+	public void setLevel(final short level) {
+		this.level = level;
+	}
+
+	/**
+	 * @return the name
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * @param name
+	 *            the name to set
+	 */
+	public void setName(final String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return the created
+	 */
+	public Date getCreated() {
+		return this.created;
+	}
+
+	/**
+	 * @param created
+	 *            the created to set
+	 */
+	public void setCreated(final Date created) {
+		this.created = created;
+	}
+
+	/**
+	 * @return the status
+	 */
+	public BeanStatus getStatus() {
+		return this.status;
+	}
+
+	/**
+	 * @param status
+	 *            the status to set
+	 */
+	public void setStatus(final BeanStatus status) {
+		this.status = status;
+	}
+
+	/**
+	 * @return the kind
+	 */
+	public Kind getKind() {
+		return this.kind;
+	}
+
+	/**
+	 * @param kind
+	 *            the kind to set
+	 */
+	public void setKind(final Kind kind) {
+		this.kind = kind;
+	}
+
+	/**
+	 * @return the detail
+	 */
+	public Detail getDetail() {
+		return this.detail;
+	}
+
+	/**
+	 * @param detail
+	 *            the detail to set
+	 */
+	public void setDetail(final Detail detail) {
+		this.detail = detail;
+	}
+
+	/**
+	 * @return the bean
+	 */
+	public Bean getBean() {
+		return this.bean;
+	}
+
+	/**
+	 * @param bean
+	 *            the bean to set
+	 */
+	public void setBean(final Bean bean) {
+		this.bean = bean;
+	}
+
+	/**
+	 * @return the beanMatrix
+	 */
+	public Bean[][] getBeanMatrix() {
+		return this.beanMatrix;
+	}
+
+	/**
+	 * @param beanMatrix
+	 *            the beanMatrix to set
+	 */
+	public void setBeanMatrix(final Bean[][] beanMatrix) {
+		this.beanMatrix = beanMatrix;
+	}
+
+	/**
+	 * @return the grid
+	 */
+	public int[][] getGrid() {
+		return this.grid;
+	}
+
+	/**
+	 * @param grid
+	 *            the grid to set
+	 */
+	public void setGrid(final int[][] grid) {
+		this.grid = grid;
+	}
+
+	/**
+	 * @return the beans
+	 */
+	public List<Bean> getBeans() {
+		return this.beans;
+	}
+
+	/**
+	 * @param beans
+	 *            the beans to set
+	 */
+	public void setBeans(final List<Bean> beans) {
+		this.beans = beans;
+	}
+
+	/**
+	 * @return the beanSet
+	 */
+	public Set<Bean> getBeanSet() {
+		return this.beanSet;
+	}
+
+	/**
+	 * @param beanSet
+	 *            the beanSet to set
+	 */
+	public void setBeanSet(final Set<Bean> beanSet) {
+		this.beanSet = beanSet;
+	}
+
+	/**
+	 * @return the beanIndex
+	 */
+	public Map<String, List<Bean>> getBeanIndex() {
+		return this.beanIndex;
+	}
+
+	/**
+	 * @param beanIndex
+	 *            the beanIndex to set
+	 */
+	public void setBeanIndex(final Map<String, List<Bean>> beanIndex) {
+		this.beanIndex = beanIndex;
+	}
+
+	/**
+	 * @return the tags
+	 */
+	public List<String> getTags() {
+		return this.tags;
+	}
+
+	/**
+	 * @param tags
+	 *            the tags to set
+	 */
+	public void setTags(final List<String> tags) {
+		this.tags = tags;
+	}
+
+	/**
+	 * @return the counts
+	 */
+	public Map<BeanStatus, Integer> getCounts() {
+		return this.counts;
+	}
+
+	/**
+	 * @param counts
+	 *            the counts to set
+	 */
+	public void setCounts(final Map<BeanStatus, Integer> counts) {
+		this.counts = counts;
+	}
+
+	/**
+	 * Nested class to test DTO generation.
+	 */
+	public static class Detail {
+
+		@LowCardinality
+		private String label;
+
+		private long[] values;
+
+		private Bean bean;
+
+		/**
+		 * @return the label
+		 */
+		public String getLabel() {
+			return this.label;
+		}
+
+		/**
+		 * @param label
+		 *            the label to set
+		 */
+		public void setLabel(final String label) {
+			this.label = label;
+		}
+
+		/**
+		 * @return the values
+		 */
+		public long[] getValues() {
+			return this.values;
+		}
+
+		/**
+		 * @param values
+		 *            the values to set
+		 */
+		public void setValues(final long[] values) {
+			this.values = values;
+		}
+
+		/**
+		 * @return the bean
+		 */
+		public Bean getBean() {
+			return this.bean;
+		}
+
+		/**
+		 * @param bean
+		 *            the bean to set
+		 */
+		public void setBean(final Bean bean) {
+			this.bean = bean;
+		}
+	}
+
+	/**
+	 * Nested enum to test DTO generation.
+	 */
+	public enum Kind {
+		SMALL, MEDIUM, LARGE
+	}
+}
@@ -0,0 +1,21 @@
+/**
+ * 
+ */
+package fr.maven.dto.bean;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation marking the low-cardinality fields of the test beans, to test
+ * the interned fields.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface LowCardinality {
+}
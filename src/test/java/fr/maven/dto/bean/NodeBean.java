@@ -0,0 +1,67 @@
+/**
+ * 
+ */
+package fr.maven.dto.bean;
+
+import java.util.List;
+
+/**
+ * Bean referring to beans of its own class to test the copies of object
+ * graphs.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class NodeBean {
+
+	private String name;
+
+	private NodeBean parent;
+
+	private List<NodeBean> children;
+
+	/**
+	 * @return the name
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * @param name
+	 *            the name to set
+	 */
+	public void setName(final String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return the parent
+	 */
+	public NodeBean getParent() {
+		return this.parent;
+	}
+
+	/**
+	 * @param parent
+	 *            the parent to set
+	 */
+	public void setParent(final NodeBean parent) {
+		this.parent = parent;
+	}
+
+	/**
+	 * @return the children
+	 */
+	public List<NodeBean> getChildren() {
+		return this.children;
+	}
+
+	/**
+	 * @param children
+	 *            the children to set
+	 */
+	public void setChildren(final List<NodeBean> children) {
+		this.children = children;
+	}
+}
@@ -0,0 +1,86 @@
+/**
+ * 
+ */
+package fr.maven.dto.bean;
+
+import java.math.BigDecimal;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Bean with dates and decimals to test the type substitutions.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class PaymentBean {
+
+	private BigDecimal amount;
+
+	private Date paid;
+
+	private Calendar due;
+
+	private List<Date> reminders;
+
+	/**
+	 * @return the amount
+	 */
+	public BigDecimal getAmount() {
+		return this.amount;
+	}
+
+	/**
+	 * @param amount
+	 *            the amount to set
+	 */
+	public void setAmount(final BigDecimal amount) {
+		this.amount = amount;
+	}
+
+	/**
+	 * @return the paid
+	 */
+	public Date getPaid() {
+		return this.paid;
+	}
+
+	/**
+	 * @param paid
+	 *            the paid to set
+	 */
+	public void setPaid(final Date paid) {
+		this.paid = paid;
+	}
+
+	/**
+	 * @return the due
+	 */
+	public Calendar getDue() {
+		return this.due;
+	}
+
+	/**
+	 * @param due
+	 *            the due to set
+	 */
+	public void setDue(final Calendar due) {
+		this.due = due;
+	}
+
+	/**
+	 * @return the reminders
+	 */
+	public List<Date> getReminders() {
+		return this.reminders;
+	}
+
+	/**
+	 * @param reminders
+	 *            the reminders to set
+	 */
+	public void setReminders(final List<Date> reminders) {
+		this.reminders = reminders;
+	}
+}
@@ -0,0 +1,85 @@
+/**
+ * 
+ */
+package fr.maven.dto.bean;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bean with collections of wrappers to test the primitive collections.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class SeriesBean {
+
+	private List<Integer> samples;
+
+	private Map<Long, Double> prices;
+
+	private Set<Integer> ids;
+
+	private List<String> labels;
+
+	/**
+	 * @return the samples
+	 */
+	public List<Integer> getSamples() {
+		return this.samples;
+	}
+
+	/**
+	 * @param samples
+	 *            the samples to set
+	 */
+	public void setSamples(final List<Integer> samples) {
+		this.samples = samples;
+	}
+
+	/**
+	 * @return the prices
+	 */
+	public Map<Long, Double> getPrices() {
+		return this.prices;
+	}
+
+	/**
+	 * @param prices
+	 *            the prices to set
+	 */
+	public void setPrices(final Map<Long, Double> prices) {
+		this.prices = prices;
+	}
+
+	/**
+	 * @return the ids
+	 */
+	public Set<Integer> getIds() {
+		return this.ids;
+	}
+
+	/**
+	 * @param ids
+	 *            the ids to set
+	 */
+	public void setIds(final Set<Integer> ids) {
+		this.ids = ids;
+	}
+
+	/**
+	 * @return the labels
+	 */
+	public List<String> getLabels() {
+		return this.labels;
+	}
+
+	/**
+	 * @param labels
+	 *            the labels to set
+	 */
+	public void setLabels(final List<String> labels) {
+		this.labels = labels;
+	}
+}
@@ -0,0 +1,203 @@
+/**
+ * 
+ */
+package fr.maven.dto.bean;
+
+import java.util.Date;
+
+/**
+ * Bean with fields of fixed size, strings and arrays to test the flyweight
+ * views.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class TickBean {
+
+	private long id;
+
+	private double price;
+
+	private int quantity;
+
+	private short lot;
+
+	private BeanStatus status;
+
+	private String symbol;
+
+	private Date time;
+
+	private boolean active;
+
+	private Double limit;
+
+	private char side;
+
+	private long[] history;
+
+	/**
+	 * @return the id
+	 */
+	public long getId() {
+		return this.id;
+	}
+
+	/**
+	 * @param id
+	 *            the id to set
+	 */
+	public void setId(final long id) {
+		this.id = id;
+	}
+
+	/**
+	 * @return the price
+	 */
+	public double getPrice() {
+		return this.price;
+	}
+
+	/**
+	 * @param price
+	 *            the price to set
+	 */
+	public void setPrice(final double price) {
+		this.price = price;
+	}
+
+	/**
+	 * @return the quantity
+	 */
+	public int getQuantity() {
+		return this.quantity;
+	}
+
+	/**
+	 * @param quantity
+	 *            the quantity to set
+	 */
+	public void setQuantity(final int quantity) {
+		this.quantity = quantity;
+	}
+
+	/**
+	 * @return the lot
+	 */
+	public short getLot() {
+		return this.lot;
+	}
+
+	/**
+	 * @param lot
+	 *            the lot to set
+	 */
+	public void setLot(final short lot) {
+		this.lot = lot;
+	}
+
+	/**
+	 * @return the status
+	 */
+	public BeanStatus getStatus() {
+		return this.status;
+	}
+
+	/**
+	 * @param status
+	 *            the status to set
+	 */
+	public void setStatus(final BeanStatus status) {
+		this.status = status;
+	}
+
+	/**
+	 * @return the symbol
+	 */
+	public String getSymbol() {
+		return this.symbol;
+	}
+
+	/**
+	 * @param symbol
+	 *            the symbol to set
+	 */
+	public void setSymbol(final String symbol) {
+		this.symbol = symbol;
+	}
+
+	/**
+	 * @return the time
+	 */
+	public Date getTime() {
+		return this.time;
+	}
+
+	/**
+	 * @param time
+	 *            the time to set
+	 */
+	public void setTime(final Date time) {
+		this.time = time;
+	}
+
+	/**
+	 * @return the active
+	 */
+	public boolean isActive() {
+		return this.active;
+	}
+
+	/**
+	 * @param active
+	 *            the active to set
+	 */
+	public void setActive(final boolean active) {
+		this.active = active;
+	}
+
+	/**
+	 * @return the limit
+	 */
+	public Double getLimit() {
+		return this.limit;
+	}
+
+	/**
+	 * @param limit
+	 *            the limit to set
+	 */
+	public void setLimit(final Double limit) {
+		this.limit = limit;
+	}
+
+	/**
+	 * @return the side
+	 */
+	public char getSide() {
+		return this.side;
+	}
+
+	/**
+	 * @param side
+	 *            the side to set
+	 */
+	public void setSide(final char side) {
+		this.side = side;
+	}
+
+	/**
+	 * @return the history
+	 */
+	public long[] getHistory() {
+		return this.history;
+	}
+
+	/**
+	 * @param history
+	 *            the history to set
+	 */
+	public void setHistory(final long[] history) {
+		this.history = history;
+	}
+}
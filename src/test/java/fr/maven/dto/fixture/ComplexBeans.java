@@ -0,0 +1,119 @@
+/**
+ *
+ */
+package fr.maven.dto.fixture;
+
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.BeanStatus;
+import fr.maven.dto.bean.ComplexBean;
+import fr.maven.dto.bean.SeriesBean;
+import fr.maven.dto.bean.TickBean;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Factory of the test beans converted by the generated classes.
+ *
+ * @author Wilfried Petit
+ */
+public final class ComplexBeans {
+
+    private ComplexBeans() {
+    }
+
+    /**
+     * Return a bean.
+     *
+     * @param a the value of the a field.
+     * @return the bean.
+     */
+    public static Bean newBean(final String a) {
+        final Bean bean = new Bean();
+        bean.setA(a);
+        return bean;
+    }
+
+    /**
+     * Return a complex bean with every field set, including a
+     * <code>null</code> array element.
+     *
+     * @return the complex bean.
+     */
+    public static ComplexBean newComplexBean() {
+        final ComplexBean bean = new ComplexBean();
+        bean.setId(7);
+        bean.setVersion(8L);
+        bean.setActive(true);
+        bean.setScore(Double.valueOf(1.5));
+        bean.setFlags((byte) 2);
+        bean.setCode('c');
+        bean.setLevel((short) 3);
+        bean.setName("name");
+        bean.setCreated(new Date(1000L));
+        bean.setStatus(BeanStatus.ACTIVE);
+        bean.setKind(ComplexBean.Kind.LARGE);
+        final ComplexBean.Detail detail = new ComplexBean.Detail();
+        detail.setLabel("label");
+        detail.setValues(new long[]{1L, 2L});
+        detail.setBean(newBean("in detail"));
+        bean.setDetail(detail);
+        bean.setBean(newBean("bean"));
+        bean.setBeanMatrix(new Bean[][]{{newBean("m")}, {null}});
+        bean.setGrid(new int[][]{{1, 2}, {3}});
+        bean.setBeans(Arrays.asList(newBean("l")));
+        bean.setBeanSet(new HashSet<Bean>(Arrays.asList(newBean("s"))));
+        final Map<String, List<Bean>> beanIndex = new HashMap<String, List<Bean>>();
+        beanIndex.put("key", Arrays.asList(newBean("i")));
+        bean.setBeanIndex(beanIndex);
+        bean.setTags(Arrays.asList("a", "b"));
+        final Map<BeanStatus, Integer> counts = new HashMap<BeanStatus, Integer>();
+        counts.put(BeanStatus.NEW, Integer.valueOf(3));
+        bean.setCounts(counts);
+        return bean;
+    }
+
+    /**
+     * Return a series bean with every field set.
+     *
+     * @return the series bean.
+     */
+    public static SeriesBean newSeriesBean() {
+        final SeriesBean bean = new SeriesBean();
+        bean.setSamples(Arrays.asList(Integer.valueOf(3), Integer.valueOf(-1), Integer.valueOf(3)));
+        final Map<Long, Double> prices = new LinkedHashMap<Long, Double>();
+        prices.put(Long.valueOf(10000000000L), Double.valueOf(1.5));
+        prices.put(Long.valueOf(-2L), Double.valueOf(-0.5));
+        bean.setPrices(prices);
+        bean.setIds(new HashSet<Integer>(Arrays.asList(Integer.valueOf(5))));
+        bean.setLabels(Arrays.asList("a"));
+        return bean;
+    }
+
+    /**
+     * Return a tick bean with every field set, its symbol not in ASCII.
+     *
+     * @param id the tick id.
+     * @return the tick bean.
+     */
+    public static TickBean newTickBean(final long id) {
+        final TickBean bean = new TickBean();
+        bean.setId(id);
+        bean.setPrice(101.25 + id);
+        bean.setQuantity(-7);
+        bean.setLot((short) 100);
+        bean.setStatus(BeanStatus.ACTIVE);
+        bean.setSymbol("\u00e9t\u00e9-\u20ac-\ud83d\ude00-" + id);
+        bean.setTime(new Date(1300000000000L + id));
+        bean.setActive(true);
+        bean.setLimit(Double.valueOf(-0.5));
+        bean.setSide('S');
+        bean.setHistory(new long[]{id, Long.MIN_VALUE, Long.MAX_VALUE});
+        return bean;
+    }
+}
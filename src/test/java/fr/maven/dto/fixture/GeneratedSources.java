@@ -0,0 +1,256 @@
+/**
+ *
+ */
+package fr.maven.dto.fixture;
+
+import fr.maven.dto.generator.impl.DTOGeneratorImpl;
+
+import org.apache.commons.pool.ObjectPool;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTOs and companion classes generated for test classes, compiled and loaded,
+ * so that tests can run the generated code. The generated tests are compiled
+ * and loaded too.
+ *
+ * @author Wilfried Petit
+ */
+public class GeneratedSources {
+
+    /**
+     * The package DTOs are generated in.
+     */
+    public static final String PACKAGE = "fr.maven.dto.generated";
+
+    /**
+     * The directory holding generated sources and classes.
+     */
+    private final File root;
+
+    /**
+     * The class loader of the generated classes.
+     */
+    private final ClassLoader classLoader;
+
+    /**
+     * Generate the DTOs of the classes given with the generator given, compile
+     * and load them.
+     *
+     * @param root      the directory to generate in, deleted first.
+     * @param generator the generator, configured with its options.
+     * @param classes   the classes to generate DTOs for.
+     * @throws IOException if the sources can not be generated or compiled.
+     */
+    public GeneratedSources(final File root, final DTOGeneratorImpl generator, final List<Class<?>> classes)
+            throws IOException {
+        this.root = root;
+        delete(root);
+        final File sourcesDirectory = new File(root, "src");
+        final File testSourcesDirectory = new File(root, "test");
+        final File classesDirectory = new File(root, "classes");
+        if (!classesDirectory.mkdirs()) {
+            throw new IOException("The directory " + classesDirectory + " can not be created.");
+        }
+        generator.setGeneratedDirectory(sourcesDirectory);
+        generator.setGeneratedPackage(PACKAGE);
+        generator.setExtraInterfaces(new ArrayList<String>());
+        generator.setGeneratedTestDirectory(testSourcesDirectory);
+        generator.generateDTOs(classes);
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IOException("Tests must run on a JDK to compile the generated sources.");
+        }
+        final StringBuilder classpath = new StringBuilder();
+        for (final Class<?> clazz : classes) {
+            classpath.append(new File(clazz.getProtectionDomain().getCodeSource().getLocation().getPath()))
+                    .append(File.pathSeparator);
+        }
+        classpath.append(new File(ObjectPool.class.getProtectionDomain().getCodeSource().getLocation().getPath()))
+                .append(File.pathSeparator);
+        classpath.append(new File(Test.class.getProtectionDomain().getCodeSource().getLocation().getPath()));
+        final List<String> arguments = new ArrayList<String>();
+        arguments.add("-nowarn");
+        arguments.add("-source");
+        arguments.add("1.6");
+        arguments.add("-target");
+        arguments.add("1.6");
+        arguments.add("-classpath");
+        arguments.add(classpath.toString());
+        arguments.add("-d");
+        arguments.add(classesDirectory.getPath());
+        arguments.addAll(listSources(sourcesDirectory, new ArrayList<String>()));
+        arguments.addAll(listSources(testSourcesDirectory, new ArrayList<String>()));
+        if (compiler.run(null, null, null, arguments.toArray(new String[0])) != 0) {
+            throw new IOException("The generated sources can not be compiled.");
+        }
+        this.classLoader = new URLClassLoader(new URL[]{classesDirectory.toURI().toURL()},
+                classes.get(0).getClassLoader());
+    }
+
+    /**
+     * Return a generated class.
+     *
+     * @param name the class name, without its package, e.g. BeanDTO or
+     *             BeanDTO$Detail.
+     * @return the class.
+     * @throws ClassNotFoundException if the class has not been generated.
+     */
+    public Class<?> loadClass(final String name) throws ClassNotFoundException {
+        return this.classLoader.loadClass(PACKAGE + "." + name);
+    }
+
+    /**
+     * Return the class loader of the generated classes.
+     *
+     * @return the class loader.
+     */
+    public ClassLoader getClassLoader() {
+        return this.classLoader;
+    }
+
+    /**
+     * Invoke a static method of a generated class.
+     *
+     * @param className  the class name, without its package.
+     * @param methodName the method name.
+     * @param arguments  the method arguments, that select the overload.
+     * @return the method result.
+     * @throws Exception if the method can not be invoked or fails.
+     */
+    public Object invokeStatic(final String className, final String methodName, final Object... arguments)
+            throws Exception {
+        return invoke(this.loadClass(className), null, methodName, arguments);
+    }
+
+    /**
+     * Invoke a method of an object.
+     *
+     * @param target     the object.
+     * @param methodName the method name.
+     * @param arguments  the method arguments, that select the overload.
+     * @return the method result.
+     * @throws Exception if the method can not be invoked or fails.
+     */
+    public static Object invoke(final Object target, final String methodName, final Object... arguments)
+            throws Exception {
+        return invoke(target.getClass(), target, methodName, arguments);
+    }
+
+    /**
+     * Invoke the public method of a class whose parameters accept the
+     * arguments given.
+     *
+     * @param clazz      the class.
+     * @param target     the object, <code>null</code> for a static method.
+     * @param methodName the method name.
+     * @param arguments  the method arguments.
+     * @return the method result.
+     * @throws Exception if the method can not be invoked or fails.
+     */
+    private static Object invoke(final Class<?> clazz, final Object target, final String methodName,
+                                 final Object... arguments) throws Exception {
+        for (final Method method : clazz.getMethods()) {
+            if (method.getName().equals(methodName) && (target == null) == Modifier.isStatic(method.getModifiers())
+                    && accepts(method.getParameterTypes(), arguments)) {
+                try {
+                    return method.invoke(target, arguments);
+                }
+                catch (final InvocationTargetException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        }
+        throw new NoSuchMethodException(clazz.getName() + "." + methodName);
+    }
+
+    /**
+     * Check if parameters accept the arguments given.
+     *
+     * @param parameterTypes the parameter types.
+     * @param arguments      the arguments.
+     * @return <code>true</code> if each argument is an instance of its
+     *         parameter type.
+     */
+    private static boolean accepts(final Class<?>[] parameterTypes, final Object[] arguments) {
+        if (parameterTypes.length != arguments.length) {
+            return false;
+        }
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] != null && !parameterTypes[i].isPrimitive()
+                    && !parameterTypes[i].isInstance(arguments[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return a generated source.
+     *
+     * @param name the class name, without its package.
+     * @return the source file.
+     */
+    public File getSource(final String name) {
+        return new File(new File(this.root, "src"), (PACKAGE + "." + name).replace('.', File.separatorChar) + ".java");
+    }
+
+    /**
+     * Delete the generated sources and classes.
+     */
+    public void delete() {
+        delete(this.root);
+    }
+
+    /**
+     * List the sources of a directory recursively.
+     *
+     * @param directory the directory.
+     * @param sources   the list to add sources to.
+     * @return the sources.
+     */
+    private static List<String> listSources(final File directory, final List<String> sources) {
+        final File[] children = directory.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                if (child.isDirectory()) {
+                    listSources(child, sources);
+                }
+                else if (child.getName().endsWith(".java")) {
+                    sources.add(child.getPath());
+                }
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Delete a file or a directory recursively.
+     *
+     * @param file the file to delete.
+     */
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,357 @@
+/**
+ *
+ */
+package fr.maven.dto.fixture;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Synthetic classpath of interlinked beans, to test the generation at scale.
+ * <p/>
+ * Beans are spread over several packages. Half of the packages stay in a
+ * classes directory, each of the other ones is packed in its own jar. Every
+ * bean has primitive, String and enum fields, references to other beans
+ * through plain fields, generic lists and maps and a two dimensional array,
+ * plus a nested static class and a nested enum.
+ *
+ * @author Wilfried Petit
+ */
+public class SyntheticClasspath {
+
+    /**
+     * The root package of the synthetic beans.
+     */
+    public static final String PACKAGE = "fr.maven.dto.synthetic";
+
+    /**
+     * The number of packages beans are spread over.
+     */
+    private static final int PACKAGE_COUNT = 8;
+
+    /**
+     * The number of beans sharing a top level enum.
+     */
+    private static final int BEANS_PER_ENUM = 20;
+
+    /**
+     * The directory holding sources, classes and jars.
+     */
+    private final File root;
+
+    /**
+     * The classes directory.
+     */
+    private final File classesDirectory;
+
+    /**
+     * The jars.
+     */
+    private final List<File> archives;
+
+    /**
+     * The number of beans.
+     */
+    private final int beanCount;
+
+    /**
+     * The class loader of the classes directory and the jars.
+     */
+    private final URLClassLoader classLoader;
+
+    /**
+     * Constructor. Writes, compiles and packs the beans.
+     *
+     * @param root      the directory to generate the classpath in, it must not
+     *                  exist.
+     * @param beanCount the number of beans.
+     * @throws IOException if the classpath can not be generated.
+     */
+    public SyntheticClasspath(final File root, final int beanCount) throws IOException {
+        this.root = root;
+        this.beanCount = beanCount;
+        this.classesDirectory = new File(root, "classes");
+        this.archives = new ArrayList<File>();
+        final File sourcesDirectory = new File(root, "src");
+        this.compile(this.writeSources(sourcesDirectory));
+        for (int p = PACKAGE_COUNT / 2; p < PACKAGE_COUNT; p++) {
+            this.archives.add(this.pack(p));
+        }
+        final List<URL> urls = new ArrayList<URL>();
+        for (final File baseDirectory : this.getBaseDirectories()) {
+            urls.add(baseDirectory.toURI().toURL());
+        }
+        this.classLoader = new URLClassLoader(urls.toArray(new URL[0]), SyntheticClasspath.class.getClassLoader());
+    }
+
+    /**
+     * @return the classes directory followed by the jars.
+     */
+    public List<File> getBaseDirectories() {
+        final List<File> baseDirectories = new ArrayList<File>();
+        baseDirectories.add(this.classesDirectory);
+        baseDirectories.addAll(this.archives);
+        return baseDirectories;
+    }
+
+    /**
+     * @return the classes directory.
+     */
+    public File getClassesDirectory() {
+        return this.classesDirectory;
+    }
+
+    /**
+     * @return the jars.
+     */
+    public List<File> getArchives() {
+        return this.archives;
+    }
+
+    /**
+     * @return the class loader of the synthetic classpath.
+     */
+    public ClassLoader getClassLoader() {
+        return this.classLoader;
+    }
+
+    /**
+     * @return the includes pattern matching every synthetic class.
+     */
+    public List<String> getIncludes() {
+        final List<String> includes = new ArrayList<String>();
+        includes.add(PACKAGE + ".**.*");
+        return includes;
+    }
+
+    /**
+     * @return the number of beans.
+     */
+    public int getBeanCount() {
+        return this.beanCount;
+    }
+
+    /**
+     * @return the number of top level classes: beans and enums.
+     */
+    public int getClassCount() {
+        return this.beanCount + this.getEnumCount();
+    }
+
+    /**
+     * Load every bean.
+     *
+     * @return the beans, in index order.
+     * @throws ClassNotFoundException if a bean has not been compiled.
+     */
+    public List<Class<?>> loadBeans() throws ClassNotFoundException {
+        final List<Class<?>> beans = new ArrayList<Class<?>>(this.beanCount);
+        for (int i = 0; i < this.beanCount; i++) {
+            beans.add(this.classLoader.loadClass(this.getBeanName(i)));
+        }
+        return beans;
+    }
+
+    /**
+     * Delete every file of the classpath.
+     */
+    public void delete() {
+        delete(this.root);
+    }
+
+    /**
+     * @return the number of top level enums.
+     */
+    private int getEnumCount() {
+        return Math.max(1, this.beanCount / BEANS_PER_ENUM);
+    }
+
+    /**
+     * Return the canonical name of a bean.
+     *
+     * @param index the bean index.
+     * @return the canonical name.
+     */
+    private String getBeanName(final int index) {
+        final int i = index % this.beanCount;
+        return PACKAGE + ".p" + (i % PACKAGE_COUNT) + ".Bean" + i;
+    }
+
+    /**
+     * Return the canonical name of a top level enum.
+     *
+     * @param index the enum index.
+     * @return the canonical name.
+     */
+    private String getEnumName(final int index) {
+        return PACKAGE + ".p" + (index % PACKAGE_COUNT) + ".Status" + index;
+    }
+
+    /**
+     * Write the sources of the beans and enums.
+     *
+     * @param sourcesDirectory the directory to write sources in.
+     * @return the sources written.
+     * @throws IOException if a source can not be written.
+     */
+    private List<String> writeSources(final File sourcesDirectory) throws IOException {
+        final List<String> sources = new ArrayList<String>();
+        for (int i = 0; i < this.getEnumCount(); i++) {
+            final StringBuilder source = new StringBuilder();
+            source.append("public enum Status").append(i).append(" {\n");
+            source.append("    NEW, ACTIVE, SUSPENDED, CLOSED\n");
+            source.append("}\n");
+            sources.add(this.writeSource(sourcesDirectory, this.getEnumName(i), source));
+        }
+        for (int i = 0; i < this.beanCount; i++) {
+            final String next = this.getBeanName(i + 1);
+            final String child = this.getBeanName(i + 2);
+            final StringBuilder source = new StringBuilder();
+            source.append("public class Bean").append(i).append(" {\n");
+            source.append("    private int id;\n");
+            source.append("    private long version;\n");
+            source.append("    private boolean active;\n");
+            source.append("    private double score;\n");
+            source.append("    private Long parentId;\n");
+            source.append("    private String name;\n");
+            source.append("    private java.util.Date created;\n");
+            source.append("    private ").append(this.getEnumName(i / BEANS_PER_ENUM % this.getEnumCount())).append(" status;\n");
+            source.append("    private ").append(next).append(" next;\n");
+            source.append("    private java.util.List<").append(child).append("> children;\n");
+            source.append("    private java.util.Map<String, java.util.List<").append(next).append(">> index;\n");
+            source.append("    private ").append(child).append("[][] matrix;\n");
+            source.append("    private int[] counters;\n");
+            source.append("    private java.util.List<String> tags;\n");
+            source.append("    private Detail detail;\n");
+            source.append("    private Kind kind;\n");
+            source.append("    public static class Detail {\n");
+            source.append("        private String label;\n");
+            source.append("        private long[] values;\n");
+            source.append("        private java.util.Set<").append(next).append("> references;\n");
+            source.append("    }\n");
+            source.append("    public enum Kind {\n");
+            source.append("        SMALL, MEDIUM, LARGE\n");
+            source.append("    }\n");
+            source.append("}\n");
+            sources.add(this.writeSource(sourcesDirectory, this.getBeanName(i), source));
+        }
+        return sources;
+    }
+
+    /**
+     * Write a source in its package directory.
+     *
+     * @param sourcesDirectory the sources directory.
+     * @param className        the canonical name of the class.
+     * @param body             the source without the package declaration.
+     * @return the path of the source written.
+     * @throws IOException if the source can not be written.
+     */
+    private String writeSource(final File sourcesDirectory, final String className, final CharSequence body)
+            throws IOException {
+        final int lastDot = className.lastIndexOf('.');
+        final File packageDirectory = new File(sourcesDirectory,
+                className.substring(0, lastDot).replace('.', File.separatorChar));
+        if (!packageDirectory.exists() && !packageDirectory.mkdirs()) {
+            throw new IOException("The directory " + packageDirectory + " can not be created.");
+        }
+        final File source = new File(packageDirectory, className.substring(lastDot + 1) + ".java");
+        final Writer writer = new FileWriter(source);
+        try {
+            writer.write("package " + className.substring(0, lastDot) + ";\n\n");
+            writer.write(body.toString());
+        }
+        finally {
+            writer.close();
+        }
+        return source.getPath();
+    }
+
+    /**
+     * Compile the sources in the classes directory.
+     *
+     * @param sources the sources to compile.
+     * @throws IOException if the sources can not be compiled.
+     */
+    private void compile(final List<String> sources) throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IOException("Tests must run on a JDK to compile the synthetic classpath.");
+        }
+        if (!this.classesDirectory.mkdirs()) {
+            throw new IOException("The directory " + this.classesDirectory + " can not be created.");
+        }
+        final List<String> arguments = new ArrayList<String>();
+        arguments.add("-nowarn");
+        arguments.add("-d");
+        arguments.add(this.classesDirectory.getPath());
+        arguments.addAll(sources);
+        if (compiler.run(null, null, null, arguments.toArray(new String[0])) != 0) {
+            throw new IOException("The synthetic classpath can not be compiled.");
+        }
+    }
+
+    /**
+     * Move the classes of a package from the classes directory to a jar.
+     *
+     * @param packageIndex the package index.
+     * @return the jar.
+     * @throws IOException if the jar can not be written.
+     */
+    private File pack(final int packageIndex) throws IOException {
+        final String packagePath = PACKAGE.replace('.', '/') + "/p" + packageIndex;
+        final File packageDirectory = new File(this.classesDirectory, packagePath.replace('/', File.separatorChar));
+        final File archive = new File(this.root, "p" + packageIndex + ".jar");
+        final JarOutputStream jar = new JarOutputStream(new FileOutputStream(archive));
+        try {
+            final byte[] buffer = new byte[8192];
+            for (final File classFile : packageDirectory.listFiles()) {
+                jar.putNextEntry(new JarEntry(packagePath + "/" + classFile.getName()));
+                final InputStream in = new FileInputStream(classFile);
+                try {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        jar.write(buffer, 0, read);
+                    }
+                }
+                finally {
+                    in.close();
+                }
+                jar.closeEntry();
+            }
+        }
+        finally {
+            jar.close();
+        }
+        delete(packageDirectory);
+        return archive;
+    }
+
+    /**
+     * Delete a file or a directory recursively.
+     *
+     * @param file the file to delete.
+     */
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.BeanStatus;
+import fr.maven.dto.bean.ComplexBean;
+import fr.maven.dto.fixture.ComplexBeans;
+import fr.maven.dto.fixture.GeneratedSources;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests on the generated accessors: the fields of a DTO must be read and
+ * written by index, and found by name, as declared.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOAccessorWriterTest {
+
+    private static GeneratedSources generatedSources;
+
+    /**
+     * Generate, compile and load the DTOs, mappers and accessors of the test
+     * beans.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        generator.setGenerateAccessors(true);
+        final List<Class<?>> classes = Arrays.<Class<?>>asList(Bean.class, BeanStatus.class, ComplexBean.class);
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "accessors"), generator,
+                classes);
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+    }
+
+    /**
+     * Test method for the names and the types of the fields, in declaration
+     * order.
+     *
+     * @throws Exception if the accessor is not generated.
+     */
+    @Test
+    public void testFields() throws Exception {
+        final Object accessor = getAccessor("ComplexBeanDTOAccessor");
+        Assert.assertEquals("count", Integer.valueOf(ComplexBean.class.getDeclaredFields().length),
+                GeneratedSources.invoke(accessor, "getFieldCount"));
+        Assert.assertEquals("name", "id", GeneratedSources.invoke(accessor, "getFieldName", Integer.valueOf(0)));
+        Assert.assertEquals("type", int.class, GeneratedSources.invoke(accessor, "getFieldType", Integer.valueOf(0)));
+        Assert.assertEquals("parameterized type", List.class,
+                GeneratedSources.invoke(accessor, "getFieldType", Integer.valueOf(15)));
+        Assert.assertEquals("DTO class", generatedSources.loadClass("ComplexBeanDTO"),
+                GeneratedSources.invoke(accessor, "getDTOClass"));
+        Assert.assertEquals("declared class", generatedSources.loadClass("ComplexBeanDTO$Detail"),
+                GeneratedSources.invoke(getAccessor("ComplexBeanDTOAccessor$DetailAccessor"), "getDTOClass"));
+    }
+
+    /**
+     * Test method for the index of the names: every field found at its
+     * index, and no other name.
+     *
+     * @throws Exception if the accessor is not generated.
+     */
+    @Test
+    public void testIndexOf() throws Exception {
+        final Object accessor = getAccessor("ComplexBeanDTOAccessor");
+        final int count = ((Integer) GeneratedSources.invoke(accessor, "getFieldCount")).intValue();
+        for (int i = 0; i < count; i++) {
+            final Object name = GeneratedSources.invoke(accessor, "getFieldName", Integer.valueOf(i));
+            Assert.assertEquals("index of " + name, Integer.valueOf(i),
+                    GeneratedSources.invoke(accessor, "indexOf", name));
+        }
+        for (final String name : Arrays.asList("", "Id", "ids", "unknown", "serialVersionUID")) {
+            Assert.assertEquals("index of " + name, Integer.valueOf(-1),
+                    GeneratedSources.invoke(accessor, "indexOf", name));
+        }
+    }
+
+    /**
+     * Test method for the getters and setters by index.
+     *
+     * @throws Exception if the accessor fails.
+     */
+    @Test
+    public void testGetSet() throws Exception {
+        final Object accessor = getAccessor("ComplexBeanDTOAccessor");
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO",
+                ComplexBeans.newComplexBean());
+        final Integer id = (Integer) GeneratedSources.invoke(accessor, "indexOf", "id");
+        final Integer tags = (Integer) GeneratedSources.invoke(accessor, "indexOf", "tags");
+        Assert.assertEquals("primitive", Integer.valueOf(7), GeneratedSources.invoke(accessor, "get", dto, id));
+        Assert.assertEquals("list", Arrays.asList("a", "b"), GeneratedSources.invoke(accessor, "get", dto, tags));
+
+        GeneratedSources.invoke(accessor, "set", dto, id, Integer.valueOf(9));
+        GeneratedSources.invoke(accessor, "set", dto, tags, null);
+        Assert.assertEquals("primitive not set", Integer.valueOf(9), GeneratedSources.invoke(dto, "getId"));
+        Assert.assertNull("list not set", GeneratedSources.invoke(dto, "getTags"));
+        try {
+            GeneratedSources.invoke(accessor, "get", dto, Integer.valueOf(-1));
+            Assert.fail("negative index");
+        }
+        catch (final IndexOutOfBoundsException e) {
+            // expected: no such field
+        }
+    }
+
+    /**
+     * Test method for the perfect hash of names, distinct or sharing their
+     * hash code.
+     */
+    @Test
+    public void testPerfectHash() {
+        final List<String> names = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            names.add("field" + i);
+        }
+        final DTOAccessorWriter.PerfectHash hash = DTOAccessorWriter.PerfectHash.of(names);
+        final Set<Integer> indexes = new HashSet<Integer>();
+        for (final int index : hash.getSlots()) {
+            if (index >= 0) {
+                indexes.add(Integer.valueOf(index));
+            }
+        }
+        Assert.assertEquals("names placed", names.size(), indexes.size());
+        Assert.assertEquals("table", 1 << Integer.SIZE - hash.getShift(), hash.getSlots().length);
+        for (int i = 0; i < names.size(); i++) {
+            Assert.assertEquals(names.get(i), i,
+                    hash.getSlots()[names.get(i).hashCode() * hash.getSeed() >>> hash.getShift()]);
+        }
+        final List<String> sameHashCodes = Arrays.asList("Aa", "BB", "c");
+        Assert.assertTrue("same hash codes", DTOAccessorWriter.PerfectHash.hasSameHashCodes(sameHashCodes));
+        Assert.assertFalse("distinct hash codes", DTOAccessorWriter.PerfectHash.hasSameHashCodes(names));
+        final DTOAccessorWriter.PerfectHash sharedHash = DTOAccessorWriter.PerfectHash.of(sameHashCodes);
+        Assert.assertEquals("shared slot", 0, sharedHash.getSlots()["BB".hashCode() * sharedHash.getSeed()
+                >>> sharedHash.getShift()]);
+    }
+
+    /**
+     * Return the shared instance of a generated accessor.
+     *
+     * @param name the accessor class name, without its package.
+     * @return the accessor.
+     * @throws Exception if the accessor is not generated.
+     */
+    private static Object getAccessor(final String name) throws Exception {
+        return generatedSources.loadClass(name).getField("INSTANCE").get(null);
+    }
+}
@@ -0,0 +1,248 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.AnotherBean;
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.Bean2;
+import fr.maven.dto.bean.BeanStatus;
+import fr.maven.dto.bean.ComplexBean;
+import fr.maven.dto.fixture.ComplexBeans;
+import fr.maven.dto.fixture.GeneratedSources;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests on {@link DTOBinaryCodecWriter}: the codecs generated for the test
+ * beans must encode DTOs in a buffer and decode them back.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOBinaryCodecWriterTest {
+
+    private static GeneratedSources generatedSources;
+
+    /**
+     * Generate, compile and load the DTOs, mappers, binary codecs and codec
+     * tests of the test beans.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        generator.setGenerateBinaryCodecs(true);
+        final List<Class<?>> classes = new ArrayList<Class<?>>();
+        classes.add(Bean.class);
+        classes.add(Bean2.class);
+        classes.add(AnotherBean.class);
+        classes.add(BeanStatus.class);
+        classes.add(ComplexBean.class);
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "binary"), generator, classes);
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOBinaryCodecWriter#write(java.lang.Class, java.io.Writer)}
+     * with every field set.
+     *
+     * @throws Exception if the codec fails.
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        final ComplexBean bean = ComplexBeans.newComplexBean();
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", bean);
+        final ByteBuffer buffer = (ByteBuffer) generatedSources.invokeStatic("ComplexBeanDTOBinaryCodec", "encode", dto);
+        Assert.assertEquals("size not exact", generatedSources.invokeStatic("ComplexBeanDTOBinaryCodec", "sizeOf", dto),
+                Integer.valueOf(buffer.remaining()));
+        Assert.assertEquals("schema hash not written",
+                generatedSources.loadClass("ComplexBeanDTOBinaryCodec").getField("SCHEMA_HASH").get(null),
+                Integer.valueOf(buffer.getInt(0)));
+
+        final ComplexBean back = this.decode(buffer);
+        Assert.assertFalse("bytes left", buffer.hasRemaining());
+        Assert.assertEquals("int not read", bean.getId(), back.getId());
+        Assert.assertEquals("long not read", bean.getVersion(), back.getVersion());
+        Assert.assertEquals("boolean not read", bean.isActive(), back.isActive());
+        Assert.assertEquals("byte not read", bean.getFlags(), back.getFlags());
+        Assert.assertEquals("char not read", bean.getCode(), back.getCode());
+        Assert.assertEquals("short not read", bean.getLevel(), back.getLevel());
+        Assert.assertEquals("Double not read", bean.getScore(), back.getScore());
+        Assert.assertEquals("String not read", bean.getName(), back.getName());
+        Assert.assertEquals("Date not read", bean.getCreated(), back.getCreated());
+        Assert.assertEquals("enum not read", bean.getStatus(), back.getStatus());
+        Assert.assertEquals("nested enum not read", bean.getKind(), back.getKind());
+        Assert.assertEquals("nested class not read", "label", back.getDetail().getLabel());
+        Assert.assertArrayEquals("array of primitives not read", new long[]{1L, 2L}, back.getDetail().getValues());
+        Assert.assertEquals("array of DTOs not read", "m", back.getBeanMatrix()[0][0].getA());
+        Assert.assertNull("null array element not read", back.getBeanMatrix()[1][0]);
+        Assert.assertEquals("array of arrays not read", 3, back.getGrid()[1][0]);
+        Assert.assertEquals("list not read", "l", back.getBeans().get(0).getA());
+        Assert.assertEquals("set not read", "s", back.getBeanSet().iterator().next().getA());
+        Assert.assertEquals("map of lists not read", "i", back.getBeanIndex().get("key").get(0).getA());
+        Assert.assertEquals("list of strings not read", bean.getTags(), back.getTags());
+        Assert.assertEquals("map of enums not read", Integer.valueOf(3), back.getCounts().get(BeanStatus.NEW));
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOBinaryCodecWriter#write(java.lang.Class, java.io.Writer)}
+     * with <code>null</code> values, that take a bit of the bitmap only.
+     *
+     * @throws Exception if the codec fails.
+     */
+    @Test
+    public void testNullValues() throws Exception {
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", new ComplexBean());
+        final ByteBuffer buffer = (ByteBuffer) generatedSources.invokeStatic("ComplexBeanDTOBinaryCodec", "encode", dto);
+        Assert.assertEquals("null values not packed", 4 + 2 + 5, buffer.remaining());
+        final ComplexBean back = this.decode(buffer);
+        Assert.assertNull("null Double not read", back.getScore());
+        Assert.assertNull("null String not read", back.getName());
+        Assert.assertNull("null Date not read", back.getCreated());
+        Assert.assertNull("null enum not read", back.getStatus());
+        Assert.assertNull("null nested class not read", back.getDetail());
+        Assert.assertNull("null array not read", back.getGrid());
+        Assert.assertNull("null map not read", back.getBeanIndex());
+        try {
+            generatedSources.invokeStatic("ComplexBeanDTOBinaryCodec", "encode", (Object) null);
+            Assert.fail("null DTO encoded");
+        }
+        catch (final IllegalArgumentException e) {
+            Assert.assertTrue("unexpected message " + e.getMessage(), e.getMessage().contains("null"));
+        }
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOBinaryCodecWriter#write(java.lang.Class, java.io.Writer)}
+     * with truncated payloads and a payload of another schema.
+     *
+     * @throws Exception if the codec fails.
+     */
+    @Test
+    public void testMalformedPayloads() throws Exception {
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO",
+                ComplexBeans.newComplexBean());
+        final ByteBuffer buffer = (ByteBuffer) generatedSources.invokeStatic("ComplexBeanDTOBinaryCodec", "encode", dto);
+        for (int limit = 0; limit < buffer.limit(); limit++) {
+            final ByteBuffer truncated = buffer.duplicate();
+            truncated.limit(limit);
+            try {
+                generatedSources.invokeStatic("ComplexBeanDTOBinaryCodec", "decode", truncated);
+                Assert.fail("Payload truncated to " + limit + " bytes decoded");
+            }
+            catch (final RuntimeException e) {
+                // expected: the decoder never reads past the limit
+            }
+        }
+        final ByteBuffer otherSchema = (ByteBuffer) generatedSources.invokeStatic("BeanDTOBinaryCodec", "encode",
+                generatedSources.invokeStatic("BeanDTOMapper", "toDTO", ComplexBeans.newBean("a")));
+        try {
+            generatedSources.invokeStatic("ComplexBeanDTOBinaryCodec", "decode", otherSchema);
+            Assert.fail("Payload of another schema decoded");
+        }
+        catch (final IllegalArgumentException e) {
+            Assert.assertTrue("unexpected message " + e.getMessage(), e.getMessage().contains("schema hash"));
+        }
+    }
+
+    /**
+     * Test method for {@link fr.maven.dto.generator.impl.DTOBinaryCodecWriter}
+     * on the limits of variable length integers and on strings that are not
+     * ASCII.
+     *
+     * @throws Exception if the codec fails.
+     */
+    @Test
+    public void testVariableLengthValues() throws Exception {
+        final int[] ints = {0, -1, 63, -64, 64, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        final int[] intSizes = {1, 1, 1, 1, 2, 5, 5};
+        for (int i = 0; i < ints.length; i++) {
+            final ByteBuffer buffer = ByteBuffer.allocate(16);
+            generatedSources.invokeStatic("DTOBinary", "putSignedVarInt", buffer, Integer.valueOf(ints[i]));
+            Assert.assertEquals("size of " + ints[i], intSizes[i], buffer.position());
+            Assert.assertEquals("size of " + ints[i], Integer.valueOf(intSizes[i]),
+                    generatedSources.invokeStatic("DTOBinary", "signedVarIntSize", Integer.valueOf(ints[i])));
+            buffer.flip();
+            Assert.assertEquals("int not read", Integer.valueOf(ints[i]),
+                    generatedSources.invokeStatic("DTOBinary", "getSignedVarInt", buffer));
+        }
+        final long[] longs = {0L, -1L, Long.MAX_VALUE, Long.MIN_VALUE};
+        final int[] longSizes = {1, 1, 10, 10};
+        for (int i = 0; i < longs.length; i++) {
+            final ByteBuffer buffer = ByteBuffer.allocate(16);
+            generatedSources.invokeStatic("DTOBinary", "putSignedVarLong", buffer, Long.valueOf(longs[i]));
+            Assert.assertEquals("size of " + longs[i], longSizes[i], buffer.position());
+            buffer.flip();
+            Assert.assertEquals("long not read", Long.valueOf(longs[i]),
+                    generatedSources.invokeStatic("DTOBinary", "getSignedVarLong", buffer));
+        }
+        final String[] strings = {"", "a\u00e9\u4e2d\ud83d\ude00", "unpaired \ud83d surrogate \ude00"};
+        for (final String string : strings) {
+            final ByteBuffer buffer = ByteBuffer.allocate(64);
+            generatedSources.invokeStatic("DTOBinary", "putString", buffer, string);
+            Assert.assertEquals("size of " + string,
+                    generatedSources.invokeStatic("DTOBinary", "stringSize", string), Integer.valueOf(buffer.position()));
+            buffer.flip();
+            Assert.assertEquals("string not read", string, generatedSources.invokeStatic("DTOBinary", "getString", buffer));
+        }
+        Assert.assertEquals("not UTF-8", Integer.valueOf("a\u00e9\u4e2d\ud83d\ude00".getBytes("UTF-8").length + 1),
+                generatedSources.invokeStatic("DTOBinary", "stringSize", "a\u00e9\u4e2d\ud83d\ude00"));
+    }
+
+    /**
+     * Test method for {@link fr.maven.dto.generator.impl.DTOBinaryCodecTestWriter}:
+     * the generated round trip tests must pass.
+     *
+     * @throws Exception if a generated test can not be loaded.
+     */
+    @Test
+    public void testGeneratedTests() throws Exception {
+        final String[] testNames = {"BeanDTOBinaryCodecTest", "Bean2DTOBinaryCodecTest",
+                "AnotherBeanDTOBinaryCodecTest", "ComplexBeanDTOBinaryCodecTest"};
+        for (final String testName : testNames) {
+            final Result result = JUnitCore.runClasses(generatedSources.loadClass(testName));
+            Assert.assertTrue(testName + " failed: " + result.getFailures(), result.wasSuccessful());
+            Assert.assertEquals(testName + " not run", 3, result.getRunCount());
+        }
+        try {
+            generatedSources.loadClass("BeanStatusDTOBinaryCodecTest");
+            Assert.fail("Test generated for an enum");
+        }
+        catch (final ClassNotFoundException e) {
+            // expected: enums have no codec
+        }
+    }
+
+    /**
+     * Decode a bean through its DTO.
+     *
+     * @param buffer the encoded DTO.
+     * @return the bean.
+     * @throws Exception if the codec fails.
+     */
+    private ComplexBean decode(final ByteBuffer buffer) throws Exception {
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOBinaryCodec", "decode", buffer);
+        return (ComplexBean) generatedSources.invokeStatic("ComplexBeanDTOMapper", "toBean", dto);
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.BeanStatus;
+import fr.maven.dto.bean.SeriesBean;
+import fr.maven.dto.bean.TickBean;
+import fr.maven.dto.fixture.ComplexBeans;
+import fr.maven.dto.fixture.GeneratedSources;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests on the generated columnar containers: the DTOs added must be read
+ * back, field by field or as DTOs, whatever the growth of the columns.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOColumnsWriterTest {
+
+    private static GeneratedSources generatedSources;
+
+    /**
+     * Generate, compile and load the DTOs, mappers and columns of the test
+     * beans, with primitive collections.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        generator.setGenerateEquals(true);
+        generator.setGeneratePrimitiveCollections(true);
+        generator.setGenerateColumns(true);
+        final List<Class<?>> classes = Arrays.<Class<?>>asList(TickBean.class, SeriesBean.class, BeanStatus.class);
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "columns"), generator, classes);
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOColumnsWriter#write(java.lang.Class, java.io.Writer)}:
+     * DTOs added one by one to columns that grow from an empty capacity.
+     *
+     * @throws Exception if the columns fail.
+     */
+    @Test
+    public void testAdd() throws Exception {
+        final Object columns = generatedSources.loadClass("TickBeanDTOColumns").getConstructor(int.class)
+                .newInstance(0);
+        final List<Object> dtos = new ArrayList<Object>();
+        for (int i = 0; i < 100; i++) {
+            final Object dto = generatedSources.invokeStatic("TickBeanDTOMapper", "toDTO",
+                    ComplexBeans.newTickBean(i));
+            dtos.add(dto);
+            Assert.assertEquals("index", Integer.valueOf(i), GeneratedSources.invoke(columns, "add", dto));
+        }
+        Assert.assertEquals("size", Integer.valueOf(100), GeneratedSources.invoke(columns, "size"));
+        for (int i = 0; i < dtos.size(); i++) {
+            Assert.assertEquals("DTO " + i, dtos.get(i), GeneratedSources.invoke(columns, "get", i));
+        }
+        final long[] ids = (long[]) GeneratedSources.invoke(columns, "getIdColumn");
+        long sum = 0;
+        for (int i = 0; i < 100; i++) {
+            sum += ids[i];
+        }
+        Assert.assertEquals("column scan", 4950L, sum);
+        Assert.assertEquals("field", Double.valueOf(101.25 + 7), GeneratedSources.invoke(columns, "getPrice", 7));
+
+        GeneratedSources.invoke(columns, "setPrice", 7, 1D);
+        GeneratedSources.invoke(columns, "set", 8, dtos.get(0));
+        Assert.assertEquals("field not set", Double.valueOf(1), GeneratedSources.invoke(columns, "getPrice", 7));
+        Assert.assertEquals("DTO not set", dtos.get(0), GeneratedSources.invoke(columns, "get", 8));
+        try {
+            GeneratedSources.invoke(columns, "get", 100);
+            Assert.fail("DTO read past the size");
+        }
+        catch (final IndexOutOfBoundsException e) {
+            // expected: the columns are larger than their size
+        }
+
+        GeneratedSources.invoke(columns, "clear");
+        Assert.assertEquals("cleared", Boolean.TRUE, GeneratedSources.invoke(columns, "isEmpty"));
+        Assert.assertNull("reference kept", ((Object[]) GeneratedSources.invoke(columns, "getSymbolColumn"))[0]);
+    }
+
+    /**
+     * Test method for the bulk conversion of a list of DTOs whose fields are
+     * parameterized collections, primitive arrays and primitive maps.
+     *
+     * @throws Exception if the columns fail.
+     */
+    @Test
+    public void testOf() throws Exception {
+        final List<Object> dtos = new ArrayList<Object>();
+        dtos.add(generatedSources.invokeStatic("SeriesBeanDTOMapper", "toDTO", ComplexBeans.newSeriesBean()));
+        dtos.add(generatedSources.invokeStatic("SeriesBeanDTOMapper", "toDTO", new SeriesBean()));
+        final Object columns = generatedSources.invokeStatic("SeriesBeanDTOColumns", "of", dtos);
+        Assert.assertEquals("size", Integer.valueOf(2), GeneratedSources.invoke(columns, "size"));
+        Assert.assertEquals("column not pre-sized", 2,
+                ((Object[]) GeneratedSources.invoke(columns, "getSamplesColumn")).length);
+        Assert.assertEquals("first DTO", dtos.get(0), GeneratedSources.invoke(columns, "get", 0));
+        Assert.assertEquals("empty DTO", dtos.get(1), GeneratedSources.invoke(columns, "get", 1));
+        Assert.assertArrayEquals("primitive array", new int[]{3, -1, 3},
+                (int[]) GeneratedSources.invoke(columns, "getSamples", 0));
+
+        GeneratedSources.invoke(columns, "addAll", dtos);
+        Assert.assertEquals("added", dtos.get(0), GeneratedSources.invoke(columns, "get", 2));
+        Assert.assertEquals("capacity not grown", 16,
+                ((Object[]) GeneratedSources.invoke(columns, "getLabelsColumn")).length);
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.AnotherBean;
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.Bean2;
+import fr.maven.dto.bean.BeanStatus;
+import fr.maven.dto.bean.ComplexBean;
+import fr.maven.dto.fixture.ComplexBeans;
+import fr.maven.dto.fixture.GeneratedSources;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests on the compact layout: the booleans and enums of the DTOs must be
+ * packed in bit fields and their wrappers stored as primitives, behind the
+ * same getters and setters.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOCompactWriterTest {
+
+    private static GeneratedSources generatedSources;
+
+    /**
+     * Generate, compile and load the packed, Externalizable DTOs and the
+     * mappers of the test beans.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        generator.setGenerateExternalizable(true);
+        generator.setGenerateEquals(true);
+        generator.setGenerateCompactLayout(true);
+        final List<Class<?>> classes = Arrays.<Class<?>>asList(Bean.class, Bean2.class, AnotherBean.class,
+                BeanStatus.class, ComplexBean.class);
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "compact"), generator, classes);
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+    }
+
+    /**
+     * Test method for the fields of a packed DTO.
+     *
+     * @throws Exception if a class is not generated.
+     */
+    @Test
+    public void testLayout() throws Exception {
+        final Class<?> dtoClass = generatedSources.loadClass("ComplexBeanDTO");
+        Assert.assertEquals("bit field", int.class, dtoClass.getDeclaredField("packedBits0").getType());
+        Assert.assertEquals("wrapper not stored as a primitive", double.class,
+                dtoClass.getDeclaredField("score").getType());
+        for (final String name : Arrays.asList("active", "status", "kind")) {
+            try {
+                dtoClass.getDeclaredField(name);
+                Assert.fail("field " + name + " not packed");
+            }
+            catch (final NoSuchFieldException e) {
+                // expected: the field is held by the bit field
+            }
+        }
+        Assert.assertEquals("getter changed", Double.class, dtoClass.getMethod("getScore").getReturnType());
+        Assert.assertEquals("getter changed", BeanStatus.class.getSimpleName() + "DTO",
+                dtoClass.getMethod("getStatus").getReturnType().getSimpleName());
+    }
+
+    /**
+     * Test method for the setters of the packed fields: each one sets its
+     * bits only.
+     *
+     * @throws Exception if a method fails.
+     */
+    @Test
+    public void testSetters() throws Exception {
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO",
+                ComplexBeans.newComplexBean());
+        final Object status = GeneratedSources.invoke(dto, "getStatus");
+        final Object kind = GeneratedSources.invoke(dto, "getKind");
+        Assert.assertEquals("boolean", Boolean.TRUE, GeneratedSources.invoke(dto, "isActive"));
+        Assert.assertEquals("wrapper", Double.valueOf(1.5), GeneratedSources.invoke(dto, "getScore"));
+        Assert.assertEquals("enum", BeanStatus.ACTIVE.name(), status.toString());
+        Assert.assertEquals("nested enum", ComplexBean.Kind.LARGE.name(), kind.toString());
+
+        GeneratedSources.invoke(dto, "setScore", (Object) null);
+        GeneratedSources.invoke(dto, "setStatus", (Object) null);
+        Assert.assertNull("null wrapper", GeneratedSources.invoke(dto, "getScore"));
+        Assert.assertNull("null enum", GeneratedSources.invoke(dto, "getStatus"));
+        Assert.assertEquals("boolean overwritten", Boolean.TRUE, GeneratedSources.invoke(dto, "isActive"));
+        Assert.assertSame("nested enum overwritten", kind, GeneratedSources.invoke(dto, "getKind"));
+
+        GeneratedSources.invoke(dto, "setActive", Boolean.FALSE);
+        GeneratedSources.invoke(dto, "setStatus", status);
+        GeneratedSources.invoke(dto, "setScore", Double.valueOf(0.0));
+        Assert.assertEquals("boolean not cleared", Boolean.FALSE, GeneratedSources.invoke(dto, "isActive"));
+        Assert.assertSame("enum not set back", status, GeneratedSources.invoke(dto, "getStatus"));
+        Assert.assertEquals("zero wrapper", Double.valueOf(0.0), GeneratedSources.invoke(dto, "getScore"));
+    }
+
+    /**
+     * Test method for the packed fields read externally and mapped back,
+     * set and <code>null</code>.
+     *
+     * @throws Exception if the DTO can not be serialized.
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO",
+                ComplexBeans.newComplexBean());
+        final Object copy = roundTrip(dto);
+        Assert.assertEquals("packed fields not read", dto, copy);
+        final ComplexBean back = (ComplexBean) generatedSources.invokeStatic("ComplexBeanDTOMapper", "toBean", copy);
+        Assert.assertTrue("boolean not mapped", back.isActive());
+        Assert.assertEquals("wrapper not mapped", Double.valueOf(1.5), back.getScore());
+        Assert.assertEquals("enum not mapped", BeanStatus.ACTIVE, back.getStatus());
+        Assert.assertEquals("nested enum not mapped", ComplexBean.Kind.LARGE, back.getKind());
+
+        final ComplexBean empty = (ComplexBean) generatedSources.invokeStatic("ComplexBeanDTOMapper", "toBean",
+                roundTrip(generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", new ComplexBean())));
+        Assert.assertFalse("false boolean", empty.isActive());
+        Assert.assertNull("null wrapper", empty.getScore());
+        Assert.assertNull("null enum", empty.getStatus());
+        Assert.assertNull("null nested enum", empty.getKind());
+    }
+
+    /**
+     * Serialize a DTO and read it back.
+     *
+     * @param dto the DTO.
+     * @return the DTO read.
+     * @throws Exception if the DTO can not be serialized.
+     */
+    private static Object roundTrip(final Object dto) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(dto);
+        out.close();
+        final ObjectInputStream in = new GeneratedObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()),
+                generatedSources.getClassLoader());
+        try {
+            return in.readObject();
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Stream reading the objects of the generated classes.
+     */
+    private static final class GeneratedObjectInputStream extends ObjectInputStream {
+
+        private final ClassLoader classLoader;
+
+        GeneratedObjectInputStream(final InputStream in, final ClassLoader classLoader) throws IOException {
+            super(in);
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            return Class.forName(desc.getName(), false, this.classLoader);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.AnotherBean;
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.Bean2;
+import fr.maven.dto.bean.BeanStatus;
+import fr.maven.dto.bean.ComplexBean;
+import fr.maven.dto.bean.NodeBean;
+import fr.maven.dto.bean.SeriesBean;
+import fr.maven.dto.fixture.ComplexBeans;
+import fr.maven.dto.fixture.GeneratedSources;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests on the generated deep copies: a copy must be equal to its DTO and
+ * share none of its mutable values, and the identity map must keep shared
+ * references and cycles.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOCopyWriterTest {
+
+    private static GeneratedSources generatedSources;
+
+    /**
+     * Generate, compile and load the DTOs and mappers of the test beans, with
+     * deep copies and primitive collections.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        generator.setGenerateEquals(true);
+        generator.setGeneratePrimitiveCollections(true);
+        generator.setGenerateDeepCopies(true);
+        final List<Class<?>> classes = Arrays.<Class<?>>asList(Bean.class, Bean2.class, AnotherBean.class,
+                BeanStatus.class, ComplexBean.class, SeriesBean.class, NodeBean.class);
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "copies"), generator, classes);
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOCopyWriter#writeMembers(java.lang.Class, java.io.Writer)}:
+     * the copy is equal to the DTO, its nested DTOs, arrays, collections and
+     * dates are copies, its strings are shared.
+     *
+     * @throws Exception if a copy fails.
+     */
+    @Test
+    public void testDeepCopy() throws Exception {
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO",
+                ComplexBeans.newComplexBean());
+        final Object copy = GeneratedSources.invoke(dto, "deepCopy");
+        Assert.assertEquals("copy", dto, copy);
+        Assert.assertNotSame("copy", dto, copy);
+        for (final String getter : new String[]{"getDetail", "getBean", "getBeanMatrix", "getGrid", "getBeans",
+                "getBeanSet", "getBeanIndex", "getCounts", "getCreated"}) {
+            Assert.assertNotSame(getter + " shared", GeneratedSources.invoke(dto, getter),
+                    GeneratedSources.invoke(copy, getter));
+        }
+        Assert.assertNotSame("nested array shared", ((int[][]) GeneratedSources.invoke(dto, "getGrid"))[0],
+                ((int[][]) GeneratedSources.invoke(copy, "getGrid"))[0]);
+        Assert.assertNotSame("DTO of a nested array shared",
+                ((Object[][]) GeneratedSources.invoke(dto, "getBeanMatrix"))[0][0],
+                ((Object[][]) GeneratedSources.invoke(copy, "getBeanMatrix"))[0][0]);
+        Assert.assertNotSame("DTO of a list shared", ((List<?>) GeneratedSources.invoke(dto, "getBeans")).get(0),
+                ((List<?>) GeneratedSources.invoke(copy, "getBeans")).get(0));
+        Assert.assertSame("string copied", GeneratedSources.invoke(dto, "getName"),
+                GeneratedSources.invoke(copy, "getName"));
+
+        final Object series = generatedSources.invokeStatic("SeriesBeanDTOMapper", "toDTO",
+                ComplexBeans.newSeriesBean());
+        final Object seriesCopy = GeneratedSources.invoke(series, "deepCopy");
+        Assert.assertEquals("copy of primitive collections", series, seriesCopy);
+        Assert.assertNotSame("primitive map shared", GeneratedSources.invoke(series, "getPrices"),
+                GeneratedSources.invoke(seriesCopy, "getPrices"));
+        Assert.assertNotSame("primitive array shared", GeneratedSources.invoke(series, "getSamples"),
+                GeneratedSources.invoke(seriesCopy, "getSamples"));
+    }
+
+    /**
+     * Test method for the copies with an identity map: a DTO referenced
+     * twice is copied once, cycles are copied.
+     *
+     * @throws Exception if a copy fails.
+     */
+    @Test
+    public void testGraph() throws Exception {
+        final Class<?> nodeClass = generatedSources.loadClass("NodeBeanDTO");
+        final Object root = nodeClass.newInstance();
+        final Object child = nodeClass.newInstance();
+        GeneratedSources.invoke(child, "setName", "child");
+        nodeClass.getMethod("setParent", nodeClass).invoke(child, root);
+        final List<Object> children = new ArrayList<Object>(Arrays.asList(child, child));
+        GeneratedSources.invoke(root, "setChildren", children);
+
+        final Map<Object, Object> copies = new IdentityHashMap<Object, Object>();
+        final Object copy = nodeClass.getMethod("deepCopy", Map.class).invoke(root, copies);
+        final List<?> copiedChildren = (List<?>) GeneratedSources.invoke(copy, "getChildren");
+        Assert.assertNotSame("child shared", child, copiedChildren.get(0));
+        Assert.assertSame("child copied twice", copiedChildren.get(0), copiedChildren.get(1));
+        Assert.assertSame("cycle not copied", copy, GeneratedSources.invoke(copiedChildren.get(0), "getParent"));
+        Assert.assertEquals("child", GeneratedSources.invoke(copiedChildren.get(0), "getName"));
+        Assert.assertEquals("DTOs copied", 2, copies.size());
+    }
+}
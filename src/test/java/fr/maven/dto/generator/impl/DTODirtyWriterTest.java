@@ -0,0 +1,135 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.AnotherBean;
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.Bean2;
+import fr.maven.dto.bean.BeanStatus;
+import fr.maven.dto.bean.ComplexBean;
+import fr.maven.dto.fixture.ComplexBeans;
+import fr.maven.dto.fixture.GeneratedSources;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests on the generated dirty tracking: the setters must mark their field,
+ * and a patch, diffed or tracked, must carry the changed fields only and
+ * survive its encoding.
+ *
+ * @author Wilfried Petit
+ */
+public class DTODirtyWriterTest {
+
+    private static GeneratedSources generatedSources;
+
+    /**
+     * Generate, compile and load the DTOs and mappers of the test beans, with
+     * dirty tracking and lazy holders.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        generator.setGenerateEquals(true);
+        generator.setGenerateLazyHolders(true);
+        generator.setGenerateDirtyTracking(true);
+        final List<Class<?>> classes = Arrays.<Class<?>>asList(Bean.class, Bean2.class, AnotherBean.class,
+                BeanStatus.class, ComplexBean.class);
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "dirty"), generator, classes);
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+    }
+
+    /**
+     * Test method for the dirty fields: a DTO mapped is clean, the setters
+     * mark their field, the patch holds the fields set.
+     *
+     * @throws Exception if a method fails.
+     */
+    @Test
+    public void testToPatch() throws Exception {
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO",
+                ComplexBeans.newComplexBean());
+        Assert.assertEquals("mapped DTO dirty", Boolean.FALSE, GeneratedSources.invoke(dto, "isDirty"));
+        GeneratedSources.invoke(dto, "setLevel", Short.valueOf((short) 7));
+        GeneratedSources.invoke(dto, "setName", "patched");
+        Assert.assertEquals("field set not marked", Boolean.TRUE, GeneratedSources.invoke(dto, "isDirty"));
+
+        final Object patch = GeneratedSources.invoke(dto, "toPatch");
+        Assert.assertEquals("fields patched", Integer.valueOf(2), GeneratedSources.invoke(patch, "size"));
+        Assert.assertEquals("level not patched", Boolean.TRUE, GeneratedSources.invoke(patch, "isChanged", 6));
+        Assert.assertEquals("name not patched", Boolean.TRUE, GeneratedSources.invoke(patch, "isChanged", 7));
+        Assert.assertEquals("level", Short.valueOf((short) 7), GeneratedSources.invoke(patch, "getValue", 0));
+        Assert.assertEquals("name", "patched", GeneratedSources.invoke(patch, "getValue", 1));
+
+        GeneratedSources.invoke(dto, "clearDirty");
+        Assert.assertEquals("dirty fields not cleared", Boolean.FALSE, GeneratedSources.invoke(dto, "isDirty"));
+        Assert.assertEquals("empty patch", Boolean.TRUE,
+                GeneratedSources.invoke(GeneratedSources.invoke(dto, "toPatch"), "isEmpty"));
+    }
+
+    /**
+     * Test method for the patches of the differences: applied after an
+     * encoding round trip, the patch makes the DTOs equal without marking
+     * the fields set.
+     *
+     * @throws Exception if a method fails.
+     */
+    @Test
+    public void testDiff() throws Exception {
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO",
+                ComplexBeans.newComplexBean());
+        final ComplexBean bean = ComplexBeans.newComplexBean();
+        bean.setScore(null);
+        bean.setVersion(bean.getVersion() + 1);
+        bean.setBeans(Arrays.asList(ComplexBeans.newBean("l"), ComplexBeans.newBean("added")));
+        final Object other = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", bean);
+        Assert.assertEquals("same DTOs differ", Boolean.TRUE,
+                GeneratedSources.invoke(GeneratedSources.invoke(dto, "diff", dto), "isEmpty"));
+
+        final Object patch = GeneratedSources.invoke(dto, "diff", other);
+        Assert.assertEquals("fields patched", Integer.valueOf(3), GeneratedSources.invoke(patch, "size"));
+        final byte[] bytes = (byte[]) GeneratedSources.invoke(patch, "toByteArray");
+        final Object decoded = generatedSources.invokeStatic("DTOPatch", "fromByteArray", bytes);
+        Assert.assertEquals("patch not decoded", Integer.valueOf(3), GeneratedSources.invoke(decoded, "size"));
+
+        GeneratedSources.invoke(dto, "applyPatch", decoded);
+        Assert.assertEquals("patch not applied", other, dto);
+        Assert.assertEquals("patch applied marked", Boolean.FALSE, GeneratedSources.invoke(dto, "isDirty"));
+    }
+
+    /**
+     * Test method for a patch of a DTO of another class.
+     *
+     * @throws Exception if a method fails.
+     */
+    @Test
+    public void testIllegalPatch() throws Exception {
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO",
+                ComplexBeans.newComplexBean());
+        final Object beanDTO = generatedSources.invokeStatic("BeanDTOMapper", "toDTO", ComplexBeans.newBean("a"));
+        try {
+            GeneratedSources.invoke(dto, "applyPatch", GeneratedSources.invoke(beanDTO, "diff", beanDTO));
+            Assert.fail("patch of another class applied");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected: the patch has another number of fields
+        }
+    }
+}
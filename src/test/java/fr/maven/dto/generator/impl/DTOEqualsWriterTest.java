@@ -0,0 +1,171 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.AnotherBean;
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.Bean2;
+import fr.maven.dto.bean.BeanStatus;
+import fr.maven.dto.bean.ComplexBean;
+import fr.maven.dto.fixture.ComplexBeans;
+import fr.maven.dto.fixture.GeneratedSources;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests on {@link DTOEqualsWriter}: the DTOs generated for the test beans must
+ * be compared by value.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOEqualsWriterTest {
+
+    private static GeneratedSources generatedSources;
+
+    /**
+     * Generate, compile and load the DTOs and mappers of the test beans.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        generator.setGenerateEquals(true);
+        final List<Class<?>> classes = new ArrayList<Class<?>>();
+        classes.add(Bean.class);
+        classes.add(Bean2.class);
+        classes.add(AnotherBean.class);
+        classes.add(BeanStatus.class);
+        classes.add(ComplexBean.class);
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "equals"), generator, classes);
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOEqualsWriter#writeMembers(java.lang.Class, java.io.Writer)}
+     * with DTOs mapped from equal beans.
+     *
+     * @throws Exception if the mapper fails.
+     */
+    @Test
+    public void testEqualDTOs() throws Exception {
+        final Object dto = this.toDTO(ComplexBeans.newComplexBean());
+        final Object equalDTO = this.toDTO(ComplexBeans.newComplexBean());
+        Assert.assertNotSame("same DTOs", dto, equalDTO);
+        Assert.assertEquals("DTOs not equal", dto, equalDTO);
+        Assert.assertEquals("hash codes not equal", dto.hashCode(), equalDTO.hashCode());
+        Assert.assertEquals("empty DTOs not equal", this.toDTO(new ComplexBean()), this.toDTO(new ComplexBean()));
+        Assert.assertEquals("empty DTO hash codes not equal", this.toDTO(new ComplexBean()).hashCode(),
+                this.toDTO(new ComplexBean()).hashCode());
+
+        final Set<Object> dtos = new HashSet<Object>();
+        dtos.add(dto);
+        Assert.assertFalse("DTO not deduplicated", dtos.add(equalDTO));
+        Assert.assertFalse("DTO equal to null", dto.equals(null));
+        Assert.assertFalse("DTO equal to another type", dto.equals(this.toDTO(ComplexBeans.newBean("name"))));
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOEqualsWriter#writeMembers(java.lang.Class, java.io.Writer)}
+     * with DTOs that differ by a single field, down to nested DTOs, arrays and
+     * collections.
+     *
+     * @throws Exception if the mapper fails.
+     */
+    @Test
+    public void testDifferentDTOs() throws Exception {
+        final Object dto = this.toDTO(ComplexBeans.newComplexBean());
+
+        ComplexBean bean = ComplexBeans.newComplexBean();
+        bean.setVersion(9L);
+        Assert.assertFalse("long not compared", dto.equals(this.toDTO(bean)));
+
+        bean = ComplexBeans.newComplexBean();
+        bean.setScore(null);
+        Assert.assertFalse("null wrapper not compared", dto.equals(this.toDTO(bean)));
+        Assert.assertFalse("null wrapper not compared", this.toDTO(bean).equals(dto));
+
+        bean = ComplexBeans.newComplexBean();
+        bean.setKind(ComplexBean.Kind.SMALL);
+        Assert.assertFalse("enum not compared", dto.equals(this.toDTO(bean)));
+
+        bean = ComplexBeans.newComplexBean();
+        bean.getDetail().setValues(new long[]{1L, 3L});
+        Assert.assertFalse("array of primitives not compared", dto.equals(this.toDTO(bean)));
+
+        bean = ComplexBeans.newComplexBean();
+        bean.getDetail().setBean(ComplexBeans.newBean("other"));
+        Assert.assertFalse("nested DTO not compared", dto.equals(this.toDTO(bean)));
+
+        bean = ComplexBeans.newComplexBean();
+        bean.getBeanMatrix()[1][0] = ComplexBeans.newBean("m");
+        Assert.assertFalse("array of arrays not compared deeply", dto.equals(this.toDTO(bean)));
+
+        bean = ComplexBeans.newComplexBean();
+        bean.getBeanIndex().get("key").set(0, ComplexBeans.newBean("j"));
+        Assert.assertFalse("map of lists not compared", dto.equals(this.toDTO(bean)));
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOEqualsWriter#getComparedFields(java.lang.Class)}:
+     * primitives are compared before strings, nested DTOs and collections.
+     *
+     * @throws Exception if the source can not be read.
+     */
+    @Test
+    public void testComparisonOrder() throws Exception {
+        final StringBuilder source = new StringBuilder();
+        final BufferedReader reader = new BufferedReader(new FileReader(generatedSources.getSource("ComplexBeanDTO")));
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                source.append(line).append('\n');
+            }
+        }
+        finally {
+            reader.close();
+        }
+        final String equals = source.substring(source.indexOf("public boolean equals"));
+        final int primitive = equals.indexOf("this.level == other.level");
+        final int enumConstant = equals.indexOf("this.status == other.status");
+        final int string = equals.indexOf("this.name.equals(other.name)");
+        final int nestedDTO = equals.indexOf("this.detail.equals(other.detail)");
+        final int collection = equals.indexOf("this.beans.equals(other.beans)");
+        Assert.assertTrue("primitive not compared first", primitive >= 0 && primitive < enumConstant);
+        Assert.assertTrue("enum not compared before string", enumConstant < string);
+        Assert.assertTrue("string not compared before nested DTO", string < nestedDTO);
+        Assert.assertTrue("nested DTO not compared before collection", nestedDTO < collection);
+    }
+
+    /**
+     * Convert a bean to its DTO.
+     *
+     * @param bean the bean.
+     * @return the DTO.
+     * @throws Exception if the mapper fails.
+     */
+    private Object toDTO(final Object bean) throws Exception {
+        return generatedSources.invokeStatic(bean.getClass().getSimpleName() + "DTOMapper", "toDTO", bean);
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.AnotherBean;
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.Bean2;
+import fr.maven.dto.bean.BeanStatus;
+import fr.maven.dto.bean.ComplexBean;
+import fr.maven.dto.fixture.ComplexBeans;
+import fr.maven.dto.fixture.GeneratedSources;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests on {@link DTOExternalizableWriter}: the DTOs generated for the test
+ * beans must serialize and deserialize back to equal beans.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOExternalizableWriterTest {
+
+    private static GeneratedSources generatedSources;
+
+    /**
+     * Generate, compile and load the externalizable DTOs and the mappers of the
+     * test beans.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        generator.setGenerateExternalizable(true);
+        final List<Class<?>> classes = new ArrayList<Class<?>>();
+        classes.add(Bean.class);
+        classes.add(Bean2.class);
+        classes.add(AnotherBean.class);
+        classes.add(BeanStatus.class);
+        classes.add(ComplexBean.class);
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "externalizable"), generator,
+                classes);
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOExternalizableWriter#writeMembers(java.lang.Class, java.io.Writer)}
+     * with every field set.
+     *
+     * @throws Exception if the DTO can not be serialized.
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        final ComplexBean bean = ComplexBeans.newComplexBean();
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", bean);
+        Assert.assertTrue("DTO not externalizable", dto instanceof Externalizable);
+        final ComplexBean back = (ComplexBean) generatedSources.invokeStatic("ComplexBeanDTOMapper", "toBean",
+                this.roundTrip(dto));
+        Assert.assertEquals("int not read", bean.getId(), back.getId());
+        Assert.assertEquals("long not read", bean.getVersion(), back.getVersion());
+        Assert.assertEquals("boolean not read", bean.isActive(), back.isActive());
+        Assert.assertEquals("char not read", bean.getCode(), back.getCode());
+        Assert.assertEquals("Double not read", bean.getScore(), back.getScore());
+        Assert.assertEquals("String not read", bean.getName(), back.getName());
+        Assert.assertEquals("Date not read", bean.getCreated(), back.getCreated());
+        Assert.assertEquals("enum not read", BeanStatus.ACTIVE, back.getStatus());
+        Assert.assertEquals("nested enum not read", ComplexBean.Kind.LARGE, back.getKind());
+        Assert.assertEquals("nested class not read", "label", back.getDetail().getLabel());
+        Assert.assertArrayEquals("array of primitives not read", new long[]{1L, 2L}, back.getDetail().getValues());
+        Assert.assertEquals("nested DTO not read", "in detail", back.getDetail().getBean().getA());
+        Assert.assertEquals("array of DTOs not read", "m", back.getBeanMatrix()[0][0].getA());
+        Assert.assertNull("null array element not read", back.getBeanMatrix()[1][0]);
+        Assert.assertEquals("array of arrays not read", 3, back.getGrid()[1][0]);
+        Assert.assertEquals("list not read", "l", back.getBeans().get(0).getA());
+        Assert.assertEquals("set not read", "s", back.getBeanSet().iterator().next().getA());
+        Assert.assertEquals("map of lists not read", "i", back.getBeanIndex().get("key").get(0).getA());
+        Assert.assertEquals("list of strings not read", bean.getTags(), back.getTags());
+        Assert.assertEquals("map of enums not read", Integer.valueOf(3), back.getCounts().get(BeanStatus.NEW));
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOExternalizableWriter#writeMembers(java.lang.Class, java.io.Writer)}
+     * with <code>null</code> values.
+     *
+     * @throws Exception if the DTO can not be serialized.
+     */
+    @Test
+    public void testNullValues() throws Exception {
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", new ComplexBean());
+        final ComplexBean back = (ComplexBean) generatedSources.invokeStatic("ComplexBeanDTOMapper", "toBean",
+                this.roundTrip(dto));
+        Assert.assertNull("null Double not read", back.getScore());
+        Assert.assertNull("null String not read", back.getName());
+        Assert.assertNull("null Date not read", back.getCreated());
+        Assert.assertNull("null enum not read", back.getStatus());
+        Assert.assertNull("null nested class not read", back.getDetail());
+        Assert.assertNull("null array not read", back.getGrid());
+        Assert.assertNull("null map not read", back.getBeanIndex());
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOExternalizableWriter#writeMembers(java.lang.Class, java.io.Writer)}
+     * with a string longer than what writeUTF accepts.
+     *
+     * @throws Exception if the DTO can not be serialized.
+     */
+    @Test
+    public void testLongString() throws Exception {
+        final StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            name.append((char) ('a' + i % 26));
+        }
+        final Bean bean = ComplexBeans.newBean(name.toString());
+        final Object dto = generatedSources.invokeStatic("BeanDTOMapper", "toDTO", bean);
+        Assert.assertEquals("long string not read", bean.getA(), GeneratedSources.invoke(this.roundTrip(dto), "getA"));
+    }
+
+    /**
+     * Serialize and deserialize an object.
+     *
+     * @param object the object.
+     * @return the deserialized object.
+     * @throws Exception if the object can not be serialized.
+     */
+    private Object roundTrip(final Object object) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(object);
+        out.close();
+        final ObjectInputStream in = new GeneratedObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        try {
+            return in.readObject();
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Object input stream resolving the generated classes.
+     */
+    private static class GeneratedObjectInputStream extends ObjectInputStream {
+
+        GeneratedObjectInputStream(final InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            return Class.forName(desc.getName(), false, generatedSources.getClassLoader());
+        }
+    }
+}
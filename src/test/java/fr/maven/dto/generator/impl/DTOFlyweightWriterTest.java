@@ -0,0 +1,162 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.BeanStatus;
+import fr.maven.dto.bean.ComplexBean;
+import fr.maven.dto.bean.TickBean;
+import fr.maven.dto.fixture.ComplexBeans;
+import fr.maven.dto.fixture.GeneratedSources;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests on the generated flyweight views: records laid out one after the
+ * other in a buffer must be read back by a single view with the getters of
+ * the DTO.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOFlyweightWriterTest {
+
+    private static GeneratedSources generatedSources;
+
+    /**
+     * Generate, compile and load the DTOs, mappers and views of the test
+     * beans.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        generator.setGenerateEquals(true);
+        generator.setGenerateFlyweights(true);
+        final List<Class<?>> classes = Arrays.<Class<?>>asList(TickBean.class, BeanStatus.class);
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "flyweights"), generator,
+                classes);
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOFlyweightWriter#accept(java.lang.Class)}:
+     * classes with nested DTOs or collections get no view.
+     */
+    @Test
+    public void testAccept() {
+        final DTOFlyweightWriter writer = new DTOFlyweightWriter(new DTOGeneratorImpl());
+        Assert.assertTrue("flat class rejected", writer.accept(TickBean.class));
+        Assert.assertFalse("class with nested DTOs accepted", writer.accept(ComplexBean.class));
+        Assert.assertFalse("enum accepted", writer.accept(BeanStatus.class));
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOFlyweightWriter#write(java.lang.Class, java.io.Writer)}:
+     * records appended to heap and direct buffers are read by a view moved
+     * from one to the next.
+     *
+     * @throws Exception if a view fails.
+     */
+    @Test
+    public void testRecords() throws Exception {
+        this.checkRecords(ByteBuffer.allocate(1024));
+        this.checkRecords(ByteBuffer.allocateDirect(1024));
+    }
+
+    /**
+     * Append three records, then read them back.
+     *
+     * @param buffer the buffer.
+     * @throws Exception if a view fails.
+     */
+    private void checkRecords(final ByteBuffer buffer) throws Exception {
+        final Object[] dtos = new Object[3];
+        for (int i = 0; i < dtos.length; i++) {
+            dtos[i] = generatedSources.invokeStatic("TickBeanDTOMapper", "toDTO", ComplexBeans.newTickBean(i));
+            final int start = buffer.position();
+            Assert.assertEquals("record position", Integer.valueOf(start),
+                    generatedSources.invokeStatic("TickBeanDTOView", "append", dtos[i], buffer));
+            Assert.assertEquals("record not aligned", 0, (buffer.position() - start) % DTOFlyweightWriter.ALIGNMENT);
+            Assert.assertEquals("record size", generatedSources.invokeStatic("TickBeanDTOView", "sizeOf", dtos[i]),
+                    Integer.valueOf(buffer.position() - start));
+        }
+        final Object view = generatedSources.loadClass("TickBeanDTOView").newInstance();
+        GeneratedSources.invoke(view, "wrap", buffer, 0);
+        for (int i = 0; i < dtos.length; i++) {
+            for (final String getter : new String[]{"getId", "getPrice", "getQuantity", "getLot", "getStatus",
+                    "getSymbol", "getTime", "isActive", "getLimit", "getSide"}) {
+                Assert.assertEquals(getter + " of record " + i, GeneratedSources.invoke(dtos[i], getter),
+                        GeneratedSources.invoke(view, getter));
+            }
+            Assert.assertArrayEquals("history of record " + i, (long[]) GeneratedSources.invoke(dtos[i], "getHistory"),
+                    (long[]) GeneratedSources.invoke(view, "getHistory"));
+            Assert.assertEquals("record " + i + " not copied", dtos[i], GeneratedSources.invoke(view, "toDTO"));
+            GeneratedSources.invoke(view, "next");
+        }
+        Assert.assertEquals("last record end", Integer.valueOf(buffer.position()),
+                GeneratedSources.invoke(view, "getOffset"));
+    }
+
+    /**
+     * Test method for the absent fields: the presence bitmap must return
+     * <code>null</code> where the DTO does.
+     *
+     * @throws Exception if a view fails.
+     */
+    @Test
+    public void testNullFields() throws Exception {
+        final Object dto = generatedSources.invokeStatic("TickBeanDTOMapper", "toDTO", new TickBean());
+        final ByteBuffer buffer = ByteBuffer.allocate(256);
+        buffer.put((byte) -1);
+        final int start = (Integer) generatedSources.invokeStatic("TickBeanDTOView", "append", dto, buffer);
+        final Object view = generatedSources.loadClass("TickBeanDTOView").getConstructor(ByteBuffer.class, int.class)
+                .newInstance(buffer, start);
+        Assert.assertNull("symbol", GeneratedSources.invoke(view, "getSymbol"));
+        Assert.assertNull("status", GeneratedSources.invoke(view, "getStatus"));
+        Assert.assertNull("time", GeneratedSources.invoke(view, "getTime"));
+        Assert.assertNull("limit", GeneratedSources.invoke(view, "getLimit"));
+        Assert.assertNull("history", GeneratedSources.invoke(view, "getHistory"));
+        Assert.assertEquals("record not copied", dto, GeneratedSources.invoke(view, "toDTO"));
+        Assert.assertEquals("fixed size record", generatedSources.loadClass("TickBeanDTOView").getField("FIXED_SIZE")
+                .getInt(null) + DTOFlyweightWriter.ALIGNMENT - 1 & -DTOFlyweightWriter.ALIGNMENT,
+                ((Integer) GeneratedSources.invoke(view, "getRecordSize")).intValue());
+    }
+
+    /**
+     * Test method for a record that does not fit: the buffer must be left
+     * unchanged.
+     *
+     * @throws Exception if a view fails.
+     */
+    @Test
+    public void testOverflow() throws Exception {
+        final Object dto = generatedSources.invokeStatic("TickBeanDTOMapper", "toDTO", ComplexBeans.newTickBean(1));
+        final ByteBuffer buffer = ByteBuffer.allocate(32);
+        try {
+            generatedSources.invokeStatic("TickBeanDTOView", "append", dto, buffer);
+            Assert.fail("record written past the limit");
+        }
+        catch (final BufferOverflowException e) {
+            Assert.assertEquals("position moved", 0, buffer.position());
+        }
+    }
+}
@@ -300,11 +300,15 @@ public class DTOGeneratorImplTest {
     public void testGetDTOTypeForArray() {
         try {
             final Field field = Bean2.class.getDeclaredField("beanArray");
-            final String dtoType = this.dtoGeneratorImpl.getDTOType(Bean.class,
-                    field.getGenericType());
             Assert.assertEquals(
-                    "getFieldType does not return fr.maven.dto.bean.Bean[] for beanArray field",
-                    "fr.maven.dto.bean.Bean[]", dtoType);
+                    "getDTOType does not return fr.maven.dto.bean.Bean[] for beanArray field of a class not generated",
+                    "fr.maven.dto.bean.Bean[]", this.dtoGeneratorImpl.getDTOType(Bean.class,
+                            field.getGenericType()));
+            this.dtoGeneratorImpl.classesToGenerate.add(Bean.class);
+            Assert.assertEquals(
+                    "getDTOType does not return BeanDTO[] for beanArray field",
+                    "BeanDTO[]", this.dtoGeneratorImpl.getDTOType(Bean.class,
+                            field.getGenericType()));
         }
         catch (final SecurityException e) {
             Assert.fail("Field attribut1 not accessible.");
@@ -0,0 +1,274 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.AnotherBean;
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.Bean2;
+import fr.maven.dto.bean.BeanStatus;
+import fr.maven.dto.bean.ComplexBean;
+import fr.maven.dto.bean.PaymentBean;
+import fr.maven.dto.fixture.ComplexBeans;
+import fr.maven.dto.fixture.GeneratedSources;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests on {@link DTOImmutableWriter}: the DTOs generated for the test beans
+ * in immutable mode must have final fields, unmodifiable collections and
+ * copy methods, and still be read by the codecs.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOImmutableWriterTest {
+
+    private static GeneratedSources generatedSources;
+
+    /**
+     * Generate, compile and load the immutable DTOs, mappers and codecs of the
+     * test beans.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateImmutable(true);
+        generator.setGenerateMappers(true);
+        generator.setGenerateJsonCodecs(true);
+        generator.setGenerateBinaryCodecs(true);
+        generator.setGenerateEquals(true);
+        generator.setCacheHashCodes(true);
+        final List<Class<?>> classes = new ArrayList<Class<?>>();
+        classes.add(Bean.class);
+        classes.add(Bean2.class);
+        classes.add(AnotherBean.class);
+        classes.add(BeanStatus.class);
+        classes.add(ComplexBean.class);
+        classes.add(PaymentBean.class);
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "immutable"), generator, classes);
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#makeDTOClass(java.lang.Class, java.io.Writer)}
+     * in immutable mode: final fields and no setters.
+     *
+     * @throws Exception if a class can not be loaded.
+     */
+    @Test
+    public void testFinalFields() throws Exception {
+        final Class<?> dtoClass = generatedSources.loadClass("ComplexBeanDTO");
+        for (final Field field : dtoClass.getDeclaredFields()) {
+            if (!Modifier.isTransient(field.getModifiers())) {
+                Assert.assertTrue(field.getName() + " not final", Modifier.isFinal(field.getModifiers()));
+            }
+        }
+        for (final Method method : dtoClass.getMethods()) {
+            Assert.assertFalse(method.getName() + " generated", method.getName().startsWith("set"));
+        }
+        Assert.assertTrue("hash code not cached",
+                Modifier.isTransient(dtoClass.getDeclaredField("cachedHashCode").getModifiers()));
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#getDTOFieldValue(java.lang.Class, java.lang.reflect.Field)}:
+     * the collections given to the constructor are copied into unmodifiable
+     * collections.
+     *
+     * @throws Exception if the mapper fails.
+     */
+    @Test
+    public void testUnmodifiableCollections() throws Exception {
+        final ComplexBean bean = ComplexBeans.newComplexBean();
+        final Object dto = this.toDTO(bean);
+        final List<?> tags = (List<?>) GeneratedSources.invoke(dto, "getTags");
+        try {
+            tags.clear();
+            Assert.fail("list modified");
+        }
+        catch (final UnsupportedOperationException e) {
+            // expected: the list is unmodifiable
+        }
+        final List<String> newTags = new ArrayList<String>();
+        newTags.add("c");
+        final Object copy = GeneratedSources.invoke(dto, "withTags", newTags);
+        newTags.add("d");
+        Assert.assertEquals("list not copied", Collections.singletonList("c"), GeneratedSources.invoke(copy, "getTags"));
+        Assert.assertEquals("source DTO changed", bean.getTags(), GeneratedSources.invoke(dto, "getTags"));
+        Assert.assertNull("null list copied", GeneratedSources.invoke(this.toDTO(new ComplexBean()), "getTags"));
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#getDTOFieldValue(java.lang.Class, java.lang.reflect.Field)}:
+     * the arrays and dates given to the constructor or returned by the
+     * getters are copies, and the nested collections are unmodifiable.
+     *
+     * @throws Exception if the mapper fails.
+     */
+    @Test
+    public void testDeepImmutableValues() throws Exception {
+        final ComplexBean bean = ComplexBeans.newComplexBean();
+        final Object dto = this.toDTO(bean);
+        final int[][] grid = (int[][]) GeneratedSources.invoke(dto, "getGrid");
+        final int cell = grid[0][0];
+        grid[0][0] = cell + 1;
+        grid[0] = null;
+        Assert.assertEquals("array changed through its getter", cell,
+                ((int[][]) GeneratedSources.invoke(dto, "getGrid"))[0][0]);
+        final Date created = (Date) GeneratedSources.invoke(dto, "getCreated");
+        created.setTime(created.getTime() + 1000L);
+        Assert.assertEquals("date changed through its getter", bean.getCreated(),
+                GeneratedSources.invoke(dto, "getCreated"));
+        final Object[][] beanMatrix = (Object[][]) GeneratedSources.invoke(dto, "getBeanMatrix");
+        beanMatrix[0][0] = null;
+        Assert.assertNotNull("array of DTOs changed through its getter",
+                ((Object[][]) GeneratedSources.invoke(dto, "getBeanMatrix"))[0][0]);
+
+        final int[][] newGrid = {{1, 2}};
+        final Object copy = GeneratedSources.invoke(dto, "withGrid", (Object) newGrid);
+        newGrid[0][0] = 3;
+        Assert.assertEquals("array given shared", 1, ((int[][]) GeneratedSources.invoke(copy, "getGrid"))[0][0]);
+
+        final List<?> nested = (List<?>) ((Map<?, ?>) GeneratedSources.invoke(dto, "getBeanIndex")).get("key");
+        try {
+            nested.clear();
+            Assert.fail("nested list modified");
+        }
+        catch (final UnsupportedOperationException e) {
+            // expected: the nested list is unmodifiable
+        }
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOImmutableWriter#writeWithMethod(java.lang.Class, java.util.List, java.lang.reflect.Field, java.io.Writer)}.
+     *
+     * @throws Exception if the mapper fails.
+     */
+    @Test
+    public void testWithMethods() throws Exception {
+        final Object dto = this.toDTO(ComplexBeans.newComplexBean());
+        final Object copy = GeneratedSources.invoke(dto, "withName", "other");
+        Assert.assertNotSame("DTO not copied", dto, copy);
+        Assert.assertEquals("name not changed", "other", GeneratedSources.invoke(copy, "getName"));
+        Assert.assertEquals("source DTO changed", "name", GeneratedSources.invoke(dto, "getName"));
+        Assert.assertEquals("other field not copied", GeneratedSources.invoke(dto, "getId"),
+                GeneratedSources.invoke(copy, "getId"));
+        Assert.assertFalse("copy equal", dto.equals(copy));
+        Assert.assertEquals("copy back not equal", dto, GeneratedSources.invoke(copy, "withName", "name"));
+        Assert.assertSame("same value copied", dto,
+                GeneratedSources.invoke(dto, "withDetail", GeneratedSources.invoke(dto, "getDetail")));
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOImmutableWriter#writeBuilder(java.lang.Class, java.util.List, java.io.Writer)}
+     * through the codecs, that read DTOs with their builders.
+     *
+     * @throws Exception if a codec fails.
+     */
+    @Test
+    public void testBuilders() throws Exception {
+        final Object dto = this.toDTO(ComplexBeans.newComplexBean());
+        final String json = (String) generatedSources.invokeStatic("ComplexBeanDTOJsonCodec", "toJson", dto);
+        Assert.assertEquals("JSON not read", dto, generatedSources.invokeStatic("ComplexBeanDTOJsonCodec", "fromJson",
+                json));
+        final ByteBuffer buffer = (ByteBuffer) generatedSources.invokeStatic("ComplexBeanDTOBinaryCodec", "encode", dto);
+        Assert.assertEquals("binary not read", dto, generatedSources.invokeStatic("ComplexBeanDTOBinaryCodec", "decode",
+                buffer));
+
+        final Result result = JUnitCore.runClasses(generatedSources.loadClass("ComplexBeanDTOBinaryCodecTest"));
+        Assert.assertTrue("generated test failed: " + result.getFailures(), result.wasSuccessful());
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOEqualsWriter#isHashCached(java.lang.Class)}:
+     * the hash code is not cached by the DTOs whose values may change, nor
+     * without the option.
+     *
+     * @throws Exception if a class can not be loaded.
+     */
+    @Test
+    public void testHashCodeCaching() throws Exception {
+        final Class<?> dtoClass = generatedSources.loadClass("PaymentBeanDTO");
+        for (final Field field : dtoClass.getDeclaredFields()) {
+            Assert.assertFalse("hash code cached with mutable reminders", field.getName().equals("cachedHashCode"));
+        }
+
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateImmutable(true);
+        generator.setGenerateEquals(true);
+        Assert.assertFalse("hash code cached by default", new DTOEqualsWriter(generator).isHashCached(Bean.class));
+        generator.setCacheHashCodes(true);
+        Assert.assertTrue("hash code not cached", new DTOEqualsWriter(generator).isHashCached(Bean.class));
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#setCacheHashCodes(boolean)}
+     * with mutable DTOs, whose hash code changes with their fields.
+     *
+     * @throws Exception if the generation fails otherwise.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testHashCodeCachingConflict() throws Exception {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateEquals(true);
+        generator.setCacheHashCodes(true);
+        generator.getMemberWriters();
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#setGenerateImmutable(boolean)}
+     * with Externalizable DTOs, whose fields are set after their construction.
+     *
+     * @throws Exception if the generation fails otherwise.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testExternalizableConflict() throws Exception {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateImmutable(true);
+        generator.setGenerateExternalizable(true);
+        generator.getMemberWriters();
+    }
+
+    /**
+     * Convert a bean to its DTO.
+     *
+     * @param bean the bean.
+     * @return the DTO.
+     * @throws Exception if the mapper fails.
+     */
+    private Object toDTO(final Object bean) throws Exception {
+        return generatedSources.invokeStatic(bean.getClass().getSimpleName() + "DTOMapper", "toDTO", bean);
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.AnotherBean;
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.Bean2;
+import fr.maven.dto.bean.BeanStatus;
+import fr.maven.dto.bean.ComplexBean;
+import fr.maven.dto.fixture.ComplexBeans;
+import fr.maven.dto.fixture.GeneratedSources;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests on the interned fields: the DTOs must share the instances of the
+ * strings of the fields matched by a pattern or marked by an annotation,
+ * whether set, mapped or deserialized, and only of those.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOInternWriterTest {
+
+    private static GeneratedSources generatedSources;
+
+    /**
+     * Generate, compile and load the DTOs and mappers of the test beans, with
+     * the complex bean name and the fields marked as low-cardinality
+     * interned.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "interned"),
+                newGenerator(false), getClasses());
+    }
+
+    /**
+     * Return a generator of the mappers, with interned fields.
+     *
+     * @param externalizable <code>true</code> for Externalizable DTOs.
+     * @return the generator.
+     */
+    private static DTOGeneratorImpl newGenerator(final boolean externalizable) {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        generator.setGenerateExternalizable(externalizable);
+        generator.setInternedFields(Arrays.asList("**.ComplexBean.name", "@fr.maven.dto.bean.LowCardinality"));
+        return generator;
+    }
+
+    /**
+     * @return the classes to generate.
+     */
+    private static List<Class<?>> getClasses() {
+        return Arrays.<Class<?>>asList(Bean.class, Bean2.class, AnotherBean.class, BeanStatus.class,
+                ComplexBean.class);
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+    }
+
+    /**
+     * Test method for the interning by the mappers and the setters.
+     *
+     * @throws Exception if a method fails.
+     */
+    @Test
+    public void testMapperAndSetter() throws Exception {
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", newComplexBean());
+        final Object other = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", newComplexBean());
+        Assert.assertSame("field matched not interned", GeneratedSources.invoke(dto, "getName"),
+                GeneratedSources.invoke(other, "getName"));
+        Assert.assertSame("field annotated not interned",
+                GeneratedSources.invoke(GeneratedSources.invoke(dto, "getDetail"), "getLabel"),
+                GeneratedSources.invoke(GeneratedSources.invoke(other, "getDetail"), "getLabel"));
+        Assert.assertNotSame("other field interned",
+                GeneratedSources.invoke(GeneratedSources.invoke(dto, "getBean"), "getA"),
+                GeneratedSources.invoke(GeneratedSources.invoke(other, "getBean"), "getA"));
+
+        GeneratedSources.invoke(dto, "setName", new String("set"));
+        GeneratedSources.invoke(other, "setName", new String("set"));
+        Assert.assertSame("value set not interned", GeneratedSources.invoke(dto, "getName"),
+                GeneratedSources.invoke(other, "getName"));
+    }
+
+    /**
+     * Test method for the interning of the fields deserialized, by default
+     * and by Externalizable DTOs.
+     *
+     * @throws Exception if a DTO can not be serialized.
+     */
+    @Test
+    public void testSerialization() throws Exception {
+        final Object name = generatedSources.invokeStatic("DTOStrings", "intern", "name");
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", newComplexBean());
+        Assert.assertSame("field deserialized not interned", name,
+                GeneratedSources.invoke(serializeCopy(dto, generatedSources), "getName"));
+
+        final GeneratedSources externalizableSources = new GeneratedSources(new File("target" + File.separator
+                + "interned-externalizable"), newGenerator(true), getClasses());
+        try {
+            final Object externalizableName = externalizableSources.invokeStatic("DTOStrings", "intern", "name");
+            final Object externalizableDTO = externalizableSources.invokeStatic("ComplexBeanDTOMapper", "toDTO",
+                    newComplexBean());
+            Assert.assertSame("field read externally not interned", externalizableName,
+                    GeneratedSources.invoke(serializeCopy(externalizableDTO, externalizableSources), "getName"));
+        }
+        finally {
+            externalizableSources.delete();
+        }
+    }
+
+    /**
+     * Return a complex bean whose strings are new instances.
+     *
+     * @return the complex bean.
+     */
+    private static ComplexBean newComplexBean() {
+        final ComplexBean bean = ComplexBeans.newComplexBean();
+        bean.setName(new String(bean.getName()));
+        bean.getDetail().setLabel(new String(bean.getDetail().getLabel()));
+        bean.setBean(ComplexBeans.newBean(new String("bean")));
+        return bean;
+    }
+
+    /**
+     * Serialize a DTO and read it back.
+     *
+     * @param dto     the DTO.
+     * @param sources the sources the DTO was generated in.
+     * @return the DTO read.
+     * @throws Exception if the DTO can not be serialized.
+     */
+    private static Object serializeCopy(final Object dto, final GeneratedSources sources) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(dto);
+        out.close();
+        final ObjectInputStream in = new GeneratedObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()),
+                sources.getClassLoader());
+        try {
+            return in.readObject();
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Stream reading the objects of the generated classes.
+     */
+    private static final class GeneratedObjectInputStream extends ObjectInputStream {
+
+        private final ClassLoader classLoader;
+
+        GeneratedObjectInputStream(final InputStream in, final ClassLoader classLoader) throws IOException {
+            super(in);
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            return Class.forName(desc.getName(), false, this.classLoader);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.AnotherBean;
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.Bean2;
+import fr.maven.dto.bean.BeanStatus;
+import fr.maven.dto.bean.ComplexBean;
+import fr.maven.dto.fixture.ComplexBeans;
+import fr.maven.dto.fixture.GeneratedSources;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests on {@link DTOJsonCodecWriter}: the codecs generated for the test beans
+ * must write DTOs as JSON and read them back.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOJsonCodecWriterTest {
+
+    private static GeneratedSources generatedSources;
+
+    /**
+     * Generate, compile and load the DTOs, mappers and JSON codecs of the test
+     * beans.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        generator.setGenerateJsonCodecs(true);
+        final List<Class<?>> classes = new ArrayList<Class<?>>();
+        classes.add(Bean.class);
+        classes.add(Bean2.class);
+        classes.add(AnotherBean.class);
+        classes.add(BeanStatus.class);
+        classes.add(ComplexBean.class);
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "json"), generator, classes);
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOJsonCodecWriter#write(java.lang.Class, java.io.Writer)}
+     * with every field set.
+     *
+     * @throws Exception if the codec fails.
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        final ComplexBean bean = ComplexBeans.newComplexBean();
+        final String json = this.toJson(bean);
+        Assert.assertTrue("field names not written", json.startsWith("{\"id\":7,\"version\":8,\"active\":true"));
+        Assert.assertTrue("enum not written by name", json.contains("\"status\":\"ACTIVE\""));
+        Assert.assertTrue("date not written in milliseconds", json.contains("\"created\":1000"));
+        Assert.assertTrue("enum keys not written as object keys", json.contains("\"counts\":{\"NEW\":3}"));
+
+        final ComplexBean back = this.fromJson(json);
+        Assert.assertEquals("int not read", bean.getId(), back.getId());
+        Assert.assertEquals("long not read", bean.getVersion(), back.getVersion());
+        Assert.assertEquals("byte not read", bean.getFlags(), back.getFlags());
+        Assert.assertEquals("char not read", bean.getCode(), back.getCode());
+        Assert.assertEquals("short not read", bean.getLevel(), back.getLevel());
+        Assert.assertEquals("Double not read", bean.getScore(), back.getScore());
+        Assert.assertEquals("String not read", bean.getName(), back.getName());
+        Assert.assertEquals("Date not read", bean.getCreated(), back.getCreated());
+        Assert.assertEquals("enum not read", BeanStatus.ACTIVE, back.getStatus());
+        Assert.assertEquals("nested enum not read", ComplexBean.Kind.LARGE, back.getKind());
+        Assert.assertEquals("nested class not read", "label", back.getDetail().getLabel());
+        Assert.assertArrayEquals("array of primitives not read", new long[]{1L, 2L}, back.getDetail().getValues());
+        Assert.assertEquals("array of DTOs not read", "m", back.getBeanMatrix()[0][0].getA());
+        Assert.assertNull("null array element not read", back.getBeanMatrix()[1][0]);
+        Assert.assertEquals("array of arrays not read", 3, back.getGrid()[1][0]);
+        Assert.assertEquals("list not read", "l", back.getBeans().get(0).getA());
+        Assert.assertEquals("set not read", "s", back.getBeanSet().iterator().next().getA());
+        Assert.assertEquals("map of lists not read", "i", back.getBeanIndex().get("key").get(0).getA());
+        Assert.assertEquals("list of strings not read", bean.getTags(), back.getTags());
+        Assert.assertEquals("map of enums not read", Integer.valueOf(3), back.getCounts().get(BeanStatus.NEW));
+        Assert.assertEquals("JSON not stable", json, this.toJson(back));
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOJsonCodecWriter#write(java.lang.Class, java.io.Writer)}
+     * with <code>null</code> values.
+     *
+     * @throws Exception if the codec fails.
+     */
+    @Test
+    public void testNullValues() throws Exception {
+        Assert.assertEquals("null DTO not written", "null",
+                generatedSources.invokeStatic("BeanDTOJsonCodec", "toJson", (Object) null));
+        final ComplexBean back = this.fromJson(this.toJson(new ComplexBean()));
+        Assert.assertNull("null Double not read", back.getScore());
+        Assert.assertNull("null String not read", back.getName());
+        Assert.assertNull("null Date not read", back.getCreated());
+        Assert.assertNull("null enum not read", back.getStatus());
+        Assert.assertNull("null nested class not read", back.getDetail());
+        Assert.assertNull("null array not read", back.getGrid());
+        Assert.assertNull("null map not read", back.getBeanIndex());
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOJsonCodecWriter#write(java.lang.Class, java.io.Writer)}
+     * with a text written by hand: whitespace, escapes and unknown keys.
+     *
+     * @throws Exception if the codec fails.
+     */
+    @Test
+    public void testHandWrittenJson() throws Exception {
+        final ComplexBean back = this.fromJson(" {\n  \"unknown\" : {\"a\": [1, {\"b\": \"}\"}], \"c\": null},\n"
+                + "  \"name\" : \"line\\nquote\\\" \\u00e9\",\n  \"id\" : -12,\n  \"score\" : 2.5e1,\n"
+                + "  \"other\" : [true, false],\n  \"tags\" : [ ]\n} ");
+        Assert.assertEquals("escaped string not read", "line\nquote\" \u00e9", back.getName());
+        Assert.assertEquals("negative int not read", -12, back.getId());
+        Assert.assertEquals("exponent not read", Double.valueOf(25), back.getScore());
+        Assert.assertTrue("empty list not read", back.getTags().isEmpty());
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOJsonCodecWriter#write(java.lang.Class, java.io.Writer)}
+     * with strings larger than the reader buffer.
+     *
+     * @throws Exception if the codec fails.
+     */
+    @Test
+    public void testLongStrings() throws Exception {
+        final StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            name.append(i % 100 == 0 ? '"' : (char) ('a' + i % 26));
+        }
+        final Bean bean = ComplexBeans.newBean(name.toString());
+        final Object dto = generatedSources.invokeStatic("BeanDTOMapper", "toDTO", bean);
+        final String json = (String) generatedSources.invokeStatic("BeanDTOJsonCodec", "toJson", dto);
+        final Object in = generatedSources.loadClass("DTOJsonReader").getConstructor(Reader.class)
+                .newInstance(new StringReader(json));
+        final Object back = generatedSources.invokeStatic("BeanDTOJsonCodec", "read", in);
+        Assert.assertEquals("long string not read", bean.getA(), GeneratedSources.invoke(back, "getA"));
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOJsonCodecWriter#write(java.lang.Class, java.io.Writer)}
+     * with escapes before, across and at the end of the reader buffer.
+     *
+     * @throws Exception if the codec fails.
+     */
+    @Test
+    public void testEscapesAtBufferBoundary() throws Exception {
+        // the default buffer size of the reader
+        final int bufferSize = 8192;
+        final String prefix = "{\"a\":\"";
+        for (final String escape : new String[]{"\\n", "\\u00e9"}) {
+            for (int length = bufferSize - prefix.length() - 8; length < bufferSize - prefix.length(); length++) {
+                final StringBuilder value = new StringBuilder();
+                for (int i = 0; i < length; i++) {
+                    value.append('x');
+                }
+                final String json = prefix + value + escape + "tail\"}";
+                final Object in = generatedSources.loadClass("DTOJsonReader").getConstructor(Reader.class)
+                        .newInstance(new StringReader(json));
+                final Object back = generatedSources.invokeStatic("BeanDTOJsonCodec", "read", in);
+                Assert.assertEquals("escape not read at " + (prefix.length() + length),
+                        value + (escape.length() == 2 ? "\n" : "\u00e9") + "tail",
+                        GeneratedSources.invoke(back, "getA"));
+            }
+        }
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOJsonCodecWriter#write(java.lang.Class, java.io.Writer)}
+     * with malformed texts.
+     *
+     * @throws Exception if the codec fails.
+     */
+    @Test
+    public void testMalformedJson() throws Exception {
+        final String[] malformedTexts = {"{\"id\":1", "{\"id\":1.5}", "{\"id\":\"1\"}", "{\"id\":1,}",
+                "{\"status\":\"UNKNOWN\"}", "{\"id\":99999999999}", "{} {}", "{\"tags\":[\"a\" \"b\"]}"};
+        for (final String malformedText : malformedTexts) {
+            try {
+                generatedSources.invokeStatic("ComplexBeanDTOJsonCodec", "fromJson", malformedText);
+                Assert.fail("Malformed text read: " + malformedText);
+            }
+            catch (final IOException e) {
+                Assert.assertTrue("No offset in " + e.getMessage(), e.getMessage().contains("offset")
+                        || e.getMessage().contains("UNKNOWN"));
+            }
+        }
+    }
+
+    /**
+     * Convert a bean to JSON through its DTO.
+     *
+     * @param bean the bean.
+     * @return the JSON text.
+     * @throws Exception if the codec fails.
+     */
+    private String toJson(final ComplexBean bean) throws Exception {
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", bean);
+        return (String) generatedSources.invokeStatic("ComplexBeanDTOJsonCodec", "toJson", dto);
+    }
+
+    /**
+     * Convert JSON to a bean through its DTO.
+     *
+     * @param json the JSON text.
+     * @return the bean.
+     * @throws Exception if the codec fails.
+     */
+    private ComplexBean fromJson(final String json) throws Exception {
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOJsonCodec", "fromJson", json);
+        return (ComplexBean) generatedSources.invokeStatic("ComplexBeanDTOMapper", "toBean", dto);
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.AnotherBean;
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.Bean2;
+import fr.maven.dto.bean.BeanStatus;
+import fr.maven.dto.bean.ComplexBean;
+import fr.maven.dto.fixture.ComplexBeans;
+import fr.maven.dto.fixture.GeneratedSources;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests on the lazy holders: the fields referring to other DTOs must be
+ * converted on the first call of their getter, and be converted before they
+ * are compared or serialized.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOLazyWriterTest {
+
+    private static GeneratedSources generatedSources;
+
+    /**
+     * Generate, compile and load the DTOs and mappers of the test beans, with
+     * lazy holders.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        generator.setGenerateEquals(true);
+        generator.setGenerateLazyHolders(true);
+        final List<Class<?>> classes = Arrays.<Class<?>>asList(Bean.class, Bean2.class, AnotherBean.class,
+                BeanStatus.class, ComplexBean.class);
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "lazy"), generator, classes);
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+    }
+
+    /**
+     * Test method for the getters of the lazy fields: the object is converted
+     * as it is on the first call, then the DTO is kept.
+     *
+     * @throws Exception if the DTO fails.
+     */
+    @Test
+    public void testGetter() throws Exception {
+        final ComplexBean bean = ComplexBeans.newComplexBean();
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", bean);
+        Assert.assertNull("detail converted by the mapper", getField(dto, "detail"));
+        Assert.assertNotNull("detail not held", getField(dto, "detailHolder"));
+        Assert.assertNotNull("beans not held", getField(dto, "beansHolder"));
+        Assert.assertEquals("field without DTO held", "name", getField(dto, "name"));
+        Assert.assertEquals("enum held", "ACTIVE", String.valueOf(getField(dto, "status")));
+
+        bean.getDetail().setLabel("changed");
+        final Object detail = GeneratedSources.invoke(dto, "getDetail");
+        Assert.assertEquals("detail not converted on demand", "changed", GeneratedSources.invoke(detail, "getLabel"));
+        Assert.assertNull("holder kept", getField(dto, "detailHolder"));
+        Assert.assertSame("detail converted again", detail, GeneratedSources.invoke(dto, "getDetail"));
+        Assert.assertEquals("nested lazy field", "in detail",
+                GeneratedSources.invoke(GeneratedSources.invoke(detail, "getBean"), "getA"));
+
+        final ComplexBean copy = (ComplexBean) generatedSources.invokeStatic("ComplexBeanDTOMapper", "toBean", dto);
+        Assert.assertEquals("beans not mapped back", "l", copy.getBeans().get(0).getA());
+        Assert.assertEquals("matrix not mapped back", "m", copy.getBeanMatrix()[0][0].getA());
+
+        final Object empty = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", new ComplexBean());
+        Assert.assertNull("holder of a null field", getField(empty, "detailHolder"));
+    }
+
+    /**
+     * Test method for the setters of the lazy fields: the value set replaces
+     * the object held.
+     *
+     * @throws Exception if the DTO fails.
+     */
+    @Test
+    public void testSetter() throws Exception {
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO",
+                ComplexBeans.newComplexBean());
+        final Class<?> detailClass = generatedSources.loadClass("ComplexBeanDTO$Detail");
+        dto.getClass().getMethod("setDetail", detailClass).invoke(dto, new Object[]{null});
+        Assert.assertNull("holder kept", getField(dto, "detailHolder"));
+        Assert.assertNull("object held converted", GeneratedSources.invoke(dto, "getDetail"));
+    }
+
+    /**
+     * Test method for <code>equals</code>, <code>hashCode</code> and the
+     * serialization of DTOs whose fields are still held.
+     *
+     * @throws Exception if the DTO fails.
+     */
+    @Test
+    public void testPendingFields() throws Exception {
+        final ComplexBean bean = ComplexBeans.newComplexBean();
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", bean);
+        final Object converted = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", bean);
+        GeneratedSources.invoke(converted, "getDetail");
+        GeneratedSources.invoke(converted, "getBeans");
+        Assert.assertEquals("pending fields not compared", converted, dto);
+        Assert.assertEquals("pending fields not hashed", converted.hashCode(),
+                generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", bean).hashCode());
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", bean));
+        out.close();
+        final ObjectInputStream in = new GeneratedObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()),
+                dto.getClass().getClassLoader());
+        Assert.assertEquals("pending fields not serialized", dto, in.readObject());
+    }
+
+    /**
+     * Return the value of a field of a DTO, whatever its visibility.
+     *
+     * @param dto  the DTO.
+     * @param name the field name.
+     * @return the value.
+     * @throws Exception if the field does not exist.
+     */
+    private static Object getField(final Object dto, final String name) throws Exception {
+        final Field field = dto.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(dto);
+    }
+
+    /**
+     * Stream reading the objects of the generated classes.
+     */
+    private static final class GeneratedObjectInputStream extends ObjectInputStream {
+
+        private final ClassLoader classLoader;
+
+        GeneratedObjectInputStream(final InputStream in, final ClassLoader classLoader) throws IOException {
+            super(in);
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            return Class.forName(desc.getName(), false, this.classLoader);
+        }
+    }
+}
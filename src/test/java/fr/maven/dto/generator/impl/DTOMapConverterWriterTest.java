@@ -0,0 +1,151 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.BeanStatus;
+import fr.maven.dto.bean.ComplexBean;
+import fr.maven.dto.fixture.ComplexBeans;
+import fr.maven.dto.fixture.GeneratedSources;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests on the conversions of the DTOs to and from maps: the maps of the
+ * DTOs must be converted back to equal DTOs, and the values of other types
+ * only when their field holds them exactly.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOMapConverterWriterTest {
+
+    private static GeneratedSources generatedSources;
+
+    /**
+     * Generate, compile and load the DTOs, with equals, and the mappers of
+     * the test beans.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        generator.setGenerateEquals(true);
+        generator.setGenerateMapConverters(true);
+        final List<Class<?>> classes = Arrays.<Class<?>>asList(Bean.class, BeanStatus.class, ComplexBean.class);
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "maps"), generator, classes);
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+    }
+
+    /**
+     * Test method for a DTO converted to a map and back.
+     *
+     * @throws Exception if a conversion fails.
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO",
+                ComplexBeans.newComplexBean());
+        final Map<?, ?> map = (Map<?, ?>) GeneratedSources.invoke(dto, "toMap");
+        Assert.assertEquals("size", ComplexBean.class.getDeclaredFields().length, map.size());
+        Assert.assertEquals("first key", "id", map.keySet().iterator().next());
+        Assert.assertEquals("primitive", Integer.valueOf(7), map.get("id"));
+        Assert.assertTrue("nested DTO not converted", map.get("bean") instanceof Map);
+        Assert.assertEquals("nested DTO", "bean", ((Map<?, ?>) map.get("bean")).get("a"));
+        Assert.assertEquals("list of DTOs", "l", ((Map<?, ?>) ((List<?>) map.get("beans")).get(0)).get("a"));
+        Assert.assertEquals("set of DTOs", "s", ((Map<?, ?>) ((List<?>) map.get("beanSet")).get(0)).get("a"));
+        Assert.assertEquals("matrix of DTOs", "m",
+                ((Map<?, ?>) ((List<?>) ((List<?>) map.get("beanMatrix")).get(0)).get(0)).get("a"));
+        Assert.assertEquals("map of lists of DTOs", "i",
+                ((Map<?, ?>) ((List<?>) ((Map<?, ?>) map.get("beanIndex")).get("key")).get(0)).get("a"));
+        Assert.assertEquals("round trip", dto, generatedSources.invokeStatic("ComplexBeanDTO", "fromMap", map));
+
+        final Object empty = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", new ComplexBean());
+        Assert.assertEquals("empty round trip", empty, generatedSources.invokeStatic("ComplexBeanDTO", "fromMap",
+                GeneratedSources.invoke(empty, "toMap")));
+    }
+
+    /**
+     * Test method for the values converted to the type of their field.
+     *
+     * @throws Exception if a conversion fails.
+     */
+    @Test
+    public void testConversions() throws Exception {
+        final Map<String, Object> map = new HashMap<String, Object>();
+        map.put("version", Integer.valueOf(8));
+        map.put("flags", Long.valueOf(3L));
+        map.put("score", Integer.valueOf(2));
+        map.put("status", BeanStatus.ACTIVE.name());
+        map.put("bean", new HashMap<String, Object>(Collections.singletonMap("a", "nested")));
+        map.put("beans", new Object[]{Collections.singletonMap("a", "element")});
+        map.put("counts", Collections.singletonMap(BeanStatus.NEW.name(), Long.valueOf(3L)));
+        map.put("unknown", "ignored");
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTO", "fromMap", map);
+        Assert.assertEquals("widened", Long.valueOf(8L), GeneratedSources.invoke(dto, "getVersion"));
+        Assert.assertEquals("narrowed in range", Byte.valueOf((byte) 3), GeneratedSources.invoke(dto, "getFlags"));
+        Assert.assertEquals("integer as double", Double.valueOf(2.0), GeneratedSources.invoke(dto, "getScore"));
+        Assert.assertEquals("enum name", BeanStatus.ACTIVE.name(),
+                GeneratedSources.invoke(dto, "getStatus").toString());
+        Assert.assertEquals("nested map", "nested",
+                GeneratedSources.invoke(GeneratedSources.invoke(dto, "getBean"), "getA"));
+        Assert.assertEquals("array of maps", "element",
+                GeneratedSources.invoke(((List<?>) GeneratedSources.invoke(dto, "getBeans")).get(0), "getA"));
+        final Map<?, ?> counts = (Map<?, ?>) GeneratedSources.invoke(dto, "getCounts");
+        Assert.assertEquals("map entry converted", BeanStatus.NEW.name(), counts.keySet().iterator().next().toString());
+        Assert.assertEquals("map value converted", Integer.valueOf(3), counts.values().iterator().next());
+    }
+
+    /**
+     * Test method for the values their field can not hold.
+     *
+     * @throws Exception if the DTO class is not generated.
+     */
+    @Test
+    public void testIllegalValues() throws Exception {
+        final Object[][] illegalValues = {
+                {"flags", Integer.valueOf(300)},
+                {"id", Double.valueOf(1.5)},
+                {"id", Long.valueOf(1L << 40)},
+                {"score", Long.valueOf((1L << 53) + 1)},
+                {"id", "7"},
+                {"id", null},
+                {"status", "UNKNOWN"},
+                {"name", Integer.valueOf(1)},
+                {"beans", "bean"},
+                {"beans", Arrays.asList("bean")},
+                {"beanMatrix", new Object[]{new Object[]{Integer.valueOf(1)}}},
+                {"tags", Arrays.asList(Integer.valueOf(1))},
+                {"counts", Collections.singletonMap("UNKNOWN", Integer.valueOf(1))},
+                {"beanIndex", Arrays.asList("key")}};
+        for (final Object[] illegalValue : illegalValues) {
+            final Map<String, Object> map = new HashMap<String, Object>();
+            map.put((String) illegalValue[0], illegalValue[1]);
+            try {
+                generatedSources.invokeStatic("ComplexBeanDTO", "fromMap", map);
+                Assert.fail(illegalValue[1] + " converted for " + illegalValue[0]);
+            }
+            catch (final IllegalArgumentException e) {
+                // expected: the field can not hold the value
+            }
+        }
+    }
+}
@@ -0,0 +1,354 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.AnotherBean;
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.Bean2;
+import fr.maven.dto.bean.BeanStatus;
+import fr.maven.dto.bean.ComplexBean;
+import fr.maven.dto.fixture.ComplexBeans;
+import fr.maven.dto.fixture.GeneratedSources;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests on {@link DTOMapperWriter}: the mappers generated for the test beans
+ * must compile and convert beans to DTOs and back.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOMapperWriterTest {
+
+    private static GeneratedSources generatedSources;
+
+    /**
+     * Generate, compile and load the DTOs and mappers of the test beans.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        final List<Class<?>> classes = new ArrayList<Class<?>>();
+        classes.add(Bean.class);
+        classes.add(Bean2.class);
+        classes.add(AnotherBean.class);
+        classes.add(BeanStatus.class);
+        classes.add(ComplexBean.class);
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "mapper"), generator, classes);
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOMapperWriter#write(java.lang.Class, java.io.Writer)}
+     * with a bean of primitives, enums, a nested class, arrays and
+     * collections.
+     *
+     * @throws Exception if the mapper fails.
+     */
+    @Test
+    public void testToDTOAndBack() throws Exception {
+        final ComplexBean bean = ComplexBeans.newComplexBean();
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", bean);
+        Assert.assertEquals("int not mapped", 7, GeneratedSources.invoke(dto, "getId"));
+        Assert.assertEquals("boolean not mapped", Boolean.TRUE, GeneratedSources.invoke(dto, "isActive"));
+        Assert.assertEquals("char not mapped", 'c', GeneratedSources.invoke(dto, "getCode"));
+        Assert.assertEquals("enum not mapped", "ACTIVE", GeneratedSources.invoke(dto, "getStatus").toString());
+        Assert.assertEquals("enum DTO class", "BeanStatusDTO",
+                GeneratedSources.invoke(dto, "getStatus").getClass().getSimpleName());
+        Assert.assertEquals("nested enum not mapped", "LARGE", GeneratedSources.invoke(dto, "getKind").toString());
+        final Object detail = GeneratedSources.invoke(dto, "getDetail");
+        Assert.assertEquals("nested class not mapped", "ComplexBeanDTO$Detail", detail.getClass().getName()
+                .substring(GeneratedSources.PACKAGE.length() + 1));
+        Assert.assertEquals("nested bean not mapped", "in detail",
+                GeneratedSources.invoke(GeneratedSources.invoke(detail, "getBean"), "getA"));
+
+        final Object matrix = GeneratedSources.invoke(dto, "getBeanMatrix");
+        Assert.assertEquals("array of DTOs not typed", "BeanDTO[][]", matrix.getClass().getSimpleName());
+        Assert.assertEquals("array not sized", 2, Array.getLength(matrix));
+        Assert.assertNull("null element not kept", Array.get(Array.get(matrix, 1), 0));
+        Assert.assertEquals("array element not mapped", "m",
+                GeneratedSources.invoke(Array.get(Array.get(matrix, 0), 0), "getA"));
+        final int[][] grid = (int[][]) GeneratedSources.invoke(dto, "getGrid");
+        Assert.assertNotSame("array of primitives shared", bean.getGrid(), grid);
+        Assert.assertNotSame("nested array of primitives shared", bean.getGrid()[0], grid[0]);
+        Assert.assertTrue("array of primitives not copied", Arrays.deepEquals(bean.getGrid(), grid));
+
+        final List<?> beans = (List<?>) GeneratedSources.invoke(dto, "getBeans");
+        Assert.assertEquals("list not mapped", "BeanDTO", beans.get(0).getClass().getSimpleName());
+        final Map<?, ?> beanIndex = (Map<?, ?>) GeneratedSources.invoke(dto, "getBeanIndex");
+        Assert.assertEquals("map of lists not mapped", "BeanDTO",
+                ((List<?>) beanIndex.get("key")).get(0).getClass().getSimpleName());
+        final Map<?, ?> counts = (Map<?, ?>) GeneratedSources.invoke(dto, "getCounts");
+        Assert.assertEquals("enum keys not mapped", "BeanStatusDTO",
+                counts.keySet().iterator().next().getClass().getSimpleName());
+        final List<?> tags = (List<?>) GeneratedSources.invoke(dto, "getTags");
+        Assert.assertNotSame("list of strings shared", bean.getTags(), tags);
+        Assert.assertEquals("list of strings not copied", bean.getTags(), tags);
+
+        final ComplexBean back = (ComplexBean) generatedSources.invokeStatic("ComplexBeanDTOMapper", "toBean", dto);
+        Assert.assertEquals("int not mapped back", bean.getId(), back.getId());
+        Assert.assertEquals("byte not mapped back", bean.getFlags(), back.getFlags());
+        Assert.assertEquals("short not mapped back", bean.getLevel(), back.getLevel());
+        Assert.assertEquals("Double not mapped back", bean.getScore(), back.getScore());
+        Assert.assertEquals("Date not mapped back", bean.getCreated(), back.getCreated());
+        Assert.assertEquals("enum not mapped back", BeanStatus.ACTIVE, back.getStatus());
+        Assert.assertEquals("nested enum not mapped back", ComplexBean.Kind.LARGE, back.getKind());
+        Assert.assertEquals("nested class not mapped back", "label", back.getDetail().getLabel());
+        Assert.assertNotSame("array of nested class shared", bean.getDetail().getValues(),
+                back.getDetail().getValues());
+        Assert.assertNotSame("list of strings shared back", tags, back.getTags());
+        Assert.assertEquals("array not mapped back", "m", back.getBeanMatrix()[0][0].getA());
+        Assert.assertEquals("set not mapped back", 1, back.getBeanSet().size());
+        Assert.assertEquals("map not mapped back", "i", back.getBeanIndex().get("key").get(0).getA());
+        Assert.assertEquals("enum keys not mapped back", Integer.valueOf(3), back.getCounts().get(BeanStatus.NEW));
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOMapperWriter#write(java.lang.Class, java.io.Writer)}
+     * with <code>null</code> values.
+     *
+     * @throws Exception if the mapper fails.
+     */
+    @Test
+    public void testNullValues() throws Exception {
+        Assert.assertNull("null bean not mapped to null",
+                generatedSources.invokeStatic("BeanDTOMapper", "toDTO", (Object) null));
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO", new ComplexBean());
+        Assert.assertNull("null list not kept", GeneratedSources.invoke(dto, "getBeans"));
+        Assert.assertNull("null enum not kept", GeneratedSources.invoke(dto, "getStatus"));
+        final ComplexBean back = (ComplexBean) generatedSources.invokeStatic("ComplexBeanDTOMapper", "toBean", dto);
+        Assert.assertNull("null nested class not kept", back.getDetail());
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOMapperWriter#write(java.lang.Class, java.io.Writer)}
+     * with the map and array fields of {@link Bean2}.
+     *
+     * @throws Exception if the mapper fails.
+     */
+    @Test
+    public void testMapOfDTOs() throws Exception {
+        final Bean2 bean2 = new Bean2();
+        final Map<Bean, AnotherBean> beansMap = new HashMap<Bean, AnotherBean>();
+        final AnotherBean anotherBean = new AnotherBean();
+        anotherBean.setAttribut1("value");
+        beansMap.put(ComplexBeans.newBean("key"), anotherBean);
+        bean2.setBeansMap(beansMap);
+        bean2.setBeanArray(new Bean[]{ComplexBeans.newBean("first")});
+        bean2.setBeansList(Collections.singletonList(Collections.singletonList(ComplexBeans.newBean("nested"))));
+        final Object dto = generatedSources.invokeStatic("Bean2DTOMapper", "toDTO", bean2);
+        final Map<?, ?> dtoMap = (Map<?, ?>) GeneratedSources.invoke(dto, "getBeansMap");
+        Assert.assertEquals("map value not mapped", "value",
+                GeneratedSources.invoke(dtoMap.values().iterator().next(), "getAttribut1"));
+        final Bean2 back = (Bean2) generatedSources.invokeStatic("Bean2DTOMapper", "toBean", dto);
+        Assert.assertEquals("array not mapped back", "first", back.getBeanArray()[0].getA());
+        Assert.assertEquals("list of lists not mapped back", "nested", back.getBeansList().get(0).get(0).getA());
+        Assert.assertEquals("map key not mapped back", "key", back.getBeansMap().keySet().iterator().next().getA());
+    }
+
+    /**
+     * Test method for the enum constants converted by ordinal, and for the
+     * ordinal helpers of the enum DTOs.
+     *
+     * @throws Exception if a conversion fails.
+     */
+    @Test
+    public void testEnumOrdinals() throws Exception {
+        for (final BeanStatus status : BeanStatus.values()) {
+            final Object dto = generatedSources.invokeStatic("BeanStatusDTOMapper", "toDTO", status);
+            Assert.assertEquals("constant not mapped", status.name(), dto.toString());
+            Assert.assertEquals("constant not mapped back", status,
+                    generatedSources.invokeStatic("BeanStatusDTOMapper", "toBean", dto));
+        }
+        Assert.assertEquals("nested enum not mapped back", ComplexBean.Kind.LARGE, generatedSources.invokeStatic(
+                "ComplexBeanDTOMapper", "toBean", generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO",
+                        ComplexBean.Kind.LARGE)));
+
+        final Object active = generatedSources.invokeStatic("BeanStatusDTOMapper", "toDTO", BeanStatus.ACTIVE);
+        final Integer ordinal = (Integer) generatedSources.invokeStatic("BeanStatusDTO", "toOrdinal", active);
+        Assert.assertSame("ordinal", active, generatedSources.invokeStatic("BeanStatusDTO", "fromOrdinal", ordinal));
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        generatedSources.invokeStatic("BeanStatusDTO", "writeOrdinal", out, active);
+        generatedSources.invokeStatic("BeanStatusDTO", "writeOrdinal", out, null);
+        Assert.assertEquals("ordinals not written on a byte", 2, bytes.size());
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        Assert.assertSame("ordinal not read", active, generatedSources.invokeStatic("BeanStatusDTO", "readOrdinal",
+                in));
+        Assert.assertNull("null not read", generatedSources.invokeStatic("BeanStatusDTO", "readOrdinal", in));
+        try {
+            generatedSources.invokeStatic("BeanStatusDTO", "fromOrdinal", BeanStatus.values().length);
+            Assert.fail("unknown ordinal accepted");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected: no constant has the ordinal
+        }
+    }
+
+    /**
+     * Test method for the ordinal helpers of enum DTOs: they are not generated
+     * when neither the mappers, the Externalizable DTOs nor the codecs use
+     * them.
+     *
+     * @throws Exception if the DTO can not be generated.
+     */
+    @Test
+    public void testEnumOrdinalsNotGenerated() throws Exception {
+        final List<Class<?>> classes = new ArrayList<Class<?>>();
+        classes.add(BeanStatus.class);
+        final GeneratedSources sources = new GeneratedSources(new File("target" + File.separator + "mapper-plain"),
+                new DTOGeneratorImpl(), classes);
+        try {
+            sources.invokeStatic("BeanStatusDTO", "toOrdinal", sources.invokeStatic("BeanStatusDTO", "valueOf",
+                    "ACTIVE"));
+            Assert.fail("ordinal helpers generated without consumer");
+        }
+        catch (final NoSuchMethodException e) {
+            // expected: the plain enum DTO has no ordinal helpers
+        }
+        finally {
+            sources.delete();
+        }
+    }
+
+    /**
+     * Test method for the ordinal helpers of enum DTOs at the boundary of
+     * their byte writing: the ordinals of an enum of 255 constants, written
+     * plus one, fit in a byte, the ordinals of 256 constants take two.
+     *
+     * @throws Exception if the helpers fail.
+     */
+    @Test
+    public void testWideEnumOrdinals() throws Exception {
+        final File root = new File("target" + File.separator + "mapper-wide");
+        try {
+            assertOrdinalsWritten(root, 255, 1);
+            assertOrdinalsWritten(root, 256, 2);
+        }
+        finally {
+            delete(root);
+        }
+    }
+
+    /**
+     * Generate the DTO of an enum of the number of constants given and check
+     * the size its ordinals are written on, and that its last constant and
+     * <code>null</code> are read back.
+     *
+     * @param root      the directory to generate in.
+     * @param constants the number of constants of the enum.
+     * @param size      the number of bytes an ordinal is written on.
+     * @throws Exception if the helpers fail.
+     */
+    private static void assertOrdinalsWritten(final File root, final int constants, final int size)
+            throws Exception {
+        final Class<?> enumClass = compileEnum(new File(root, "enum" + constants), "Wide" + constants, constants);
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        final List<Class<?>> classes = new ArrayList<Class<?>>();
+        classes.add(enumClass);
+        final GeneratedSources sources = new GeneratedSources(new File(root, "dto" + constants), generator, classes);
+        final String dtoName = enumClass.getSimpleName() + "DTO";
+        final Object last = sources.invokeStatic(dtoName, "fromOrdinal", constants - 1);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        sources.invokeStatic(dtoName, "writeOrdinal", out, last);
+        Assert.assertEquals("ordinal of " + constants + " constants not written on " + size + " bytes", size,
+                bytes.size());
+        sources.invokeStatic(dtoName, "writeOrdinal", out, null);
+        Assert.assertEquals("null of " + constants + " constants not written on " + size + " bytes", 2 * size,
+                bytes.size());
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        Assert.assertSame("last constant not read", last, sources.invokeStatic(dtoName, "readOrdinal", in));
+        Assert.assertNull("null not read", sources.invokeStatic(dtoName, "readOrdinal", in));
+    }
+
+    /**
+     * Write, compile and load an enum of constants C0 to C<i>n</i>.
+     *
+     * @param root      the directory to compile in.
+     * @param name      the simple name of the enum.
+     * @param constants the number of constants.
+     * @return the enum.
+     * @throws Exception if the enum can not be compiled or loaded.
+     */
+    private static Class<?> compileEnum(final File root, final String name, final int constants) throws Exception {
+        final File sourcesDirectory = new File(root, "src" + File.separator + "fr" + File.separator + "maven"
+                + File.separator + "dto" + File.separator + "wide");
+        final File classesDirectory = new File(root, "classes");
+        if (!sourcesDirectory.mkdirs() || !classesDirectory.mkdirs()) {
+            throw new IOException("The directory " + root + " can not be created.");
+        }
+        final File source = new File(sourcesDirectory, name + ".java");
+        final Writer writer = new FileWriter(source);
+        try {
+            writer.write("package fr.maven.dto.wide;\n\npublic enum " + name + " {\n");
+            for (int i = 0; i < constants; i++) {
+                writer.write("    C" + i + (i < constants - 1 ? ",\n" : "\n"));
+            }
+            writer.write("}\n");
+        }
+        finally {
+            writer.close();
+        }
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null || compiler.run(null, null, null, "-nowarn", "-source", "1.6", "-target", "1.6", "-d",
+                classesDirectory.getPath(), source.getPath()) != 0) {
+            throw new IOException("The enum " + name + " can not be compiled.");
+        }
+        final ClassLoader classLoader = new URLClassLoader(new URL[]{classesDirectory.toURI().toURL()},
+                DTOMapperWriterTest.class.getClassLoader());
+        return classLoader.loadClass("fr.maven.dto.wide." + name);
+    }
+
+    /**
+     * Delete a file or a directory recursively.
+     *
+     * @param file the file to delete.
+     */
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
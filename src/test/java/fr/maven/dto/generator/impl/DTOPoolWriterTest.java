@@ -0,0 +1,145 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.AnotherBean;
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.Bean2;
+import fr.maven.dto.bean.BeanStatus;
+import fr.maven.dto.bean.ComplexBean;
+import fr.maven.dto.fixture.ComplexBeans;
+import fr.maven.dto.fixture.GeneratedSources;
+import org.apache.commons.pool.ObjectPool;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests on the generated pools: a DTO released must be reset, release its
+ * nested DTOs, and be borrowed again.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOPoolWriterTest {
+
+    private static GeneratedSources generatedSources;
+
+    /**
+     * Generate, compile and load the DTOs, mappers and pools of the test
+     * beans.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        generator.setGenerateEquals(true);
+        generator.setGeneratePools(true);
+        final List<Class<?>> classes = Arrays.<Class<?>>asList(Bean.class, Bean2.class, AnotherBean.class,
+                BeanStatus.class, ComplexBean.class);
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "pools"), generator, classes);
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOPoolWriter#write(java.lang.Class, java.io.Writer)}:
+     * a DTO released is reset, its nested DTOs are released to their own pool,
+     * and both are borrowed again.
+     *
+     * @throws Exception if a pool fails.
+     */
+    @Test
+    public void testRelease() throws Exception {
+        final Object dto = generatedSources.invokeStatic("ComplexBeanDTOMapper", "toDTO",
+                ComplexBeans.newComplexBean());
+        final Object detail = GeneratedSources.invoke(dto, "getDetail");
+        final ObjectPool beanPool = (ObjectPool) generatedSources.invokeStatic("BeanDTOPool", "getPool");
+        final int idleBeans = beanPool.getNumIdle();
+
+        generatedSources.invokeStatic("ComplexBeanDTOPool", "release", dto);
+        Assert.assertEquals("id not reset", Integer.valueOf(0), GeneratedSources.invoke(dto, "getId"));
+        Assert.assertNull("name not reset", GeneratedSources.invoke(dto, "getName"));
+        Assert.assertNull("detail not reset", GeneratedSources.invoke(dto, "getDetail"));
+        Assert.assertNull("list not reset", GeneratedSources.invoke(dto, "getBeans"));
+        Assert.assertNull("nested DTO of the detail not reset", GeneratedSources.invoke(detail, "getBean"));
+        Assert.assertEquals("nested DTOs not released: bean, detail bean, matrix, list, set and index elements",
+                idleBeans + 6, beanPool.getNumIdle());
+
+        Assert.assertSame("DTO not recycled", dto, generatedSources.invokeStatic("ComplexBeanDTOPool", "borrow"));
+        Assert.assertSame("declared DTO not recycled", detail,
+                generatedSources.invokeStatic("ComplexBeanDTOPool", "borrowDetail"));
+        generatedSources.invokeStatic("ComplexBeanDTOPool", "release", new Object[]{null});
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOResetWriter#writeMembers(java.lang.Class, java.io.Writer)}:
+     * a nested DTO referenced by several fields, arrays, lists and maps of
+     * the DTO released is returned to its pool once.
+     *
+     * @throws Exception if a pool fails.
+     */
+    @Test
+    public void testSharedRelease() throws Exception {
+        final Object dto = generatedSources.loadClass("ComplexBeanDTO").newInstance();
+        final Object bean = generatedSources.invokeStatic("BeanDTOPool", "borrow");
+        GeneratedSources.invoke(dto, "setBean", bean);
+        GeneratedSources.invoke(dto, "setBeans", Arrays.asList(bean, bean));
+        final Object matrix = Array.newInstance(bean.getClass(), 1, 1);
+        Array.set(Array.get(matrix, 0), 0, bean);
+        GeneratedSources.invoke(dto, "setBeanMatrix", matrix);
+        GeneratedSources.invoke(dto, "setBeanIndex", Collections.singletonMap("key", Arrays.asList(bean)));
+        final ObjectPool beanPool = (ObjectPool) generatedSources.invokeStatic("BeanDTOPool", "getPool");
+        final int idleBeans = beanPool.getNumIdle();
+
+        generatedSources.invokeStatic("ComplexBeanDTOPool", "release", dto);
+        Assert.assertEquals("shared DTO released more than once", idleBeans + 1, beanPool.getNumIdle());
+        Assert.assertNotSame("same DTO borrowed twice", generatedSources.invokeStatic("BeanDTOPool", "borrow"),
+                generatedSources.invokeStatic("BeanDTOPool", "borrow"));
+    }
+
+    /**
+     * Test method for the factory: a pool created with it resets the DTOs
+     * returned to it directly.
+     *
+     * @throws Exception if a pool fails.
+     */
+    @Test
+    public void testFactory() throws Exception {
+        final ObjectPool pool = (ObjectPool) generatedSources.invokeStatic("BeanDTOPool", "newPool", 1);
+        final Object dto = pool.borrowObject();
+        Assert.assertEquals("DTO type", generatedSources.loadClass("BeanDTO"), dto.getClass());
+        GeneratedSources.invoke(dto, "setA", "a");
+        pool.returnObject(dto);
+        Assert.assertEquals("idle DTOs", 1, pool.getNumIdle());
+        Assert.assertNull("DTO not reset", GeneratedSources.invoke(pool.borrowObject(), "getA"));
+    }
+
+    /**
+     * Test method for the options: immutable DTOs can not be reset.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testImmutable() {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateImmutable(true);
+        generator.setGeneratePools(true);
+        generator.getMemberWriters();
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.SeriesBean;
+import fr.maven.dto.fixture.ComplexBeans;
+import fr.maven.dto.fixture.GeneratedSources;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests on the DTOs generated with primitive collections: the lists and maps
+ * of wrappers of the test bean must be held by primitive arrays and maps,
+ * converted back by the mapper and written as their boxed counterparts by
+ * the JSON codec.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOPrimitiveCollectionsTest {
+
+    private static GeneratedSources generatedSources;
+
+    private static GeneratedSources boxedSources;
+
+    /**
+     * Generate, compile and load the DTOs, mappers and codecs of the test
+     * bean, with and without primitive collections.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final List<Class<?>> classes = Collections.<Class<?>>singletonList(SeriesBean.class);
+        DTOGeneratorImpl generator = newGenerator();
+        generator.setGeneratePrimitiveCollections(true);
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "primitives"), generator, classes);
+        generator = newGenerator();
+        boxedSources = new GeneratedSources(new File("target" + File.separator + "boxed"), generator, classes);
+    }
+
+    /**
+     * Return a generator of every member and companion class.
+     *
+     * @return the generator.
+     */
+    private static DTOGeneratorImpl newGenerator() {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        generator.setGenerateExternalizable(true);
+        generator.setGenerateJsonCodecs(true);
+        generator.setGenerateBinaryCodecs(true);
+        generator.setGenerateEquals(true);
+        return generator;
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+        boxedSources.delete();
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#getPrimitiveCollectionType(java.lang.reflect.Type)}:
+     * lists become arrays and maps of integral keys primitive maps, sets and
+     * lists of strings keep their type.
+     *
+     * @throws Exception if a class can not be loaded.
+     */
+    @Test
+    public void testFieldTypes() throws Exception {
+        final Class<?> dtoClass = generatedSources.loadClass("SeriesBeanDTO");
+        Assert.assertEquals("list not unboxed", int[].class, dtoClass.getDeclaredField("samples").getType());
+        Assert.assertEquals("map not unboxed", "DTOLongDoubleMap",
+                dtoClass.getDeclaredField("prices").getType().getSimpleName());
+        Assert.assertEquals("set changed", Set.class, dtoClass.getDeclaredField("ids").getType());
+        Assert.assertEquals("list of strings changed", List.class, dtoClass.getDeclaredField("labels").getType());
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOMapperWriter#writeBoxingMethod(java.lang.Class, java.lang.String, java.lang.String, java.lang.reflect.Type, java.io.Writer)}.
+     *
+     * @throws Exception if the mapper fails.
+     */
+    @Test
+    public void testMapper() throws Exception {
+        final SeriesBean bean = ComplexBeans.newSeriesBean();
+        final Object dto = generatedSources.invokeStatic("SeriesBeanDTOMapper", "toDTO", bean);
+        Assert.assertArrayEquals("list not unboxed", new int[]{3, -1, 3},
+                (int[]) GeneratedSources.invoke(dto, "getSamples"));
+        final Object prices = GeneratedSources.invoke(dto, "getPrices");
+        Assert.assertEquals("map size", Integer.valueOf(2), GeneratedSources.invoke(prices, "size"));
+        Assert.assertEquals("map order", Long.valueOf(10000000000L), GeneratedSources.invoke(prices, "keyAt", 0));
+        Assert.assertEquals("map hash code", bean.getPrices().hashCode(), prices.hashCode());
+
+        final SeriesBean copy = (SeriesBean) generatedSources.invokeStatic("SeriesBeanDTOMapper", "toBean", dto);
+        Assert.assertEquals("list not boxed", bean.getSamples(), copy.getSamples());
+        Assert.assertEquals("map not boxed", bean.getPrices(), copy.getPrices());
+        Assert.assertEquals("set not copied", bean.getIds(), copy.getIds());
+
+        final Object emptyDTO = generatedSources.invokeStatic("SeriesBeanDTOMapper", "toDTO", new SeriesBean());
+        Assert.assertNull("null list unboxed", GeneratedSources.invoke(emptyDTO, "getSamples"));
+        Assert.assertNull("null map boxed",
+                ((SeriesBean) generatedSources.invokeStatic("SeriesBeanDTOMapper", "toBean", emptyDTO)).getPrices());
+    }
+
+    /**
+     * Test method for the generated primitive map: entries replaced in place,
+     * growth, floating point values compared by their bits, and unmodifiable
+     * copies.
+     *
+     * @throws Exception if the map fails.
+     */
+    @Test
+    public void testPrimitiveMap() throws Exception {
+        final Class<?> mapClass = generatedSources.loadClass("DTOLongDoubleMap");
+        final Object map = mapClass.newInstance();
+        final Map<Long, Double> expected = new HashMap<Long, Double>();
+        for (long key = -20; key < 20; key++) {
+            GeneratedSources.invoke(map, "put", key * 31, (double) key);
+            expected.put(Long.valueOf(key * 31), Double.valueOf(key));
+        }
+        GeneratedSources.invoke(map, "put", 31L, Double.NaN);
+        expected.put(Long.valueOf(31L), Double.valueOf(Double.NaN));
+        Assert.assertEquals("entry not replaced", Integer.valueOf(40), GeneratedSources.invoke(map, "size"));
+        Assert.assertEquals("value lost", Double.valueOf(-20), GeneratedSources.invoke(map, "get", -620L, 0D));
+        Assert.assertEquals("default value", Double.valueOf(7), GeneratedSources.invoke(map, "get", 1L, 7D));
+        Assert.assertEquals("hash code not the one of Map", expected.hashCode(), map.hashCode());
+
+        final Object copy = GeneratedSources.invoke(map, "toUnmodifiable");
+        Assert.assertEquals("NaN not equal", map, copy);
+        try {
+            GeneratedSources.invoke(copy, "put", 1L, 1D);
+            Assert.fail("unmodifiable map modified");
+        }
+        catch (final UnsupportedOperationException e) {
+            // expected: the copy is unmodifiable
+        }
+        GeneratedSources.invoke(map, "put", 1L, 1D);
+        Assert.assertFalse("copy shares the entries", map.equals(copy));
+    }
+
+    /**
+     * Test method for the codecs of the primitive collections: the JSON text
+     * is read by the codec of the boxed DTO and back, and the binary and
+     * externalized forms are read back.
+     *
+     * @throws Exception if a codec fails.
+     */
+    @Test
+    public void testCodecs() throws Exception {
+        final SeriesBean bean = ComplexBeans.newSeriesBean();
+        final Object dto = generatedSources.invokeStatic("SeriesBeanDTOMapper", "toDTO", bean);
+        final Object boxedDTO = boxedSources.invokeStatic("SeriesBeanDTOMapper", "toDTO", bean);
+        final String json = (String) generatedSources.invokeStatic("SeriesBeanDTOJsonCodec", "toJson", dto);
+        final String boxedJson = (String) boxedSources.invokeStatic("SeriesBeanDTOJsonCodec", "toJson", boxedDTO);
+        Assert.assertEquals("JSON not read", dto, generatedSources.invokeStatic("SeriesBeanDTOJsonCodec", "fromJson",
+                json));
+        Assert.assertEquals("boxed JSON not read", dto, generatedSources.invokeStatic("SeriesBeanDTOJsonCodec",
+                "fromJson", boxedJson));
+        Assert.assertEquals("JSON not read by the boxed codec", boxedDTO, boxedSources.invokeStatic(
+                "SeriesBeanDTOJsonCodec", "fromJson", json));
+
+        final ByteBuffer buffer = (ByteBuffer) generatedSources.invokeStatic("SeriesBeanDTOBinaryCodec", "encode", dto);
+        Assert.assertEquals("binary not read", dto, generatedSources.invokeStatic("SeriesBeanDTOBinaryCodec", "decode",
+                buffer));
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(dto);
+        out.close();
+        final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())) {
+            @Override
+            protected Class<?> resolveClass(final java.io.ObjectStreamClass desc) throws ClassNotFoundException {
+                return Class.forName(desc.getName(), false, generatedSources.getClassLoader());
+            }
+        };
+        Assert.assertEquals("externalized DTO not read", dto, in.readObject());
+
+        final Result result = JUnitCore.runClasses(generatedSources.loadClass("SeriesBeanDTOBinaryCodecTest"));
+        Assert.assertTrue("generated test failed: " + result.getFailures(), result.wasSuccessful());
+    }
+}
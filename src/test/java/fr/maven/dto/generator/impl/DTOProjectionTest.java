@@ -0,0 +1,191 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.AnotherBean;
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.Bean2;
+import fr.maven.dto.bean.BeanStatus;
+import fr.maven.dto.bean.ComplexBean;
+import fr.maven.dto.fixture.ComplexBeans;
+import fr.maven.dto.fixture.GeneratedSources;
+import fr.maven.dto.generator.DTOProjection;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests on the projections: the DTO of a projection must keep only its fields
+ * and have the companion classes of the full DTO.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOProjectionTest {
+
+    private static GeneratedSources generatedSources;
+
+    /**
+     * Generate, compile and load the DTOs, projections and companion classes
+     * of the test beans.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DTOGeneratorImpl generator = newGenerator();
+        generator.setProjections(Arrays.asList(
+                new DTOProjection("Summary", Arrays.asList("fr.maven.dto.bean.ComplexBean"),
+                        Arrays.asList("id", "name", "status", "beans", "counts")),
+                new DTOProjection("Label", Arrays.asList("**.Bean"), Arrays.asList("attribut1"))));
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "projections"), generator,
+                getClasses());
+    }
+
+    /**
+     * Return a generator of the mappers and codecs.
+     *
+     * @return the generator.
+     */
+    private static DTOGeneratorImpl newGenerator() {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        generator.setGenerateJsonCodecs(true);
+        generator.setGenerateBinaryCodecs(true);
+        generator.setGenerateEquals(true);
+        return generator;
+    }
+
+    /**
+     * @return the classes to generate.
+     */
+    private static List<Class<?>> getClasses() {
+        final List<Class<?>> classes = new ArrayList<Class<?>>();
+        classes.add(Bean.class);
+        classes.add(Bean2.class);
+        classes.add(AnotherBean.class);
+        classes.add(BeanStatus.class);
+        classes.add(ComplexBean.class);
+        return classes;
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#generateProjection(java.lang.Class, fr.maven.dto.generator.DTOProjection)}:
+     * the projections keep their fields in declaration order, the full DTOs
+     * keep theirs, and the classes that do not match get no projection.
+     *
+     * @throws Exception if a class can not be loaded.
+     */
+    @Test
+    public void testFields() throws Exception {
+        Assert.assertEquals("projection fields", Arrays.asList("id", "name", "status", "beans", "counts"),
+                getFieldNames(generatedSources.loadClass("ComplexBeanSummaryDTO")));
+        Assert.assertEquals("projection of a matching class", Arrays.asList("attribut1"),
+                getFieldNames(generatedSources.loadClass("BeanLabelDTO")));
+        Assert.assertTrue("full DTO changed",
+                getFieldNames(generatedSources.loadClass("ComplexBeanDTO")).contains("detail"));
+        Assert.assertFalse("projection of a class that does not match",
+                generatedSources.getSource("Bean2LabelDTO").exists());
+        Assert.assertEquals("nested DTOs declared again", 0,
+                generatedSources.loadClass("ComplexBeanSummaryDTO").getDeclaredClasses().length);
+    }
+
+    /**
+     * Test method for the companion classes of a projection: mapper, codecs
+     * and generated test.
+     *
+     * @throws Exception if a companion class fails.
+     */
+    @Test
+    public void testCompanions() throws Exception {
+        final ComplexBean bean = ComplexBeans.newComplexBean();
+        final Object dto = generatedSources.invokeStatic("ComplexBeanSummaryDTOMapper", "toDTO", bean);
+        Assert.assertEquals("id", Integer.valueOf(bean.getId()), GeneratedSources.invoke(dto, "getId"));
+        Assert.assertEquals("name", bean.getName(), GeneratedSources.invoke(dto, "getName"));
+        Assert.assertEquals("beans", bean.getBeans().size(),
+                ((List<?>) GeneratedSources.invoke(dto, "getBeans")).size());
+        final ComplexBean copy = (ComplexBean) generatedSources.invokeStatic("ComplexBeanSummaryDTOMapper", "toBean",
+                dto);
+        Assert.assertEquals("name not mapped back", bean.getName(), copy.getName());
+        Assert.assertNull("field out of the projection mapped back", copy.getDetail());
+
+        final String json = (String) generatedSources.invokeStatic("ComplexBeanSummaryDTOJsonCodec", "toJson", dto);
+        Assert.assertFalse("field out of the projection written", json.contains("detail"));
+        Assert.assertEquals("JSON not read", dto, generatedSources.invokeStatic("ComplexBeanSummaryDTOJsonCodec",
+                "fromJson", json));
+        final ByteBuffer buffer = (ByteBuffer) generatedSources.invokeStatic("ComplexBeanSummaryDTOBinaryCodec",
+                "encode", dto);
+        Assert.assertEquals("binary not read", dto, generatedSources.invokeStatic("ComplexBeanSummaryDTOBinaryCodec",
+                "decode", buffer));
+
+        final Result result = JUnitCore.runClasses(generatedSources.loadClass("ComplexBeanSummaryDTOBinaryCodecTest"),
+                generatedSources.loadClass("BeanLabelDTOBinaryCodecTest"));
+        Assert.assertTrue("generated test failed: " + result.getFailures(), result.wasSuccessful());
+    }
+
+    /**
+     * Test method for the projections that can not be generated: a field
+     * that does not exist, a field that refers to a nested DTO.
+     *
+     * @throws Exception if the sources can not be generated.
+     */
+    @Test
+    public void testIllegalProjections() throws Exception {
+        for (final String fieldName : new String[]{"missing", "detail"}) {
+            final DTOGeneratorImpl generator = newGenerator();
+            generator.setProjections(Collections.singletonList(new DTOProjection("Illegal",
+                    Arrays.asList("**.ComplexBean"), Arrays.asList("id", fieldName))));
+            try {
+                new GeneratedSources(new File("target" + File.separator + "illegal"), generator, getClasses());
+                Assert.fail("projection keeping " + fieldName + " generated");
+            }
+            catch (final IllegalArgumentException e) {
+                Assert.assertTrue("field not reported", e.getMessage().contains(fieldName));
+            }
+        }
+        try {
+            new DTOProjection("Not a name", Arrays.asList("**.Bean"), Arrays.asList("a"));
+            Assert.fail("illegal name accepted");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected: the name is inserted in class names
+        }
+    }
+
+    /**
+     * Return the names of the instance fields of a DTO.
+     *
+     * @param dtoClass the DTO class.
+     * @return the field names, in declaration order.
+     */
+    private static List<String> getFieldNames(final Class<?> dtoClass) {
+        final List<String> fieldNames = new ArrayList<String>();
+        for (final Field field : dtoClass.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                fieldNames.add(field.getName());
+            }
+        }
+        return fieldNames;
+    }
+}
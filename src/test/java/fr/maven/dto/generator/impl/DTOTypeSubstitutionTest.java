@@ -0,0 +1,138 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.PaymentBean;
+import fr.maven.dto.fixture.GeneratedSources;
+import fr.maven.dto.generator.DTOTypeSubstitution;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Tests on the type substitutions: the DTO fields of the substituted types
+ * must be held by their substitute, and the mappers must convert them and
+ * their <code>null</code> values.
+ *
+ * @author Wilfried Petit
+ */
+public class DTOTypeSubstitutionTest {
+
+    private static GeneratedSources generatedSources;
+
+    /**
+     * Generate, compile and load the DTO and the mapper of the payment bean,
+     * with its dates held by a long and its decimals by a Long at scale 2.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+        generator.setGenerateMappers(true);
+        generator.setTypeSubstitutions(Arrays.asList(new DTOTypeSubstitution("java.util.Date", "long", 0),
+                new DTOTypeSubstitution("java.util.Calendar", "long", 0),
+                new DTOTypeSubstitution("java.math.BigDecimal", "java.lang.Long", 2)));
+        final List<Class<?>> classes = Arrays.<Class<?>>asList(PaymentBean.class);
+        generatedSources = new GeneratedSources(new File("target" + File.separator + "substitutions"), generator,
+                classes);
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        generatedSources.delete();
+    }
+
+    /**
+     * Test method for the types of the substituted fields.
+     *
+     * @throws Exception if the DTO is not generated.
+     */
+    @Test
+    public void testFieldTypes() throws Exception {
+        final Class<?> dtoClass = generatedSources.loadClass("PaymentBeanDTO");
+        Assert.assertEquals("date", long.class, dtoClass.getMethod("getPaid").getReturnType());
+        Assert.assertEquals("calendar", long.class, dtoClass.getMethod("getDue").getReturnType());
+        Assert.assertEquals("decimal", Long.class, dtoClass.getMethod("getAmount").getReturnType());
+        Assert.assertEquals("element substituted", List.class, dtoClass.getMethod("getReminders").getReturnType());
+    }
+
+    /**
+     * Test method for the conversions of the mapper.
+     *
+     * @throws Exception if the mapper fails.
+     */
+    @Test
+    public void testMapping() throws Exception {
+        final PaymentBean bean = new PaymentBean();
+        bean.setAmount(new BigDecimal("12.345"));
+        bean.setPaid(new Date(1000L));
+        final Calendar due = Calendar.getInstance();
+        due.setTimeInMillis(2000L);
+        bean.setDue(due);
+        bean.setReminders(Collections.singletonList(new Date(3000L)));
+
+        final Object dto = generatedSources.invokeStatic("PaymentBeanDTOMapper", "toDTO", bean);
+        Assert.assertEquals("date", Long.valueOf(1000L), GeneratedSources.invoke(dto, "getPaid"));
+        Assert.assertEquals("calendar", Long.valueOf(2000L), GeneratedSources.invoke(dto, "getDue"));
+        Assert.assertEquals("decimal not rounded half even", Long.valueOf(1234L),
+                GeneratedSources.invoke(dto, "getAmount"));
+
+        final PaymentBean back = (PaymentBean) generatedSources.invokeStatic("PaymentBeanDTOMapper", "toBean", dto);
+        Assert.assertEquals("date", bean.getPaid(), back.getPaid());
+        Assert.assertEquals("calendar", 2000L, back.getDue().getTimeInMillis());
+        Assert.assertEquals("decimal", new BigDecimal("12.34"), back.getAmount());
+        Assert.assertEquals("list of dates", bean.getReminders(), back.getReminders());
+    }
+
+    /**
+     * Test method for the <code>null</code> values of the substituted fields.
+     *
+     * @throws Exception if the mapper fails.
+     */
+    @Test
+    public void testNullValues() throws Exception {
+        final Object dto = generatedSources.invokeStatic("PaymentBeanDTOMapper", "toDTO", new PaymentBean());
+        Assert.assertEquals("null date", Long.valueOf(Long.MIN_VALUE), GeneratedSources.invoke(dto, "getPaid"));
+        Assert.assertNull("null decimal", GeneratedSources.invoke(dto, "getAmount"));
+
+        final PaymentBean back = (PaymentBean) generatedSources.invokeStatic("PaymentBeanDTOMapper", "toBean", dto);
+        Assert.assertNull("null date", back.getPaid());
+        Assert.assertNull("null calendar", back.getDue());
+        Assert.assertNull("null decimal", back.getAmount());
+    }
+
+    /**
+     * Test method for the substitutions that are not supported.
+     */
+    @Test
+    public void testIllegalSubstitution() {
+        try {
+            new DTOTypeSubstitution("java.lang.String", "long", 0);
+            Assert.fail("string substituted");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected: only dates, calendars and decimals are
+        }
+        try {
+            new DTOTypeSubstitution("java.util.Date", "int", 0);
+            Assert.fail("date substituted by an int");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected: the milliseconds need a long
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.generator.ExecutionStatistics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * Tests on {@link ExecutionStatisticsImpl}.
+ *
+ * @author Wilfried Petit
+ */
+public class ExecutionStatisticsImplTest {
+
+    private ExecutionStatisticsImpl statistics;
+
+    /**
+     * Set up statistics with a scan and the generation of two classes.
+     *
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        this.statistics = new ExecutionStatisticsImpl();
+        final long start = this.statistics.start(ExecutionStatistics.PHASE_SCAN);
+        this.statistics.classLoaded("fr.maven.dto.bean.Bean", start);
+        this.statistics.classLoaded("fr.maven.dto.bean.Bean2", start);
+        this.statistics.elementScanned(new File("target" + File.separator + "test-classes"), 3, 2, start);
+        this.statistics.classModelled("fr.maven.dto.bean.Bean", start);
+        this.statistics.classRendered("fr.maven.dto.bean.Bean", 100, start);
+        this.statistics.fileWritten("fr.maven.dto.bean.Bean", new File("BeanDTO.java"), 100, start);
+        this.statistics.fileWritten("fr.maven.dto.bean.Bean2", new File("Bean2DTO.java"), 50, start);
+        this.statistics.phaseEnded(ExecutionStatistics.PHASE_CLASSLOADER, start);
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.ExecutionStatisticsImpl#toJSON()}
+     * .
+     */
+    @Test
+    public void testToJSON() {
+        final String json = this.statistics.toJSON();
+        Assert.assertTrue("entries scanned not reported", json.contains("\"entriesScanned\": 3,"));
+        Assert.assertTrue("classes matched not reported", json.contains("\"classesMatched\": 2,"));
+        Assert.assertTrue("files written not reported", json.contains("\"filesWritten\": 2,"));
+        Assert.assertTrue("bytes written not reported", json.contains("\"bytesWritten\": 150"));
+        Assert.assertTrue("write phase not reported", json.contains("\"write\": {\"count\": 2,"));
+        Assert.assertTrue("classloader phase not reported", json.contains("\"classloader\": {\"count\": 1,"));
+        Assert.assertTrue("class not reported", json.contains("{\"name\": \"fr.maven.dto.bean.Bean2\""));
+        Assert.assertTrue("element not reported", json.contains("\"entriesScanned\": 3, \"classesMatched\": 2"));
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.ExecutionStatisticsImpl#getSummary(int)}
+     * .
+     */
+    @Test
+    public void testGetSummary() {
+        final String summary = this.statistics.getSummary(1);
+        Assert.assertEquals("summary should be one line", -1, summary.indexOf('\n'));
+        Assert.assertTrue("counters not summarized", summary.contains("3 entries scanned, 2 classes matched, 2 files written, 150 bytes written"));
+        Assert.assertTrue("slowest archive not summarized", summary.contains("slowest archives: test-classes "));
+        Assert.assertEquals("only one slowest class should be listed", summary.indexOf("fr.maven.dto.bean."),
+                summary.lastIndexOf("fr.maven.dto.bean."));
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.ExecutionStatisticsImpl#writeReport(java.io.File)}
+     * .
+     */
+    @Test
+    public void testWriteReport() {
+        final File reportFile = new File("target" + File.separator + "statistics" + File.separator + "report.json");
+        try {
+            this.statistics.writeReport(reportFile);
+            final BufferedReader bf = new BufferedReader(new FileReader(reportFile));
+            final String firstLine = bf.readLine();
+            bf.close();
+            Assert.assertEquals("Report is not a JSON object", "{", firstLine);
+            reportFile.delete();
+            reportFile.getParentFile().delete();
+        }
+        catch (final IOException e) {
+            Assert.fail("The report has not been written.");
+        }
+    }
+}
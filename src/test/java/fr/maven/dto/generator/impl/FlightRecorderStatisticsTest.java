@@ -0,0 +1,99 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.generator.ExecutionStatistics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Tests on {@link FlightRecorderStatistics}.
+ *
+ * @author Wilfried Petit
+ */
+public class FlightRecorderStatisticsTest {
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.FlightRecorderStatistics#isAvailable()}
+     * .
+     */
+    @Test
+    public void testIsAvailable() {
+        boolean flightRecorderInJVM;
+        try {
+            Class.forName("jdk.jfr.EventFactory");
+            flightRecorderInJVM = true;
+        }
+        catch (final ClassNotFoundException e) {
+            flightRecorderInJVM = false;
+        }
+        Assert.assertEquals("Flight Recorder detection is wrong", flightRecorderInJVM,
+                FlightRecorderStatistics.isAvailable());
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.FlightRecorderStatistics#decorate(fr.maven.dto.generator.ExecutionStatistics)}
+     * .
+     */
+    @Test
+    public void testDecorateRecordsInDecoratedStatistics() {
+        final ExecutionStatisticsImpl decorated = new ExecutionStatisticsImpl();
+        final ExecutionStatistics statistics = FlightRecorderStatistics.decorate(decorated);
+        final long start = statistics.start(ExecutionStatistics.PHASE_SCAN);
+        statistics.phaseEnded(ExecutionStatistics.PHASE_CLASSLOADER, start);
+        statistics.classLoaded("fr.maven.dto.bean.Bean", start);
+        statistics.elementScanned(new File("beans.jar"), 2, 1, start);
+        statistics.classModelled("fr.maven.dto.bean.Bean", start);
+        statistics.classRendered("fr.maven.dto.bean.Bean", 10, start);
+        statistics.fileWritten("fr.maven.dto.bean.Bean", new File("BeanDTO.java"), 10, start);
+        statistics.executionEnded();
+        Assert.assertTrue("Decorated statistics did not record the steps",
+                decorated.getSummary(0).contains("2 entries scanned, 1 classes matched, 1 files written, 10 bytes written"));
+        Assert.assertEquals("Summary is not the decorated one", decorated.getSummary(1), statistics.getSummary(1));
+    }
+
+    /**
+     * Test method for the duration of the events recorded, from the start of
+     * their step to its end. The <code>jdk.jfr</code> API is reached by
+     * reflection, as the plugin does.
+     *
+     * @throws Exception if the recording fails.
+     */
+    @Test
+    public void testEventsSpanTheirSteps() throws Exception {
+        if (!FlightRecorderStatistics.isAvailable()) {
+            return;
+        }
+        final Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+        final Class<?> pathClass = Class.forName("java.nio.file.Path");
+        final Object recording = recordingClass.newInstance();
+        recordingClass.getMethod("enable", String.class).invoke(recording, "fr.maven.dto.ClassLoad");
+        recordingClass.getMethod("start").invoke(recording);
+        final ExecutionStatistics statistics = FlightRecorderStatistics.decorate(new ExecutionStatisticsImpl());
+        final long start = statistics.start(ExecutionStatistics.PHASE_LOAD);
+        Thread.sleep(50);
+        statistics.classLoaded("fr.maven.dto.bean.Bean", start);
+        recordingClass.getMethod("stop").invoke(recording);
+        final File recordingFile = new File("target" + File.separator + "statistics.jfr");
+        final Object path = File.class.getMethod("toPath").invoke(recordingFile);
+        recordingClass.getMethod("dump", pathClass).invoke(recording, path);
+        recordingClass.getMethod("close").invoke(recording);
+
+        final List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+                .getMethod("readAllEvents", pathClass).invoke(null, path);
+        Assert.assertEquals("One class load event expected", 1, events.size());
+        final Object event = events.get(0);
+        final Method getDuration = event.getClass().getMethod("getDuration");
+        final Object duration = getDuration.invoke(event);
+        final long millis = (Long) duration.getClass().getMethod("toMillis").invoke(duration);
+        Assert.assertTrue("The event does not span its step: " + duration, millis >= 50);
+        Assert.assertTrue("Recording not deleted", recordingFile.delete());
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.bean.Bean;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests on {@link GenerationCacheImpl}.
+ *
+ * @author Wilfried Petit
+ */
+public class GenerationCacheImplTest {
+
+    private static final String[] INCLUDES = new String[]{"**/*.class"};
+
+    private static final String[] EXCLUDES = new String[0];
+
+    private GenerationCacheImpl cache;
+
+    private File directory;
+
+    /**
+     * Set up an empty cache and a directory with one file.
+     *
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        this.cache = new GenerationCacheImpl();
+        this.directory = new File("target" + File.separator + "cache");
+        this.directory.mkdirs();
+        this.write(new File(this.directory, "A.class"), "a");
+    }
+
+    /**
+     * Delete the directory.
+     */
+    @After
+    public void tearDown() {
+        final File[] files = this.directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        this.directory.delete();
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.GenerationCacheImpl#getScanIndex(java.io.File, java.lang.String[], java.lang.String[])}
+     * .
+     *
+     * @throws IOException if a file can not be written.
+     */
+    @Test
+    public void testGetScanIndex() throws IOException {
+        Assert.assertNull("Nothing should be cached yet",
+                this.cache.getScanIndex(this.directory, INCLUDES, EXCLUDES));
+        this.cache.putScanIndex(this.directory, INCLUDES, EXCLUDES, new String[]{"A.class"});
+        Assert.assertArrayEquals("Scan index not cached", new String[]{"A.class"},
+                this.cache.getScanIndex(this.directory, INCLUDES, EXCLUDES));
+        Assert.assertNull("Scan index cached for other patterns",
+                this.cache.getScanIndex(this.directory, new String[]{"**/*DTO.class"}, EXCLUDES));
+        this.write(new File(this.directory, "B.class"), "b");
+        Assert.assertNull("Scan index not invalidated by a new entry",
+                this.cache.getScanIndex(this.directory, INCLUDES, EXCLUDES));
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.GenerationCacheImpl#getClassLoader(java.util.List)}
+     * .
+     *
+     * @throws IOException if a file can not be written.
+     */
+    @Test
+    public void testGetClassLoader() throws IOException {
+        final List<File> classpath = Collections.singletonList(this.directory);
+        final ClassLoader classLoader = new ClassLoader() {
+        };
+        this.cache.putClassLoader(classpath, classLoader);
+        Assert.assertSame("Class loader not cached", classLoader, this.cache.getClassLoader(classpath));
+        Assert.assertNull("Class loader cached for another classpath",
+                this.cache.getClassLoader(new ArrayList<File>()));
+        final File file = new File(this.directory, "A.class");
+        this.write(file, "a modified");
+        Assert.assertNull("Class loader not invalidated by a modified class",
+                this.cache.getClassLoader(classpath));
+    }
+
+    /**
+     * Test method for the class loaders evicted or replaced, that a
+     * concurrent build may still use: they must not be closed.
+     */
+    @Test
+    public void testEvictedClassLoadersNotClosed() {
+        final List<ClosingClassLoader> classLoaders = new ArrayList<ClosingClassLoader>();
+        for (int i = 0; i < 8; i++) {
+            final ClosingClassLoader classLoader = new ClosingClassLoader();
+            classLoaders.add(classLoader);
+            this.cache.putClassLoader(Collections.singletonList(new File(this.directory, "lib" + i % 6 + ".jar")),
+                    classLoader);
+        }
+        this.cache.clear();
+        for (final ClosingClassLoader classLoader : classLoaders) {
+            Assert.assertFalse("Class loader closed", classLoader.closed);
+        }
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.GenerationCacheImpl#getModel(java.lang.Class, java.lang.String)}
+     * .
+     */
+    @Test
+    public void testGetModel() {
+        final Map<String, String> model = new HashMap<String, String>();
+        model.put("field", "int");
+        this.cache.putModel(Bean.class, "context", model);
+        Assert.assertEquals("Model not cached", model, this.cache.getModel(Bean.class, "context"));
+        Assert.assertNull("Model cached for another context", this.cache.getModel(Bean.class, "other"));
+        this.cache.clear();
+        Assert.assertNull("Model not cleared", this.cache.getModel(Bean.class, "context"));
+    }
+
+    /**
+     * Test method for
+     * {@link fr.maven.dto.generator.impl.GenerationCacheImpl#isUpToDate(java.lang.Class, java.lang.String, java.io.File)}
+     * .
+     *
+     * @throws IOException if a file can not be written.
+     */
+    @Test
+    public void testIsUpToDate() throws IOException {
+        final File file = new File(this.directory, "BeanDTO.java");
+        this.write(file, "class BeanDTO {}");
+        Assert.assertFalse("Output should not be known yet", this.cache.isUpToDate(Bean.class, "context", file));
+        this.cache.putOutput(Bean.class, "context", file);
+        Assert.assertTrue("Output not cached", this.cache.isUpToDate(Bean.class, "context", file));
+        Assert.assertFalse("Output cached for another context", this.cache.isUpToDate(Bean.class, "other", file));
+        this.write(file, "class BeanDTO { int modified; }");
+        Assert.assertFalse("Output not invalidated by a modification",
+                this.cache.isUpToDate(Bean.class, "context", file));
+        file.delete();
+        Assert.assertFalse("Output not invalidated by a deletion", this.cache.isUpToDate(Bean.class, "context", file));
+    }
+
+    private void write(final File file, final String content) throws IOException {
+        final long lastModified = file.lastModified();
+        final FileWriter fw = new FileWriter(file);
+        fw.write(content);
+        fw.close();
+        if (file.lastModified() == lastModified) {
+            file.setLastModified(lastModified + 1000);
+        }
+    }
+
+    /**
+     * A class loader recording that it has been closed.
+     */
+    public static final class ClosingClassLoader extends ClassLoader {
+
+        private boolean closed;
+
+        /**
+         * Close the class loader, as <code>URLClassLoader</code> does.
+         */
+        public void close() {
+            this.closed = true;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/**
+ *
+ */
+package fr.maven.dto.generator.impl;
+
+import fr.maven.dto.fixture.SyntheticClasspath;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scaling tests on {@link ClassFinderImpl} and {@link DTOGeneratorImpl}: the
+ * scan and the generation of a synthetic classpath four times larger must
+ * stay within a linear budget of time and peak heap.
+ *
+ * @author Wilfried Petit
+ */
+public class ScalingBudgetTest {
+
+    /**
+     * Number of beans of the small classpath.
+     */
+    private static final int SMALL_BEAN_COUNT = 500;
+
+    /**
+     * Number of beans of the large classpath.
+     */
+    private static final int LARGE_BEAN_COUNT = 2000;
+
+    /**
+     * Tolerance over a strictly linear growth. A quadratic step gives a ratio
+     * of 16 between the two classpaths, well above 4 times this slack.
+     */
+    private static final double SLACK = 2.0;
+
+    /**
+     * Time under which growth is ignored, in nanoseconds.
+     */
+    private static final long TIME_FLOOR = 100000000L;
+
+    /**
+     * Peak heap under which growth is ignored, in bytes.
+     */
+    private static final long HEAP_FLOOR = 64L * 1024 * 1024;
+
+    /**
+     * Number of runs of each measure, the best one being kept.
+     */
+    private static final int RUNS = 3;
+
+    private static File fixtureDirectory;
+
+    private static SyntheticClasspath smallClasspath;
+
+    private static SyntheticClasspath largeClasspath;
+
+    /**
+     * Generate the small and large synthetic classpaths.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        fixtureDirectory = new File("target" + File.separator + "scaling");
+        smallClasspath = new SyntheticClasspath(new File(fixtureDirectory, "small"), SMALL_BEAN_COUNT);
+        largeClasspath = new SyntheticClasspath(new File(fixtureDirectory, "large"), LARGE_BEAN_COUNT);
+    }
+
+    /**
+     * Delete the synthetic classpaths and the generated DTOs.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        smallClasspath.delete();
+        largeClasspath.delete();
+        deleteFiles(fixtureDirectory);
+    }
+
+    /**
+     * The scan of directories and jars must grow linearly with the classpath.
+     *
+     * @throws Exception if the scan failed.
+     */
+    @Test
+    public void testScanScalesLinearly() throws Exception {
+        final long[] small = measure(new ScanWorkload(smallClasspath));
+        final long[] large = measure(new ScanWorkload(largeClasspath));
+        assertLinear("scan time", small[0], large[0], TIME_FLOOR);
+        assertLinear("scan peak heap", small[1], large[1], HEAP_FLOOR);
+    }
+
+    /**
+     * The generation must grow linearly with the number of classes.
+     *
+     * @throws Exception if the generation failed.
+     */
+    @Test
+    public void testGenerationScalesLinearly() throws Exception {
+        final long[] small = measure(new GenerationWorkload(smallClasspath));
+        final long[] large = measure(new GenerationWorkload(largeClasspath));
+        assertLinear("generation time", small[0], large[0], TIME_FLOOR);
+        assertLinear("generation peak heap", small[1], large[1], HEAP_FLOOR);
+    }
+
+    /**
+     * Check the large measure stays within a linear budget of the small one.
+     *
+     * @param what  the measure name.
+     * @param small the measure on the small classpath.
+     * @param large the measure on the large classpath.
+     * @param floor the growth ignored.
+     */
+    private static void assertLinear(final String what, final long small, final long large, final long floor) {
+        final double ratio = (double) LARGE_BEAN_COUNT / SMALL_BEAN_COUNT;
+        final long budget = (long) (small * ratio * SLACK) + floor;
+        Assert.assertTrue(what + " is over its linear budget: " + large + " for " + LARGE_BEAN_COUNT
+                + " beans, " + small + " for " + SMALL_BEAN_COUNT + " beans, budget " + budget,
+                large <= budget);
+    }
+
+    /**
+     * Run a workload several times after a warm up run.
+     *
+     * @param workload the workload.
+     * @return the best time in nanoseconds and the best peak heap in bytes.
+     * @throws Exception if the workload failed.
+     */
+    private static long[] measure(final Workload workload) throws Exception {
+        workload.run();
+        long bestTime = Long.MAX_VALUE;
+        long bestHeap = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            System.gc();
+            final List<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>();
+            long usedBefore = 0;
+            for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                    pool.resetPeakUsage();
+                    usedBefore += pool.getUsage().getUsed();
+                    heapPools.add(pool);
+                }
+            }
+            final long start = System.nanoTime();
+            workload.run();
+            bestTime = Math.min(bestTime, System.nanoTime() - start);
+            long peak = 0;
+            for (final MemoryPoolMXBean pool : heapPools) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+            bestHeap = Math.min(bestHeap, Math.max(0, peak - usedBefore));
+        }
+        return new long[]{bestTime, bestHeap};
+    }
+
+    private static void deleteFiles(final File file) {
+        if (file != null && file.exists()) {
+            if (file.isDirectory()) {
+                for (final File fileChild : file.listFiles()) {
+                    deleteFiles(fileChild);
+                }
+            }
+            file.delete();
+        }
+    }
+
+    /**
+     * A measured workload.
+     */
+    private abstract static class Workload {
+
+        protected final SyntheticClasspath classpath;
+
+        Workload(final SyntheticClasspath classpath) {
+            this.classpath = classpath;
+        }
+
+        abstract void run() throws Exception;
+
+        /**
+         * Scan the synthetic classpath.
+         *
+         * @return the classes found.
+         * @throws ClassNotFoundException if a class found can not be loaded.
+         */
+        List<Class<?>> scan() throws ClassNotFoundException {
+            final List<Class<?>> classes = new ClassFinderImpl().getClassesToGenerate(
+                    this.classpath.getClassLoader(), this.classpath.getBaseDirectories(),
+                    this.classpath.getIncludes(), new ArrayList<String>());
+            Assert.assertEquals("Synthetic classes not all found", this.classpath.getClassCount(), classes.size());
+            return classes;
+        }
+    }
+
+    /**
+     * Scan of the synthetic classpath.
+     */
+    private static final class ScanWorkload extends Workload {
+
+        ScanWorkload(final SyntheticClasspath classpath) {
+            super(classpath);
+        }
+
+        @Override
+        void run() throws Exception {
+            this.scan();
+        }
+    }
+
+    /**
+     * Generation of the DTOs of the synthetic classpath.
+     */
+    private static final class GenerationWorkload extends Workload {
+
+        private final List<Class<?>> classes;
+
+        GenerationWorkload(final SyntheticClasspath classpath) throws ClassNotFoundException {
+            super(classpath);
+            this.classes = this.scan();
+        }
+
+        @Override
+        void run() throws Exception {
+            final DTOGeneratorImpl generator = new DTOGeneratorImpl();
+            generator.setGeneratedDirectory(new File(fixtureDirectory, "generated-" + this.classpath.getBeanCount()));
+            generator.setGeneratedPackage(SyntheticClasspath.PACKAGE + ".dto");
+            generator.setExtraInterfaces(new ArrayList<String>());
+            generator.generateDTOs(this.classes);
+        }
+    }
+}